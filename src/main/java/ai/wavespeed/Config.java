@@ -61,11 +61,38 @@ public final class Config {
 
         /**
          * Base interval between retries in seconds.
-         * Actual delay = retryInterval * attempt (exponential backoff).
+         * Delays grow exponentially from this value with decorrelated jitter,
+         * up to maxRetryInterval.
          * Default: 1.0
          */
         public double retryInterval;
 
+        /**
+         * Maximum interval between retries in seconds.
+         * Default: 30.0
+         */
+        public double maxRetryInterval;
+
+        /**
+         * Consecutive connection or server errors after which the circuit breaker
+         * for an endpoint opens and requests fail fast. 0 disables the breaker.
+         * Default: 5
+         */
+        public int circuitBreakerThreshold;
+
+        /**
+         * Time in seconds an open circuit breaker waits before letting a probe request through.
+         * Default: 30.0
+         */
+        public double circuitBreakerOpenDuration;
+
+        /**
+         * Size in bytes above which prediction request bodies are sent gzip-compressed
+         * (Content-Encoding: gzip). 0 disables compression.
+         * Default: 0
+         */
+        public int requestCompressionThreshold;
+
         /**
          * Initialize with default values from environment variables.
          */
@@ -77,6 +104,10 @@ public final class Config {
             this.maxRetries = getEnvInt("WAVESPEED_MAX_RETRIES", 0);
             this.maxConnectionRetries = getEnvInt("WAVESPEED_MAX_CONNECTION_RETRIES", 5);
             this.retryInterval = getEnvDouble("WAVESPEED_RETRY_INTERVAL", 1.0);
+            this.maxRetryInterval = getEnvDouble("WAVESPEED_MAX_RETRY_INTERVAL", 30.0);
+            this.circuitBreakerThreshold = getEnvInt("WAVESPEED_CIRCUIT_BREAKER_THRESHOLD", 5);
+            this.circuitBreakerOpenDuration = getEnvDouble("WAVESPEED_CIRCUIT_BREAKER_OPEN_DURATION", 30.0);
+            this.requestCompressionThreshold = getEnvInt("WAVESPEED_REQUEST_COMPRESSION_THRESHOLD", 0);
         }
 
         private static String getEnv(String key, String defaultValue) {
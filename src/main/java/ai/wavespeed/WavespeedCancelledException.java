@@ -0,0 +1,19 @@
+package ai.wavespeed;
+
+/**
+ * An operation was cancelled by the caller before it finished.
+ */
+public class WavespeedCancelledException extends WavespeedException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Create a cancellation exception.
+     *
+     * @param message Error message
+     * @param taskId ID of the task, or null if it had not been created yet
+     */
+    public WavespeedCancelledException(String message, String taskId) {
+        super(message, taskId, null);
+    }
+}
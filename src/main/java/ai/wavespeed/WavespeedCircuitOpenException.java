@@ -0,0 +1,36 @@
+package ai.wavespeed;
+
+/**
+ * A request was rejected without being sent because the circuit breaker for
+ * its endpoint is open.
+ *
+ * <p>The breaker opens after repeated connection errors or server errors, so
+ * callers fail fast during an API incident instead of running the full retry
+ * loop. No request reached the server, so this error is never ambiguous.</p>
+ */
+public class WavespeedCircuitOpenException extends WavespeedException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double retryAfter;
+
+    /**
+     * Create a circuit-open exception.
+     *
+     * @param message Error message
+     * @param retryAfter Seconds until the breaker lets a probe request through
+     */
+    public WavespeedCircuitOpenException(String message, double retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Get the time until the breaker lets a probe request through.
+     *
+     * @return Seconds until the next probe is allowed
+     */
+    public double getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -2,16 +2,24 @@ package ai.wavespeed;
 
 /**
  * Base unchecked exception for errors raised by the WaveSpeed Java SDK.
+ *
+ * <p>When the error concerns a task that was already created on the server,
+ * {@link #getTaskId()} returns its ID so the task can still be tracked or
+ * queried later.</p>
  */
 public class WavespeedException extends RuntimeException {
 
+    private static final long serialVersionUID = 1L;
+
+    private final String taskId;
+
     /**
      * Create an exception with a message.
      *
      * @param message Error message
      */
     public WavespeedException(String message) {
-        super(message);
+        this(message, null, null);
     }
 
     /**
@@ -21,6 +29,27 @@ public class WavespeedException extends RuntimeException {
      * @param cause Underlying cause
      */
     public WavespeedException(String message, Throwable cause) {
+        this(message, null, cause);
+    }
+
+    /**
+     * Create an exception for a known task.
+     *
+     * @param message Error message
+     * @param taskId ID of the task the error concerns (null if unknown)
+     * @param cause Underlying cause (may be null)
+     */
+    public WavespeedException(String message, String taskId, Throwable cause) {
         super(message, cause);
+        this.taskId = taskId;
+    }
+
+    /**
+     * Get the ID of the task this error concerns.
+     *
+     * @return Task ID, or null if no task is known
+     */
+    public String getTaskId() {
+        return taskId;
     }
 }
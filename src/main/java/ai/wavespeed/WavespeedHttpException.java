@@ -0,0 +1,71 @@
+package ai.wavespeed;
+
+/**
+ * An API request received an unsuccessful HTTP response.
+ */
+public class WavespeedHttpException extends WavespeedException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final Double retryAfter;
+    private final String responseBody;
+
+    /**
+     * Create an HTTP exception.
+     *
+     * @param message Error message
+     * @param statusCode HTTP status code
+     * @param retryAfter Server-requested delay from the Retry-After header in seconds (null if absent)
+     * @param responseBody Response body (may be empty)
+     * @param taskId ID of the task the request concerned (null if none)
+     */
+    public WavespeedHttpException(
+            String message,
+            int statusCode,
+            Double retryAfter,
+            String responseBody,
+            String taskId
+    ) {
+        super(message, taskId, null);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+        this.responseBody = responseBody;
+    }
+
+    /**
+     * Get the HTTP status code.
+     *
+     * @return Status code
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Get the delay requested by the server through the Retry-After header.
+     *
+     * @return Delay in seconds, or null if the header was absent
+     */
+    public Double getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Get the response body.
+     *
+     * @return Response body (may be empty)
+     */
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    /**
+     * Whether the status indicates a transient condition (HTTP 5xx or 429).
+     *
+     * @return True for server errors and rate limiting
+     */
+    public boolean isTransient() {
+        return statusCode >= 500 || statusCode == 429;
+    }
+}
@@ -0,0 +1,22 @@
+package ai.wavespeed;
+
+/**
+ * A prediction was rejected by client-side admission control before it was
+ * submitted, because the submission queue was full.
+ *
+ * <p>No request reached the server. Callers can shed the work or try again
+ * later.</p>
+ */
+public class WavespeedRejectedException extends WavespeedException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Create a rejection exception.
+     *
+     * @param message Error message
+     */
+    public WavespeedRejectedException(String message) {
+        super(message);
+    }
+}
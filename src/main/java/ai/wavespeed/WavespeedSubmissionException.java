@@ -9,6 +9,11 @@ package ai.wavespeed;
  */
 public class WavespeedSubmissionException extends WavespeedException {
 
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final Double retryAfter;
+
     /**
      * Create a submission exception with a message.
      *
@@ -16,6 +21,8 @@ public class WavespeedSubmissionException extends WavespeedException {
      */
     public WavespeedSubmissionException(String message) {
         super(message);
+        this.statusCode = 0;
+        this.retryAfter = null;
     }
 
     /**
@@ -26,5 +33,38 @@ public class WavespeedSubmissionException extends WavespeedException {
      */
     public WavespeedSubmissionException(String message, Throwable cause) {
         super(message, cause);
+        this.statusCode = 0;
+        this.retryAfter = null;
+    }
+
+    /**
+     * Create a submission exception for an unsuccessful HTTP response.
+     *
+     * @param message Error message
+     * @param statusCode HTTP status code
+     * @param retryAfter Server-requested delay from the Retry-After header in seconds (null if absent)
+     */
+    public WavespeedSubmissionException(String message, int statusCode, Double retryAfter) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Get the HTTP status code of the submission response.
+     *
+     * @return Status code, or 0 if no response was received
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Get the delay requested by the server through the Retry-After header.
+     *
+     * @return Delay in seconds, or null if absent
+     */
+    public Double getRetryAfter() {
+        return retryAfter;
     }
 }
@@ -0,0 +1,44 @@
+package ai.wavespeed;
+
+/**
+ * A prediction reached a terminal unsuccessful status (failed, cancelled or timeout).
+ */
+public class WavespeedTaskException extends WavespeedException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String status;
+    private final String error;
+
+    /**
+     * Create a task exception.
+     *
+     * @param message Error message
+     * @param taskId ID of the task
+     * @param status Terminal task status reported by the server
+     * @param error Error reported by the server (may be null)
+     */
+    public WavespeedTaskException(String message, String taskId, String status, String error) {
+        super(message, taskId, null);
+        this.status = status;
+        this.error = error;
+    }
+
+    /**
+     * Get the terminal task status.
+     *
+     * @return Status reported by the server (e.g. "failed")
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * Get the error reported by the server.
+     *
+     * @return Error message, or null if none was reported
+     */
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,33 @@
+package ai.wavespeed;
+
+/**
+ * An operation ran out of time before the prediction finished.
+ *
+ * <p>The task may still be processing on the server; when it was created,
+ * {@link #getTaskId()} returns its ID so the result can be queried later.</p>
+ */
+public class WavespeedTimeoutException extends WavespeedException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Create a timeout exception.
+     *
+     * @param message Error message
+     * @param taskId ID of the task, or null if no task was created
+     */
+    public WavespeedTimeoutException(String message, String taskId) {
+        super(message, taskId, null);
+    }
+
+    /**
+     * Create a timeout exception with the failure that could not be retried in time.
+     *
+     * @param message Error message
+     * @param taskId ID of the task, or null if no task was created
+     * @param cause Underlying cause
+     */
+    public WavespeedTimeoutException(String message, String taskId, Throwable cause) {
+        super(message, taskId, cause);
+    }
+}
@@ -0,0 +1,176 @@
+package ai.wavespeed.api;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One API key of an {@link ApiKeyPool}, with its rate budget and usage statistics.
+ *
+ * <p>The key itself is never exposed; {@link #getMaskedKey()} identifies it in
+ * logs and metrics.</p>
+ */
+public final class ApiKey {
+    private final String value;
+    private final ApiKeyPool pool;
+    private final double requestsPerSecond;
+    private final double burst;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    private long cooldownUntil = System.nanoTime();
+
+    ApiKey(String value, double requestsPerSecond, ApiKeyPool pool) {
+        this.value = value;
+        this.pool = pool;
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = Math.max(1.0, requestsPerSecond);
+        this.tokens = burst;
+    }
+
+    String value() {
+        return value;
+    }
+
+    /**
+     * Get the key with all but its first and last four characters hidden.
+     *
+     * @return Masked key
+     */
+    public String getMaskedKey() {
+        if (value.length() <= 8) {
+            return "****";
+        }
+        return value.substring(0, 4) + "..." + value.substring(value.length() - 4);
+    }
+
+    /**
+     * Get the rate budget of the key.
+     *
+     * @return Requests per second (0 = unlimited)
+     */
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    /**
+     * Get the number of requests currently in flight with this key.
+     *
+     * @return In-flight requests
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Get the number of requests sent with this key.
+     *
+     * @return Requests since the key was added
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Get the number of HTTP 429 responses received with this key.
+     *
+     * @return Throttled requests since the key was added
+     */
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    /**
+     * Get the time until a throttled key is used for new tasks again.
+     *
+     * @return Remaining cooldown in seconds (0 if not cooling down)
+     */
+    public synchronized double getCooldownRemaining() {
+        long left = cooldownUntil - System.nanoTime();
+        return left > 0 ? left / 1_000_000_000.0 : 0.0;
+    }
+
+    /**
+     * Whether the key is cooling down after a 429.
+     *
+     * @return True while new tasks avoid this key
+     */
+    public boolean isCoolingDown() {
+        return getCooldownRemaining() > 0;
+    }
+
+    /**
+     * Get the time until the rate budget allows another request.
+     *
+     * @return Seconds to wait (0 if a request may be sent now)
+     */
+    synchronized double timeUntilPermit() {
+        if (requestsPerSecond <= 0) {
+            return 0.0;
+        }
+        refill();
+        return tokens >= 1.0 ? 0.0 : (1.0 - tokens) / requestsPerSecond;
+    }
+
+    /**
+     * Wait until the rate budget allows a request and take one permit.
+     *
+     * @param op Operation sending the request; its deadline bounds the wait
+     * @throws InterruptedException if the thread is interrupted
+     * @throws ai.wavespeed.WavespeedTimeoutException if no permit fits before the deadline
+     */
+    void acquire(Operation op) throws InterruptedException {
+        while (true) {
+            double wait;
+            synchronized (this) {
+                wait = timeUntilPermit();
+                if (wait <= 0) {
+                    if (requestsPerSecond > 0) {
+                        tokens -= 1.0;
+                    }
+                    return;
+                }
+            }
+            if (wait >= op.getDeadline().remaining()) {
+                throw Client.deadlineExceeded(op.getDeadline(), op.getTaskId());
+            }
+            op.sleep(wait);
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) / 1_000_000_000.0 * requestsPerSecond);
+        refilledAt = now;
+    }
+
+    void begin() {
+        inFlight.incrementAndGet();
+        requestCount.incrementAndGet();
+    }
+
+    void end() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Record an HTTP 429 and stop using the key for new tasks for a while.
+     *
+     * @param retryAfter Delay requested by the server in seconds (null = pool cooldown)
+     */
+    synchronized void onThrottled(Double retryAfter) {
+        throttledCount.incrementAndGet();
+        double seconds = retryAfter != null ? retryAfter : pool.getCooldown();
+        long until = System.nanoTime() + (long) (seconds * 1_000_000_000L);
+        if (until - cooldownUntil > 0) {
+            cooldownUntil = until;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ApiKey{" + getMaskedKey() + ", inFlight=" + getInFlight() +
+                ", throttled=" + getThrottledCount() + "}";
+    }
+}
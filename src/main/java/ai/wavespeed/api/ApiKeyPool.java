@@ -0,0 +1,134 @@
+package ai.wavespeed.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Pool of API keys, to spread load across several accounts and their rate limits.
+ *
+ * <p>Each new task uses the least-loaded key that is not cooling down, preferring
+ * keys whose rate budget allows a request right away. A key that receives HTTP
+ * 429 is cooled down for the server's Retry-After (or {@link #getCooldown()})
+ * and skipped for new tasks meanwhile; a submission rejected with 429 did not
+ * create a task and is sent again with another key. Result polls and cancel
+ * requests always reuse the key that submitted the task.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * client.setApiKeyPool(new ApiKeyPool()
+ *     .addKey("key-of-account-1", 10.0)
+ *     .addKey("key-of-account-2", 10.0));
+ * }</pre>
+ */
+public class ApiKeyPool {
+    private static final double DEFAULT_COOLDOWN = 10.0;
+
+    private final List<ApiKey> keys = new CopyOnWriteArrayList<>();
+    private volatile double cooldown = DEFAULT_COOLDOWN;
+
+    /**
+     * Add a key with a rate budget.
+     *
+     * @param apiKey WaveSpeed API key
+     * @param requestsPerSecond Requests per second allowed with this key (0 = unlimited)
+     * @return This pool, for chaining
+     */
+    public ApiKeyPool addKey(String apiKey, double requestsPerSecond) {
+        if (apiKey == null || apiKey.isEmpty()) {
+            throw new IllegalArgumentException("apiKey must not be empty");
+        }
+        if (requestsPerSecond < 0) {
+            throw new IllegalArgumentException("requestsPerSecond must not be negative");
+        }
+        keys.add(new ApiKey(apiKey, requestsPerSecond, this));
+        return this;
+    }
+
+    /**
+     * Add a key without a client-side rate budget.
+     *
+     * @param apiKey WaveSpeed API key
+     * @return This pool, for chaining
+     */
+    public ApiKeyPool addKey(String apiKey) {
+        return addKey(apiKey, 0);
+    }
+
+    /**
+     * Set how long a throttled key is avoided when the 429 carries no Retry-After.
+     *
+     * @param seconds Cooldown in seconds (default 10)
+     * @return This pool, for chaining
+     */
+    public ApiKeyPool setCooldown(double seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("seconds must not be negative");
+        }
+        this.cooldown = seconds;
+        return this;
+    }
+
+    public double getCooldown() {
+        return cooldown;
+    }
+
+    /**
+     * Get the keys with their usage statistics.
+     *
+     * @return Keys in the order they were added
+     */
+    public List<ApiKey> getKeys() {
+        return Collections.unmodifiableList(keys);
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Choose the key for a new task, waiting while every key is cooling down.
+     *
+     * @param op Operation starting the task; its deadline bounds the wait
+     * @return The least-loaded usable key
+     * @throws InterruptedException if the thread is interrupted
+     * @throws ai.wavespeed.WavespeedTimeoutException if no key is usable before the deadline
+     */
+    ApiKey select(Operation op) throws InterruptedException {
+        if (keys.isEmpty()) {
+            throw new IllegalStateException("API key pool is empty");
+        }
+        while (true) {
+            List<ApiKey> best = new ArrayList<>();
+            double bestWait = Double.POSITIVE_INFINITY;
+            int bestLoad = Integer.MAX_VALUE;
+            double shortestCooldown = Double.POSITIVE_INFINITY;
+            for (ApiKey key : keys) {
+                double cooling = key.getCooldownRemaining();
+                if (cooling > 0) {
+                    shortestCooldown = Math.min(shortestCooldown, cooling);
+                    continue;
+                }
+                double wait = key.timeUntilPermit();
+                int load = key.getInFlight();
+                if (wait < bestWait || (wait == bestWait && load < bestLoad)) {
+                    best.clear();
+                    bestWait = wait;
+                    bestLoad = load;
+                }
+                if (wait == bestWait && load == bestLoad) {
+                    best.add(key);
+                }
+            }
+            if (!best.isEmpty()) {
+                return best.get(ThreadLocalRandom.current().nextInt(best.size()));
+            }
+            if (shortestCooldown >= op.getDeadline().remaining()) {
+                throw Client.deadlineExceeded(op.getDeadline(), op.getTaskId());
+            }
+            op.sleep(shortestCooldown);
+        }
+    }
+}
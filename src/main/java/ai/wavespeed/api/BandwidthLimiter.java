@@ -0,0 +1,75 @@
+package ai.wavespeed.api;
+
+import ai.wavespeed.WavespeedCancelledException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Token bucket capping the rate at which upload bytes are written.
+ *
+ * <p>Writers reserve tokens before each block; a reservation larger than the
+ * tokens available drives the bucket into debt, and the writer sleeps until
+ * the debt is repaid. Concurrent writers sharing a limiter are thus served in
+ * reservation order and together stay within the rate. The bucket holds at
+ * most a tenth of a second of tokens, so an idle limiter allows only a short
+ * burst.</p>
+ */
+final class BandwidthLimiter {
+    private final long bytesPerSecond;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    BandwidthLimiter(long bytesPerSecond) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("bytesPerSecond must be positive");
+        }
+        this.bytesPerSecond = bytesPerSecond;
+        this.capacity = Math.max(1.0, bytesPerSecond / 10.0);
+        this.tokens = capacity;
+    }
+
+    long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Wait until {@code bytes} may be written.
+     *
+     * @param bytes Number of bytes about to be written
+     * @param op Operation the upload belongs to; waits end early when it is cancelled
+     * @throws InterruptedIOException if the wait is interrupted, cancelled or runs past the deadline
+     */
+    void acquire(long bytes, Operation op) throws IOException {
+        double wait = reserve(bytes);
+        if (wait <= 0) {
+            return;
+        }
+        if (wait >= op.getDeadline().remaining()) {
+            throw new InterruptedIOException("Bandwidth limit of " + bytesPerSecond
+                    + " bytes/s leaves no time to send the upload before the deadline");
+        }
+        try {
+            op.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while throttling upload");
+        } catch (WavespeedCancelledException e) {
+            throw new InterruptedIOException("Upload cancelled");
+        }
+    }
+
+    /**
+     * Take tokens from the bucket.
+     *
+     * @return Seconds until the reservation is covered (0 if it already is)
+     */
+    private synchronized double reserve(long bytes) {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) / 1e9 * bytesPerSecond);
+        lastRefill = now;
+        tokens -= bytes;
+        return tokens >= 0 ? 0 : -tokens / bytesPerSecond;
+    }
+}
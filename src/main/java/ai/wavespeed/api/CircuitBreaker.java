@@ -0,0 +1,163 @@
+package ai.wavespeed.api;
+
+/**
+ * Circuit breaker guarding one class of requests against one base URL.
+ *
+ * <p>The breaker opens after {@code failureThreshold} consecutive failures
+ * (connection errors or HTTP 5xx responses) and rejects calls immediately while
+ * open. Once {@code openDuration} seconds have passed it lets a single probe
+ * request through (half-open): a successful probe closes the breaker again, a
+ * failed probe re-opens it for another {@code openDuration}.</p>
+ *
+ * <p>Instances are thread-safe. The client creates one breaker per base URL and
+ * {@link RequestType}; see {@link Client#getCircuitBreakers()}.</p>
+ */
+public class CircuitBreaker {
+
+    /**
+     * Breaker state.
+     */
+    public enum State {
+        /** Requests flow normally. */
+        CLOSED,
+        /** Requests are rejected without being sent. */
+        OPEN,
+        /** The open period has elapsed; a single probe request is allowed. */
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+    private long rejectedCount;
+
+    /**
+     * Create a circuit breaker.
+     *
+     * @param name Name reported for monitoring (e.g. "result https://api.wavespeed.ai")
+     * @param failureThreshold Consecutive failures that open the breaker (must be positive)
+     * @param openDuration Time in seconds the breaker stays open before probing
+     */
+    public CircuitBreaker(String name, int failureThreshold, double openDuration) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("failureThreshold must be positive");
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = (long) (openDuration * 1_000_000_000L);
+    }
+
+    /**
+     * Ask for permission to send a request.
+     *
+     * <p>Every successful acquire must be followed by exactly one call to
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #release()}.</p>
+     *
+     * @return True if the request may be sent, false if it must fail fast
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        rejectedCount++;
+        return false;
+    }
+
+    /**
+     * Record a request that reached a healthy server.
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Record a failed request (connection error or HTTP 5xx).
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+        probeInFlight = false;
+    }
+
+    /**
+     * Give back a permission without recording an outcome, for a request that
+     * says nothing about server health (e.g. cancelled by the caller).
+     */
+    public synchronized void release() {
+        probeInFlight = false;
+    }
+
+    /**
+     * Get the current state.
+     *
+     * @return Breaker state; an open breaker whose open period has elapsed is reported as HALF_OPEN
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Get the time left before an open breaker lets a probe through.
+     *
+     * @return Remaining open time in seconds (0 when not open)
+     */
+    public synchronized double getRemainingOpenTime() {
+        if (state != State.OPEN) {
+            return 0.0;
+        }
+        long remaining = openDurationNanos - (System.nanoTime() - openedAt);
+        return remaining > 0 ? remaining / 1_000_000_000.0 : 0.0;
+    }
+
+    /**
+     * Get the number of consecutive failures recorded.
+     *
+     * @return Consecutive failure count
+     */
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Get the number of requests rejected without being sent.
+     *
+     * @return Rejected request count since the breaker was created
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Get the breaker name.
+     *
+     * @return Name reported for monitoring
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker{" + name + ", " + getState() + "}";
+    }
+}
@@ -2,18 +2,62 @@ package ai.wavespeed.api;
 
 import ai.wavespeed.Config;
 import ai.wavespeed.Version;
+import ai.wavespeed.WavespeedCancelledException;
+import ai.wavespeed.WavespeedCircuitOpenException;
+import ai.wavespeed.WavespeedException;
+import ai.wavespeed.WavespeedHttpException;
 import ai.wavespeed.WavespeedSubmissionException;
+import ai.wavespeed.WavespeedTaskException;
+import ai.wavespeed.WavespeedTimeoutException;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import okhttp3.*;
+import okio.BufferedSource;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * WaveSpeed API client.
@@ -56,6 +100,40 @@ public class Client {
     private final int maxRetries;
     private final int maxConnectionRetries;
     private final double retryInterval;
+    private volatile RetryPolicy retryPolicy;
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private volatile int circuitBreakerThreshold;
+    private volatile double circuitBreakerOpenDuration;
+    private final LatencyTracker pollLatency = new LatencyTracker(POLL_LATENCY_WINDOW);
+    private final AtomicLong hedgedPolls = new AtomicLong();
+    private volatile double pollHedgePercentile;
+    private volatile HedgeBudget pollHedgeBudget;
+    private final ConcurrentMap<String, LatencyTracker> taskLatency = new ConcurrentHashMap<>();
+    private final AtomicLong hedgedTasks = new AtomicLong();
+    private volatile double taskHedgePercentile;
+    private volatile HedgeBudget taskHedgeBudget;
+    private volatile ExecutorService executor;
+    private volatile ExecutorService workers;
+    private volatile SubmissionScheduler submissionScheduler;
+    private volatile WebhookReceiver webhookReceiver;
+    private volatile List<Endpoint> endpoints;
+    private volatile LoadBalancing loadBalancing = LoadBalancing.EWMA_LATENCY;
+    private volatile ApiKeyPool apiKeyPool;
+    private volatile int requestCompressionThreshold;
+    private volatile InputFileUploader inputFileUploader;
+    private volatile UploadCache uploadCache;
+    private volatile long chunkedUploadPartSize;
+    private volatile int chunkedUploadParallelism = 1;
+    private volatile BandwidthLimiter uploadBandwidthLimiter;
+    private volatile ImagePreprocessor imagePreprocessor;
+    private volatile long downloadRangeSize = DEFAULT_DOWNLOAD_RANGE_SIZE;
+    private volatile int downloadParallelism = DEFAULT_DOWNLOAD_PARALLELISM;
+    private volatile OutputPrefetch outputPrefetch;
+    private volatile OutputCache outputCache;
+    private volatile ResultCache resultCache;
+    private volatile RunCoalescer runCoalescer;
+    private final TaskEventHub taskEvents = new TaskEventHub(command -> executor().execute(command));
+    private final ConcurrentMap<String, MultipartUpload> pendingUploads = new ConcurrentHashMap<>();
     private String clientName;
 
     /**
@@ -63,6 +141,41 @@ public class Client {
      */
     private static final String DEFAULT_CLIENT_NAME = "wavespeed-java";
 
+    /**
+     * Number of recent result-poll latencies kept for hedging decisions.
+     */
+    private static final int POLL_LATENCY_WINDOW = 200;
+
+    /**
+     * Minimum number of poll latency samples before polls are hedged.
+     */
+    private static final int POLL_HEDGE_MIN_SAMPLES = 10;
+
+    /**
+     * Number of recent task latencies kept per model for hedging decisions.
+     */
+    private static final int TASK_LATENCY_WINDOW = 100;
+
+    /**
+     * Minimum number of task latency samples for a model before its tasks are hedged.
+     */
+    private static final int TASK_HEDGE_MIN_SAMPLES = 20;
+
+    /**
+     * Default size of the ranges large outputs are downloaded in.
+     */
+    private static final long DEFAULT_DOWNLOAD_RANGE_SIZE = 8L * 1024 * 1024;
+
+    /**
+     * Default number of ranges (or files) downloaded at once.
+     */
+    private static final int DEFAULT_DOWNLOAD_PARALLELISM = 4;
+
+    /**
+     * Bytes moved into a download file per transferFrom call.
+     */
+    private static final long DOWNLOAD_TRANSFER_BLOCK = 1024 * 1024;
+
     /**
      * Initialize the client.
      *
@@ -83,6 +196,7 @@ public class Client {
     ) {
         this.apiKey = apiKey != null ? apiKey : Config.api.apiKey;
         this.baseUrl = (baseUrl != null ? baseUrl : Config.api.baseUrl).replaceAll("/$", "");
+        this.endpoints = Collections.singletonList(new Endpoint(this.baseUrl));
 
         double connTimeout = connectionTimeout != null ? connectionTimeout : Config.api.connectionTimeout;
         double totalTimeout = Config.api.timeout;
@@ -92,11 +206,18 @@ public class Client {
                 .connectTimeout((long) (connTimeout * 1000), TimeUnit.MILLISECONDS)
                 .readTimeout((long) (totalTimeout * 1000), TimeUnit.MILLISECONDS)
                 .build();
+        // Hedged polls run on the dispatcher; the default limit of 5 requests
+        // per host would queue them behind each other.
+        this.httpClient.dispatcher().setMaxRequestsPerHost(this.httpClient.dispatcher().getMaxRequests());
 
         this.gson = new Gson();
         this.maxRetries = maxRetries != null ? maxRetries : Config.api.maxRetries;
         this.maxConnectionRetries = maxConnectionRetries != null ? maxConnectionRetries : Config.api.maxConnectionRetries;
         this.retryInterval = retryInterval != null ? retryInterval : Config.api.retryInterval;
+        this.retryPolicy = new DecorrelatedJitterRetryPolicy(this.retryInterval, Config.api.maxRetryInterval);
+        this.circuitBreakerThreshold = Config.api.circuitBreakerThreshold;
+        this.circuitBreakerOpenDuration = Config.api.circuitBreakerOpenDuration;
+        this.requestCompressionThreshold = Config.api.requestCompressionThreshold;
     }
 
     /**
@@ -149,614 +270,3241 @@ public class Client {
     }
 
     /**
-     * Resolve the value for the X-Client-Name header.
+     * Set the policy deciding which failures are retried and how long to wait in between.
      *
-     * <p>Precedence: WAVESPEED_CLIENT_NAME environment variable &gt; setClientName() &gt; default.</p>
+     * <p>Defaults to {@link DecorrelatedJitterRetryPolicy} with retryInterval as
+     * base delay and Config.api.maxRetryInterval as cap. The number of attempts
+     * is still bounded by maxConnectionRetries and maxRetries, and submission
+     * POSTs are never retried.</p>
      *
-     * @return Client name for channel attribution
+     * @param retryPolicy Retry policy to use
+     * @return This client, for chaining
      */
-    private String resolveClientName() {
-        String envName = System.getenv("WAVESPEED_CLIENT_NAME");
-        if (envName != null && !envName.isEmpty()) {
-            return envName;
-        }
-        if (clientName != null && !clientName.isEmpty()) {
-            return clientName;
+    public Client setRetryPolicy(RetryPolicy retryPolicy) {
+        if (retryPolicy == null) {
+            throw new IllegalArgumentException("retryPolicy must not be null");
         }
-        return DEFAULT_CLIENT_NAME;
+        this.retryPolicy = retryPolicy;
+        return this;
     }
 
     /**
-     * Get the operating system name for the X-Client-OS header
-     * (lowercase: darwin/linux/windows).
+     * Configure the per-endpoint circuit breakers.
      *
-     * @return Normalized operating system name
+     * <p>Each base URL and {@link RequestType} gets its own breaker. After
+     * {@code failureThreshold} consecutive connection errors or HTTP 5xx
+     * responses the breaker opens and requests fail fast with
+     * {@link WavespeedCircuitOpenException} instead of running the retry loop.
+     * After {@code openDuration} seconds a single probe request is let through to
+     * decide whether to close the breaker again. Existing breaker state is reset.</p>
+     *
+     * @param failureThreshold Consecutive failures that open a breaker (0 disables circuit breaking)
+     * @param openDuration Seconds an open breaker waits before letting a probe through
+     * @return This client, for chaining
      */
-    private static String clientOs() {
-        String osName = System.getProperty("os.name", "").toLowerCase();
-        if (osName.contains("mac") || osName.contains("darwin")) {
-            return "darwin";
-        }
-        if (osName.contains("win")) {
-            return "windows";
-        }
-        if (osName.contains("nux") || osName.contains("nix")) {
-            return "linux";
-        }
-        return osName;
+    public Client setCircuitBreaker(int failureThreshold, double openDuration) {
+        this.circuitBreakerThreshold = failureThreshold;
+        this.circuitBreakerOpenDuration = openDuration;
+        circuitBreakers.clear();
+        return this;
     }
 
     /**
-     * Add the channel-attribution headers (X-Client-Name, X-Client-Version,
-     * X-Client-OS) sent on every API request.
+     * Get the circuit breakers created so far, for monitoring.
      *
-     * @param builder Request builder to add headers to
-     * @return The same builder, for chaining
+     * @return Read-only snapshot of breakers keyed by name ("&lt;request type&gt; &lt;base URL&gt;")
      */
-    private Request.Builder addClientHeaders(Request.Builder builder) {
-        return builder
-                .addHeader("X-Client-Name", resolveClientName())
-                .addHeader("X-Client-Version", Version.VERSION)
-                .addHeader("X-Client-OS", clientOs());
+    public Map<String, CircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableMap(new TreeMap<>(circuitBreakers));
     }
 
     /**
-     * Get request headers with authentication.
+     * Compress large prediction inputs, e.g. with inline base64 images.
      *
-     * @return Headers map
-     * @throws IllegalArgumentException if API key is not configured
+     * <p>Submission bodies of at least {@code threshold} bytes are sent with
+     * {@code Content-Encoding: gzip}. Compression happens while the body is
+     * streamed, so no compressed copy of the input is held in memory.</p>
+     *
+     * @param threshold Minimum body size in bytes to compress (0 disables compression)
+     * @return This client, for chaining
      */
-    private Map<String, String> getHeaders() {
-        if (apiKey == null || apiKey.isEmpty()) {
-            throw new IllegalArgumentException(
-                    "API key is required. Set WAVESPEED_API_KEY environment variable or pass api_key to Client()."
-            );
+    public Client setRequestCompression(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold must not be negative");
         }
-        Map<String, String> headers = new HashMap<>();
-        headers.put("Content-Type", "application/json");
-        headers.put("Authorization", "Bearer " + apiKey);
-        headers.put("X-Client-Name", resolveClientName());
-        headers.put("X-Client-Version", Version.VERSION);
-        headers.put("X-Client-OS", clientOs());
-        return headers;
+        this.requestCompressionThreshold = threshold;
+        return this;
     }
 
     /**
-     * Submit a prediction request.
+     * Upload local files referenced by prediction inputs automatically.
      *
-     * @param model Model identifier
-     * @param input Input parameters
-     * @param enableSyncMode If true, wait for result in a best-effort single request
-     * @param timeout Request timeout in seconds
-     * @return Tuple of (request_id, result). In async mode, result is null. In sync mode, request_id is null.
-     * @throws WavespeedSubmissionException if submission fails. The POST is sent
-     *         exactly once and is never retried automatically: the task may or
-     *         may not have been created on the server.
+     * <p>Before submission, {@link File} and {@link java.nio.file.Path} values and
+     * {@code file://} strings anywhere in the input (nested maps and lists
+     * included) are uploaded in parallel, at most {@code parallelism} at a time,
+     * and replaced by their download URLs. The caller's input map is not
+     * modified. Uploads are memoised per file path, size and modification time,
+     * so the same file is uploaded once across runs. Uploads count against the
+     * run's timeout; cancelling the run aborts them.</p>
+     *
+     * @param parallelism Maximum concurrent uploads per run (0 disables automatic uploads)
+     * @return This client, for chaining
      */
-    private SubmitResult submit(
-            String model,
-            Map<String, Object> input,
-            boolean enableSyncMode,
-            Double timeout
-    ) {
-        // Validate API key early
-        Map<String, String> headers = getHeaders();
-
-        String url = this.baseUrl + "/api/v3/" + model;
-        Map<String, Object> body = input != null ? new HashMap<>(input) : new HashMap<>();
-
-        if (enableSyncMode) {
-            body.put("enable_sync_mode", true);
-        }
-
-        double requestTimeout = timeout != null ? timeout : Config.api.timeout;
-        double connectTimeout = Math.min(
-                this.httpClient.connectTimeoutMillis() / 1000.0,
-                requestTimeout
-        );
-
-        // Per-call timeouts: connect uses the smaller of the client connect
-        // timeout and the request timeout; read/call enforce the request timeout.
-        OkHttpClient callClient = perCallClient(connectTimeout, requestTimeout);
-
-        Request request = addClientHeaders(new Request.Builder()
-                .url(url)
-                .post(RequestBody.create(
-                        gson.toJson(body),
-                        MediaType.parse("application/json")
-                ))
-                .addHeader("Authorization", "Bearer " + apiKey)
-                .addHeader("Content-Type", "application/json"))
-                .build();
-
-        // The submission POST is sent exactly once. If it fails, the server may
-        // already have created the task, so retrying could duplicate work.
-        try (Response response = callClient.newCall(request).execute()) {
-            if (response.code() != 200) {
-                String errorBody = response.body() != null ? response.body().string() : "";
-                throw new WavespeedSubmissionException(
-                        "Failed to submit prediction: HTTP " + response.code() + ": " + errorBody
-                );
-            }
-
-            String responseBody = response.body().string();
-            Map<String, Object> result = gson.fromJson(
-                    responseBody,
-                    new TypeToken<Map<String, Object>>() {}.getType()
-            );
-
-            if (enableSyncMode) {
-                return new SubmitResult(null, result);
-            }
-
-            @SuppressWarnings("unchecked")
-            Map<String, Object> data = (Map<String, Object>) result.get("data");
-            String requestId = (String) data.get("id");
-
-            if (requestId == null) {
-                throw new WavespeedSubmissionException("No request ID in response: " + result);
-            }
-
-            return new SubmitResult(requestId, null);
-
-        } catch (IOException e) {
-            throw new WavespeedSubmissionException(
-                    "Prediction submission did not return a response. The task may already " +
-                            "have been created, so the SDK will not retry the POST automatically.",
-                    e
-            );
+    public Client setInputFileUploads(int parallelism) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("parallelism must not be negative");
         }
+        this.inputFileUploader = parallelism > 0 ? new InputFileUploader(this, parallelism) : null;
+        return this;
     }
 
     /**
-     * Build a per-call HTTP client that shares the connection pool of the
-     * base client but enforces the given timeouts for this call only.
+     * Skip uploads of content that was uploaded before.
      *
-     * @param connectTimeout Connect timeout in seconds
-     * @param requestTimeout Read and overall call timeout in seconds
-     * @return HTTP client with the per-call timeouts applied
+     * <p>Before each upload the file's SHA-256 is looked up in the cache; on a
+     * hit the cached download URL is returned without contacting the API.</p>
+     *
+     * @param cache Upload cache (null disables caching)
+     * @return This client, for chaining
      */
-    private OkHttpClient perCallClient(double connectTimeout, double requestTimeout) {
-        return httpClient.newBuilder()
-                .connectTimeout((long) (connectTimeout * 1000), TimeUnit.MILLISECONDS)
-                .readTimeout((long) (requestTimeout * 1000), TimeUnit.MILLISECONDS)
-                .callTimeout((long) (requestTimeout * 1000), TimeUnit.MILLISECONDS)
-                .build();
+    public Client setUploadCache(UploadCache cache) {
+        this.uploadCache = cache;
+        return this;
     }
 
     /**
-     * Get prediction result.
+     * Get the upload cache.
      *
-     * @param requestId The prediction request ID
-     * @param timeout Request timeout in seconds
-     * @return Full API response
-     * @throws RuntimeException if fetching result fails after retries
+     * @return The cache, or null if uploads are not cached
      */
-    private Map<String, Object> getResult(String requestId, Double timeout) {
-        String url = this.baseUrl + "/api/v3/predictions/" + requestId + "/result";
-        double requestTimeout = timeout != null ? timeout : Config.api.timeout;
-        double connectTimeout = Math.min(
-                this.httpClient.connectTimeoutMillis() / 1000.0,
-                requestTimeout
-        );
-        OkHttpClient callClient = perCallClient(connectTimeout, requestTimeout);
-
-        for (int retry = 0; retry <= maxConnectionRetries; retry++) {
-            try {
-                Request request = addClientHeaders(new Request.Builder()
-                        .url(url)
-                        .get()
-                        .addHeader("Authorization", "Bearer " + apiKey))
-                        .build();
-
-                try (Response response = callClient.newCall(request).execute()) {
-                    if (response.code() != 200) {
-                        String errorBody = response.body() != null ? response.body().string() : "";
-                        throw new RuntimeException(
-                                "Failed to get result for task " + requestId + ": HTTP " +
-                                        response.code() + ": " + errorBody
-                        );
-                    }
-
-                    String responseBody = response.body().string();
-                    return gson.fromJson(
-                            responseBody,
-                            new TypeToken<Map<String, Object>>() {}.getType()
-                    );
-                }
-
-            } catch (IOException e) {
-                System.out.println("Connection error getting result on attempt " + (retry + 1) + "/" + (maxConnectionRetries + 1) + ":");
-                e.printStackTrace();
+    public UploadCache getUploadCache() {
+        return uploadCache;
+    }
 
-                if (retry < maxConnectionRetries) {
-                    double delay = retryInterval * (retry + 1);
-                    System.out.println("Retrying in " + delay + " seconds...");
-                    try {
-                        Thread.sleep((long) (delay * 1000));
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException(
-                                "Failed to get result for task " + requestId + " after " +
-                                        (maxConnectionRetries + 1) + " attempts",
-                                e
-                        );
-                    }
-                } else {
-                    throw new RuntimeException(
-                            "Failed to get result for task " + requestId + " after " +
-                                    (maxConnectionRetries + 1) + " attempts",
-                            e
-                    );
-                }
-            }
+    /**
+     * Upload large files in parts.
+     *
+     * <p>Files larger than {@code partSize} are offered to the server as a
+     * multipart upload. If the server accepts, parts are PUT in parallel, each
+     * with its own timeout and retries, and an upload that fails part-way
+     * resumes from the parts already committed when the same unchanged file
+     * is uploaded again. Servers without multipart support get a single PUT.</p>
+     *
+     * @param partSize Part size in bytes (0 disables chunked uploads)
+     * @param parallelism Maximum parts in flight per upload
+     * @return This client, for chaining
+     */
+    public Client setChunkedUpload(long partSize, int parallelism) {
+        if (partSize < 0) {
+            throw new IllegalArgumentException("partSize must not be negative");
         }
-
-        throw new RuntimeException("Unexpected error in getResult");
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.chunkedUploadPartSize = partSize;
+        this.chunkedUploadParallelism = parallelism;
+        return this;
     }
 
     /**
-     * Wait for prediction to complete.
+     * Downscale and re-encode images before they are uploaded.
      *
-     * @param requestId The prediction request ID
-     * @param timeout Maximum wait time in seconds (null = no timeout)
-     * @param pollInterval Time between polls in seconds
-     * @return Map with "outputs" array
-     * @throws RuntimeException if prediction fails
-     * @throws RuntimeException if prediction times out
+     * <p>Applies to every upload of image content, including files uploaded
+     * automatically for prediction inputs; streams are sent unchanged. With
+     * an upload cache, the original content is looked up, so a cached image
+     * is not processed again.</p>
+     *
+     * @param preprocessor Image preprocessor (null sends images unchanged)
+     * @return This client, for chaining
      */
-    private Map<String, Object> wait(
-            String requestId,
-            Double timeout,
-            double pollInterval
-    ) {
-        long startTime = System.currentTimeMillis();
-
-        while (true) {
-            // Check timeout
-            if (timeout != null) {
-                double elapsed = (System.currentTimeMillis() - startTime) / 1000.0;
-                if (elapsed >= timeout) {
-                    throw new RuntimeException(
-                            "Prediction timed out after " + timeout + " seconds (task_id: " + requestId + ")"
-                    );
-                }
-            }
-
-            Map<String, Object> result = getResult(requestId, timeout);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> data = (Map<String, Object>) result.get("data");
-            String status = (String) data.get("status");
-
-            if ("completed".equals(status)) {
-                Map<String, Object> output = new HashMap<>();
-                output.put("outputs", data.get("outputs"));
-                return output;
-            }
-
-            if ("failed".equals(status) || "cancelled".equals(status) || "timeout".equals(status)) {
-                String error = (String) data.get("error");
-                throw new RuntimeException(
-                        "Prediction " + status + " (task_id: " + requestId + "): " +
-                                (error != null ? error : "Unknown error")
-                );
-            }
-
-            try {
-                Thread.sleep((long) (pollInterval * 1000));
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException("Interrupted during polling", e);
-            }
-        }
+    public Client setImagePreprocessor(ImagePreprocessor preprocessor) {
+        this.imagePreprocessor = preprocessor;
+        return this;
     }
 
     /**
-     * Determine if an error is worth retrying at the task level.
+     * Get the image preprocessor.
      *
-     * @param error The exception to check
-     * @return True if the error is retryable
+     * @return The preprocessor, or null if images are sent unchanged
      */
-    private boolean isRetryableError(Exception error) {
-        // Submission errors are ambiguous: the server may already have created
-        // the task, so never turn them into another POST automatically.
-        if (error instanceof WavespeedSubmissionException) {
-            return false;
-        }
+    public ImagePreprocessor getImagePreprocessor() {
+        return imagePreprocessor;
+    }
 
-        // Retry timeout and connection errors from result-query GETs
-        if (error instanceof IOException) {
-            return true;
+    /**
+     * Configure parallel range downloads of outputs.
+     *
+     * <p>Outputs larger than {@code rangeSize} are fetched with HTTP range
+     * requests, at most {@code parallelism} at a time, each retried on its
+     * own and resumed from the last byte received. Servers that ignore
+     * ranges send the file in one piece.</p>
+     *
+     * @param rangeSize Range size in bytes (default 8 MiB; 0 downloads every file in one request)
+     * @param parallelism Maximum requests in flight per download or downloadAll call (default 4)
+     * @return This client, for chaining
+     */
+    public Client setParallelDownload(long rangeSize, int parallelism) {
+        if (rangeSize < 0) {
+            throw new IllegalArgumentException("rangeSize must not be negative");
         }
-
-        // Retry server errors (5xx) and rate limiting (429)
-        if (error instanceof RuntimeException) {
-            String errorStr = error.getMessage();
-            if (errorStr != null && (errorStr.contains("HTTP 5") || errorStr.contains("HTTP 429"))) {
-                return true;
-            }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
         }
-
-        return false;
+        this.downloadRangeSize = rangeSize;
+        this.downloadParallelism = parallelism;
+        return this;
     }
 
-    private String getResultUrl(Map<String, Object> data) {
-        Object urlsObj = data.get("urls");
-        if (!(urlsObj instanceof Map)) {
-            return null;
-        }
-
-        @SuppressWarnings("unchecked")
-        Map<String, Object> urls = (Map<String, Object>) urlsObj;
-        Object resultUrl = urls.get("get");
-        return resultUrl instanceof String ? (String) resultUrl : null;
+    /**
+     * Keep downloaded outputs in a local disk cache.
+     *
+     * <p>{@link #download}, {@link #downloadAll} and the output prefetch look
+     * outputs up by URL before fetching them, and store what they fetch.</p>
+     *
+     * @param cache Output cache (null disables caching)
+     * @return This client, for chaining
+     */
+    public Client setOutputCache(OutputCache cache) {
+        this.outputCache = cache;
+        return this;
     }
 
-    private int getResultCode(Map<String, Object> data) {
-        Object code = data.get("code");
+    /**
+     * Get the output cache.
+     *
+     * @return The cache, or null if outputs are not cached
+     */
+    public OutputCache getOutputCache() {
+        return outputCache;
+    }
+
+    /**
+     * Reuse the outputs of earlier identical runs of deterministic models.
+     *
+     * <p>{@link #run} and {@link #runAsync} look up the model and input before
+     * submitting and remember successful outputs. Only models allowed on the
+     * cache are looked up.</p>
+     *
+     * @param cache Result cache (null disables caching)
+     * @return This client, for chaining
+     */
+    public Client setResultCache(ResultCache cache) {
+        this.resultCache = cache;
+        return this;
+    }
+
+    /**
+     * Get the result cache.
+     *
+     * @return The cache, or null if results are not cached
+     */
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Get a publisher of status changes of every task this client submits or waits for.
+     *
+     * <p>An event is emitted when a submission creates a task and whenever a
+     * poll or webhook reports a new status. Subscribers receive events as they
+     * request them and never hold up polling; the publisher never completes.</p>
+     *
+     * <p>Example usage:</p>
+     * <pre>{@code
+     * client.getTaskEvents().subscribe(new Flow.Subscriber<TaskEvent>() {
+     *     public void onSubscribe(Flow.Subscription s) { s.request(Long.MAX_VALUE); }
+     *     public void onNext(TaskEvent event) { System.out.println(event); }
+     *     public void onError(Throwable t) { }
+     *     public void onComplete() { }
+     * });
+     * }</pre>
+     *
+     * @return Publisher of task events
+     */
+    public Flow.Publisher<TaskEvent> getTaskEvents() {
+        return taskEvents.publisher();
+    }
+
+    /**
+     * Get a publisher of status changes of one task.
+     *
+     * <p>A new subscriber first receives the task's current status, if the
+     * client has seen it, so nothing is missed by subscribing after
+     * submission. The publisher completes after the final status.</p>
+     *
+     * @param taskId Task ID, e.g. from {@link Prediction#getTaskId()}
+     * @return Publisher of the task's events
+     */
+    public Flow.Publisher<TaskEvent> getTaskEvents(String taskId) {
+        if (taskId == null || taskId.isEmpty()) {
+            throw new IllegalArgumentException("taskId is required");
+        }
+        return taskEvents.publisher(taskId);
+    }
+
+    /**
+     * Share one prediction between concurrent identical runs.
+     *
+     * <p>{@link #run} and {@link #runAsync} calls with the same model and
+     * input as a run still in flight wait for its outputs instead of
+     * submitting another prediction. Predictions started with runAsync() that
+     * joined a shared prediction report no task ID, and cancelling one only
+     * stops its own wait.</p>
+     *
+     * @param coalescer Coalescer and its metrics (null disables coalescing)
+     * @return This client, for chaining
+     */
+    public Client setRunCoalescer(RunCoalescer coalescer) {
+        this.runCoalescer = coalescer;
+        return this;
+    }
+
+    /**
+     * Get the run coalescer.
+     *
+     * @return The coalescer, or null if runs are not coalesced
+     */
+    public RunCoalescer getRunCoalescer() {
+        return runCoalescer;
+    }
+
+    /**
+     * Start downloading outputs as soon as a task completes.
+     *
+     * <p>The download overlaps with whatever the caller does next; the
+     * outputs are then read from {@link Prediction#getPrefetchedOutputs()} or
+     * {@link #getPrefetchedOutput(String)} instead of being fetched on the
+     * critical path.</p>
+     *
+     * @param prefetch Prefetch settings and store (null disables prefetching)
+     * @return This client, for chaining
+     */
+    public Client setOutputPrefetch(OutputPrefetch prefetch) {
+        this.outputPrefetch = prefetch;
+        return this;
+    }
+
+    /**
+     * Get the output prefetch settings.
+     *
+     * @return The prefetch, or null if outputs are not prefetched
+     */
+    public OutputPrefetch getOutputPrefetch() {
+        return outputPrefetch;
+    }
+
+    /**
+     * Look up a prefetched output.
+     *
+     * @param url Output URL
+     * @return The output, possibly still downloading, or null if it was not prefetched
+     */
+    public PrefetchedOutput getPrefetchedOutput(String url) {
+        OutputPrefetch prefetch = outputPrefetch;
+        return prefetch != null && url != null ? prefetch.get(url) : null;
+    }
+
+    /**
+     * Cap the combined transfer rate of all uploads of this client.
+     *
+     * <p>Upload bodies, including the parts of chunked uploads and the files
+     * uploaded automatically for prediction inputs, are written through a
+     * token bucket shared by the whole client, so concurrent uploads together
+     * stay within the limit. A per-upload limit can be added with
+     * {@link UploadOptions#setBandwidthLimit(long)}.</p>
+     *
+     * @param bytesPerSecond Maximum rate in bytes per second (0 = unlimited)
+     * @return This client, for chaining
+     */
+    public Client setUploadBandwidthLimit(long bytesPerSecond) {
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException("bytesPerSecond must not be negative");
+        }
+        this.uploadBandwidthLimiter = bytesPerSecond > 0 ? new BandwidthLimiter(bytesPerSecond) : null;
+        return this;
+    }
+
+    /**
+     * Enable hedging of result polls.
+     *
+     * <p>Result GETs are idempotent, so when a poll has not answered within the
+     * given percentile of recent poll latency, a second identical GET is sent on
+     * another connection. Whichever answers first is used and the other is
+     * cancelled. Hedges are bounded by a client-wide budget: at most
+     * {@code budget} hedges per normal poll (e.g. 0.1 for 10%).</p>
+     *
+     * @param percentile Latency percentile after which a poll is hedged, in (0, 100]; 0 disables hedging
+     * @param budget Maximum ratio of hedged polls to normal polls
+     * @return This client, for chaining
+     */
+    public Client setPollHedging(double percentile, double budget) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        this.pollHedgeBudget = new HedgeBudget(budget, Math.max(1.0, budget * POLL_HEDGE_MIN_SAMPLES));
+        this.pollHedgePercentile = percentile;
+        return this;
+    }
+
+    /**
+     * Get the number of result polls that were hedged with a second GET.
+     *
+     * @return Hedged poll count since the client was created
+     */
+    public long getHedgedPollCount() {
+        return hedgedPolls.get();
+    }
+
+    /**
+     * Enable hedging of slow tasks.
+     *
+     * <p>When a task has not finished within the given percentile of recent
+     * task latency for its model, a duplicate prediction is submitted with the
+     * same input. Whichever finishes first is returned and the other is
+     * cancelled on the server. Each duplicate is a paid prediction, so hedges
+     * are bounded by a client-wide budget: at most {@code budget} duplicates per
+     * normal task (e.g. 0.05 for 5% extra cost). Tasks run in sync mode are not
+     * hedged.</p>
+     *
+     * @param percentile Latency percentile after which a task is hedged, in (0, 100]; 0 disables hedging
+     * @param budget Maximum ratio of duplicate tasks to normal tasks
+     * @return This client, for chaining
+     */
+    public Client setTaskHedging(double percentile, double budget) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        this.taskHedgeBudget = new HedgeBudget(budget, Math.max(1.0, budget * TASK_HEDGE_MIN_SAMPLES));
+        this.taskHedgePercentile = percentile;
+        return this;
+    }
+
+    /**
+     * Get the number of tasks that were hedged with a duplicate prediction.
+     *
+     * @return Hedged task count since the client was created
+     */
+    public long getHedgedTaskCount() {
+        return hedgedTasks.get();
+    }
+
+    /**
+     * Set the executor running {@link #runAsync} and {@link #attach} predictions.
+     *
+     * <p>By default a cached pool of daemon threads is created on first use.
+     * Each prediction occupies one thread while it polls. Work a prediction
+     * waits for, such as uploading its input files, downloading its outputs,
+     * a task shared with identical runs or the polls of a hedged task, runs on
+     * a separate internal pool that grows as needed, so a fixed-size executor
+     * cannot deadlock.</p>
+     *
+     * @param executor Executor to run background predictions on
+     * @return This client, for chaining
+     */
+    public Client setExecutor(ExecutorService executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Put a scheduler in front of prediction submission.
+     *
+     * <p>The scheduler bounds how many predictions run at once and decides which
+     * queued prediction goes next, by {@link Priority} class and then fairly
+     * across tenants. Set the class and tenant of a prediction with
+     * {@link RunOptions#setPriority} and {@link RunOptions#setTenant}; other
+     * calls use {@link Priority#NORMAL} and the default tenant.</p>
+     *
+     * @param scheduler Scheduler to use (null = submit immediately)
+     * @return This client, for chaining
+     */
+    public Client setSubmissionScheduler(SubmissionScheduler scheduler) {
+        this.submissionScheduler = scheduler;
+        return this;
+    }
+
+    /**
+     * Get the submission scheduler.
+     *
+     * @return The scheduler, or null if predictions are submitted immediately
+     */
+    public SubmissionScheduler getSubmissionScheduler() {
+        return submissionScheduler;
+    }
+
+    /**
+     * Spread load across several API keys, e.g. of different accounts.
+     *
+     * <p>Each new task (and upload) uses the least-loaded key of the pool within
+     * its rate budget; result polls and cancel requests reuse the key that
+     * submitted the task. Keys that receive HTTP 429 are cooled down, and a
+     * submission rejected with 429 is sent again with another key. The apiKey
+     * given to the constructor is not used while a pool is set.</p>
+     *
+     * @param pool API key pool (null = use the single apiKey)
+     * @return This client, for chaining
+     */
+    public Client setApiKeyPool(ApiKeyPool pool) {
+        if (pool != null && pool.size() == 0) {
+            throw new IllegalArgumentException("API key pool is empty");
+        }
+        this.apiKeyPool = pool;
+        return this;
+    }
+
+    /**
+     * Get the API key pool.
+     *
+     * @return The pool, or null if the single apiKey is used
+     */
+    public ApiKeyPool getApiKeyPool() {
+        return apiKeyPool;
+    }
+
+    /**
+     * Choose the pooled key for new work.
+     *
+     * @param op Operation starting the work
+     * @return Key from the pool, or null to use the single apiKey
+     */
+    private ApiKey selectApiKey(Operation op) {
+        ApiKeyPool pool = apiKeyPool;
+        if (pool == null) {
+            return null;
+        }
+        try {
+            return pool.select(op);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WavespeedException("Interrupted while waiting for an API key", op.getTaskId(), e);
+        }
+    }
+
+    /**
+     * Get the key for follow-up requests of an operation, choosing one if the
+     * task was not submitted by this client (e.g. attached by ID).
+     *
+     * @param op Operation
+     * @return Pinned key, or null to use the single apiKey
+     */
+    private ApiKey apiKeyFor(Operation op) {
+        ApiKey key = op.getApiKey();
+        if (key == null) {
+            key = selectApiKey(op);
+            op.setApiKey(key);
+        }
+        return key;
+    }
+
+    private String authorization(ApiKey key) {
+        return "Bearer " + (key != null ? key.value() : apiKey);
+    }
+
+    /**
+     * Spread new tasks across several API endpoints.
+     *
+     * <p>Each submission and upload goes to the endpoint chosen by the given
+     * strategy. Result polls and cancel requests for a task always go to the
+     * endpoint that created it. An endpoint whose circuit breaker is open (see
+     * {@link #setCircuitBreaker}) is ejected from selection until its next
+     * probe is due. Tasks attached by ID, and {@link #cancel(String)}, use the
+     * first endpoint.</p>
+     *
+     * @param baseUrls Base URLs of the endpoints, primary first
+     * @param strategy How to choose between healthy endpoints (null = EWMA_LATENCY)
+     * @return This client, for chaining
+     */
+    public Client setEndpoints(List<String> baseUrls, LoadBalancing strategy) {
+        if (baseUrls == null || baseUrls.isEmpty()) {
+            throw new IllegalArgumentException("At least one endpoint is required");
+        }
+        List<Endpoint> list = new ArrayList<>();
+        for (String url : baseUrls) {
+            list.add(new Endpoint(url.replaceAll("/$", "")));
+        }
+        this.loadBalancing = strategy != null ? strategy : LoadBalancing.EWMA_LATENCY;
+        this.endpoints = Collections.unmodifiableList(list);
+        return this;
+    }
+
+    /**
+     * Get the configured endpoints with their load statistics.
+     *
+     * @return Endpoints, primary first
+     */
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Choose the endpoint for a request that starts new work.
+     *
+     * @param type Request type, selecting the breakers consulted for health
+     * @return A healthy endpoint, or the one whose breaker reopens soonest if none is healthy
+     */
+    private Endpoint selectEndpoint(RequestType type) {
+        List<Endpoint> all = endpoints;
+        if (all.size() == 1) {
+            return all.get(0);
+        }
+        List<Endpoint> healthy = new ArrayList<>();
+        Endpoint soonest = null;
+        double soonestWait = Double.POSITIVE_INFINITY;
+        for (Endpoint endpoint : all) {
+            CircuitBreaker breaker = circuitBreaker(endpoint.getUrl(), type);
+            if (breaker == null || breaker.getState() != CircuitBreaker.State.OPEN) {
+                healthy.add(endpoint);
+            } else if (breaker.getRemainingOpenTime() < soonestWait) {
+                soonestWait = breaker.getRemainingOpenTime();
+                soonest = endpoint;
+            }
+        }
+        // With every endpoint ejected, the request fails fast on the breaker.
+        return healthy.isEmpty() ? soonest : loadBalancing.choose(healthy);
+    }
+
+    /**
+     * Get the endpoint for follow-up requests of an operation.
+     *
+     * @param op Operation
+     * @return The endpoint that created its task, or the primary endpoint
+     */
+    private Endpoint endpointFor(Operation op) {
+        Endpoint endpoint = op.getEndpoint();
+        return endpoint != null ? endpoint : endpoints.get(0);
+    }
+
+    /**
+     * Receive completion callbacks instead of polling for results.
+     *
+     * <p>Submissions pass the receiver URL as {@code webhook}, and waiting
+     * predictions complete as soon as the callback arrives. Result polls are only
+     * sent every {@link WebhookReceiver#getFallbackPollInterval()} seconds as a
+     * safety net, instead of every pollInterval.</p>
+     *
+     * @param receiver Webhook receiver (null = poll for results)
+     * @return This client, for chaining
+     */
+    public Client setWebhookReceiver(WebhookReceiver receiver) {
+        this.webhookReceiver = receiver;
+        return this;
+    }
+
+    /**
+     * Get the webhook receiver.
+     *
+     * @return The receiver, or null if results are polled
+     */
+    public WebhookReceiver getWebhookReceiver() {
+        return webhookReceiver;
+    }
+
+    /**
+     * Wait for the submission scheduler to let an operation start.
+     *
+     * @param op Operation about to submit
+     * @return Permit to close once the task has finished, or null without a scheduler
+     * @throws InterruptedException if interrupted while queued
+     */
+    private SubmissionScheduler.Permit admit(Operation op) throws InterruptedException {
+        SubmissionScheduler scheduler = submissionScheduler;
+        return scheduler != null ? scheduler.acquire(op, op.getPriority(), op.getTenant()) : null;
+    }
+
+    private ExecutorService executor() {
+        ExecutorService current = executor;
+        if (current == null) {
+            synchronized (this) {
+                current = executor;
+                if (current == null) {
+                    AtomicInteger threadCount = new AtomicInteger();
+                    current = Executors.newCachedThreadPool(runnable -> {
+                        Thread thread = new Thread(runnable, "wavespeed-async-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Get the internal pool running work that predictions wait for.
+     *
+     * <p>Kept apart from {@link #executor()}, which may be a fixed-size pool
+     * whose threads are all busy waiting for this work.</p>
+     */
+    private ExecutorService workers() {
+        ExecutorService current = workers;
+        if (current == null) {
+            synchronized (this) {
+                current = workers;
+                if (current == null) {
+                    AtomicInteger threadCount = new AtomicInteger();
+                    current = Executors.newCachedThreadPool(runnable -> {
+                        Thread thread = new Thread(runnable, "wavespeed-worker-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    workers = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Get the circuit breaker for a base URL and request type.
+     *
+     * @param baseUrl API base URL
+     * @param type Request type
+     * @return The breaker, or null if circuit breaking is disabled
+     */
+    private CircuitBreaker circuitBreaker(String baseUrl, RequestType type) {
+        int threshold = circuitBreakerThreshold;
+        if (threshold <= 0) {
+            return null;
+        }
+        String name = type.name().toLowerCase() + " " + baseUrl;
+        return circuitBreakers.computeIfAbsent(
+                name, key -> new CircuitBreaker(key, threshold, circuitBreakerOpenDuration)
+        );
+    }
+
+    /**
+     * Execute an API request through the circuit breaker for its endpoint.
+     *
+     * <p>Connection errors and HTTP 5xx responses count as failures; any other
+     * response means the server is reachable and counts as a success.</p>
+     *
+     * @param callClient HTTP client to execute the request with
+     * @param request Request to send
+     * @param type Request type, selecting the breaker
+     * @param op Operation the request belongs to; its cancellation aborts the call
+     * @param endpoint Endpoint the request is sent to
+     * @return The response; the caller must close it
+     * @throws WavespeedCircuitOpenException if the breaker is open and the request was not sent
+     * @throws WavespeedCancelledException if the operation is cancelled
+     * @throws IOException if the request fails
+     */
+    private Response execute(OkHttpClient callClient, Request request, RequestType type, Operation op,
+                             Endpoint endpoint) throws IOException {
+        op.checkCancelled();
+        ApiKey key = op.getApiKey();
+        if (key != null) {
+            try {
+                key.acquire(op);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WavespeedException("Interrupted while waiting for API key rate budget", op.getTaskId(), e);
+            }
+        }
+
+        CircuitBreaker breaker = circuitBreaker(endpoint.getUrl(), type);
+        if (breaker != null && !breaker.tryAcquire()) {
+            double retryAfter = breaker.getRemainingOpenTime();
+            throw new WavespeedCircuitOpenException(
+                    "Circuit breaker open for " + breaker.getName() + "; failing fast (next probe in " +
+                            Math.round(retryAfter * 10) / 10.0 + "s)",
+                    retryAfter
+            );
+        }
+
+        if (key != null) {
+            key.begin();
+        }
+        endpoint.begin();
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = sendCancellable(callClient, request, type, op);
+        } catch (WavespeedCancelledException e) {
+            // Aborted by the caller: says nothing about the server.
+            endpoint.end(false);
+            if (breaker != null) {
+                breaker.release();
+            }
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            endpoint.end(true);
+            if (breaker != null) {
+                breaker.onFailure();
+            }
+            throw e;
+        } finally {
+            if (key != null) {
+                key.end();
+            }
+        }
+        if (key != null && response.code() == 429) {
+            key.onThrottled(parseRetryAfter(response));
+        }
+        boolean failed = response.code() >= 500;
+        endpoint.end(failed);
+        if (!failed && type == RequestType.RESULT) {
+            endpoint.recordLatency(System.nanoTime() - start);
+        }
+        if (breaker != null) {
+            if (failed) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Send a request, reporting a call aborted by cancellation as such rather
+     * than as a connection error.
+     *
+     * @param callClient HTTP client to execute the request with
+     * @param request Request to send
+     * @param type Request type
+     * @param op Operation the request belongs to
+     * @return The response; the caller must close it
+     * @throws WavespeedCancelledException if the operation is cancelled
+     * @throws IOException if the request fails
+     */
+    private Response sendCancellable(OkHttpClient callClient, Request request, RequestType type, Operation op)
+            throws IOException {
+        try {
+            return send(callClient, request, type, op);
+        } catch (IOException e) {
+            if (op.isCancelled()) {
+                throw op.cancelledError();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Send a request, hedging result polls when hedging is enabled.
+     *
+     * @param callClient HTTP client to execute the request with
+     * @param request Request to send
+     * @param type Request type
+     * @param op Operation the request belongs to
+     * @return The response; the caller must close it
+     * @throws IOException if the request fails
+     */
+    private Response send(OkHttpClient callClient, Request request, RequestType type, Operation op)
+            throws IOException {
+        if (type != RequestType.RESULT || pollHedgePercentile <= 0) {
+            Call call = callClient.newCall(request);
+            op.track(call);
+            try {
+                return call.execute();
+            } finally {
+                op.untrack(call);
+            }
+        }
+        return sendHedged(callClient, request, op);
+    }
+
+    /**
+     * Send an idempotent request, racing a second copy against it if the first
+     * is slower than the configured latency percentile.
+     *
+     * @param callClient HTTP client to execute the request with
+     * @param request Idempotent request to send
+     * @param op Operation the request belongs to
+     * @return The first response received; the other call is cancelled
+     * @throws IOException if every attempt fails
+     */
+    private Response sendHedged(OkHttpClient callClient, Request request, Operation op) throws IOException {
+        HedgeBudget budget = pollHedgeBudget;
+        long hedgeDelay = pollLatency.percentile(pollHedgePercentile, POLL_HEDGE_MIN_SAMPLES);
+        budget.deposit();
+
+        CompletableFuture<Response> winner = new CompletableFuture<>();
+        AtomicReference<Call> winningCall = new AtomicReference<>();
+        Map<Call, Long> startTimes = new ConcurrentHashMap<>();
+        CopyOnWriteArrayList<Call> calls = new CopyOnWriteArrayList<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        AtomicReference<IOException> lastFailure = new AtomicReference<>();
+        Callback callback = new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                if (winningCall.compareAndSet(null, call)) {
+                    pollLatency.record(System.nanoTime() - startTimes.get(call));
+                    if (winner.complete(response)) {
+                        return;
+                    }
+                }
+                // A loser, or a hedge answering after every other call failed.
+                response.close();
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                lastFailure.set(e);
+                if (outstanding.decrementAndGet() == 0) {
+                    winner.completeExceptionally(e);
+                }
+            }
+        };
+
+        Call primary = callClient.newCall(request);
+        calls.add(primary);
+        startTimes.put(primary, System.nanoTime());
+        op.track(primary);
+        primary.enqueue(callback);
+
+        Response response = null;
+        try {
+            if (hedgeDelay >= 0) {
+                try {
+                    response = winner.get(hedgeDelay, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // Reserve the hedge before spending budget on it: once every call
+                    // has failed, outstanding is 0 and the outcome is settled.
+                    if (outstanding.getAndIncrement() == 0 || !budget.tryWithdraw()) {
+                        if (outstanding.decrementAndGet() == 0) {
+                            winner.completeExceptionally(lastFailure.get());
+                        }
+                    } else {
+                        Call hedge = primary.clone();
+                        calls.add(hedge);
+                        startTimes.put(hedge, System.nanoTime());
+                        op.track(hedge);
+                        hedge.enqueue(callback);
+                        hedgedPolls.incrementAndGet();
+                    }
+                }
+            }
+            if (response == null) {
+                response = winner.get();
+            }
+            return response;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for result poll");
+        } finally {
+            // Cancel the losing call(s). The winner must stay open: its body
+            // has not been read yet.
+            for (Call call : calls) {
+                op.untrack(call);
+                if (response == null || call != winningCall.get()) {
+                    call.cancel();
+                }
+            }
+            if (response == null) {
+                // Abandoned (e.g. interrupted): release a response that still arrives.
+                winner.thenAccept(Response::close);
+            }
+        }
+    }
+
+    /**
+     * Resolve the value for the X-Client-Name header.
+     *
+     * <p>Precedence: WAVESPEED_CLIENT_NAME environment variable &gt; setClientName() &gt; default.</p>
+     *
+     * @return Client name for channel attribution
+     */
+    private String resolveClientName() {
+        String envName = System.getenv("WAVESPEED_CLIENT_NAME");
+        if (envName != null && !envName.isEmpty()) {
+            return envName;
+        }
+        if (clientName != null && !clientName.isEmpty()) {
+            return clientName;
+        }
+        return DEFAULT_CLIENT_NAME;
+    }
+
+    /**
+     * Get the operating system name for the X-Client-OS header
+     * (lowercase: darwin/linux/windows).
+     *
+     * @return Normalized operating system name
+     */
+    private static String clientOs() {
+        String osName = System.getProperty("os.name", "").toLowerCase();
+        if (osName.contains("mac") || osName.contains("darwin")) {
+            return "darwin";
+        }
+        if (osName.contains("win")) {
+            return "windows";
+        }
+        if (osName.contains("nux") || osName.contains("nix")) {
+            return "linux";
+        }
+        return osName;
+    }
+
+    /**
+     * Add the channel-attribution headers (X-Client-Name, X-Client-Version,
+     * X-Client-OS) sent on every API request.
+     *
+     * @param builder Request builder to add headers to
+     * @return The same builder, for chaining
+     */
+    private Request.Builder addClientHeaders(Request.Builder builder) {
+        return builder
+                .addHeader("X-Client-Name", resolveClientName())
+                .addHeader("X-Client-Version", Version.VERSION)
+                .addHeader("X-Client-OS", clientOs());
+    }
+
+    /**
+     * Get request headers with authentication.
+     *
+     * @return Headers map
+     * @throws IllegalArgumentException if API key is not configured
+     */
+    private Map<String, String> getHeaders() {
+        if ((apiKey == null || apiKey.isEmpty()) && apiKeyPool == null) {
+            throw new IllegalArgumentException(
+                    "API key is required. Set WAVESPEED_API_KEY environment variable or pass api_key to Client()."
+            );
+        }
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", "application/json");
+        headers.put("Authorization", "Bearer " + apiKey);
+        headers.put("X-Client-Name", resolveClientName());
+        headers.put("X-Client-Version", Version.VERSION);
+        headers.put("X-Client-OS", clientOs());
+        return headers;
+    }
+
+    /**
+     * Submit a prediction request.
+     *
+     * @param model Model identifier
+     * @param input Input parameters
+     * @param enableSyncMode If true, wait for result in a best-effort single request
+     * @param op Operation the submission belongs to
+     * @return Tuple of (request_id, result). In async mode, result is null. In sync mode, request_id is null.
+     * @throws WavespeedSubmissionException if submission fails. The POST is sent
+     *         exactly once and is never retried automatically: the task may or
+     *         may not have been created on the server. The only exception is an
+     *         HTTP 429 with an API key pool, which is sent again with another key.
+     */
+    private SubmitResult submit(
+            String model,
+            Map<String, Object> input,
+            boolean enableSyncMode,
+            Operation op
+    ) {
+        // Validate API key early
+        Map<String, String> headers = getHeaders();
+
+        Endpoint endpoint = selectEndpoint(RequestType.SUBMIT);
+        HttpUrl.Builder url = HttpUrl.get(endpoint.getUrl() + "/api/v3/" + model).newBuilder();
+        WebhookReceiver receiver = webhookReceiver;
+        if (receiver != null && !enableSyncMode) {
+            url.addQueryParameter("webhook", receiver.getUrl());
+        }
+        Map<String, Object> body = input != null ? new HashMap<>(input) : new HashMap<>();
+
+        if (enableSyncMode) {
+            body.put("enable_sync_mode", true);
+        }
+
+        RequestBody requestBody = GzipRequestBody.json(gson.toJson(body), requestCompressionThreshold);
+
+        ApiKeyPool pool = apiKeyPool;
+        for (int keyAttempt = 1; ; keyAttempt++) {
+            ApiKey key = selectApiKey(op);
+            op.setApiKey(key);
+            OkHttpClient callClient = perCallClient(op, null);
+
+            Request.Builder builder = new Request.Builder()
+                    .url(url.build())
+                    .post(requestBody)
+                    .addHeader("Authorization", authorization(key))
+                    .addHeader("Content-Type", "application/json");
+            if (requestBody instanceof GzipRequestBody) {
+                builder.addHeader("Content-Encoding", "gzip");
+            }
+            Request request = addClientHeaders(builder).build();
+
+            // The submission POST is sent exactly once per key. If it fails, the server
+            // may already have created the task, so retrying could duplicate work.
+            try (Response response = execute(callClient, request, RequestType.SUBMIT, op, endpoint)) {
+                if (response.code() == 429 && pool != null && keyAttempt < pool.size()) {
+                    // A throttled POST created no task: the key is cooling down, try another.
+                    continue;
+                }
+                if (response.code() != 200) {
+                    String errorBody = response.body() != null ? response.body().string() : "";
+                    throw new WavespeedSubmissionException(
+                            "Failed to submit prediction: HTTP " + response.code() + ": " + errorBody,
+                            response.code(),
+                            parseRetryAfter(response)
+                    );
+                }
+
+                String responseBody = response.body().string();
+                Map<String, Object> result = gson.fromJson(
+                        responseBody,
+                        new TypeToken<Map<String, Object>>() {}.getType()
+                );
+
+                if (enableSyncMode) {
+                    return new SubmitResult(null, result);
+                }
+
+                @SuppressWarnings("unchecked")
+                Map<String, Object> data = (Map<String, Object>) result.get("data");
+                String requestId = (String) data.get("id");
+
+                if (requestId == null) {
+                    throw new WavespeedSubmissionException("No request ID in response: " + result);
+                }
+
+                op.setTaskId(requestId);
+                op.setEndpoint(endpoint);
+                taskEvents.publish(requestId, model, data);
+                return new SubmitResult(requestId, null);
+
+            } catch (IOException e) {
+                throw new WavespeedSubmissionException(
+                        "Prediction submission did not return a response. The task may already " +
+                                "have been created, so the SDK will not retry the POST automatically.",
+                        e
+                );
+            }
+        }
+    }
+
+    /**
+     * Build a per-call HTTP client that shares the connection pool of the
+     * base client but enforces the given timeouts for this call only.
+     *
+     * @param connectTimeout Connect timeout in seconds
+     * @param requestTimeout Read and overall call timeout in seconds
+     * @return HTTP client with the per-call timeouts applied
+     */
+    private OkHttpClient perCallClient(double connectTimeout, double requestTimeout) {
+        return httpClient.newBuilder()
+                .connectTimeout((long) (connectTimeout * 1000), TimeUnit.MILLISECONDS)
+                .readTimeout((long) (requestTimeout * 1000), TimeUnit.MILLISECONDS)
+                .callTimeout((long) (requestTimeout * 1000), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Build the per-call HTTP client for the next request of an operation.
+     *
+     * <p>The request timeout is Config.api.timeout shrunk to the time left
+     * before the deadline; connect uses the smaller of the client connect
+     * timeout and the request timeout.</p>
+     *
+     * @param op Operation the request belongs to
+     * @param taskId Task the request belongs to, for error reporting (may be null)
+     * @return HTTP client with the per-call timeouts applied
+     * @throws WavespeedTimeoutException if the deadline has already passed
+     * @throws WavespeedCancelledException if the operation has been cancelled
+     */
+    private OkHttpClient perCallClient(Operation op, String taskId) {
+        op.checkCancelled();
+        Deadline deadline = op.getDeadline();
+        if (deadline.isExpired()) {
+            throw deadlineExceeded(deadline, taskId);
+        }
+        // Never let a sub-millisecond remainder round down to 0 ("no timeout").
+        double requestTimeout = Math.max(0.001, deadline.clamp(Config.api.timeout));
+        double connectTimeout = Math.min(
+                this.httpClient.connectTimeoutMillis() / 1000.0,
+                requestTimeout
+        );
+        return perCallClient(connectTimeout, requestTimeout);
+    }
+
+    /**
+     * Build the exception for an operation that ran out of time.
+     *
+     * @param deadline The expired deadline
+     * @param taskId Task the operation concerns (may be null)
+     * @return Timeout exception
+     */
+    static WavespeedTimeoutException deadlineExceeded(Deadline deadline, String taskId) {
+        return deadlineExceeded(deadline, taskId, null);
+    }
+
+    /**
+     * Build the exception for a retry that no longer fits before the deadline.
+     *
+     * @param deadline Deadline of the operation
+     * @param taskId Task the operation concerns (may be null)
+     * @param cause The failure that would have been retried (may be null)
+     * @return Timeout exception
+     */
+    private static WavespeedTimeoutException deadlineExceeded(Deadline deadline, String taskId, Exception cause) {
+        if (taskId == null) {
+            return new WavespeedTimeoutException(
+                    "Operation timed out after " + deadline.getTimeout() + " seconds", null, cause
+            );
+        }
+        return new WavespeedTimeoutException(
+                "Prediction timed out after " + deadline.getTimeout() + " seconds (task_id: " + taskId + ")",
+                taskId,
+                cause
+        );
+    }
+
+    private static String taskIdOf(Exception error) {
+        return error instanceof WavespeedException ? ((WavespeedException) error).getTaskId() : null;
+    }
+
+    /**
+     * Get prediction result.
+     *
+     * @param requestId The prediction request ID
+     * @param op Operation the poll belongs to
+     * @return Full API response
+     * @throws WavespeedHttpException if the server answers with an error status
+     * @throws WavespeedException if fetching result fails after retries
+     * @throws WavespeedCircuitOpenException if the result circuit breaker is open
+     * @throws WavespeedTimeoutException if the deadline passes
+     * @throws WavespeedCancelledException if the operation is cancelled
+     */
+    private Map<String, Object> getResult(String requestId, Operation op) {
+        Deadline deadline = op.getDeadline();
+        Endpoint endpoint = endpointFor(op);
+        String url = endpoint.getUrl() + "/api/v3/predictions/" + requestId + "/result";
+
+        double delay = 0.0;
+        for (int attempt = 1; ; attempt++) {
+            OkHttpClient callClient = perCallClient(op, requestId);
+            Exception error;
+            try {
+                Request request = addClientHeaders(new Request.Builder()
+                        .url(url)
+                        .get()
+                        .addHeader("Authorization", authorization(apiKeyFor(op))))
+                        .build();
+
+                try (Response response = execute(callClient, request, RequestType.RESULT, op, endpoint)) {
+                    if (response.code() != 200) {
+                        String errorBody = response.body() != null ? response.body().string() : "";
+                        throw new WavespeedHttpException(
+                                "Failed to get result for task " + requestId + ": HTTP " +
+                                        response.code() + ": " + errorBody,
+                                response.code(),
+                                parseRetryAfter(response),
+                                errorBody,
+                                requestId
+                        );
+                    }
+
+                    String responseBody = response.body().string();
+                    return gson.fromJson(
+                            responseBody,
+                            new TypeToken<Map<String, Object>>() {}.getType()
+                    );
+                }
+
+            } catch (IOException e) {
+                System.out.println("Connection error getting result on attempt " + attempt + "/" + (maxConnectionRetries + 1) + ":");
+                e.printStackTrace();
+                error = e;
+            } catch (WavespeedHttpException e) {
+                error = e;
+            }
+
+            boolean retry = attempt <= maxConnectionRetries && retryPolicy.shouldRetry(error, attempt);
+            if (retry) {
+                delay = retryPolicy.nextDelay(attempt, delay, error);
+                // Don't start a retry that cannot finish before the deadline.
+                if (delay >= deadline.remaining()) {
+                    throw deadlineExceeded(deadline, requestId, error);
+                }
+            }
+            if (!retry) {
+                if (error instanceof WavespeedHttpException) {
+                    throw (WavespeedHttpException) error;
+                }
+                throw new WavespeedException(
+                        "Failed to get result for task " + requestId + " after " + attempt + " attempts",
+                        requestId,
+                        error
+                );
+            }
+
+            System.out.println("Retrying in " + formatSeconds(delay) + " seconds...");
+            try {
+                op.sleep(delay);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new WavespeedException(
+                        "Failed to get result for task " + requestId + " after " + attempt + " attempts",
+                        requestId,
+                        error
+                );
+            }
+        }
+    }
+
+    /**
+     * Parse the Retry-After header of a response.
+     *
+     * @param response HTTP response
+     * @return Requested delay in seconds, or null if the header is absent or malformed
+     */
+    private static Double parseRetryAfter(Response response) {
+        String value = response.header("Retry-After");
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Math.max(0.0, Double.parseDouble(value.trim()));
+        } catch (NumberFormatException ignored) {
+            // Not delta-seconds; try an HTTP date.
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0.0, Duration.between(Instant.now(), date.toInstant()).toMillis() / 1000.0);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String formatSeconds(double seconds) {
+        return String.valueOf(Math.round(seconds * 1000) / 1000.0);
+    }
+
+    /**
+     * Wait for prediction to complete.
+     *
+     * @param requestId The prediction request ID
+     * @param op Operation the wait belongs to
+     * @param pollInterval Time between polls in seconds (a webhook receiver uses its fallback interval)
+     * @return Map with "outputs" array
+     * @throws WavespeedTaskException if prediction fails
+     * @throws WavespeedTimeoutException if prediction times out
+     * @throws WavespeedCancelledException if the operation is cancelled
+     */
+    private Map<String, Object> wait(
+            String requestId,
+            Operation op,
+            double pollInterval
+    ) {
+        Deadline deadline = op.getDeadline();
+        WebhookReceiver receiver = webhookReceiver;
+        boolean poll = receiver == null;
+        while (true) {
+            if (deadline.isExpired()) {
+                throw deadlineExceeded(deadline, requestId);
+            }
+
+            Map<String, Object> data;
+            if (poll) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> polled = (Map<String, Object>) getResult(requestId, op).get("data");
+                data = polled;
+            } else {
+                // The callback usually arrives first; poll only when it is overdue.
+                try {
+                    data = receiver.await(requestId, op, deadline.clamp(receiver.getFallbackPollInterval()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new WavespeedException("Interrupted while waiting for webhook", requestId, e);
+                }
+                poll = data == null;
+                if (data == null) {
+                    continue;
+                }
+            }
+
+            taskEvents.publish(requestId, null, data);
+            Map<String, Object> output = outcome(requestId, data);
+            if (output != null) {
+                prefetchOutputs(requestId, output.get("outputs"));
+                return output;
+            }
+
+            if (receiver != null) {
+                poll = false;
+                continue;
+            }
+            try {
+                op.sleep(deadline.clamp(pollInterval));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WavespeedException("Interrupted during polling", requestId, e);
+            }
+        }
+    }
+
+    /**
+     * Wait for a submitted task, racing a duplicate against it if it runs
+     * longer than the configured percentile of recent task latency for its model.
+     *
+     * @param model Model identifier
+     * @param input Input the task was submitted with
+     * @param requestId The prediction request ID
+     * @param submitted System.nanoTime() when the task was submitted
+     * @param op Operation of the run
+     * @param pollInterval Time between polls in seconds
+     * @return Map with "outputs" array of whichever task finished first
+     */
+    private Map<String, Object> waitHedged(
+            String model,
+            Map<String, Object> input,
+            String requestId,
+            long submitted,
+            Operation op,
+            double pollInterval
+    ) {
+        LatencyTracker latency = taskLatency.computeIfAbsent(model, m -> new LatencyTracker(TASK_LATENCY_WINDOW));
+        HedgeBudget budget = taskHedgeBudget;
+        long hedgeDelay = taskHedgePercentile > 0 ? latency.percentile(taskHedgePercentile, TASK_HEDGE_MIN_SAMPLES) : -1;
+        if (budget != null) {
+            budget.deposit();
+        }
+        if (hedgeDelay < 0) {
+            Map<String, Object> output = wait(requestId, op, pollInterval);
+            latency.record(System.nanoTime() - submitted);
+            return output;
+        }
+
+        // Each task polls under its own operation so that the loser can be
+        // stopped without cancelling the run.
+        Operation primaryOp = new Operation(op.getDeadline()).schedule(op.getPriority(), op.getTenant());
+        primaryOp.setTaskId(requestId);
+        primaryOp.setEndpoint(op.getEndpoint());
+        primaryOp.setApiKey(op.getApiKey());
+        Operation hedgeOp = new Operation(op.getDeadline()).schedule(op.getPriority(), op.getTenant());
+        Runnable onCancel = () -> {
+            primaryOp.cancel();
+            hedgeOp.cancel();
+        };
+        op.onCancel(onCancel);
+
+        CompletableFuture<Map<String, Object>> winner = new CompletableFuture<>();
+        AtomicReference<Operation> winningOp = new AtomicReference<>();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        race(primaryOp, () -> wait(requestId, primaryOp, pollInterval), null, winner, winningOp, failure,
+                outstanding);
+
+        try {
+            Map<String, Object> output;
+            try {
+                output = winner.get(Math.max(0, hedgeDelay - (System.nanoTime() - submitted)), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (!winner.isDone() && !op.isCancelled()) {
+                    // Reserve the duplicate before spending a scheduler slot or budget on it: once
+                    // the primary has failed, outstanding is 0 and the outcome is settled. Without
+                    // a free slot the duplicate is skipped rather than exceed the scheduler's limit.
+                    SubmissionScheduler scheduler = submissionScheduler;
+                    SubmissionScheduler.Permit permit = null;
+                    if (outstanding.getAndIncrement() == 0
+                            || scheduler != null && (permit = scheduler.tryAcquire()) == null
+                            || !budget.tryWithdraw()) {
+                        if (permit != null) {
+                            permit.close();
+                        }
+                        if (outstanding.decrementAndGet() == 0) {
+                            winner.completeExceptionally(failure.get());
+                        }
+                    } else {
+                        hedgedTasks.incrementAndGet();
+                        System.out.println("Task " + requestId + " still running after "
+                                + formatSeconds(hedgeDelay / 1e9) + " seconds, submitting a duplicate");
+                        race(hedgeOp,
+                                () -> wait(submit(model, input, false, hedgeOp).requestId, hedgeOp, pollInterval),
+                                permit, winner, winningOp, failure, outstanding);
+                    }
+                }
+                output = winner.get();
+            }
+            latency.record(System.nanoTime() - submitted);
+            if (winningOp.get() == hedgeOp) {
+                op.setTaskId(hedgeOp.getTaskId());
+                op.setEndpoint(hedgeOp.getEndpoint());
+                op.setApiKey(hedgeOp.getApiKey());
+            }
+            return output;
+        } catch (ExecutionException e) {
+            if (op.isCancelled()) {
+                throw op.cancelledError();
+            }
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new WavespeedException(
+                    "Prediction failed", requestId, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WavespeedException("Interrupted while waiting for prediction", requestId, e);
+        } finally {
+            op.removeOnCancel(onCancel);
+            for (Operation raceOp : new Operation[] {primaryOp, hedgeOp}) {
+                if (raceOp == winningOp.get()) {
+                    continue;
+                }
+                raceOp.cancel();
+                // The loser's task is cancelled on the server. After a cancelled run the
+                // duplicate is too; the caller cancels the task it knows about.
+                boolean cancelTask = winningOp.get() != null || op.isCancelled() && raceOp == hedgeOp;
+                if (cancelTask && raceOp.getTaskId() != null) {
+                    cancelInBackground(raceOp);
+                }
+            }
+        }
+    }
+
+    /**
+     * Run one contender of a hedged wait on the internal worker pool.
+     *
+     * @param permit Scheduler slot held by the contender until it ends (null = none)
+     */
+    private void race(
+            Operation raceOp,
+            Supplier<Map<String, Object>> body,
+            SubmissionScheduler.Permit permit,
+            CompletableFuture<Map<String, Object>> winner,
+            AtomicReference<Operation> winningOp,
+            AtomicReference<RuntimeException> failure,
+            AtomicInteger outstanding
+    ) {
+        workers().execute(() -> {
+            try {
+                Map<String, Object> output = body.get();
+                if (winningOp.compareAndSet(null, raceOp)) {
+                    winner.complete(output);
+                }
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+                if (outstanding.decrementAndGet() == 0) {
+                    winner.completeExceptionally(failure.get());
+                }
+            } finally {
+                if (permit != null) {
+                    permit.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Whether a task status is final.
+     *
+     * @param status Task status
+     * @return True for completed, failed, cancelled and timeout
+     */
+    static boolean isTerminalStatus(String status) {
+        return "completed".equals(status) || "failed".equals(status) ||
+                "cancelled".equals(status) || "timeout".equals(status);
+    }
+
+    /**
+     * Turn the prediction data of a finished task into its output.
+     *
+     * @param requestId The prediction request ID
+     * @param data Prediction data from a result poll or webhook
+     * @return Map with "outputs" array, or null if the task is still running
+     * @throws WavespeedTaskException if the task failed
+     */
+    private static Map<String, Object> outcome(String requestId, Map<String, Object> data) {
+        String status = (String) data.get("status");
+
+        if ("completed".equals(status)) {
+            Map<String, Object> output = new HashMap<>();
+            output.put("outputs", data.get("outputs"));
+            return output;
+        }
+
+        if (isTerminalStatus(status)) {
+            String error = (String) data.get("error");
+            throw new WavespeedTaskException(
+                    "Prediction " + status + " (task_id: " + requestId + "): " +
+                            (error != null ? error : "Unknown error"),
+                    requestId,
+                    status,
+                    error
+            );
+        }
+        return null;
+    }
+
+    private String getResultUrl(Map<String, Object> data) {
+        Object urlsObj = data.get("urls");
+        if (!(urlsObj instanceof Map)) {
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> urls = (Map<String, Object>) urlsObj;
+        Object resultUrl = urls.get("get");
+        return resultUrl instanceof String ? (String) resultUrl : null;
+    }
+
+    private int getResultCode(Map<String, Object> data) {
+        Object code = data.get("code");
         if (code instanceof Number) {
             return ((Number) code).intValue();
         }
-        return 0;
+        return 0;
+    }
+
+    private boolean isSyncTimeoutData(Map<String, Object> data) {
+        String status = (String) data.get("status");
+        String error = (String) data.get("error");
+        return getResultCode(data) == 5004 ||
+                ("processing".equals(status) && error != null && error.contains("Sync mode timed out"));
+    }
+
+    /**
+     * Build the exception for a sync-mode response that did not complete.
+     *
+     * @param data Response data
+     * @return Timeout exception if the task is still processing, task exception otherwise
+     */
+    private WavespeedException syncModeError(Map<String, Object> data) {
+        String message = syncModeErrorMessage(data);
+        String taskId = (String) data.get("id");
+        if (isSyncTimeoutData(data)) {
+            return new WavespeedTimeoutException(message, taskId);
+        }
+        return new WavespeedTaskException(message, taskId, (String) data.get("status"), (String) data.get("error"));
+    }
+
+    private String syncModeErrorMessage(Map<String, Object> data) {
+        String error = (String) data.get("error");
+        if (error == null) {
+            error = "Unknown error";
+        }
+
+        String requestId = (String) data.get("id");
+        if (requestId == null) {
+            requestId = "unknown";
+        }
+
+        if (isSyncTimeoutData(data)) {
+            String message = "Sync mode timed out (task_id: " + requestId + "): " + error;
+            String resultUrl = getResultUrl(data);
+            if (resultUrl != null && !message.contains(resultUrl)) {
+                message += " Query the result later at: " + resultUrl;
+            }
+            return message;
+        }
+
+        return "Prediction failed (task_id: " + requestId + "): " + error;
+    }
+
+    /**
+     * Run a model and wait for the output.
+     *
+     * <p>The timeout bounds the whole operation: submission, every poll and
+     * every retry share one {@link Deadline}.</p>
+     *
+     * @param model Model identifier (e.g., "wavespeed-ai/z-image/turbo")
+     * @param input Input parameters for the model
+     * @param timeout Maximum time to wait for completion, including retries (null = no timeout)
+     * @param pollInterval Interval between status checks in seconds (null = 1.0)
+     * @param enableSyncMode If true, use synchronous mode (best-effort single request) (null = false)
+     * @param maxRetries Maximum task-level retries (null = use client setting)
+     * @return Map containing "outputs" array with model outputs
+     * @throws IllegalArgumentException if API key is not configured
+     * @throws RuntimeException if the prediction fails
+     * @throws RuntimeException if the prediction times out
+     * @throws WavespeedCircuitOpenException if the circuit breaker for an endpoint is open
+     */
+    public Map<String, Object> run(
+            String model,
+            Map<String, Object> input,
+            Double timeout,
+            Double pollInterval,
+            Boolean enableSyncMode,
+            Integer maxRetries
+    ) {
+        return run(
+                model,
+                input,
+                new Operation(timeout != null ? Deadline.after(timeout) : Deadline.none()),
+                pollInterval != null ? pollInterval : 1.0,
+                enableSyncMode != null && enableSyncMode,
+                maxRetries != null ? maxRetries : this.maxRetries
+        );
+    }
+
+    /**
+     * Run a model and wait for the output, finishing before a deadline.
+     *
+     * <p>Use this to share one time budget across several calls, e.g. an
+     * upload followed by a run.</p>
+     *
+     * @param model Model identifier
+     * @param input Input parameters
+     * @param deadline Deadline for the whole operation, including retries
+     * @return Map containing "outputs" array
+     * @throws WavespeedTimeoutException if the deadline passes first
+     */
+    public Map<String, Object> run(String model, Map<String, Object> input, Deadline deadline) {
+        return run(model, input, new Operation(deadline), 1.0, false, this.maxRetries);
+    }
+
+    private Map<String, Object> run(
+            String model,
+            Map<String, Object> input,
+            Operation op,
+            double poll,
+            boolean syncMode,
+            int taskRetries
+    ) {
+        ResultCache cache = resultCache;
+        RunCoalescer coalescer = runCoalescer;
+        boolean cacheable = cache != null && cache.isCacheable(model);
+        if (!cacheable && coalescer == null) {
+            return runTask(model, input, op, poll, syncMode, taskRetries);
+        }
+        // Keyed on the caller's input, before local files are uploaded.
+        String key = ResultCache.key(model, input);
+        if (cacheable) {
+            Map<String, Object> cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Function<Operation, Map<String, Object>> task = taskOp -> {
+            Map<String, Object> output = runTask(model, input, taskOp, poll, syncMode, taskRetries);
+            if (cacheable) {
+                cache.put(key, model, output);
+            }
+            return output;
+        };
+        if (coalescer == null) {
+            return task.apply(op);
+        }
+        return coalescer.run(key + "|" + syncMode, op, task, workers(), shared -> {
+            if (shared.getTaskId() != null) {
+                cancelInBackground(shared);
+            }
+        });
+    }
+
+    private Map<String, Object> runTask(
+            String model,
+            Map<String, Object> input,
+            Operation op,
+            double poll,
+            boolean syncMode,
+            int taskRetries
+    ) {
+        Deadline deadline = op.getDeadline();
+        Exception lastError = null;
+        double delay = 0.0;
+        input = resolveInputFiles(input, op);
+
+        for (int attempt = 0; attempt <= taskRetries; attempt++) {
+            // The scheduler slot is held until the task finishes.
+            try {
+                SubmissionScheduler.Permit permit = admit(op);
+                try {
+                    long submitted = System.nanoTime();
+                    SubmitResult submitResult = submit(model, input, syncMode, op);
+
+                    if (syncMode) {
+                        // In sync mode, extract outputs from the result
+                        @SuppressWarnings("unchecked")
+                        Map<String, Object> data = (Map<String, Object>) submitResult.syncResult.get("data");
+                        String status = (String) data.get("status");
+                        taskEvents.publish((String) data.get("id"), model, data);
+
+                        if (!"completed".equals(status)) {
+                            throw syncModeError(data);
+                        }
+
+                        Map<String, Object> output = new HashMap<>();
+                        output.put("outputs", data.get("outputs"));
+                        prefetchOutputs((String) data.get("id"), data.get("outputs"));
+                        return output;
+                    }
+
+                    return waitHedged(model, input, submitResult.requestId, submitted, op, poll);
+                } finally {
+                    if (permit != null) {
+                        permit.close();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WavespeedException("Interrupted while waiting for a submission slot", e);
+            } catch (Exception e) {
+                lastError = e;
+
+                boolean retry = attempt < taskRetries && !op.isCancelled() && retryPolicy.shouldRetry(e, attempt + 1);
+                if (retry) {
+                    delay = retryPolicy.nextDelay(attempt + 1, delay, e);
+                    if (delay >= deadline.remaining()) {
+                        throw deadlineExceeded(deadline, taskIdOf(e), e);
+                    }
+                }
+                if (!retry) {
+                    throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
+                }
+
+                System.out.println("Task attempt " + (attempt + 1) + "/" + (taskRetries + 1) + " failed: " + e);
+                System.out.println("Retrying in " + formatSeconds(delay) + " seconds...");
+                try {
+                    op.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new WavespeedException("Interrupted during retry", ie);
+                }
+            }
+        }
+
+        // Should not reach here, but just in case
+        if (lastError != null) {
+            throw lastError instanceof RuntimeException ? (RuntimeException) lastError : new RuntimeException(lastError);
+        }
+        throw new WavespeedException("All " + (taskRetries + 1) + " attempts failed");
+    }
+
+    /**
+     * Run a model with default options.
+     *
+     * @param model Model identifier
+     * @param input Input parameters
+     * @return Map containing "outputs" array
+     */
+    public Map<String, Object> run(String model, Map<String, Object> input) {
+        return run(model, input, null, null, null, null);
+    }
+
+    /**
+     * Run a model with sync mode enabled.
+     *
+     * @param model Model identifier
+     * @param input Input parameters
+     * @param enableSyncMode If true, use synchronous mode (best-effort single request)
+     * @return Map containing "outputs" array
+     */
+    public Map<String, Object> run(String model, Map<String, Object> input, boolean enableSyncMode) {
+        return run(model, input, null, null, enableSyncMode, null);
+    }
+
+    /**
+     * Run a model with custom timeout.
+     *
+     * @param model Model identifier
+     * @param input Input parameters
+     * @param timeout Maximum time to wait for completion
+     * @return Map containing "outputs" array
+     */
+    public Map<String, Object> run(String model, Map<String, Object> input, double timeout) {
+        return run(model, input, timeout, null, null, null);
+    }
+
+    /**
+     * Run a model and wait for the output.
+     *
+     * @param model Model identifier
+     * @param input Input parameters
+     * @param options Run options (null = defaults)
+     * @return Map containing "outputs" array
+     */
+    public Map<String, Object> run(String model, Map<String, Object> input, RunOptions options) {
+        RunOptions opts = options != null ? options : new RunOptions();
+        return run(
+                model,
+                input,
+                opts.newOperation(),
+                opts.resolvePollInterval(),
+                opts.resolveSyncMode(),
+                opts.getMaxRetries() != null ? opts.getMaxRetries() : this.maxRetries
+        );
+    }
+
+    /**
+     * Start a prediction in the background.
+     *
+     * <p>The returned handle can be awaited or cancelled. Cancelling stops
+     * polling immediately, aborts the in-flight request and asks the server to
+     * cancel the task so it stops consuming quota.</p>
+     *
+     * @param model Model identifier
+     * @param input Input parameters
+     * @param options Run options (null = defaults)
+     * @return Handle to the running prediction
+     */
+    public Prediction runAsync(String model, Map<String, Object> input, RunOptions options) {
+        RunOptions opts = options != null ? options : new RunOptions();
+        Operation op = opts.newOperation();
+        double poll = opts.resolvePollInterval();
+        boolean syncMode = opts.resolveSyncMode();
+        int taskRetries = opts.getMaxRetries() != null ? opts.getMaxRetries() : this.maxRetries;
+
+        Prediction prediction = new Prediction(this, model, op);
+        executor().execute(() -> prediction.complete(() -> run(model, input, op, poll, syncMode, taskRetries)));
+        return prediction;
+    }
+
+    /**
+     * Start a prediction in the background with default options.
+     *
+     * @param model Model identifier
+     * @param input Input parameters
+     * @return Handle to the running prediction
+     */
+    public Prediction runAsync(String model, Map<String, Object> input) {
+        return runAsync(model, input, null);
+    }
+
+    /**
+     * Run one input against several models and keep the first to succeed.
+     *
+     * <p>All models start at once as background predictions. As soon as one
+     * completes, the others are cancelled, on the server too. Failures of
+     * individual models are ignored as long as another one succeeds.</p>
+     *
+     * <p>Example usage:</p>
+     * <pre>{@code
+     * MultiModelResult result = client.runFirst(
+     *     Arrays.asList("wavespeed-ai/z-image/turbo", "wavespeed-ai/flux-schnell"),
+     *     Map.of("prompt", "Cat"));
+     * System.out.println(result.getWinner().getModel() + ": " + result.getWinner().getOutputs());
+     * }</pre>
+     *
+     * @param models Model identifiers
+     * @param input Input parameters, sent to every model
+     * @param options Run options applied to every model (null = defaults)
+     * @return The winner and the outcome and timing of every model
+     * @throws WavespeedException if every model failed
+     */
+    public MultiModelResult runFirst(List<String> models, Map<String, Object> input, RunOptions options) {
+        MultiModelResult result = runModels(models, input, options, true);
+        if (result.getWinner() == null) {
+            StringBuilder message = new StringBuilder("All " + models.size() + " models failed");
+            WavespeedException error = null;
+            for (ModelRunResult failed : result.getResults()) {
+                message.append("; ").append(failed.getModel()).append(": ").append(failed.getError().getMessage());
+            }
+            for (ModelRunResult failed : result.getResults()) {
+                if (error == null) {
+                    error = new WavespeedException(message.toString(), failed.getError());
+                } else {
+                    error.addSuppressed(failed.getError());
+                }
+            }
+            throw error;
+        }
+        return result;
+    }
+
+    /**
+     * Run one input against several models and keep the first to succeed, with default options.
+     *
+     * @param models Model identifiers
+     * @param input Input parameters, sent to every model
+     * @return The winner and the outcome and timing of every model
+     * @throws WavespeedException if every model failed
+     */
+    public MultiModelResult runFirst(List<String> models, Map<String, Object> input) {
+        return runFirst(models, input, null);
+    }
+
+    /**
+     * Run one input against several models and wait for all of them.
+     *
+     * <p>All models start at once as background predictions. The failure of a
+     * model is reported in its result rather than thrown.</p>
+     *
+     * @param models Model identifiers
+     * @param input Input parameters, sent to every model
+     * @param options Run options applied to every model (null = defaults)
+     * @return The outcome and timing of every model; the winner is the fastest successful one
+     */
+    public MultiModelResult runAll(List<String> models, Map<String, Object> input, RunOptions options) {
+        return runModels(models, input, options, false);
+    }
+
+    /**
+     * Run one input against several models with default options and wait for all of them.
+     *
+     * @param models Model identifiers
+     * @param input Input parameters, sent to every model
+     * @return The outcome and timing of every model; the winner is the fastest successful one
+     */
+    public MultiModelResult runAll(List<String> models, Map<String, Object> input) {
+        return runAll(models, input, null);
+    }
+
+    private MultiModelResult runModels(
+            List<String> models,
+            Map<String, Object> input,
+            RunOptions options,
+            boolean firstOnly
+    ) {
+        if (models == null || models.isEmpty()) {
+            throw new IllegalArgumentException("models must not be empty");
+        }
+        long start = System.nanoTime();
+        List<Prediction> predictions = new ArrayList<>();
+        List<CompletableFuture<ModelRunResult>> outcomes = new ArrayList<>();
+        CompletableFuture<ModelRunResult> first = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(models.size());
+        for (String model : models) {
+            Prediction prediction = runAsync(model, input, options);
+            predictions.add(prediction);
+            outcomes.add(prediction.toCompletableFuture().handle((output, error) -> {
+                RuntimeException failure = null;
+                if (error instanceof CancellationException) {
+                    failure = prediction.getOperation().cancelledError();
+                } else if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    failure = cause instanceof RuntimeException
+                            ? (RuntimeException) cause : new WavespeedException("Prediction failed", cause);
+                }
+                ModelRunResult result = new ModelRunResult(
+                        model, prediction.getTaskId(), output, failure, (System.nanoTime() - start) / 1e9);
+                if (failure == null) {
+                    first.complete(result);
+                }
+                if (pending.decrementAndGet() == 0) {
+                    first.complete(null);
+                }
+                return result;
+            }));
+        }
+
+        ModelRunResult winner;
+        try {
+            if (firstOnly) {
+                winner = first.get();
+                for (Prediction prediction : predictions) {
+                    prediction.cancel();
+                }
+            } else {
+                CompletableFuture.allOf(outcomes.toArray(new CompletableFuture<?>[0])).get();
+                winner = first.getNow(null);
+            }
+        } catch (InterruptedException e) {
+            for (Prediction prediction : predictions) {
+                prediction.cancel();
+            }
+            Thread.currentThread().interrupt();
+            throw new WavespeedException("Interrupted while waiting for models", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Model outcome future failed", e);
+        }
+
+        // After cancelling the losers every outcome is available.
+        List<ModelRunResult> results = new ArrayList<>();
+        for (CompletableFuture<ModelRunResult> outcome : outcomes) {
+            results.add(outcome.join());
+        }
+        return new MultiModelResult(winner, results);
+    }
+
+    /**
+     * Attach to a task submitted earlier and wait for it in the background.
+     *
+     * <p>Only the timeout, deadline and poll interval options apply.</p>
+     *
+     * @param taskId ID of an existing task
+     * @param options Run options (null = defaults)
+     * @return Handle to the task, which can be awaited or cancelled
+     */
+    public Prediction attach(String taskId, RunOptions options) {
+        if (taskId == null || taskId.isEmpty()) {
+            throw new IllegalArgumentException("taskId is required");
+        }
+        RunOptions opts = options != null ? options : new RunOptions();
+        Operation op = new Operation(opts.resolveDeadline());
+        op.setTaskId(taskId);
+        double poll = opts.resolvePollInterval();
+
+        Prediction prediction = new Prediction(this, null, op);
+        executor().execute(() -> prediction.complete(() -> wait(taskId, op, poll)));
+        return prediction;
+    }
+
+    /**
+     * Attach to a task submitted earlier with default options.
+     *
+     * @param taskId ID of an existing task
+     * @return Handle to the task
+     */
+    public Prediction attach(String taskId) {
+        return attach(taskId, null);
+    }
+
+    /**
+     * Ask the server to cancel a task.
+     *
+     * <p>This only affects the server; use {@link Prediction#cancel()} to also
+     * stop a local run.</p>
+     *
+     * @param taskId ID of the task to cancel
+     * @return True if the server accepted the cancellation, false if it does
+     *         not support cancelling this task (HTTP 404 or 405)
+     * @throws WavespeedHttpException if the server answers with another error status
+     * @throws WavespeedException if the request fails
+     */
+    public boolean cancel(String taskId) {
+        return cancel(taskId, endpoints.get(0), null);
+    }
+
+    private boolean cancel(String taskId, Endpoint endpoint, ApiKey key) {
+        getHeaders();
+        Operation op = new Operation(Deadline.after(Config.api.timeout));
+        op.setTaskId(taskId);
+        op.setApiKey(key);
+
+        Request request = addClientHeaders(new Request.Builder()
+                .url(endpoint.getUrl() + "/api/v3/predictions/" + taskId + "/cancel")
+                .post(RequestBody.create("{}", MediaType.parse("application/json")))
+                .addHeader("Authorization", authorization(apiKeyFor(op))))
+                .build();
+
+        try (Response response = execute(perCallClient(op, taskId), request, RequestType.CANCEL, op, endpoint)) {
+            if (response.isSuccessful()) {
+                return true;
+            }
+            if (response.code() == 404 || response.code() == 405) {
+                return false;
+            }
+            String errorBody = response.body() != null ? response.body().string() : "";
+            throw new WavespeedHttpException(
+                    "Failed to cancel task " + taskId + ": HTTP " + response.code() + ": " + errorBody,
+                    response.code(),
+                    parseRetryAfter(response),
+                    errorBody,
+                    taskId
+            );
+        } catch (IOException e) {
+            throw new WavespeedException("Failed to cancel task " + taskId, taskId, e);
+        }
+    }
+
+    /**
+     * Send a best-effort cancel request for an operation's task without blocking the caller.
+     *
+     * @param op Cancelled operation
+     */
+    void cancelInBackground(Operation op) {
+        String taskId = op.getTaskId();
+        Endpoint endpoint = endpointFor(op);
+        ApiKey key = op.getApiKey();
+        executor().execute(() -> {
+            try {
+                cancel(taskId, endpoint, key);
+            } catch (RuntimeException e) {
+                System.out.println("Failed to cancel task " + taskId + " on the server: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Upload the local files referenced by an input, if automatic uploads are enabled.
+     *
+     * @param input Prediction input
+     * @param op Operation of the run
+     * @return Input with local file references replaced by URLs
+     */
+    private Map<String, Object> resolveInputFiles(Map<String, Object> input, Operation op) {
+        InputFileUploader uploader = inputFileUploader;
+        if (uploader == null || input == null) {
+            return input;
+        }
+        try {
+            return uploader.resolve(input, op, workers());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WavespeedException("Interrupted while uploading input files", e);
+        }
+    }
+
+    /**
+     * Upload a file to WaveSpeed.
+     *
+     * @param file File path string to upload
+     * @param timeout Total timeout in seconds for creating the upload and transferring the file (null = use default)
+     * @return URL of the uploaded file
+     * @throws IllegalArgumentException if API key is not configured
+     * @throws IllegalArgumentException if file path does not exist
+     * @throws WavespeedException if upload fails
+     */
+    public String upload(String file, Double timeout) {
+        return upload(Paths.get(file), timeout);
+    }
+
+    /**
+     * Upload a file to WaveSpeed with a bandwidth cap, progress callback or deadline.
+     *
+     * @param file File path string to upload
+     * @param options Upload options (null = defaults)
+     * @return URL of the uploaded file
+     * @throws IllegalArgumentException if API key is not configured
+     * @throws IllegalArgumentException if file path does not exist
+     * @throws WavespeedException if upload fails
+     */
+    public String upload(String file, UploadOptions options) {
+        return upload(Paths.get(file), options);
+    }
+
+    /**
+     * Upload a file to WaveSpeed.
+     *
+     * <p>The file is streamed into the request with {@code FileChannel.transferTo}.</p>
+     *
+     * @param file File to upload
+     * @param timeout Total timeout in seconds for creating the upload and transferring the file (null = use default)
+     * @return URL of the uploaded file
+     * @throws IllegalArgumentException if API key is not configured
+     * @throws IllegalArgumentException if the file does not exist
+     * @throws WavespeedException if upload fails
+     */
+    public String upload(Path file, Double timeout) {
+        return upload(UploadSource.of(file), timeout);
+    }
+
+    /**
+     * Upload a file to WaveSpeed with a bandwidth cap, progress callback or deadline.
+     *
+     * @param file File to upload
+     * @param options Upload options (null = defaults)
+     * @return URL of the uploaded file
+     * @throws IllegalArgumentException if API key is not configured
+     * @throws IllegalArgumentException if the file does not exist
+     * @throws WavespeedException if upload fails
+     */
+    public String upload(Path file, UploadOptions options) {
+        return upload(UploadSource.of(file), options);
+    }
+
+    /**
+     * Upload a file with default timeout.
+     *
+     * @param file File to upload
+     * @return URL of the uploaded file
+     */
+    public String upload(Path file) {
+        return upload(file, new UploadOptions());
+    }
+
+    /**
+     * Upload bytes held in memory, e.g. an image rendered by the application.
+     *
+     * @param data Content to upload; the array is sent as is, without copying
+     * @param filename File name reported to the API; its extension determines the content type
+     * @param timeout Total timeout in seconds (null = use default)
+     * @return URL of the uploaded content
+     * @throws WavespeedException if upload fails
+     */
+    public String upload(byte[] data, String filename, Double timeout) {
+        return upload(ByteBuffer.wrap(data), filename, timeout);
+    }
+
+    /**
+     * Upload bytes held in memory with a bandwidth cap, progress callback or deadline.
+     *
+     * @param data Content to upload
+     * @param filename File name reported to the API
+     * @param options Upload options (null = defaults)
+     * @return URL of the uploaded content
+     * @throws WavespeedException if upload fails
+     */
+    public String upload(byte[] data, String filename, UploadOptions options) {
+        return upload(ByteBuffer.wrap(data), filename, options);
+    }
+
+    /**
+     * Upload bytes held in memory with default timeout.
+     *
+     * @param data Content to upload
+     * @param filename File name reported to the API
+     * @return URL of the uploaded content
+     */
+    public String upload(byte[] data, String filename) {
+        return upload(data, filename, new UploadOptions());
+    }
+
+    /**
+     * Upload the remaining bytes of a buffer, which may be direct or memory-mapped.
+     *
+     * <p>The buffer's position and limit are left unchanged; its content is sent
+     * through read-only views, without copying.</p>
+     *
+     * @param data Content to upload
+     * @param filename File name reported to the API; its extension determines the content type
+     * @param timeout Total timeout in seconds (null = use default)
+     * @return URL of the uploaded content
+     * @throws WavespeedException if upload fails
+     */
+    public String upload(ByteBuffer data, String filename, Double timeout) {
+        return upload(UploadSource.of(data, filename), timeout);
+    }
+
+    /**
+     * Upload the remaining bytes of a buffer with a bandwidth cap, progress callback or deadline.
+     *
+     * @param data Content to upload
+     * @param filename File name reported to the API
+     * @param options Upload options (null = defaults)
+     * @return URL of the uploaded content
+     * @throws WavespeedException if upload fails
+     */
+    public String upload(ByteBuffer data, String filename, UploadOptions options) {
+        return upload(UploadSource.of(data, filename), options);
+    }
+
+    /**
+     * Upload the remaining bytes of a buffer with default timeout.
+     *
+     * @param data Content to upload
+     * @param filename File name reported to the API
+     * @return URL of the uploaded content
+     */
+    public String upload(ByteBuffer data, String filename) {
+        return upload(data, filename, new UploadOptions());
+    }
+
+    /**
+     * Upload a stream of known length.
+     *
+     * <p>Exactly {@code length} bytes are streamed into the request body. A
+     * stream can only be read once, so the transfer is neither retried, split
+     * into parts, nor served from the upload cache. The stream is not closed.</p>
+     *
+     * @param in Stream to upload
+     * @param length Number of bytes to read from the stream
+     * @param filename File name reported to the API; its extension determines the content type
+     * @param timeout Total timeout in seconds (null = use default)
+     * @return URL of the uploaded content
+     * @throws WavespeedException if upload fails or the stream ends early
+     */
+    public String upload(InputStream in, long length, String filename, Double timeout) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length must not be negative");
+        }
+        return upload(UploadSource.of(in, length, filename), timeout);
     }
 
-    private boolean isSyncTimeoutData(Map<String, Object> data) {
-        String status = (String) data.get("status");
-        String error = (String) data.get("error");
-        return getResultCode(data) == 5004 ||
-                ("processing".equals(status) && error != null && error.contains("Sync mode timed out"));
+    /**
+     * Upload a stream of known length with a bandwidth cap, progress callback or deadline.
+     *
+     * @param in Stream to upload
+     * @param length Number of bytes to read from the stream
+     * @param filename File name reported to the API
+     * @param options Upload options (null = defaults)
+     * @return URL of the uploaded content
+     * @throws WavespeedException if upload fails or the stream ends early
+     */
+    public String upload(InputStream in, long length, String filename, UploadOptions options) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length must not be negative");
+        }
+        return upload(UploadSource.of(in, length, filename), options);
     }
 
-    private String syncModeErrorMessage(Map<String, Object> data) {
-        String error = (String) data.get("error");
-        if (error == null) {
-            error = "Unknown error";
+    /**
+     * Upload a stream of known length with default timeout.
+     *
+     * @param in Stream to upload
+     * @param length Number of bytes to read from the stream
+     * @param filename File name reported to the API
+     * @return URL of the uploaded content
+     */
+    public String upload(InputStream in, long length, String filename) {
+        return upload(in, length, filename, new UploadOptions());
+    }
+
+    private String upload(UploadSource source, Double timeout) {
+        return upload(source, new UploadOptions().setTimeout(timeout));
+    }
+
+    private String upload(UploadSource source, UploadOptions options) {
+        UploadOptions opts = options != null ? options : new UploadOptions();
+        // One deadline covers both the upload ticket POST and the file transfer.
+        Operation op = new Operation(opts.resolveDeadline());
+        return upload(source, op, new UploadTransfer(uploadBandwidthLimiter, opts, op));
+    }
+
+    /**
+     * Upload a file as one step of an operation, within its deadline.
+     *
+     * @param fileObj File to upload
+     * @param op Operation the upload belongs to
+     * @return URL of the uploaded file
+     */
+    String upload(File fileObj, Operation op) {
+        return upload(UploadSource.of(fileObj.toPath()), op, new UploadTransfer(uploadBandwidthLimiter, null, op));
+    }
+
+    private String upload(UploadSource source, Operation op, UploadTransfer transfer) {
+        if ((apiKey == null || apiKey.isEmpty()) && apiKeyPool == null) {
+            throw new IllegalArgumentException(
+                    "API key is required. Set WAVESPEED_API_KEY environment variable or pass api_key to Client()."
+            );
         }
 
-        String requestId = (String) data.get("id");
-        if (requestId == null) {
-            requestId = "unknown";
+        source.checkReadable();
+
+        UploadCache cache = uploadCache;
+        ImagePreprocessor preprocessor = imagePreprocessor;
+        String contentHash = null;
+        if (cache != null) {
+            try {
+                contentHash = source.contentHash(cache);
+            } catch (IOException e) {
+                throw new WavespeedException("Failed to read " + source.getFilename(), e);
+            }
+            if (contentHash != null && preprocessor != null) {
+                // The original content is looked up, so a hit skips the image processing too.
+                contentHash += "|" + preprocessor.signature();
+            }
+            String cachedUrl = contentHash != null ? cache.get(contentHash) : null;
+            if (cachedUrl != null) {
+                return cachedUrl;
+            }
         }
 
-        if (isSyncTimeoutData(data)) {
-            String message = "Sync mode timed out (task_id: " + requestId + "): " + error;
-            String resultUrl = getResultUrl(data);
-            if (resultUrl != null && !message.contains(resultUrl)) {
-                message += " Query the result later at: " + resultUrl;
+        UploadSource content = preprocessor != null ? preprocessor.process(source) : source;
+        transfer.setTotalBytes(content.getSize());
+        long start = System.nanoTime();
+        String downloadUrl = uploadContent(content, op, transfer);
+        if (content != source) {
+            preprocessor.recordTransfer(content.getSize(), System.nanoTime() - start);
+        }
+        if (contentHash != null) {
+            cache.put(contentHash, downloadUrl);
+        }
+        return downloadUrl;
+    }
+
+    /**
+     * Upload content through an upload ticket, in parts if the server supports it.
+     *
+     * @param source Content to upload
+     * @param op Operation the upload belongs to
+     * @param transfer Throttling and progress reporting of the transfer
+     * @return URL of the uploaded content
+     */
+    private String uploadContent(UploadSource source, Operation op, UploadTransfer transfer) {
+        String contentType = source.probeContentType();
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("filename", source.getFilename());
+        payload.put("size", source.getSize());
+        if (contentType != null) {
+            payload.put("content_type", contentType);
+        }
+        MediaType mediaType = MediaType.parse(contentType != null ? contentType : "application/octet-stream");
+
+        // An interrupted chunked upload of the same unchanged file resumes where it stopped.
+        String resumeKey = source.resumeKey();
+        long partSize = chunkedUploadPartSize;
+        boolean chunked = partSize > 0 && source.getSize() > partSize && source.range(0, 0, mediaType) != null;
+        if (chunked) {
+            MultipartUpload pending = resumeKey != null ? pendingUploads.get(resumeKey) : null;
+            if (pending != null) {
+                return uploadParts(source, pending, mediaType, op, transfer, resumeKey);
             }
-            return message;
+            payload.put("multipart", Collections.singletonMap("part_size", partSize));
         }
 
-        return "Prediction failed (task_id: " + requestId + "): " + error;
+        OkHttpClient callClient = perCallClient(op, null);
+
+        Endpoint endpoint = selectEndpoint(RequestType.UPLOAD);
+        Request request = addClientHeaders(new Request.Builder()
+                .url(endpoint.getUrl() + "/api/v3/media/uploads")
+                .post(RequestBody.create(gson.toJson(payload), MediaType.parse("application/json")))
+                .addHeader("Authorization", authorization(apiKeyFor(op))))
+                .build();
+
+        try (Response response = execute(callClient, request, RequestType.UPLOAD, op, endpoint)) {
+            if (response.code() != 200) {
+                String errorBody = response.body() != null ? response.body().string() : "";
+                throw new WavespeedHttpException(
+                        "Failed to create upload: HTTP " + response.code() + ": " + errorBody,
+                        response.code(),
+                        parseRetryAfter(response),
+                        errorBody,
+                        null
+                );
+            }
+
+            String responseBody = response.body().string();
+            Map<String, Object> result = gson.fromJson(
+                    responseBody,
+                    new TypeToken<Map<String, Object>>() {}.getType()
+            );
+
+            Double codeDouble = (Double) result.get("code");
+            int code = codeDouble != null ? codeDouble.intValue() : 0;
+            if (code != 200) {
+                String message = (String) result.get("message");
+                throw new WavespeedException("Upload failed: " + (message != null ? message : "Unknown error"));
+            }
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> data = (Map<String, Object>) result.get("data");
+            String downloadUrl = (String) data.get("download_url");
+            @SuppressWarnings("unchecked")
+            Map<String, Object> upload = (Map<String, Object>) data.get("upload");
+            if (chunked && downloadUrl != null && upload != null) {
+                @SuppressWarnings("unchecked")
+                MultipartUpload multipart = MultipartUpload.parse(
+                        (Map<String, Object>) upload.get("multipart"), downloadUrl, source.getSize(), endpoint);
+                if (multipart != null) {
+                    if (resumeKey != null) {
+                        pendingUploads.put(resumeKey, multipart);
+                    }
+                    return uploadParts(source, multipart, mediaType, op, transfer, resumeKey);
+                }
+            }
+            if (downloadUrl == null || upload == null || upload.get("url") == null) {
+                throw new WavespeedException("Upload failed: no download_url in response");
+            }
+
+            String method = upload.get("method") instanceof String ? (String) upload.get("method") : "PUT";
+            RequestBody fileBody = transfer.wrap(source.body(mediaType));
+            Request.Builder uploadRequest = new Request.Builder()
+                    .url((String) upload.get("url"))
+                    .method(method, fileBody);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> uploadHeaders = (Map<String, Object>) upload.get("headers");
+            if (uploadHeaders != null) {
+                uploadHeaders.forEach((key, value) -> uploadRequest.addHeader(key, String.valueOf(value)));
+            }
+
+            Call uploadCall = perCallClient(op, null).newCall(uploadRequest.build());
+            op.track(uploadCall);
+            try (Response uploadResponse = uploadCall.execute()) {
+                if (!uploadResponse.isSuccessful()) {
+                    String errorBody = uploadResponse.body() != null ? uploadResponse.body().string() : "";
+                    throw new WavespeedHttpException(
+                            "Failed to upload file: HTTP " + uploadResponse.code() + ": " + errorBody,
+                            uploadResponse.code(),
+                            parseRetryAfter(uploadResponse),
+                            errorBody,
+                            null
+                    );
+                }
+            } finally {
+                op.untrack(uploadCall);
+            }
+
+            return downloadUrl;
+
+        } catch (IOException e) {
+            if (op.isCancelled()) {
+                throw op.cancelledError();
+            }
+            throw new WavespeedException("Failed to upload file", e);
+        }
     }
 
     /**
-     * Run a model and wait for the output.
+     * Upload the remaining parts of a multipart upload in parallel and complete it.
      *
-     * @param model Model identifier (e.g., "wavespeed-ai/z-image/turbo")
-     * @param input Input parameters for the model
-     * @param timeout Maximum time to wait for completion (null = no timeout)
-     * @param pollInterval Interval between status checks in seconds (null = 1.0)
-     * @param enableSyncMode If true, use synchronous mode (best-effort single request) (null = false)
-     * @param maxRetries Maximum task-level retries (null = use client setting)
-     * @return Map containing "outputs" array with model outputs
-     * @throws IllegalArgumentException if API key is not configured
-     * @throws RuntimeException if the prediction fails
-     * @throws RuntimeException if the prediction times out
+     * <p>On failure the committed parts are kept, so the next upload of the
+     * same file only sends the rest; the state is dropped if the server no
+     * longer knows the upload.</p>
+     *
+     * @param source Content to upload
+     * @param upload Multipart upload state
+     * @param mediaType Content type of the file
+     * @param op Operation the upload belongs to
+     * @param transfer Throttling and progress reporting shared by all parts
+     * @param resumeKey Key of the upload in pendingUploads (null if not resumable)
+     * @return URL of the uploaded file
      */
-    public Map<String, Object> run(
-            String model,
-            Map<String, Object> input,
-            Double timeout,
-            Double pollInterval,
-            Boolean enableSyncMode,
-            Integer maxRetries
-    ) {
-        int taskRetries = maxRetries != null ? maxRetries : this.maxRetries;
-        double poll = pollInterval != null ? pollInterval : 1.0;
-        boolean syncMode = enableSyncMode != null && enableSyncMode;
-        Exception lastError = null;
+    private String uploadParts(UploadSource source, MultipartUpload upload, MediaType mediaType, Operation op,
+                               UploadTransfer transfer, String resumeKey) {
+        ConcurrentLinkedQueue<Integer> parts = new ConcurrentLinkedQueue<>(upload.remainingParts());
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Runnable worker = () -> {
+            Integer part;
+            while (failure.get() == null && (part = parts.poll()) != null) {
+                try {
+                    uploadPart(source, upload, part, mediaType, op, transfer);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        };
+        List<CompletableFuture<Void>> helpers = new ArrayList<>();
+        for (int i = 1; i < Math.min(chunkedUploadParallelism, parts.size()); i++) {
+            helpers.add(CompletableFuture.runAsync(worker, workers()));
+        }
+        worker.run();
+        for (CompletableFuture<Void> helper : helpers) {
+            helper.join();
+        }
 
-        for (int attempt = 0; attempt <= taskRetries; attempt++) {
+        RuntimeException error = failure.get();
+        if (error == null) {
+            error = completeMultipart(upload, op);
+        }
+        if (error != null) {
+            if (resumeKey != null && error instanceof WavespeedHttpException
+                    && isUploadGone(((WavespeedHttpException) error).getStatusCode())) {
+                pendingUploads.remove(resumeKey, upload);
+            }
+            throw error;
+        }
+        if (resumeKey != null) {
+            pendingUploads.remove(resumeKey, upload);
+        }
+        return upload.getDownloadUrl();
+    }
+
+    private static boolean isUploadGone(int status) {
+        return status == 403 || status == 404 || status == 410;
+    }
+
+    /**
+     * PUT one part of a multipart upload, retrying connection errors and retryable statuses.
+     */
+    private void uploadPart(UploadSource source, MultipartUpload upload, int part, MediaType mediaType,
+                            Operation op, UploadTransfer transfer) {
+        Deadline deadline = op.getDeadline();
+        String label = "part " + part + "/" + upload.getPartCount() + " of " + source.getFilename();
+        // One body for all attempts, so a retried part is not counted twice in the progress.
+        RequestBody body = transfer.wrap(
+                source.range(upload.offset(part), upload.length(part, source.getSize()), mediaType));
+        double delay = 0.0;
+        for (int attempt = 1; ; attempt++) {
+            Request request = new Request.Builder()
+                    .url(upload.partUrl(part))
+                    .put(body)
+                    .build();
+            Call call = perCallClient(op, null).newCall(request);
+            op.track(call);
+            Exception error;
+            try (Response response = call.execute()) {
+                if (response.isSuccessful()) {
+                    String etag = response.header("ETag");
+                    upload.commit(part, etag != null ? etag : "");
+                    return;
+                }
+                String errorBody = response.body() != null ? response.body().string() : "";
+                error = new WavespeedHttpException(
+                        "Failed to upload " + label + ": HTTP " + response.code() + ": " + errorBody,
+                        response.code(),
+                        parseRetryAfter(response),
+                        errorBody,
+                        null
+                );
+            } catch (IOException e) {
+                if (op.isCancelled()) {
+                    throw op.cancelledError();
+                }
+                error = e;
+            } finally {
+                op.untrack(call);
+            }
+
+            boolean retry = attempt <= maxConnectionRetries && retryPolicy.shouldRetry(error, attempt);
+            if (retry) {
+                delay = retryPolicy.nextDelay(attempt, delay, error);
+                if (delay >= deadline.remaining()) {
+                    throw deadlineExceeded(deadline, null, error);
+                }
+            }
+            if (!retry) {
+                if (error instanceof WavespeedHttpException) {
+                    throw (WavespeedHttpException) error;
+                }
+                throw new WavespeedException("Failed to upload " + label + " after " + attempt + " attempts", error);
+            }
+
+            System.out.println("Upload of " + label + " failed (" + error + "), retrying in " +
+                    formatSeconds(delay) + " seconds...");
             try {
-                SubmitResult submitResult = submit(model, input, syncMode, timeout);
+                op.sleep(delay);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new WavespeedException("Interrupted while uploading " + label, ie);
+            }
+        }
+    }
 
-                if (syncMode) {
-                    // In sync mode, extract outputs from the result
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> data = (Map<String, Object>) submitResult.syncResult.get("data");
-                    String status = (String) data.get("status");
+    /**
+     * Complete a multipart upload whose parts are all committed.
+     *
+     * @return The failure, or null on success
+     */
+    private RuntimeException completeMultipart(MultipartUpload upload, Operation op) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("upload_id", upload.getUploadId());
+        payload.put("parts", upload.committedParts());
+        Request request = addClientHeaders(new Request.Builder()
+                .url(upload.getCompleteUrl())
+                .post(RequestBody.create(gson.toJson(payload), MediaType.parse("application/json")))
+                .addHeader("Authorization", authorization(apiKeyFor(op))))
+                .build();
+        try (Response response = execute(perCallClient(op, null), request, RequestType.UPLOAD, op,
+                upload.getEndpoint())) {
+            if (!response.isSuccessful()) {
+                String errorBody = response.body() != null ? response.body().string() : "";
+                return new WavespeedHttpException(
+                        "Failed to complete upload: HTTP " + response.code() + ": " + errorBody,
+                        response.code(),
+                        parseRetryAfter(response),
+                        errorBody,
+                        null
+                );
+            }
+            return null;
+        } catch (IOException e) {
+            if (op.isCancelled()) {
+                return op.cancelledError();
+            }
+            return new WavespeedException("Failed to complete upload", e);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
 
-                    if (!"completed".equals(status)) {
-                        throw new RuntimeException(syncModeErrorMessage(data));
-                    }
+    /**
+     * Upload a file with default timeout.
+     *
+     * @param file File path string to upload
+     * @return URL of the uploaded file
+     */
+    public String upload(String file) {
+        return upload(file, new UploadOptions());
+    }
 
-                    Map<String, Object> output = new HashMap<>();
-                    output.put("outputs", data.get("outputs"));
-                    return output;
-                }
+    /**
+     * Download an output to a file.
+     *
+     * @param url Output URL, e.g. one of the "outputs" returned by {@link #run}
+     * @param target File to write; parent directories are created and an existing file is replaced
+     * @return The target path
+     * @throws WavespeedException if the download fails or its checksum does not match
+     */
+    public Path download(String url, Path target) {
+        return download(url, target, null);
+    }
 
-                return wait(submitResult.requestId, timeout, poll);
+    /**
+     * Download an output to a file.
+     *
+     * <p>The content is streamed to a temporary file next to the target through
+     * {@code FileChannel}, never buffered in memory, and moved into place once
+     * complete and verified. Large files are fetched as parallel HTTP range
+     * requests (see {@link #setParallelDownload(long, int)}).</p>
+     *
+     * @param url Output URL, e.g. one of the "outputs" returned by {@link #run}
+     * @param target File to write; parent directories are created and an existing file is replaced
+     * @param options Download options (null = defaults)
+     * @return The target path
+     * @throws WavespeedException if the download fails or its checksum does not match
+     * @throws WavespeedTimeoutException if the deadline passes
+     */
+    public Path download(String url, Path target, DownloadOptions options) {
+        DownloadOptions opts = options != null ? options : new DownloadOptions();
+        Operation op = new Operation(opts.resolveDeadline());
+        download(new OutputDownload(url, opts.getSha256()), target, op, new Semaphore(downloadParallelism));
+        return target;
+    }
 
-            } catch (Exception e) {
-                lastError = e;
-                boolean isRetryable = isRetryableError(e);
+    /**
+     * Download all outputs of a prediction into a directory.
+     *
+     * @param outputs Outputs returned by {@link #run}
+     * @param dir Directory to write to; created if missing
+     * @return Path of each output, in order (null for outputs that are not URLs)
+     * @throws WavespeedException if a download fails
+     */
+    public List<Path> downloadAll(List<?> outputs, Path dir) {
+        return downloadAll(outputs, dir, null);
+    }
 
-                if (!isRetryable || attempt >= taskRetries) {
-                    throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
-                }
+    /**
+     * Download all outputs of a prediction into a directory.
+     *
+     * <p>Each file is named after the last segment of its URL; a name used by
+     * an earlier output is prefixed with the output's index. Files are
+     * downloaded in parallel, and the range requests of all files together
+     * are bounded by the download parallelism.</p>
+     *
+     * @param outputs Outputs returned by {@link #run}
+     * @param dir Directory to write to; created if missing
+     * @param options Download options; one timeout or deadline covers all files (null = defaults)
+     * @return Path of each output, in order (null for outputs that are not URLs)
+     * @throws WavespeedException if a download fails; the first failure stops the remaining downloads
+     */
+    public List<Path> downloadAll(List<?> outputs, Path dir, DownloadOptions options) {
+        DownloadOptions opts = options != null ? options : new DownloadOptions();
+        if (opts.getSha256() != null) {
+            throw new IllegalArgumentException("sha256 applies to single downloads only");
+        }
+        Operation op = new Operation(opts.resolveDeadline());
+        Semaphore permits = new Semaphore(downloadParallelism);
+
+        List<Path> targets = outputTargets(outputs, dir);
+        ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < outputs.size(); i++) {
+            if (targets.get(i) != null) {
+                queue.add(i);
+            }
+        }
 
-                System.out.println("Task attempt " + (attempt + 1) + "/" + (taskRetries + 1) + " failed: " + e);
-                double delay = retryInterval * (attempt + 1);
-                System.out.println("Retrying in " + delay + " seconds...");
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Runnable worker = () -> {
+            Integer index;
+            while (failure.get() == null && (index = queue.poll()) != null) {
                 try {
-                    Thread.sleep((long) (delay * 1000));
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("Interrupted during retry", ie);
+                    download(new OutputDownload((String) outputs.get(index), null), targets.get(index), op, permits);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
                 }
             }
+        };
+        List<CompletableFuture<Void>> helpers = new ArrayList<>();
+        for (int i = 1; i < Math.min(downloadParallelism, queue.size()); i++) {
+            helpers.add(CompletableFuture.runAsync(worker, workers()));
         }
-
-        // Should not reach here, but just in case
-        if (lastError != null) {
-            throw lastError instanceof RuntimeException ? (RuntimeException) lastError : new RuntimeException(lastError);
+        worker.run();
+        for (CompletableFuture<Void> helper : helpers) {
+            helper.join();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
         }
-        throw new RuntimeException("All " + (taskRetries + 1) + " attempts failed");
+        return targets;
     }
 
     /**
-     * Run a model with default options.
+     * Name the local files of outputs after the last segment of their URLs.
      *
-     * @param model Model identifier
-     * @param input Input parameters
-     * @return Map containing "outputs" array
+     * @param outputs Outputs of a prediction
+     * @param dir Directory the files go to
+     * @return Path of each output, in order (null for outputs that are not URLs)
      */
-    public Map<String, Object> run(String model, Map<String, Object> input) {
-        return run(model, input, null, null, null, null);
+    private static List<Path> outputTargets(List<?> outputs, Path dir) {
+        List<Path> targets = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < outputs.size(); i++) {
+            Object output = outputs.get(i);
+            if (!(output instanceof String) || HttpUrl.parse((String) output) == null) {
+                targets.add(null);
+                continue;
+            }
+            String name = OutputDownload.filename((String) output);
+            if (name == null) {
+                name = "output-" + i;
+            }
+            if (!names.add(name)) {
+                name = i + "-" + name;
+                names.add(name);
+            }
+            targets.add(dir.resolve(name));
+        }
+        return targets;
     }
 
     /**
-     * Run a model with sync mode enabled.
+     * Start prefetching the outputs of a completed task, if prefetching is enabled.
      *
-     * @param model Model identifier
-     * @param input Input parameters
-     * @param enableSyncMode If true, use synchronous mode (best-effort single request)
-     * @return Map containing "outputs" array
+     * <p>Downloads run in the background with their own deadline of
+     * Config.api.timeout; the outputs of one task share the download
+     * parallelism.</p>
+     *
+     * @param taskId ID of the task (null in sync mode without an ID)
+     * @param outputs Outputs of the task
      */
-    public Map<String, Object> run(String model, Map<String, Object> input, boolean enableSyncMode) {
-        return run(model, input, null, null, enableSyncMode, null);
+    private void prefetchOutputs(String taskId, Object outputs) {
+        OutputPrefetch prefetch = outputPrefetch;
+        if (prefetch == null || !(outputs instanceof List)) {
+            return;
+        }
+        List<?> urls = (List<?>) outputs;
+        Path spool = prefetch.getSpoolDirectory();
+        List<Path> targets = outputTargets(urls, spool != null
+                ? spool.resolve(taskId != null ? taskId : "task-" + System.nanoTime())
+                : Paths.get(""));
+        Semaphore permits = new Semaphore(downloadParallelism);
+        for (int i = 0; i < urls.size(); i++) {
+            if (targets.get(i) == null) {
+                continue;
+            }
+            String url = (String) urls.get(i);
+            Path target = targets.get(i);
+            PrefetchedOutput output = new PrefetchedOutput(url, spool != null ? target : null);
+            if (!prefetch.register(output)) {
+                continue;
+            }
+            workers().execute(() -> {
+                Operation op = new Operation(Deadline.after(Config.api.timeout));
+                try {
+                    if (spool != null) {
+                        download(new OutputDownload(url, null), target, op, permits);
+                        output.complete(null);
+                    } else {
+                        output.complete(downloadBytes(url, prefetch, output, op));
+                    }
+                } catch (RuntimeException e) {
+                    prefetch.remove(output);
+                    output.fail(e);
+                }
+            });
+        }
     }
 
     /**
-     * Run a model with custom timeout.
+     * GET an output into memory for the prefetch store, retrying connection errors and retryable statuses.
      *
-     * @param model Model identifier
-     * @param input Input parameters
-     * @param timeout Maximum time to wait for completion
-     * @return Map containing "outputs" array
+     * @return Content of the output
+     * @throws WavespeedException if the download fails or the output does not fit the memory limit
      */
-    public Map<String, Object> run(String model, Map<String, Object> input, double timeout) {
-        return run(model, input, timeout, null, null, null);
+    private byte[] downloadBytes(String url, OutputPrefetch prefetch, PrefetchedOutput output, Operation op) {
+        OutputCache cache = outputCache;
+        Path cached = cache != null ? cache.get(url, null) : null;
+        if (cached != null) {
+            try {
+                if (Files.size(cached) <= prefetch.getMemoryLimit()) {
+                    byte[] bytes = Files.readAllBytes(cached);
+                    if (prefetch.reserve(output, bytes.length)) {
+                        return bytes;
+                    }
+                }
+            } catch (IOException ignored) {
+                // Evicted meanwhile: download it.
+            }
+        }
+        Deadline deadline = op.getDeadline();
+        double delay = 0.0;
+        for (int attempt = 1; ; attempt++) {
+            Exception error;
+            Call call = perCallClient(op, null).newCall(new Request.Builder().url(url).build());
+            op.track(call);
+            try (Response response = call.execute()) {
+                if (response.isSuccessful()) {
+                    long limit = prefetch.getMemoryLimit();
+                    BufferedSource body = response.body().source();
+                    long length = response.body().contentLength();
+                    if (length > limit || (length < 0 && body.request(limit + 1))) {
+                        throw new WavespeedException("Output " + url + " exceeds the prefetch memory limit of "
+                                + limit + " bytes");
+                    }
+                    byte[] bytes = body.readByteArray();
+                    if (!prefetch.reserve(output, bytes.length)) {
+                        throw new WavespeedException("Output " + url + " exceeds the prefetch memory limit of "
+                                + limit + " bytes");
+                    }
+                    if (cache != null) {
+                        try {
+                            cache.put(url, bytes);
+                        } catch (IOException e) {
+                            System.out.println("Failed to cache " + url + ": " + e.getMessage());
+                        }
+                    }
+                    return bytes;
+                }
+                String errorBody = response.body() != null ? response.body().string() : "";
+                error = new WavespeedHttpException(
+                        "Failed to download " + url + ": HTTP " + response.code() + ": " + errorBody,
+                        response.code(),
+                        parseRetryAfter(response),
+                        errorBody,
+                        null
+                );
+            } catch (IOException e) {
+                error = e;
+            } finally {
+                op.untrack(call);
+            }
+
+            boolean retry = attempt <= maxConnectionRetries && retryPolicy.shouldRetry(error, attempt);
+            if (retry) {
+                delay = retryPolicy.nextDelay(attempt, delay, error);
+                if (delay >= deadline.remaining()) {
+                    throw deadlineExceeded(deadline, null, error);
+                }
+            }
+            if (!retry) {
+                if (error instanceof WavespeedHttpException) {
+                    throw (WavespeedHttpException) error;
+                }
+                throw new WavespeedException("Failed to download " + url + " after " + attempt + " attempts", error);
+            }
+            try {
+                op.sleep(delay);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new WavespeedException("Interrupted while downloading " + url, ie);
+            }
+        }
     }
 
     /**
-     * Upload a file to WaveSpeed.
+     * Download an output into a temporary file, verify it and move it into place.
      *
-     * @param file File path string to upload
-     * @param timeout Total API call timeout in seconds (null = use default)
-     * @return URL of the uploaded file
-     * @throws IllegalArgumentException if API key is not configured
-     * @throws IllegalArgumentException if file path does not exist
-     * @throws RuntimeException if upload fails
+     * @param download Download state
+     * @param target File to write
+     * @param op Operation the download belongs to
+     * @param permits Bounds the range requests in flight
      */
-    public String upload(String file, Double timeout) {
-        if (apiKey == null || apiKey.isEmpty()) {
-            throw new IllegalArgumentException(
-                    "API key is required. Set WAVESPEED_API_KEY environment variable or pass api_key to Client()."
-            );
+    private void download(OutputDownload download, Path target, Operation op, Semaphore permits) {
+        OutputCache cache = outputCache;
+        Path temp = null;
+        try {
+            Path dir = target.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            temp = Files.createTempFile(dir, target.getFileName().toString(), ".part");
+            Path cached = cache != null ? cache.get(download.getUrl(), download.getSha256()) : null;
+            if (cached != null && copyCached(cached, temp)) {
+                moveIntoPlace(temp, target);
+                temp = null;
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long rangeSize = downloadRangeSize;
+                long first = downloadRange(download, 0, rangeSize > 0 ? rangeSize - 1 : -1, channel, op, permits);
+                if (download.isRanged() && download.getSize() < 0 && first == rangeSize) {
+                    // The server did not tell the total size ("bytes 0-N/*"), so ranges cannot be
+                    // planned; fetch the whole content in one response instead.
+                    first = downloadRange(download, 0, -1, channel, op, permits);
+                }
+                if (download.isRanged() && download.getSize() > first) {
+                    downloadRanges(download, first, rangeSize, channel, op, permits);
+                } else {
+                    download.setSize(first);
+                }
+                channel.truncate(download.getSize());
+            }
+            String mismatch = download.verify(temp);
+            if (mismatch != null) {
+                throw new WavespeedException("Checksum mismatch for " + download.getUrl() + ": " + mismatch);
+            }
+            if (cache != null) {
+                try {
+                    cache.put(download.getUrl(), temp);
+                } catch (IOException e) {
+                    System.out.println("Failed to cache " + download.getUrl() + ": " + e.getMessage());
+                }
+            }
+            moveIntoPlace(temp, target);
+            temp = null;
+        } catch (IOException e) {
+            throw new WavespeedException("Failed to download " + download.getUrl() + " to " + target, e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Best effort: a stray .part file does no harm.
+                }
+            }
         }
+    }
 
-        File fileObj = new File(file);
-        if (!fileObj.exists()) {
-            throw new IllegalArgumentException("File not found: " + file);
+    /**
+     * Copy a cached object, which may be evicted concurrently.
+     *
+     * @return False if the object is gone, so the output has to be downloaded
+     */
+    private static boolean copyCached(Path cached, Path temp) throws IOException {
+        try {
+            Files.copy(cached, temp, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
         }
+    }
 
-        String contentType;
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
         try {
-            contentType = Files.probeContentType(fileObj.toPath());
-        } catch (IOException ignored) {
-            contentType = null;
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
         }
+    }
 
-        Map<String, Object> payload = new HashMap<>();
-        payload.put("filename", fileObj.getName());
-        payload.put("size", fileObj.length());
-        if (contentType != null) {
-            payload.put("content_type", contentType);
+    /**
+     * Download the ranges after the first one in parallel.
+     *
+     * @param from First byte not downloaded yet
+     */
+    private void downloadRanges(OutputDownload download, long from, long rangeSize, FileChannel channel,
+                                Operation op, Semaphore permits) {
+        ConcurrentLinkedQueue<Long> ranges = new ConcurrentLinkedQueue<>();
+        for (long start = from; start < download.getSize(); start += rangeSize) {
+            ranges.add(start);
         }
-
-        double requestTimeout = timeout != null ? timeout : Config.api.timeout;
-        double connectTimeout = Math.min(
-                this.httpClient.connectTimeoutMillis() / 1000.0,
-                requestTimeout
-        );
-        OkHttpClient callClient = perCallClient(connectTimeout, requestTimeout);
-
-        Request request = addClientHeaders(new Request.Builder()
-                .url(this.baseUrl + "/api/v3/media/uploads")
-                .post(RequestBody.create(gson.toJson(payload), MediaType.parse("application/json")))
-                .addHeader("Authorization", "Bearer " + apiKey))
-                .build();
-
-        try (Response response = callClient.newCall(request).execute()) {
-            if (response.code() != 200) {
-                String errorBody = response.body() != null ? response.body().string() : "";
-                throw new RuntimeException(
-                        "Failed to create upload: HTTP " + response.code() + ": " + errorBody
-                );
-            }
-
-            String responseBody = response.body().string();
-            Map<String, Object> result = gson.fromJson(
-                    responseBody,
-                    new TypeToken<Map<String, Object>>() {}.getType()
-            );
-
-            Double codeDouble = (Double) result.get("code");
-            int code = codeDouble != null ? codeDouble.intValue() : 0;
-            if (code != 200) {
-                String message = (String) result.get("message");
-                throw new RuntimeException("Upload failed: " + (message != null ? message : "Unknown error"));
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Runnable worker = () -> {
+            Long start;
+            while (failure.get() == null && (start = ranges.poll()) != null) {
+                try {
+                    long end = Math.min(start + rangeSize, download.getSize()) - 1;
+                    downloadRange(download, start, end, channel, op, permits);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
             }
+        };
+        List<CompletableFuture<Void>> helpers = new ArrayList<>();
+        for (int i = 1; i < Math.min(downloadParallelism, ranges.size()); i++) {
+            helpers.add(CompletableFuture.runAsync(worker, workers()));
+        }
+        worker.run();
+        for (CompletableFuture<Void> helper : helpers) {
+            helper.join();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
 
-            @SuppressWarnings("unchecked")
-            Map<String, Object> data = (Map<String, Object>) result.get("data");
-            String downloadUrl = (String) data.get("download_url");
-            @SuppressWarnings("unchecked")
-            Map<String, Object> upload = (Map<String, Object>) data.get("upload");
-            if (downloadUrl == null || upload == null || upload.get("url") == null) {
-                throw new RuntimeException("Upload failed: no download_url in response");
+    /**
+     * GET one byte range of an output into the file, retrying connection errors
+     * and retryable statuses; a retry resumes after the last byte received.
+     *
+     * <p>The request for the first range ({@code start == 0}) also learns the
+     * size and validator of the content. If the server answers it with the
+     * whole file, the whole file is written.</p>
+     *
+     * @param start First byte
+     * @param end Last byte (-1 = to the end)
+     * @return Number of bytes written
+     */
+    private long downloadRange(OutputDownload download, long start, long end, FileChannel channel, Operation op,
+                               Semaphore permits) {
+        Deadline deadline = op.getDeadline();
+        String label = (end >= 0 ? "bytes " + start + "-" + end + " of " : "") + download.getUrl();
+        AtomicLong written = new AtomicLong();
+        // Set by the first answer to the first range, which may come on a retry.
+        boolean described = false;
+        double delay = 0.0;
+        for (int attempt = 1; ; attempt++) {
+            long position = start + written.get();
+            Request.Builder request = new Request.Builder().url(download.getUrl());
+            if (end >= 0 || position > 0) {
+                request.header("Range", "bytes=" + position + "-" + (end >= 0 ? end : ""));
+                if (start > 0 || attempt > 1) {
+                    String etag = download.getEtag();
+                    if (etag != null) {
+                        request.header("If-Range", etag);
+                    }
+                }
             }
-
-            String method = upload.get("method") instanceof String ? (String) upload.get("method") : "PUT";
-            RequestBody fileBody = RequestBody.create(
-                    fileObj,
-                    MediaType.parse(contentType != null ? contentType : "application/octet-stream")
-            );
-            Request.Builder uploadRequest = new Request.Builder()
-                    .url((String) upload.get("url"))
-                    .method(method, fileBody);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> uploadHeaders = (Map<String, Object>) upload.get("headers");
-            if (uploadHeaders != null) {
-                uploadHeaders.forEach((key, value) -> uploadRequest.addHeader(key, String.valueOf(value)));
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WavespeedException("Interrupted while downloading " + label, e);
             }
-
-            try (Response uploadResponse = callClient.newCall(uploadRequest.build()).execute()) {
-                if (!uploadResponse.isSuccessful()) {
-                    String errorBody = uploadResponse.body() != null ? uploadResponse.body().string() : "";
-                    throw new RuntimeException(
-                            "Failed to upload file: HTTP " + uploadResponse.code() + ": " + errorBody
+            Exception error;
+            Call call = null;
+            try {
+                call = perCallClient(op, null).newCall(request.build());
+                op.track(call);
+                try (Response response = call.execute()) {
+                    if (response.code() == 206) {
+                        long[] range = OutputDownload.parseContentRange(response.header("Content-Range"));
+                        if (range == null || range[0] != position) {
+                            throw new WavespeedException("Unexpected Content-Range for " + label + ": "
+                                    + response.header("Content-Range"));
+                        }
+                        if (start == 0 && !described) {
+                            download.accept(response, true, range[2]);
+                            described = true;
+                        }
+                        transfer(response.body().source(), channel, start, range[1] - start + 1, written);
+                        return written.get();
+                    }
+                    if (response.code() == 200) {
+                        if (start > 0) {
+                            throw new WavespeedException("Output changed during download, or the server stopped "
+                                    + "serving ranges: " + label);
+                        }
+                        // The whole file, from the first byte again.
+                        written.set(0);
+                        download.accept(response, false, response.body().contentLength());
+                        transfer(response.body().source(), channel, 0, response.body().contentLength(), written);
+                        return written.get();
+                    }
+                    if (response.code() == 416 && start == 0 && OutputDownload.isEmpty(response)) {
+                        download.accept(response, false, 0);
+                        return 0;
+                    }
+                    String errorBody = response.body() != null ? response.body().string() : "";
+                    error = new WavespeedHttpException(
+                            "Failed to download " + label + ": HTTP " + response.code() + ": " + errorBody,
+                            response.code(),
+                            parseRetryAfter(response),
+                            errorBody,
+                            null
                     );
                 }
+            } catch (IOException e) {
+                if (op.isCancelled()) {
+                    throw op.cancelledError();
+                }
+                error = e;
+            } finally {
+                if (call != null) {
+                    op.untrack(call);
+                }
+                permits.release();
             }
 
-            return downloadUrl;
+            boolean retry = attempt <= maxConnectionRetries && retryPolicy.shouldRetry(error, attempt);
+            if (retry) {
+                delay = retryPolicy.nextDelay(attempt, delay, error);
+                if (delay >= deadline.remaining()) {
+                    throw deadlineExceeded(deadline, null, error);
+                }
+            }
+            if (!retry) {
+                if (error instanceof WavespeedHttpException) {
+                    throw (WavespeedHttpException) error;
+                }
+                throw new WavespeedException("Failed to download " + label + " after " + attempt + " attempts", error);
+            }
 
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to upload file", e);
+            System.out.println("Download of " + label + " failed (" + error + "), retrying in " +
+                    formatSeconds(delay) + " seconds...");
+            try {
+                op.sleep(delay);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new WavespeedException("Interrupted while downloading " + label, ie);
+            }
         }
     }
 
     /**
-     * Upload a file with default timeout.
+     * Stream a response body into the file at {@code start + written}, counting the bytes written.
      *
-     * @param file File path string to upload
-     * @return URL of the uploaded file
+     * @param length Bytes expected from {@code start} on, including those already written (-1 = until the end of the body)
+     * @throws IOException if the body ends early or the connection fails; {@code written} tells where to resume
      */
-    public String upload(String file) {
-        return upload(file, null);
+    private static void transfer(BufferedSource body, FileChannel channel, long start, long length,
+                                 AtomicLong written) throws IOException {
+        long remaining = length >= 0 ? length - written.get() : -1;
+        while (remaining != 0) {
+            long count = remaining > 0 ? Math.min(remaining, DOWNLOAD_TRANSFER_BLOCK) : DOWNLOAD_TRANSFER_BLOCK;
+            long n = channel.transferFrom(body, start + written.get(), count);
+            if (n <= 0) {
+                if (body.exhausted()) {
+                    break;
+                }
+                continue;
+            }
+            written.addAndGet(n);
+            if (remaining > 0) {
+                remaining -= n;
+            }
+        }
+        if (remaining > 0) {
+            throw new IOException("Connection closed after " + (length - remaining) + " of " + length + " bytes");
+        }
     }
 
     /**
@@ -862,93 +3610,103 @@ public class Client {
         int taskRetries = maxRetries != null ? maxRetries : this.maxRetries;
         double poll = pollInterval != null ? pollInterval : 1.0;
         boolean syncMode = enableSyncMode != null && enableSyncMode;
+        Deadline deadline = timeout != null ? Deadline.after(timeout) : Deadline.none();
+        Operation op = new Operation(deadline);
+        double delay = 0.0;
+        try {
+            input = resolveInputFiles(input, op);
+        } catch (RuntimeException e) {
+            return new RunNoThrowResult(
+                null,
+                new RunDetail("unknown", "failed", model, e.getMessage(), null)
+            );
+        }
 
         for (int attempt = 0; attempt <= taskRetries; attempt++) {
             try {
-                SubmitResult submitResult = submit(model, input, syncMode, timeout);
-
-                if (syncMode) {
-                    // In sync mode, extract outputs from the result
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> data = (Map<String, Object>) submitResult.syncResult.get("data");
-                    String status = (String) data.get("status");
-                    String taskId = (String) data.get("id");
-                    if (taskId == null) taskId = "unknown";
-
-                    if (!"completed".equals(status)) {
-                        String error = (String) data.get("error");
-                        if (error == null) error = "Unknown error";
-                        String createdAt = (String) data.get("created_at");
-                        String resultUrl = getResultUrl(data);
-                        String detailStatus = "failed";
-                        if (isSyncTimeoutData(data)) {
-                            detailStatus = "processing";
-                            error = syncModeErrorMessage(data);
-                        }
+                SubmissionScheduler.Permit permit = admit(op);
+                try {
+                    SubmitResult submitResult = submit(model, input, syncMode, op);
+
+                    if (syncMode) {
+                        // In sync mode, extract outputs from the result
+                        @SuppressWarnings("unchecked")
+                        Map<String, Object> data = (Map<String, Object>) submitResult.syncResult.get("data");
+                        String status = (String) data.get("status");
+                        String taskId = (String) data.get("id");
+                        if (taskId == null) taskId = "unknown";
+
+                        if (!"completed".equals(status)) {
+                            String error = (String) data.get("error");
+                            if (error == null) error = "Unknown error";
+                            String createdAt = (String) data.get("created_at");
+                            String resultUrl = getResultUrl(data);
+                            String detailStatus = "failed";
+                            if (isSyncTimeoutData(data)) {
+                                detailStatus = "processing";
+                                error = syncModeErrorMessage(data);
+                            }
                         
+                            return new RunNoThrowResult(
+                                null,
+                                new RunDetail(taskId, detailStatus, model, error, createdAt, resultUrl)
+                            );
+                        }
+
+                        String createdAt = (String) data.get("created_at");
+                        prefetchOutputs(taskId, data.get("outputs"));
                         return new RunNoThrowResult(
-                            null,
-                            new RunDetail(taskId, detailStatus, model, error, createdAt, resultUrl)
+                            data.get("outputs"),
+                            new RunDetail(taskId, "completed", model, null, createdAt)
                         );
                     }
 
-                    String createdAt = (String) data.get("created_at");
-                    return new RunNoThrowResult(
-                        data.get("outputs"),
-                        new RunDetail(taskId, "completed", model, null, createdAt)
-                    );
-                }
-
-                // Async mode
-                try {
-                    Map<String, Object> result = wait(submitResult.requestId, timeout, poll);
-                    return new RunNoThrowResult(
-                        result.get("outputs"),
-                        new RunDetail(submitResult.requestId, "completed", model, null, null)
-                    );
-                } catch (Exception waitError) {
-                    // Wait failed, but we have taskID
-                    return new RunNoThrowResult(
-                        null,
-                        new RunDetail(submitResult.requestId, "failed", model, waitError.getMessage(), null)
-                    );
+                    // Async mode
+                    try {
+                        Map<String, Object> result = wait(submitResult.requestId, op, poll);
+                        return new RunNoThrowResult(
+                            result.get("outputs"),
+                            new RunDetail(submitResult.requestId, "completed", model, null, null)
+                        );
+                    } catch (Exception waitError) {
+                        // Wait failed, but we have taskID
+                        return new RunNoThrowResult(
+                            null,
+                            new RunDetail(submitResult.requestId, "failed", model, waitError.getMessage(), null)
+                        );
+                    }
+                } finally {
+                    if (permit != null) {
+                        permit.close();
+                    }
                 }
-
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new RunNoThrowResult(
+                    null,
+                    new RunDetail("unknown", "failed", model, "Interrupted while waiting for a submission slot", null)
+                );
             } catch (Exception e) {
-                boolean isRetryable = isRetryableError(e);
-
-                if (!isRetryable || attempt >= taskRetries) {
-                    // Try to extract taskID from error message
-                    String taskId = "unknown";
-                    String errorMsg = e.getMessage();
-                    if (errorMsg != null) {
-                        int idx = errorMsg.indexOf("task_id: ");
-                        if (idx != -1) {
-                            int start = idx + 9;
-                            int end = start;
-                            while (end < errorMsg.length() && 
-                                   errorMsg.charAt(end) != ')' && 
-                                   errorMsg.charAt(end) != ' ' && 
-                                   errorMsg.charAt(end) != '\n') {
-                                end++;
-                            }
-                            if (end > start) {
-                                taskId = errorMsg.substring(start, end);
-                            }
-                        }
+                boolean retry = attempt < taskRetries && retryPolicy.shouldRetry(e, attempt + 1);
+                if (retry) {
+                    delay = retryPolicy.nextDelay(attempt + 1, delay, e);
+                    if (delay >= deadline.remaining()) {
+                        e = deadlineExceeded(deadline, taskIdOf(e), e);
+                        retry = false;
                     }
-
+                }
+                if (!retry) {
+                    String taskId = taskIdOf(e);
                     return new RunNoThrowResult(
                         null,
-                        new RunDetail(taskId, "failed", model, errorMsg, null)
+                        new RunDetail(taskId != null ? taskId : "unknown", "failed", model, e.getMessage(), null)
                     );
                 }
 
                 System.out.println("Task attempt " + (attempt + 1) + "/" + (taskRetries + 1) + " failed: " + e);
-                double delay = retryInterval * (attempt + 1);
-                System.out.println("Retrying in " + delay + " seconds...");
+                System.out.println("Retrying in " + formatSeconds(delay) + " seconds...");
                 try {
-                    Thread.sleep((long) (delay * 1000));
+                    op.sleep(delay);
                 } catch (InterruptedException ie) {
                     Thread.currentThread().interrupt();
                     return new RunNoThrowResult(
@@ -0,0 +1,126 @@
+package ai.wavespeed.api;
+
+/**
+ * Point in time by which a whole operation must finish.
+ *
+ * <p>A deadline is created once per operation and shared by every step of it:
+ * submission, each result poll and its retries, the sleeps in between and
+ * uploads. Per-request timeouts and sleeps are shrunk to the remaining budget,
+ * and retries that cannot fit are not attempted, so the operation never runs
+ * longer than the time the caller asked for.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * Deadline deadline = Deadline.after(30.0);
+ * String url = client.upload("/path/to/image.png", deadline.remaining());
+ * Map<String, Object> output = client.run(model, Map.of("image", url), deadline);
+ * }</pre>
+ */
+public final class Deadline {
+
+    private static final Deadline NONE = new Deadline(Double.POSITIVE_INFINITY, Long.MAX_VALUE);
+
+    private final double timeout;
+    private final long expiresAtNanos;
+
+    private Deadline(double timeout, long expiresAtNanos) {
+        this.timeout = timeout;
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    /**
+     * Create a deadline the given number of seconds from now.
+     *
+     * @param seconds Time budget in seconds
+     * @return The deadline
+     */
+    public static Deadline after(double seconds) {
+        if (Double.isNaN(seconds) || seconds < 0) {
+            throw new IllegalArgumentException("seconds must not be negative");
+        }
+        if (Double.isInfinite(seconds)) {
+            return NONE;
+        }
+        return new Deadline(seconds, System.nanoTime() + (long) (seconds * 1_000_000_000L));
+    }
+
+    /**
+     * Get a deadline that never expires.
+     *
+     * @return Unbounded deadline
+     */
+    public static Deadline none() {
+        return NONE;
+    }
+
+    /**
+     * Whether this deadline bounds the operation at all.
+     *
+     * @return False for {@link #none()}
+     */
+    public boolean isBounded() {
+        return this != NONE;
+    }
+
+    /**
+     * Whether the deadline has passed.
+     *
+     * @return True if no time is left
+     */
+    public boolean isExpired() {
+        return isBounded() && System.nanoTime() - expiresAtNanos >= 0;
+    }
+
+    /**
+     * Get the time left before the deadline.
+     *
+     * @return Remaining seconds (0 once expired, infinity if unbounded)
+     */
+    public double remaining() {
+        if (!isBounded()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        long left = expiresAtNanos - System.nanoTime();
+        return left > 0 ? left / 1_000_000_000.0 : 0.0;
+    }
+
+    /**
+     * Shrink a duration to fit the remaining budget.
+     *
+     * @param seconds Desired duration in seconds
+     * @return The smaller of seconds and the remaining time
+     */
+    public double clamp(double seconds) {
+        return Math.min(seconds, remaining());
+    }
+
+    /**
+     * Get the budget this deadline was created with.
+     *
+     * @return Original time budget in seconds (infinity if unbounded)
+     */
+    public double getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Get whichever of two deadlines expires first.
+     *
+     * @param other Another deadline
+     * @return The earlier deadline
+     */
+    public Deadline earliest(Deadline other) {
+        if (!other.isBounded()) {
+            return this;
+        }
+        if (!isBounded()) {
+            return other;
+        }
+        return expiresAtNanos - other.expiresAtNanos <= 0 ? this : other;
+    }
+
+    @Override
+    public String toString() {
+        return isBounded() ? "Deadline{remaining=" + remaining() + "s}" : "Deadline{none}";
+    }
+}
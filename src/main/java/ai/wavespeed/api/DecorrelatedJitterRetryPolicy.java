@@ -0,0 +1,88 @@
+package ai.wavespeed.api;
+
+import ai.wavespeed.WavespeedCircuitOpenException;
+import ai.wavespeed.WavespeedHttpException;
+import ai.wavespeed.WavespeedSubmissionException;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Default retry policy: exponential backoff with decorrelated jitter.
+ *
+ * <p>Each delay is drawn uniformly from {@code [baseDelay, 3 * previousDelay]}
+ * and capped at {@code maxDelay}, so delays grow exponentially on average while
+ * clients that failed together spread out instead of retrying in lockstep. A
+ * Retry-After value sent by the server is honoured as a lower bound.</p>
+ *
+ * <p>Retried: connection errors and HTTP 5xx/429 responses. Never retried:
+ * submission failures (the task may already exist), open circuit breakers and
+ * everything else.</p>
+ */
+public class DecorrelatedJitterRetryPolicy implements RetryPolicy {
+
+    private final double baseDelay;
+    private final double maxDelay;
+
+    /**
+     * Create the policy.
+     *
+     * @param baseDelay Minimum delay in seconds
+     * @param maxDelay Maximum delay in seconds
+     */
+    public DecorrelatedJitterRetryPolicy(double baseDelay, double maxDelay) {
+        this.baseDelay = Math.max(0.0, baseDelay);
+        this.maxDelay = Math.max(this.baseDelay, maxDelay);
+    }
+
+    @Override
+    public boolean shouldRetry(Exception error, int attempt) {
+        if (error instanceof WavespeedSubmissionException || error instanceof WavespeedCircuitOpenException) {
+            return false;
+        }
+        if (error instanceof IOException) {
+            return true;
+        }
+        return error instanceof WavespeedHttpException && ((WavespeedHttpException) error).isTransient();
+    }
+
+    @Override
+    public double nextDelay(int attempt, double previousDelay, Exception error) {
+        double upper = Math.max(baseDelay, previousDelay * 3);
+        double delay = upper > baseDelay
+                ? ThreadLocalRandom.current().nextDouble(baseDelay, upper)
+                : baseDelay;
+        delay = Math.min(maxDelay, delay);
+
+        Double retryAfter = retryAfter(error);
+        if (retryAfter != null && retryAfter > delay) {
+            delay = retryAfter;
+        }
+        return delay;
+    }
+
+    private static Double retryAfter(Exception error) {
+        if (error instanceof WavespeedHttpException) {
+            return ((WavespeedHttpException) error).getRetryAfter();
+        }
+        return null;
+    }
+
+    /**
+     * Get the minimum delay.
+     *
+     * @return Base delay in seconds
+     */
+    public double getBaseDelay() {
+        return baseDelay;
+    }
+
+    /**
+     * Get the maximum delay.
+     *
+     * @return Maximum delay in seconds
+     */
+    public double getMaxDelay() {
+        return maxDelay;
+    }
+}
@@ -0,0 +1,71 @@
+package ai.wavespeed.api;
+
+import ai.wavespeed.Config;
+
+import java.util.Locale;
+
+/**
+ * Options for downloading outputs.
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * Path video = client.download(url, Paths.get("out/video.mp4"), new DownloadOptions()
+ *     .setTimeout(600.0)
+ *     .setSha256("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08"));
+ * }</pre>
+ */
+public class DownloadOptions {
+    private Double timeout;
+    private Deadline deadline;
+    private String sha256;
+
+    /**
+     * Set the total time for the download, all ranges and retries included.
+     *
+     * @param timeout Timeout in seconds (null = Config.api.timeout)
+     * @return These options, for chaining
+     */
+    public DownloadOptions setTimeout(Double timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Set an absolute deadline shared with other operations; takes precedence over the timeout.
+     *
+     * @param deadline Deadline for the download (null = use the timeout)
+     * @return These options, for chaining
+     */
+    public DownloadOptions setDeadline(Deadline deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * Set the expected SHA-256 of the content; a download that does not match fails.
+     * Only applies to single downloads.
+     *
+     * @param sha256 Hex digest (null = verify only checksums announced by the server)
+     * @return These options, for chaining
+     */
+    public DownloadOptions setSha256(String sha256) {
+        this.sha256 = sha256 != null ? sha256.toLowerCase(Locale.ROOT) : null;
+        return this;
+    }
+
+    public Double getTimeout() { return timeout; }
+    public Deadline getDeadline() { return deadline; }
+    public String getSha256() { return sha256; }
+
+    /**
+     * Resolve the deadline for a download starting now.
+     *
+     * @return The explicit deadline, or one derived from the timeout
+     */
+    Deadline resolveDeadline() {
+        if (deadline != null) {
+            return deadline;
+        }
+        return Deadline.after(timeout != null ? timeout : Config.api.timeout);
+    }
+}
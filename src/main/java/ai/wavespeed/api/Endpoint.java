@@ -0,0 +1,114 @@
+package ai.wavespeed.api;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One API base URL the client routes requests to, with the load statistics
+ * used to choose between endpoints.
+ *
+ * <p>Latency is smoothed with an exponentially weighted moving average over
+ * result polls, which are small and frequent. Submissions are not sampled
+ * because their latency depends on the input and on sync mode.</p>
+ */
+public final class Endpoint {
+    /**
+     * Weight of the newest latency sample in the moving average.
+     */
+    private static final double EWMA_WEIGHT = 0.3;
+
+    /**
+     * Latency floor (seconds) so that unmeasured endpoints are ranked by load.
+     */
+    private static final double MIN_LATENCY = 0.001;
+
+    private final String url;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private double ewmaLatency;
+    private boolean measured;
+
+    Endpoint(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Get the base URL.
+     *
+     * @return Base URL without trailing slash
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Get the number of requests currently in flight to this endpoint.
+     *
+     * @return Outstanding requests
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Get the smoothed result-poll latency.
+     *
+     * @return Latency in seconds, or 0 before the first sample
+     */
+    public synchronized double getEwmaLatency() {
+        return ewmaLatency;
+    }
+
+    /**
+     * Get the number of requests sent to this endpoint.
+     *
+     * @return Requests since the endpoint was configured
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Get the number of requests that failed with a connection error or HTTP 5xx.
+     *
+     * @return Failed requests since the endpoint was configured
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    void begin() {
+        outstanding.incrementAndGet();
+        requestCount.incrementAndGet();
+    }
+
+    void end(boolean failed) {
+        outstanding.decrementAndGet();
+        if (failed) {
+            failureCount.incrementAndGet();
+        }
+    }
+
+    synchronized void recordLatency(long nanos) {
+        double sample = nanos / 1_000_000_000.0;
+        ewmaLatency = measured ? ewmaLatency + EWMA_WEIGHT * (sample - ewmaLatency) : sample;
+        measured = true;
+    }
+
+    /**
+     * Expected cost of sending one more request: smoothed latency scaled by the
+     * queue it would join.
+     *
+     * @return Relative cost (lower is better)
+     */
+    synchronized double cost() {
+        return Math.max(ewmaLatency, MIN_LATENCY) * (outstanding.get() + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "Endpoint{url=" + url + ", outstanding=" + getOutstanding() +
+                ", ewmaLatency=" + getEwmaLatency() + "s}";
+    }
+}
@@ -0,0 +1,57 @@
+package ai.wavespeed.api;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Request body streaming a byte range of a file (the whole file, or one part
+ * of a multipart upload).
+ *
+ * <p>The range is handed to the sink with {@link FileChannel#transferTo} while
+ * OkHttp writes the body, so an upload costs no more memory than the sink's
+ * segment buffers, whatever its size.</p>
+ */
+final class FileRangeBody extends RequestBody {
+    private final Path file;
+    private final long offset;
+    private final long length;
+    private final MediaType contentType;
+
+    FileRangeBody(Path file, long offset, long length, MediaType contentType) {
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+        this.contentType = contentType;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = offset;
+            long end = offset + length;
+            while (position < end) {
+                long sent = channel.transferTo(position, end - position, sink);
+                if (sent <= 0 && position >= channel.size()) {
+                    throw new IOException("File " + file + " shrank during upload");
+                }
+                position += sent;
+            }
+        }
+    }
+}
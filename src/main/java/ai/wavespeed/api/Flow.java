@@ -0,0 +1,95 @@
+package ai.wavespeed.api;
+
+/**
+ * Reactive Streams interfaces for Java 8.
+ *
+ * <p>The SDK targets Java 8, which has no {@code java.util.concurrent.Flow},
+ * so these interfaces mirror it method for method, with the same contracts
+ * (the Reactive Streams specification). They plug into any reactive library
+ * through a one-line adapter, without the SDK depending on it; see the README
+ * for Reactor, RxJava and JDK 9 examples.</p>
+ */
+public final class Flow {
+
+    private Flow() {
+    }
+
+    /**
+     * Producer of items received by subscribers, on demand.
+     *
+     * @param <T> Item type
+     */
+    @FunctionalInterface
+    public interface Publisher<T> {
+
+        /**
+         * Add a subscriber. It receives {@link Subscriber#onSubscribe} first,
+         * then items as it requests them.
+         *
+         * @param subscriber The subscriber
+         * @throws NullPointerException if subscriber is null
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * Receiver of items, in order, never more than it requested.
+     *
+     * @param <T> Item type
+     */
+    public interface Subscriber<T> {
+
+        /**
+         * Called once before any other method, with the subscription used to request items.
+         *
+         * @param subscription Subscription of this subscriber
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Receive the next item.
+         *
+         * @param item The item
+         */
+        void onNext(T item);
+
+        /**
+         * Called once on an unrecoverable error; no other method is called afterwards.
+         *
+         * @param throwable The error
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called once when no more items will be sent.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Link between a publisher and one subscriber.
+     */
+    public interface Subscription {
+
+        /**
+         * Add demand for items.
+         *
+         * @param n Number of additional items (must be positive; Long.MAX_VALUE = unbounded)
+         */
+        void request(long n);
+
+        /**
+         * Stop receiving items. Items may still arrive briefly.
+         */
+        void cancel();
+    }
+
+    /**
+     * Both a subscriber and a publisher, e.g. a transformation stage.
+     *
+     * @param <T> Item type received
+     * @param <R> Item type published
+     */
+    public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+    }
+}
@@ -0,0 +1,60 @@
+package ai.wavespeed.api;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import okio.Utf8;
+
+import java.io.IOException;
+
+/**
+ * Request body that gzip-compresses its text while it is written to the wire.
+ *
+ * <p>The compressed bytes are never buffered as a whole: they are produced in
+ * segments as OkHttp streams the body, so large inputs cost no second full-size
+ * copy. The length is unknown up front and the body is sent chunked. Bodies
+ * are compressed again on every write, so OkHttp can replay them.</p>
+ */
+final class GzipRequestBody extends RequestBody {
+    private final String content;
+    private final MediaType contentType;
+
+    GzipRequestBody(String content, MediaType contentType) {
+        this.content = content;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Create the body for JSON text, compressing only above a size threshold.
+     *
+     * @param json JSON text
+     * @param threshold Minimum size in bytes to compress (0 = never compress)
+     * @return Plain or gzip body
+     */
+    static RequestBody json(String json, int threshold) {
+        MediaType type = MediaType.parse("application/json");
+        if (threshold <= 0 || Utf8.size(json) < threshold) {
+            return RequestBody.create(json, type);
+        }
+        return new GzipRequestBody(json, type);
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        try (BufferedSink gzip = Okio.buffer(new GzipSink(sink))) {
+            gzip.writeUtf8(content);
+        }
+    }
+}
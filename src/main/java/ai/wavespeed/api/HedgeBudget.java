@@ -0,0 +1,55 @@
+package ai.wavespeed.api;
+
+/**
+ * Token budget limiting duplicate (hedged) work to a fraction of normal work.
+ *
+ * <p>Every normal request deposits {@code ratio} tokens and every hedge
+ * withdraws one, so over time at most {@code ratio} extra requests are sent per
+ * normal request. The balance is capped so that a long quiet period cannot
+ * fund a burst of hedges during an incident.</p>
+ */
+final class HedgeBudget {
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    /**
+     * Create a budget.
+     *
+     * @param ratio Maximum hedges per normal request (e.g. 0.1 for 10%)
+     * @param maxTokens Cap on the accumulated balance
+     */
+    HedgeBudget(double ratio, double maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+    }
+
+    /**
+     * Record a normal request.
+     */
+    synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    /**
+     * Try to spend one hedge.
+     *
+     * @return True if the hedge fits in the budget
+     */
+    synchronized boolean tryWithdraw() {
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the configured hedge ratio.
+     *
+     * @return Maximum hedges per normal request
+     */
+    double getRatio() {
+        return ratio;
+    }
+}
@@ -0,0 +1,251 @@
+package ai.wavespeed.api;
+
+import ai.wavespeed.WavespeedException;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Input preprocessor that uploads local files referenced by prediction inputs.
+ *
+ * <p>{@link File} and {@link Path} values, and strings starting with
+ * {@code file://}, are found anywhere in the input (nested maps and lists
+ * included). Distinct files are uploaded in parallel, at most
+ * {@code parallelism} at a time, and replaced by their download URLs in a
+ * copy of the input. Upload URLs are memoised per file path, size and
+ * modification time for six hours, so a file used by several runs is
+ * uploaded once.</p>
+ *
+ * <p>An upload shared by several runs is not bound to any of them: each run
+ * keeps its own deadline and cancellation, and the upload is cancelled only
+ * when every run waiting for it has given up.</p>
+ */
+final class InputFileUploader {
+    private static final int MEMO_SIZE = 1024;
+    // Download URLs expire; remember them no longer than the upload cache does.
+    private static final double MEMO_TTL = 6 * 3600.0;
+    private static final String FILE_SCHEME = "file://";
+
+    private final Client client;
+    private final int parallelism;
+    private final LinkedHashMap<String, SharedUpload> memo =
+            new LinkedHashMap<String, SharedUpload>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SharedUpload> eldest) {
+                    return size() > MEMO_SIZE;
+                }
+            };
+
+    /**
+     * One upload of a file and the runs waiting for it.
+     */
+    private static final class SharedUpload {
+        final String key;
+        // The upload ends when its last run stops waiting, not at a deadline of its own.
+        final Operation operation = new Operation(Deadline.none());
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        int waiters;
+        long expiresAt = Long.MAX_VALUE;
+
+        SharedUpload(String key) {
+            this.key = key;
+        }
+    }
+
+    InputFileUploader(Client client, int parallelism) {
+        this.client = client;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Upload the local files referenced by an input and substitute their URLs.
+     *
+     * @param input Prediction input (not modified)
+     * @param op Operation of the run; its deadline and cancellation apply to this run's wait only
+     * @param executor Executor running the uploads
+     * @return The input itself if it references no local file, otherwise a copy with URLs
+     * @throws InterruptedException if the thread is interrupted
+     */
+    Map<String, Object> resolve(Map<String, Object> input, Operation op, Executor executor)
+            throws InterruptedException {
+        Map<File, SharedUpload> uploads = new LinkedHashMap<>();
+        collect(input, uploads);
+        if (uploads.isEmpty()) {
+            return input;
+        }
+
+        // Claim the files nobody is uploading yet; the others are awaited below.
+        ConcurrentLinkedQueue<File> pending = new ConcurrentLinkedQueue<>();
+        synchronized (memo) {
+            long now = System.currentTimeMillis();
+            for (Map.Entry<File, SharedUpload> entry : uploads.entrySet()) {
+                File file = entry.getKey();
+                String key = memoKey(file);
+                SharedUpload shared = memo.get(key);
+                if (shared == null || shared.expiresAt <= now) {
+                    shared = new SharedUpload(key);
+                    memo.put(key, shared);
+                    pending.add(file);
+                }
+                shared.waiters++;
+                entry.setValue(shared);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            Runnable worker = () -> {
+                File file;
+                while ((file = pending.poll()) != null) {
+                    upload(file, uploads.get(file));
+                }
+            };
+            for (int i = Math.min(parallelism, pending.size()); i > 0; i--) {
+                executor.execute(worker);
+            }
+        }
+
+        CompletableFuture<Void> all = CompletableFuture.allOf(
+                uploads.values().stream().map(shared -> shared.future).toArray(CompletableFuture<?>[]::new));
+        CompletableFuture<Void> mine = new CompletableFuture<>();
+        all.whenComplete((ignored, error) -> {
+            if (error != null) {
+                mine.completeExceptionally(error);
+            } else {
+                mine.complete(null);
+            }
+        });
+        Runnable onCancel = () -> mine.completeExceptionally(op.cancelledError());
+        op.onCancel(onCancel);
+        try {
+            if (op.getDeadline().isBounded()) {
+                mine.get((long) Math.ceil(op.getDeadline().remaining() * 1000), TimeUnit.MILLISECONDS);
+            } else {
+                mine.get();
+            }
+        } catch (ExecutionException e) {
+            if (op.isCancelled()) {
+                throw op.cancelledError();
+            }
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException
+                    ? (RuntimeException) cause
+                    : new WavespeedException("Failed to upload input file", cause);
+        } catch (TimeoutException e) {
+            throw Client.deadlineExceeded(op.getDeadline(), null);
+        } finally {
+            op.removeOnCancel(onCancel);
+            uploads.values().forEach(this::leave);
+        }
+
+        Map<File, String> urls = new HashMap<>();
+        uploads.forEach((file, shared) -> urls.put(file, shared.future.join()));
+        return substitute(input, urls);
+    }
+
+    private void upload(File file, SharedUpload shared) {
+        try {
+            String url = client.upload(file, shared.operation);
+            synchronized (memo) {
+                shared.expiresAt = System.currentTimeMillis() + (long) (MEMO_TTL * 1000);
+            }
+            shared.future.complete(url);
+        } catch (Throwable e) {
+            synchronized (memo) {
+                memo.remove(shared.key, shared);
+            }
+            shared.future.completeExceptionally(
+                    shared.operation.isCancelled() ? shared.operation.cancelledError() : e);
+        }
+    }
+
+    /**
+     * Stop waiting for an upload, cancelling it if no other run waits.
+     */
+    private void leave(SharedUpload shared) {
+        synchronized (memo) {
+            if (--shared.waiters > 0 || shared.future.isDone()) {
+                return;
+            }
+            // Later runs must not join an upload about to be cancelled.
+            memo.remove(shared.key, shared);
+        }
+        shared.operation.cancel();
+    }
+
+    private static String memoKey(File file) {
+        return file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+    }
+
+    /**
+     * Get the local file a value refers to.
+     *
+     * @param value Input value
+     * @return The file, or null if the value is not a local file reference
+     */
+    private static File localFile(Object value) {
+        if (value instanceof File) {
+            return (File) value;
+        }
+        if (value instanceof Path) {
+            return ((Path) value).toFile();
+        }
+        if (value instanceof String && ((String) value).startsWith(FILE_SCHEME)) {
+            try {
+                return Paths.get(URI.create((String) value)).toFile();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid file URI in input: " + value, e);
+            }
+        }
+        return null;
+    }
+
+    private static void collect(Object value, Map<File, SharedUpload> files) {
+        File file = localFile(value);
+        if (file != null) {
+            files.put(file.getAbsoluteFile(), null);
+        } else if (value instanceof Map) {
+            for (Object item : ((Map<?, ?>) value).values()) {
+                collect(item, files);
+            }
+        } else if (value instanceof Collection) {
+            for (Object item : (Collection<?>) value) {
+                collect(item, files);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T substitute(T value, Map<File, String> urls) {
+        File file = localFile(value);
+        if (file != null) {
+            return (T) urls.get(file.getAbsoluteFile());
+        }
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((key, item) -> copy.put(key, substitute(item, urls)));
+            return (T) copy;
+        }
+        if (value instanceof Collection) {
+            List<Object> copy = new ArrayList<>();
+            for (Object item : (Collection<?>) value) {
+                copy.add(substitute(item, urls));
+            }
+            return (T) copy;
+        }
+        return value;
+    }
+}
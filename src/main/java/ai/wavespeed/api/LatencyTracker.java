@@ -0,0 +1,60 @@
+package ai.wavespeed.api;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window of recent request latencies, used to derive percentiles.
+ */
+final class LatencyTracker {
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    /**
+     * Create a tracker.
+     *
+     * @param capacity Number of most recent samples kept
+     */
+    LatencyTracker(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * Record a latency sample.
+     *
+     * @param nanos Latency in nanoseconds
+     */
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    /**
+     * Get a latency percentile over the recorded window.
+     *
+     * @param percentile Percentile in (0, 100]
+     * @param minSamples Minimum number of samples required for a meaningful answer
+     * @return Latency in nanoseconds, or -1 if fewer than minSamples samples were recorded
+     */
+    synchronized long percentile(double percentile, int minSamples) {
+        if (count == 0 || count < minSamples) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    /**
+     * Get the number of samples in the window.
+     *
+     * @return Sample count
+     */
+    synchronized int size() {
+        return count;
+    }
+}
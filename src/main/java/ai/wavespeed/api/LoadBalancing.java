@@ -0,0 +1,59 @@
+package ai.wavespeed.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Strategy choosing the endpoint for a new task when the client has several.
+ */
+public enum LoadBalancing {
+    /**
+     * Pick the endpoint with the lowest smoothed latency times outstanding
+     * requests, so a slow or busy endpoint gets proportionally less traffic.
+     */
+    EWMA_LATENCY {
+        @Override
+        Endpoint choose(List<Endpoint> candidates) {
+            return min(candidates, Endpoint::cost);
+        }
+    },
+
+    /**
+     * Pick the endpoint with the fewest requests in flight.
+     */
+    LEAST_OUTSTANDING {
+        @Override
+        Endpoint choose(List<Endpoint> candidates) {
+            return min(candidates, Endpoint::getOutstanding);
+        }
+    };
+
+    /**
+     * Choose an endpoint.
+     *
+     * @param candidates Healthy endpoints (not empty)
+     * @return The chosen endpoint
+     */
+    abstract Endpoint choose(List<Endpoint> candidates);
+
+    /**
+     * Get the endpoint with the lowest score, breaking ties at random.
+     */
+    private static Endpoint min(List<Endpoint> candidates, ToDoubleFunction<Endpoint> score) {
+        List<Endpoint> best = new ArrayList<>();
+        double bestScore = Double.POSITIVE_INFINITY;
+        for (Endpoint endpoint : candidates) {
+            double s = score.applyAsDouble(endpoint);
+            if (s < bestScore) {
+                bestScore = s;
+                best.clear();
+            }
+            if (s == bestScore) {
+                best.add(endpoint);
+            }
+        }
+        return best.get(ThreadLocalRandom.current().nextInt(best.size()));
+    }
+}
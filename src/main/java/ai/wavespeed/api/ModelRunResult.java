@@ -0,0 +1,94 @@
+package ai.wavespeed.api;
+
+import ai.wavespeed.WavespeedCancelledException;
+
+import java.util.Map;
+
+/**
+ * Outcome of one model in {@link Client#runFirst} or {@link Client#runAll}.
+ */
+public class ModelRunResult {
+    private final String model;
+    private final String taskId;
+    private final Map<String, Object> output;
+    private final RuntimeException error;
+    private final double elapsed;
+
+    ModelRunResult(String model, String taskId, Map<String, Object> output, RuntimeException error, double elapsed) {
+        this.model = model;
+        this.taskId = taskId;
+        this.output = output;
+        this.error = error;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Get the model.
+     *
+     * @return Model identifier
+     */
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * Get the task the model ran as.
+     *
+     * @return Task ID, or null if the submission did not get that far
+     */
+    public String getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * Get the outputs of the model.
+     *
+     * @return The "outputs" array, or null if the model failed or was cancelled
+     */
+    public Object getOutputs() {
+        return output != null ? output.get("outputs") : null;
+    }
+
+    /**
+     * Get the failure of the model.
+     *
+     * @return The exception run() would have thrown, or null on success
+     */
+    public RuntimeException getError() {
+        return error;
+    }
+
+    /**
+     * Whether the model produced outputs.
+     *
+     * @return True on success
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Whether the model was cancelled, e.g. because another model finished first.
+     *
+     * @return True if cancelled
+     */
+    public boolean isCancelled() {
+        return error instanceof WavespeedCancelledException;
+    }
+
+    /**
+     * Get the time from the start of the call until this model finished, failed or was cancelled.
+     *
+     * @return Elapsed time in seconds
+     */
+    public double getElapsed() {
+        return elapsed;
+    }
+
+    @Override
+    public String toString() {
+        String outcome = error == null ? "completed" : isCancelled() ? "cancelled" : "failed";
+        return "ModelRunResult{model=" + model + ", taskId=" + taskId + ", " + outcome +
+                String.format(" in %.3fs", elapsed) + "}";
+    }
+}
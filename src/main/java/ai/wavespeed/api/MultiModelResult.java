@@ -0,0 +1,57 @@
+package ai.wavespeed.api;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of running one input against several models with
+ * {@link Client#runFirst} or {@link Client#runAll}.
+ */
+public class MultiModelResult {
+    private final ModelRunResult winner;
+    private final List<ModelRunResult> results;
+
+    MultiModelResult(ModelRunResult winner, List<ModelRunResult> results) {
+        this.winner = winner;
+        this.results = Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Get the first model to produce outputs.
+     *
+     * @return The winning model's result for runFirst(), or the fastest successful one for runAll()
+     *         (null if every model failed)
+     */
+    public ModelRunResult getWinner() {
+        return winner;
+    }
+
+    /**
+     * Get the outcome of every model, in the order the models were given.
+     *
+     * @return Per-model results
+     */
+    public List<ModelRunResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Get the outcome of one model.
+     *
+     * @param model Model identifier
+     * @return Its result, or null if the model was not run
+     */
+    public ModelRunResult getResult(String model) {
+        for (ModelRunResult result : results) {
+            if (result.getModel().equals(model)) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "MultiModelResult{winner=" + (winner != null ? winner.getModel() : null) + ", results=" + results + "}";
+    }
+}
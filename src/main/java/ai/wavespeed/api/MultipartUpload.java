@@ -0,0 +1,162 @@
+package ai.wavespeed.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * State of a chunked upload, kept across attempts so a failed upload resumes
+ * from the parts already committed.
+ *
+ * <p>A chunked upload is requested by adding {@code "multipart": {"part_size": N}}
+ * to the upload ticket request. A server supporting it answers with an
+ * {@code upload.multipart} object:</p>
+ * <pre>{@code
+ * "multipart": {
+ *   "upload_id": "...",
+ *   "part_size": 8388608,
+ *   "parts": [{"part_number": 1, "url": "..."}, ...],
+ *   "complete_url": "..."
+ * }
+ * }</pre>
+ * <p>Each part is PUT to its URL (part N covers bytes
+ * {@code [(N-1)*part_size, N*part_size)}) and answered with an {@code ETag};
+ * the upload is then completed by POSTing
+ * {@code {"upload_id": ..., "parts": [{"part_number": N, "etag": ...}]}} to
+ * {@code complete_url}. Servers without multipart support ignore the request
+ * and the file is sent as a single PUT.</p>
+ */
+final class MultipartUpload {
+    private final String uploadId;
+    private final long partSize;
+    private final List<String> partUrls;
+    private final String completeUrl;
+    private final String downloadUrl;
+    private final Endpoint endpoint;
+    private final ConcurrentSkipListMap<Integer, String> committed = new ConcurrentSkipListMap<>();
+
+    private MultipartUpload(String uploadId, long partSize, List<String> partUrls, String completeUrl,
+                            String downloadUrl, Endpoint endpoint) {
+        this.uploadId = uploadId;
+        this.partSize = partSize;
+        this.partUrls = partUrls;
+        this.completeUrl = completeUrl;
+        this.downloadUrl = downloadUrl;
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Read the multipart description of an upload ticket.
+     *
+     * @param multipart The {@code upload.multipart} object (may be null)
+     * @param downloadUrl Download URL of the ticket
+     * @param fileSize Size of the file in bytes
+     * @param endpoint Endpoint that issued the ticket
+     * @return The upload, or null if the ticket does not describe a usable multipart upload
+     */
+    static MultipartUpload parse(Map<String, Object> multipart, String downloadUrl, long fileSize, Endpoint endpoint) {
+        if (multipart == null || !(multipart.get("upload_id") instanceof String)
+                || !(multipart.get("part_size") instanceof Number)
+                || !(multipart.get("complete_url") instanceof String)
+                || !(multipart.get("parts") instanceof List)) {
+            return null;
+        }
+        long partSize = ((Number) multipart.get("part_size")).longValue();
+        if (partSize <= 0) {
+            return null;
+        }
+        int partCount = (int) Math.max(1, (fileSize + partSize - 1) / partSize);
+        String[] urls = new String[partCount];
+        for (Object item : (List<?>) multipart.get("parts")) {
+            if (!(item instanceof Map)) {
+                return null;
+            }
+            Map<?, ?> part = (Map<?, ?>) item;
+            if (!(part.get("part_number") instanceof Number) || !(part.get("url") instanceof String)) {
+                return null;
+            }
+            int number = ((Number) part.get("part_number")).intValue();
+            if (number < 1 || number > partCount) {
+                return null;
+            }
+            urls[number - 1] = (String) part.get("url");
+        }
+        List<String> partUrls = new ArrayList<>();
+        Collections.addAll(partUrls, urls);
+        if (partUrls.contains(null)) {
+            return null;
+        }
+        return new MultipartUpload((String) multipart.get("upload_id"), partSize, partUrls,
+                (String) multipart.get("complete_url"), downloadUrl, endpoint);
+    }
+
+    String getUploadId() {
+        return uploadId;
+    }
+
+    String getCompleteUrl() {
+        return completeUrl;
+    }
+
+    String getDownloadUrl() {
+        return downloadUrl;
+    }
+
+    Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    int getPartCount() {
+        return partUrls.size();
+    }
+
+    String partUrl(int partNumber) {
+        return partUrls.get(partNumber - 1);
+    }
+
+    long offset(int partNumber) {
+        return (partNumber - 1) * partSize;
+    }
+
+    long length(int partNumber, long fileSize) {
+        return Math.max(0, Math.min(partSize, fileSize - offset(partNumber)));
+    }
+
+    void commit(int partNumber, String etag) {
+        committed.put(partNumber, etag);
+    }
+
+    /**
+     * Get the parts not committed yet.
+     *
+     * @return Part numbers in ascending order
+     */
+    List<Integer> remainingParts() {
+        List<Integer> remaining = new ArrayList<>();
+        for (int part = 1; part <= partUrls.size(); part++) {
+            if (!committed.containsKey(part)) {
+                remaining.add(part);
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Get the committed parts for the completion request.
+     *
+     * @return Part number and ETag of every part, in order
+     */
+    List<Map<String, Object>> committedParts() {
+        List<Map<String, Object>> parts = new ArrayList<>();
+        committed.forEach((number, etag) -> {
+            Map<String, Object> part = new LinkedHashMap<>();
+            part.put("part_number", number);
+            part.put("etag", etag);
+            parts.add(part);
+        });
+        return parts;
+    }
+}
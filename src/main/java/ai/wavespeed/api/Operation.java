@@ -0,0 +1,191 @@
+package ai.wavespeed.api;
+
+import ai.wavespeed.WavespeedCancelledException;
+import okhttp3.Call;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * State shared by every step of one client operation (a run, an attach or an
+ * upload): its deadline, the task it concerns, and cooperative cancellation.
+ *
+ * <p>HTTP calls are tracked while in flight so that {@link #cancel()} can abort
+ * them, and sleeps between polls or retries wake up as soon as the operation is
+ * cancelled.</p>
+ */
+final class Operation {
+    private final Deadline deadline;
+    private final Set<Call> calls = ConcurrentHashMap.newKeySet();
+    private final List<Runnable> cancelListeners = new CopyOnWriteArrayList<>();
+    private final Object sleepLock = new Object();
+    private volatile boolean cancelled;
+    private volatile String taskId;
+    private volatile Endpoint endpoint;
+    private volatile ApiKey apiKey;
+    private Priority priority = Priority.NORMAL;
+    private String tenant;
+
+    Operation(Deadline deadline) {
+        this.deadline = deadline;
+    }
+
+    Deadline getDeadline() {
+        return deadline;
+    }
+
+    String getTaskId() {
+        return taskId;
+    }
+
+    void setTaskId(String taskId) {
+        this.taskId = taskId;
+    }
+
+    /**
+     * Get the endpoint that created the task; later requests for the task stick to it.
+     *
+     * @return Endpoint, or null before submission
+     */
+    Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    void setEndpoint(Endpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Get the pooled API key the task was submitted with; later requests for the task reuse it.
+     *
+     * @return API key, or null without a key pool
+     */
+    ApiKey getApiKey() {
+        return apiKey;
+    }
+
+    void setApiKey(ApiKey apiKey) {
+        this.apiKey = apiKey;
+    }
+
+    Priority getPriority() {
+        return priority;
+    }
+
+    String getTenant() {
+        return tenant;
+    }
+
+    /**
+     * Set the scheduling class of the operation.
+     *
+     * @param priority Priority class (null = NORMAL)
+     * @param tenant Tenant name (null = default tenant)
+     * @return This operation, for chaining
+     */
+    Operation schedule(Priority priority, String tenant) {
+        this.priority = priority != null ? priority : Priority.NORMAL;
+        this.tenant = tenant;
+        return this;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Cancel the operation: abort in-flight calls and wake up sleepers.
+     *
+     * @return True if this call cancelled the operation, false if it already was
+     */
+    boolean cancel() {
+        synchronized (sleepLock) {
+            if (cancelled) {
+                return false;
+            }
+            cancelled = true;
+            sleepLock.notifyAll();
+        }
+        for (Call call : calls) {
+            call.cancel();
+        }
+        for (Runnable listener : cancelListeners) {
+            listener.run();
+        }
+        return true;
+    }
+
+    /**
+     * Register a callback run when the operation is cancelled (right away if it already is).
+     *
+     * @param listener Callback, e.g. waking up a thread blocked outside {@link #sleep(double)}
+     */
+    void onCancel(Runnable listener) {
+        cancelListeners.add(listener);
+        if (cancelled) {
+            listener.run();
+        }
+    }
+
+    void removeOnCancel(Runnable listener) {
+        cancelListeners.remove(listener);
+    }
+
+    /**
+     * Throw if the operation has been cancelled.
+     *
+     * @throws WavespeedCancelledException if cancelled
+     */
+    void checkCancelled() {
+        if (cancelled) {
+            throw cancelledError();
+        }
+    }
+
+    WavespeedCancelledException cancelledError() {
+        String id = taskId;
+        return new WavespeedCancelledException(
+                id != null ? "Prediction cancelled (task_id: " + id + ")" : "Prediction cancelled",
+                id
+        );
+    }
+
+    /**
+     * Register an in-flight call; it is cancelled right away if the operation already is.
+     *
+     * @param call The call about to be executed
+     */
+    void track(Call call) {
+        calls.add(call);
+        if (cancelled) {
+            call.cancel();
+        }
+    }
+
+    void untrack(Call call) {
+        calls.remove(call);
+    }
+
+    /**
+     * Sleep, waking up early if the operation is cancelled.
+     *
+     * @param seconds Time to sleep in seconds
+     * @throws InterruptedException if the thread is interrupted
+     * @throws WavespeedCancelledException if the operation is cancelled
+     */
+    void sleep(double seconds) throws InterruptedException {
+        long end = System.nanoTime() + (long) (seconds * 1_000_000_000L);
+        synchronized (sleepLock) {
+            while (!cancelled) {
+                long left = end - System.nanoTime();
+                if (left <= 0) {
+                    return;
+                }
+                sleepLock.wait(left / 1_000_000, (int) (left % 1_000_000));
+            }
+        }
+        throw cancelledError();
+    }
+}
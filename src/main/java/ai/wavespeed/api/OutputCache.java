@@ -0,0 +1,389 @@
+package ai.wavespeed.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Local disk cache of downloaded outputs.
+ *
+ * <p>Outputs are looked up by URL and stored by the SHA-256 of their content
+ * under {@code <dir>/objects/}, so the same content reached through several
+ * URLs is stored once. Once the objects exceed {@link #setMaxSize(long)}
+ * bytes, the least recently used URLs are dropped, along with the objects no
+ * other URL refers to.</p>
+ *
+ * <p>Objects are written to a temporary file and moved into place, so a
+ * reader never sees a partial object, even with several processes sharing
+ * the directory. The index ({@code <dir>/index.json}) is a single small file
+ * read once at startup; objects are not scanned. It is rewritten atomically
+ * after every change, so with several processes the last writer's view wins
+ * and objects it does not know are left for the next {@link #clear()}.</p>
+ *
+ * <p>Set on a client, the cache is used by {@link Client#download},
+ * {@link Client#downloadAll} and {@link OutputPrefetch}.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * client.setOutputCache(new OutputCache(Paths.get(".wavespeed-outputs"))
+ *     .setMaxSize(10L * 1024 * 1024 * 1024));
+ * }</pre>
+ */
+public class OutputCache {
+    private static final long DEFAULT_MAX_SIZE = 1024L * 1024 * 1024;
+
+    private final Path directory;
+    private final Path objects;
+    private final Path indexFile;
+    private final Gson gson = new Gson();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> references = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long maxSize = DEFAULT_MAX_SIZE;
+    private long size;
+
+    /**
+     * Cached output: the object holding the content reached through a URL.
+     */
+    private static final class Entry {
+        String url;
+        @SerializedName("sha256")
+        String hash;
+        long size;
+        @SerializedName("last_access")
+        long lastAccess;
+    }
+
+    /**
+     * On-disk format of the index.
+     */
+    private static final class Snapshot {
+        int version = 1;
+        List<Entry> entries = new ArrayList<>();
+    }
+
+    /**
+     * Open a cache in a directory, loading its index.
+     *
+     * @param directory Cache directory, created if missing
+     * @throws IllegalArgumentException if the directory cannot be created
+     */
+    public OutputCache(Path directory) {
+        this.directory = directory;
+        this.objects = directory.resolve("objects");
+        this.indexFile = directory.resolve("index.json");
+        try {
+            Files.createDirectories(objects);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot create output cache directory " + directory, e);
+        }
+        if (Files.exists(indexFile)) {
+            load();
+        }
+    }
+
+    /**
+     * Set the maximum total size of the cached objects.
+     *
+     * @param bytes Size cap in bytes (default 1 GiB)
+     * @return This cache, for chaining
+     */
+    public synchronized OutputCache setMaxSize(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = bytes;
+        if (evict()) {
+            save();
+        }
+        return this;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Get the total size of the cached objects.
+     *
+     * @return Bytes on disk
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Get the number of cached URLs.
+     *
+     * @return Number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the number of downloads served from the cache.
+     *
+     * @return Cache hits
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of downloads that were not found in the cache.
+     *
+     * @return Cache misses
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Remove all entries and objects.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        references.clear();
+        size = 0;
+        try (Stream<Path> files = Files.list(objects)) {
+            for (Iterator<Path> it = files.iterator(); it.hasNext(); ) {
+                Files.deleteIfExists(it.next());
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to clear output cache " + directory + ": " + e.getMessage());
+        }
+        save();
+    }
+
+    /**
+     * Look up the cached content of a URL.
+     *
+     * <p>The object may be evicted by another thread before it is read; a
+     * reader failing to open it should treat the lookup as a miss.</p>
+     *
+     * @param url Output URL
+     * @param sha256 Expected hex SHA-256 (null = any)
+     * @return The object file, or null if the URL is not cached (or its content does not match)
+     */
+    synchronized Path get(String url, String sha256) {
+        Entry entry = entries.get(url);
+        if (entry != null && (sha256 == null || sha256.equals(entry.hash))) {
+            Path object = objects.resolve(entry.hash);
+            if (Files.isRegularFile(object)) {
+                entry.lastAccess = System.currentTimeMillis();
+                hits.incrementAndGet();
+                return object;
+            }
+            // Removed behind our back, e.g. by another process evicting it.
+            remove(entry);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Store the content of a downloaded file.
+     *
+     * @param url Output URL
+     * @param file Downloaded file; it is copied, not moved
+     * @throws IOException if the content cannot be stored
+     */
+    void put(String url, Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            store(url, out -> {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            });
+        }
+    }
+
+    /**
+     * Store content downloaded into memory.
+     *
+     * @param url Output URL
+     * @param content Content
+     * @throws IOException if the content cannot be stored
+     */
+    void put(String url, byte[] content) throws IOException {
+        store(url, out -> out.write(content));
+    }
+
+    /**
+     * Writes content to a stream.
+     */
+    private interface ContentWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private void store(String url, ContentWriter content) throws IOException {
+        Path temp = Files.createTempFile(objects, "incoming-", ".tmp");
+        try {
+            MessageDigest digest = sha256Digest();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                content.writeTo(out);
+            }
+            String hash = hex(digest.digest());
+            long bytes = Files.size(temp);
+            synchronized (this) {
+                if (bytes > maxSize) {
+                    return;
+                }
+                Path object = objects.resolve(hash);
+                Entry previous = entries.get(url);
+                if (previous != null && previous.hash.equals(hash)) {
+                    // Same content again: keep the object it already references.
+                    previous.lastAccess = System.currentTimeMillis();
+                } else {
+                    Entry entry = new Entry();
+                    entry.url = url;
+                    entry.hash = hash;
+                    entry.size = bytes;
+                    entry.lastAccess = System.currentTimeMillis();
+                    // Referenced before the old entry lets go, so shared content is never deleted in between.
+                    add(entry);
+                    if (previous != null) {
+                        release(previous);
+                    }
+                }
+                if (!Files.exists(object)) {
+                    move(temp, object);
+                }
+                evict();
+                save();
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void add(Entry entry) {
+        entries.put(entry.url, entry);
+        if (references.merge(entry.hash, 1, Integer::sum) == 1) {
+            size += entry.size;
+        }
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.url);
+        release(entry);
+    }
+
+    /**
+     * Drop the reference an entry holds on its object, deleting the object if it was the last one.
+     */
+    private void release(Entry entry) {
+        Integer left = references.computeIfPresent(entry.hash, (hash, count) -> count > 1 ? count - 1 : null);
+        if (left == null) {
+            size -= entry.size;
+            try {
+                Files.deleteIfExists(objects.resolve(entry.hash));
+            } catch (IOException e) {
+                System.out.println("Failed to delete cached output " + entry.hash + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drop least recently used entries until the objects fit the size cap.
+     *
+     * @return True if anything was dropped
+     */
+    private boolean evict() {
+        boolean evicted = false;
+        while (size > maxSize && !entries.isEmpty()) {
+            remove(entries.values().iterator().next());
+            evicted = true;
+        }
+        return evicted;
+    }
+
+    private void load() {
+        try (Reader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            Snapshot snapshot = gson.fromJson(reader, Snapshot.class);
+            if (snapshot == null || snapshot.entries == null) {
+                return;
+            }
+            // Restore the recency order; objects are checked when they are looked up.
+            snapshot.entries.sort(Comparator.comparingLong(entry -> entry.lastAccess));
+            for (Entry entry : snapshot.entries) {
+                if (entry.url != null && entry.hash != null && entry.hash.matches("[0-9a-f]{64}")
+                        && !entries.containsKey(entry.url)) {
+                    add(entry);
+                }
+            }
+            evict();
+        } catch (IOException | JsonParseException e) {
+            System.out.println("Ignoring unreadable output cache index " + indexFile + ": " + e.getMessage());
+        }
+    }
+
+    private void save() {
+        Snapshot snapshot = new Snapshot();
+        snapshot.entries.addAll(entries.values());
+        try {
+            Path temp = Files.createTempFile(directory, "index-", ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                gson.toJson(snapshot, writer);
+            }
+            move(temp, indexFile);
+        } catch (IOException e) {
+            System.out.println("Failed to save output cache index " + indexFile + ": " + e.getMessage());
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,200 @@
+package ai.wavespeed.api;
+
+import okhttp3.HttpUrl;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * State of one output download: what the server told about the content.
+ *
+ * <p>The first request asks for the first range. A {@code 206} answer
+ * reveals the size (from {@code Content-Range}) and the validator
+ * ({@code ETag}) sent as {@code If-Range} with the remaining ranges, so a
+ * file replaced mid-download is not stitched together from two versions. A
+ * {@code 200} answer means the server ignores ranges, and the file is
+ * streamed in one piece.</p>
+ *
+ * <p>Checksums are verified when known: the SHA-256 given by the caller, the
+ * MD5 of {@code Content-MD5} on a whole-file response, and the MD5 of
+ * Google Cloud Storage's {@code x-goog-hash}, which always covers the whole
+ * object.</p>
+ */
+final class OutputDownload {
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+    private static final Pattern EMPTY_RANGE = Pattern.compile("bytes \\*/0");
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private final String url;
+    private final String sha256;
+    private volatile long size = -1;
+    private volatile boolean ranged;
+    private volatile String etag;
+    private volatile String md5;
+
+    OutputDownload(String url, String sha256) {
+        this.url = url;
+        this.sha256 = sha256;
+    }
+
+    String getUrl() {
+        return url;
+    }
+
+    String getSha256() {
+        return sha256;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    void setSize(long size) {
+        this.size = size;
+    }
+
+    boolean isRanged() {
+        return ranged;
+    }
+
+    String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Record what a response to the first request says about the content.
+     *
+     * @param response The response
+     * @param ranged Whether it answered a range request with 206
+     * @param size Size of the content (-1 if unknown)
+     */
+    void accept(Response response, boolean ranged, long size) {
+        this.ranged = ranged;
+        this.size = size;
+        String etag = response.header("ETag");
+        // A weak validator cannot be used with If-Range.
+        this.etag = etag != null && !etag.startsWith("W/") ? etag : null;
+        String goog = response.header("x-goog-hash");
+        if (goog != null) {
+            for (String item : goog.split(",")) {
+                item = item.trim();
+                if (item.startsWith("md5=")) {
+                    md5 = item.substring(4);
+                }
+            }
+        }
+        if (!ranged && response.header("Content-MD5") != null) {
+            md5 = response.header("Content-MD5").trim();
+        }
+    }
+
+    /**
+     * Parse a {@code Content-Range} header.
+     *
+     * @param header Header value (may be null)
+     * @return {first byte, last byte, total size or -1}, or null if the header is missing or malformed
+     */
+    static long[] parseContentRange(String header) {
+        if (header == null) {
+            return null;
+        }
+        Matcher matcher = CONTENT_RANGE.matcher(header.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        long total = matcher.group(3).equals("*") ? -1 : Long.parseLong(matcher.group(3));
+        return new long[] {Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)), total};
+    }
+
+    /**
+     * Check whether a 416 answer to a request for the first range means the content is empty.
+     */
+    static boolean isEmpty(Response response) {
+        String header = response.header("Content-Range");
+        return header != null && EMPTY_RANGE.matcher(header.trim()).matches();
+    }
+
+    /**
+     * Verify the downloaded file against the known checksums.
+     *
+     * @param file Downloaded file
+     * @return Description of the mismatch, or null if the file matches (or no checksum is known)
+     * @throws IOException if the file cannot be read
+     */
+    String verify(Path file) throws IOException {
+        if (sha256 == null && md5 == null) {
+            return null;
+        }
+        MessageDigest sha = sha256 != null ? digest("SHA-256") : null;
+        MessageDigest md = md5 != null ? digest("MD5") : null;
+        ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                if (sha != null) {
+                    sha.update(buffer.duplicate());
+                }
+                if (md != null) {
+                    md.update(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        if (sha != null) {
+            String actual = hex(sha.digest());
+            if (!actual.equals(sha256)) {
+                return "SHA-256 is " + actual + ", expected " + sha256;
+            }
+        }
+        if (md != null) {
+            String actual = Base64.getEncoder().encodeToString(md.digest());
+            if (!actual.equals(md5)) {
+                return "MD5 is " + actual + ", server announced " + md5;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Derive a local file name from an output URL.
+     *
+     * @param url Output URL
+     * @return Last path segment, or null if the URL has none usable
+     */
+    static String filename(String url) {
+        HttpUrl parsed = HttpUrl.parse(url);
+        if (parsed == null) {
+            return null;
+        }
+        String name = parsed.pathSegments().get(parsed.pathSize() - 1);
+        if (name.isEmpty() || name.equals(".") || name.equals("..") || name.contains("/") || name.contains("\\")) {
+            return null;
+        }
+        return name;
+    }
+
+    private static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " not available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
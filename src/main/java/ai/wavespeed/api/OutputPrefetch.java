@@ -0,0 +1,165 @@
+package ai.wavespeed.api;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Eager download of prediction outputs, started the moment a task completes.
+ *
+ * <p>With a spool directory, outputs are streamed to
+ * {@code <dir>/<task id>/<file name>} as by {@link Client#downloadAll}; the
+ * files belong to the caller and are never deleted. Without one, outputs are
+ * held in memory, within {@link #setMemoryLimit(long)} bytes in total: when
+ * the limit is reached the least recently used outputs are dropped, and an
+ * output that alone exceeds the space left is not prefetched.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * client.setOutputPrefetch(new OutputPrefetch().setSpoolDirectory(Paths.get("spool")));
+ * Prediction prediction = client.runAsync("wavespeed-ai/z-image/turbo", input);
+ * // ... other work, while the task runs and its outputs are fetched
+ * Path image = prediction.getPrefetchedOutputs().get(0).getPath();
+ * }</pre>
+ */
+public class OutputPrefetch {
+    private static final long DEFAULT_MEMORY_LIMIT = 64L * 1024 * 1024;
+    private static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private volatile Path spoolDirectory;
+    private long memoryLimit = DEFAULT_MEMORY_LIMIT;
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private long memoryUsed;
+    private final LinkedHashMap<String, PrefetchedOutput> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Prefetch outputs to files in a directory instead of memory.
+     *
+     * @param dir Spool directory, created if missing (null = keep outputs in memory)
+     * @return This prefetch, for chaining
+     */
+    public OutputPrefetch setSpoolDirectory(Path dir) {
+        this.spoolDirectory = dir;
+        return this;
+    }
+
+    /**
+     * Set the memory available to outputs prefetched into memory.
+     *
+     * @param bytes Total bytes held (default 64 MiB)
+     * @return This prefetch, for chaining
+     */
+    public synchronized OutputPrefetch setMemoryLimit(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("memoryLimit must be positive");
+        }
+        this.memoryLimit = bytes;
+        evictMemory(0);
+        return this;
+    }
+
+    /**
+     * Set the number of prefetched outputs that can be looked up.
+     *
+     * @param maxEntries Maximum outputs remembered (default 1024)
+     * @return This prefetch, for chaining
+     */
+    public synchronized OutputPrefetch setMaxEntries(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        evictEntries();
+        return this;
+    }
+
+    public Path getSpoolDirectory() { return spoolDirectory; }
+    public synchronized long getMemoryLimit() { return memoryLimit; }
+    public synchronized int getMaxEntries() { return maxEntries; }
+
+    /**
+     * Get the bytes held by outputs prefetched into memory.
+     *
+     * @return Bytes
+     */
+    public synchronized long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    /**
+     * Look up a prefetched output.
+     *
+     * @param url Output URL
+     * @return The output, possibly still downloading, or null if it was not prefetched or was dropped
+     */
+    public synchronized PrefetchedOutput get(String url) {
+        return entries.get(url);
+    }
+
+    /**
+     * Remember an output about to be prefetched.
+     *
+     * @return False if the URL is already prefetched
+     */
+    synchronized boolean register(PrefetchedOutput output) {
+        if (entries.containsKey(output.getUrl())) {
+            return false;
+        }
+        entries.put(output.getUrl(), output);
+        evictEntries();
+        return true;
+    }
+
+    /**
+     * Forget an output whose prefetch failed or was abandoned.
+     */
+    synchronized void remove(PrefetchedOutput output) {
+        if (entries.remove(output.getUrl(), output)) {
+            memoryUsed -= output.getMemorySize();
+        }
+    }
+
+    /**
+     * Account for an output downloaded into memory, dropping least recently used outputs to make room.
+     *
+     * @return False if the output does not fit even after dropping all others
+     */
+    synchronized boolean reserve(PrefetchedOutput output, long bytes) {
+        if (bytes > memoryLimit || !entries.containsKey(output.getUrl())) {
+            return false;
+        }
+        evictMemory(bytes);
+        memoryUsed += bytes;
+        output.setMemorySize(bytes);
+        return true;
+    }
+
+    private void evictMemory(long needed) {
+        Iterator<PrefetchedOutput> it = entries.values().iterator();
+        while (memoryUsed + needed > memoryLimit && it.hasNext()) {
+            PrefetchedOutput output = it.next();
+            if (output.getMemorySize() > 0) {
+                memoryUsed -= output.getMemorySize();
+                it.remove();
+            }
+        }
+    }
+
+    private void evictEntries() {
+        List<PrefetchedOutput> dropped = new ArrayList<>();
+        Iterator<Map.Entry<String, PrefetchedOutput>> it = entries.entrySet().iterator();
+        while (entries.size() - dropped.size() > maxEntries && it.hasNext()) {
+            PrefetchedOutput output = it.next().getValue();
+            if (output.isDone()) {
+                dropped.add(output);
+            }
+        }
+        for (PrefetchedOutput output : dropped) {
+            entries.remove(output.getUrl());
+            memoryUsed -= output.getMemorySize();
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package ai.wavespeed.api;
+
+import ai.wavespeed.WavespeedException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chain of model runs where the outputs of one step feed the input of the next.
+ *
+ * <p>Steps form a DAG: each step runs after the steps it names, which must
+ * have been declared before it. For every batch item, a step starts as soon as
+ * its own dependencies completed for that item, so independent branches run in
+ * parallel and items stream through the stages instead of waiting for the
+ * whole batch at each stage.</p>
+ *
+ * <p>Backpressure keeps the stages in step: each step runs at most
+ * {@link #setStepConcurrency(int) stepConcurrency} predictions at once and
+ * queues the rest, and only {@link #setMaxItemsInFlight(int) maxItemsInFlight}
+ * items enter the pipeline before earlier ones leave it, so a fast first
+ * stage cannot run far ahead of a slow last one.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * Pipeline pipeline = new Pipeline(client)
+ *     .step("image", "wavespeed-ai/z-image/turbo",
+ *         item -> Map.of("prompt", item.getInput().get("prompt")))
+ *     .step("upscale", "wavespeed-ai/image-upscaler",
+ *         item -> Map.of("image", item.getOutput("image")), "image")
+ *     .step("video", "wavespeed-ai/wan-2.1/i2v-480p",
+ *         item -> Map.of("image", item.getOutput("upscale"), "prompt", item.getInput().get("prompt")), "upscale");
+ *
+ * for (PipelineItem item : pipeline.runBatch(prompts)) {
+ *     System.out.println(item.isSuccess() ? item.getOutput("video") : item.getError());
+ * }
+ * }</pre>
+ */
+public class Pipeline {
+    private static final int DEFAULT_STEP_CONCURRENCY = 4;
+    private static final int DEFAULT_MAX_ITEMS_IN_FLIGHT = 8;
+
+    private final Client client;
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+    private int stepConcurrency = DEFAULT_STEP_CONCURRENCY;
+    private int maxItemsInFlight = DEFAULT_MAX_ITEMS_IN_FLIGHT;
+    private RunOptions runOptions;
+
+    /**
+     * A declared step.
+     */
+    private static final class Step {
+        final String name;
+        final String model;
+        final PipelineInputMapper input;
+        final List<String> after;
+        final List<Step> dependents = new ArrayList<>();
+
+        Step(String name, String model, PipelineInputMapper input, List<String> after) {
+            this.name = name;
+            this.model = model;
+            this.input = input;
+            this.after = after;
+        }
+    }
+
+    /**
+     * Create an empty pipeline.
+     *
+     * @param client Client running the predictions
+     */
+    public Pipeline(Client client) {
+        if (client == null) {
+            throw new IllegalArgumentException("client is required");
+        }
+        this.client = client;
+    }
+
+    /**
+     * Add a step.
+     *
+     * @param name Step name, unique within the pipeline
+     * @param model Model the step runs
+     * @param input Builds the step's input from the item and the outputs of earlier steps
+     * @param after Steps that must complete first; none for a step fed by the batch input only
+     * @return This pipeline, for chaining
+     * @throws IllegalArgumentException if the name is taken or a dependency is not declared yet
+     */
+    public synchronized Pipeline step(String name, String model, PipelineInputMapper input, String... after) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        if (model == null || model.isEmpty()) {
+            throw new IllegalArgumentException("model is required");
+        }
+        if (input == null) {
+            throw new IllegalArgumentException("input is required");
+        }
+        if (steps.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate step: " + name);
+        }
+        Step step = new Step(name, model, input, Collections.unmodifiableList(Arrays.asList(after.clone())));
+        for (String dependency : step.after) {
+            if (!steps.containsKey(dependency)) {
+                throw new IllegalArgumentException("Step " + name + " runs after unknown step: " + dependency);
+            }
+        }
+        for (String dependency : step.after) {
+            steps.get(dependency).dependents.add(step);
+        }
+        steps.put(name, step);
+        return this;
+    }
+
+    /**
+     * Set how many predictions each step runs at once.
+     *
+     * @param concurrency Maximum predictions in flight per step (default 4)
+     * @return This pipeline, for chaining
+     */
+    public synchronized Pipeline setStepConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.stepConcurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Set how many batch items may be in the pipeline at once.
+     *
+     * @param items Maximum items between entering the first step and leaving the last (default 8)
+     * @return This pipeline, for chaining
+     */
+    public synchronized Pipeline setMaxItemsInFlight(int items) {
+        if (items < 1) {
+            throw new IllegalArgumentException("items must be at least 1");
+        }
+        this.maxItemsInFlight = items;
+        return this;
+    }
+
+    /**
+     * Set the options every step's predictions run with.
+     *
+     * @param options Run options (null = defaults)
+     * @return This pipeline, for chaining
+     */
+    public synchronized Pipeline setRunOptions(RunOptions options) {
+        this.runOptions = options;
+        return this;
+    }
+
+    public synchronized int getStepConcurrency() { return stepConcurrency; }
+    public synchronized int getMaxItemsInFlight() { return maxItemsInFlight; }
+    public synchronized RunOptions getRunOptions() { return runOptions; }
+
+    /**
+     * Get the step names in declaration order.
+     *
+     * @return Step names
+     */
+    public synchronized List<String> getSteps() {
+        return Collections.unmodifiableList(new ArrayList<>(steps.keySet()));
+    }
+
+    /**
+     * Run the pipeline for one input.
+     *
+     * @param input Input of the item
+     * @return The item with the outputs of every step
+     * @throws WavespeedException if a step fails (the error of that step)
+     */
+    public PipelineItem run(Map<String, Object> input) {
+        PipelineItem item = runBatch(Collections.singletonList(input)).get(0);
+        if (!item.isSuccess()) {
+            throw item.getError();
+        }
+        return item;
+    }
+
+    /**
+     * Run the pipeline for a batch of inputs.
+     *
+     * <p>A failed step stops its item only: the item's other running steps are
+     * cancelled, and the other items carry on.</p>
+     *
+     * @param inputs Input of each item
+     * @return Items in input order, each with its outputs or failure
+     */
+    public List<PipelineItem> runBatch(List<Map<String, Object>> inputs) {
+        Execution execution;
+        synchronized (this) {
+            if (steps.isEmpty()) {
+                throw new IllegalStateException("Pipeline has no steps");
+            }
+            execution = new Execution(new ArrayList<>(steps.values()), stepConcurrency, maxItemsInFlight, runOptions);
+        }
+        return execution.run(inputs);
+    }
+
+    /**
+     * State of one runBatch() call.
+     */
+    private final class Execution {
+        private final List<Step> plan;
+        private final int concurrency;
+        private final Semaphore admission;
+        private final RunOptions options;
+        private final Map<Step, ArrayDeque<ItemRun>> queued = new HashMap<>();
+        private final Map<Step, Integer> running = new HashMap<>();
+        private final Set<ItemRun> active = ConcurrentHashMap.newKeySet();
+
+        Execution(List<Step> plan, int concurrency, int maxItemsInFlight, RunOptions options) {
+            this.plan = plan;
+            this.concurrency = concurrency;
+            this.admission = new Semaphore(maxItemsInFlight);
+            this.options = options;
+            for (Step step : plan) {
+                queued.put(step, new ArrayDeque<>());
+                running.put(step, 0);
+            }
+        }
+
+        List<PipelineItem> run(List<Map<String, Object>> inputs) {
+            List<ItemRun> items = new ArrayList<>();
+            try {
+                for (Map<String, Object> input : inputs) {
+                    admission.acquire();
+                    ItemRun item = new ItemRun(new PipelineItem(items.size(), input), plan);
+                    items.add(item);
+                    active.add(item);
+                    item.done.whenComplete((ignored, error) -> {
+                        active.remove(item);
+                        admission.release();
+                    });
+                    // Held while the roots are scheduled, so that a root finishing early does not end the item.
+                    item.outstanding.incrementAndGet();
+                    for (Step step : plan) {
+                        if (step.after.isEmpty()) {
+                            schedule(step, item);
+                        }
+                    }
+                    item.finishOne();
+                }
+                List<PipelineItem> results = new ArrayList<>();
+                for (ItemRun item : items) {
+                    item.done.get();
+                    results.add(item.item);
+                }
+                return results;
+            } catch (InterruptedException e) {
+                for (ItemRun item : active) {
+                    item.cancel();
+                }
+                Thread.currentThread().interrupt();
+                throw new WavespeedException("Interrupted while running pipeline", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Pipeline item future failed", e);
+            }
+        }
+
+        /**
+         * Start a step for an item, or queue it while the step is at its concurrency limit.
+         */
+        private void schedule(Step step, ItemRun item) {
+            item.outstanding.incrementAndGet();
+            synchronized (this) {
+                if (running.get(step) >= concurrency) {
+                    queued.get(step).add(item);
+                    return;
+                }
+                running.put(step, running.get(step) + 1);
+            }
+            start(step, item);
+        }
+
+        private void start(Step step, ItemRun item) {
+            while (item != null) {
+                if (item.item.getError() == null && startPrediction(step, item)) {
+                    return;
+                }
+                // The item failed while queued: skip it and give the slot to the next one.
+                item.finishOne();
+                item = next(step);
+            }
+        }
+
+        private boolean startPrediction(Step step, ItemRun item) {
+            Prediction prediction;
+            try {
+                prediction = client.runAsync(step.model, step.input.map(item.item), options);
+            } catch (RuntimeException e) {
+                item.fail(step, e);
+                return false;
+            }
+            item.predictions.add(prediction);
+            prediction.toCompletableFuture().whenComplete((output, error) -> {
+                item.predictions.remove(prediction);
+                if (error == null) {
+                    item.item.complete(step.name, output);
+                    for (Step dependent : step.dependents) {
+                        if (item.remaining.get(dependent).decrementAndGet() == 0) {
+                            schedule(dependent, item);
+                        }
+                    }
+                } else {
+                    item.fail(step, unwrap(error, prediction));
+                }
+                item.finishOne();
+                start(step, next(step));
+            });
+            return true;
+        }
+
+        /**
+         * Release a slot of a step and take the next queued item, keeping the slot for it.
+         */
+        private synchronized ItemRun next(Step step) {
+            ItemRun next = queued.get(step).poll();
+            if (next == null) {
+                running.put(step, running.get(step) - 1);
+            }
+            return next;
+        }
+    }
+
+    /**
+     * Progress of one item through the steps.
+     */
+    private static final class ItemRun {
+        final PipelineItem item;
+        final Map<Step, AtomicInteger> remaining = new HashMap<>();
+        final AtomicInteger outstanding = new AtomicInteger();
+        final Set<Prediction> predictions = ConcurrentHashMap.newKeySet();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        ItemRun(PipelineItem item, List<Step> plan) {
+            this.item = item;
+            for (Step step : plan) {
+                remaining.put(step, new AtomicInteger(step.after.size()));
+            }
+        }
+
+        void fail(Step step, RuntimeException e) {
+            if (item.fail(step.name, e)) {
+                cancel();
+            }
+        }
+
+        void cancel() {
+            for (Prediction prediction : predictions) {
+                prediction.cancel();
+            }
+        }
+
+        /**
+         * Count down a finished or skipped step; the item is done when nothing is left running or queued.
+         */
+        void finishOne() {
+            if (outstanding.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable error, Prediction prediction) {
+        if (error instanceof CancellationException) {
+            return prediction.getOperation().cancelledError();
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new WavespeedException("Prediction failed", cause);
+    }
+}
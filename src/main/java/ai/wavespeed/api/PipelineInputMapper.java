@@ -0,0 +1,21 @@
+package ai.wavespeed.api;
+
+import java.util.Map;
+
+/**
+ * Builds the input of a pipeline step from the item it runs for.
+ */
+@FunctionalInterface
+public interface PipelineInputMapper {
+
+    /**
+     * Build the input of a step.
+     *
+     * <p>Only the outputs of the steps this step runs after are guaranteed to
+     * be available.</p>
+     *
+     * @param item The batch item, with the outputs of the steps completed so far
+     * @return Input parameters for the step's model
+     */
+    Map<String, Object> map(PipelineItem item);
+}
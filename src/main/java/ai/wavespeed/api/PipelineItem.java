@@ -0,0 +1,120 @@
+package ai.wavespeed.api;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One input travelling through a {@link Pipeline}, and the outputs of the
+ * steps it has completed.
+ *
+ * <p>Step input mappers read the outputs of earlier steps from it; once the
+ * pipeline is done with the item it holds every output, or the failure that
+ * stopped it.</p>
+ */
+public class PipelineItem {
+    private final int index;
+    private final Map<String, Object> input;
+    private final Map<String, List<Object>> outputs = new ConcurrentHashMap<>();
+    private volatile RuntimeException error;
+    private volatile String failedStep;
+
+    PipelineItem(int index, Map<String, Object> input) {
+        this.index = index;
+        this.input = input;
+    }
+
+    /**
+     * Get the position of the item in the batch.
+     *
+     * @return Zero-based index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the input the item entered the pipeline with.
+     *
+     * @return Batch input
+     */
+    public Map<String, Object> getInput() {
+        return input;
+    }
+
+    /**
+     * Get the outputs of a step.
+     *
+     * @param step Step name
+     * @return The step's "outputs" array, or null if the step has not completed
+     */
+    public List<Object> getOutputs(String step) {
+        return outputs.get(step);
+    }
+
+    /**
+     * Get the first output of a step, typically the URL of the generated file.
+     *
+     * @param step Step name
+     * @return First output, or null if the step has not completed or produced none
+     */
+    public Object getOutput(String step) {
+        List<Object> stepOutputs = outputs.get(step);
+        return stepOutputs != null && !stepOutputs.isEmpty() ? stepOutputs.get(0) : null;
+    }
+
+    /**
+     * Whether every step completed for this item.
+     *
+     * @return True if no step failed
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Get the failure that stopped the item.
+     *
+     * @return The exception, or null if no step failed
+     */
+    public RuntimeException getError() {
+        return error;
+    }
+
+    /**
+     * Get the step that failed.
+     *
+     * @return Step name, or null if no step failed
+     */
+    public String getFailedStep() {
+        return failedStep;
+    }
+
+    @SuppressWarnings("unchecked")
+    void complete(String step, Map<String, Object> output) {
+        Object stepOutputs = output.get("outputs");
+        outputs.put(step, stepOutputs instanceof List
+                ? Collections.unmodifiableList((List<Object>) stepOutputs) : Collections.emptyList());
+    }
+
+    /**
+     * Record the first failure of the item.
+     *
+     * @return True if this was the first failure
+     */
+    synchronized boolean fail(String step, RuntimeException e) {
+        if (error != null) {
+            return false;
+        }
+        error = e;
+        failedStep = step;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "PipelineItem{index=" + index + ", completed=" + outputs.keySet() +
+                (error != null ? ", failedStep=" + failedStep + ", error=" + error.getMessage() : "") + "}";
+    }
+}
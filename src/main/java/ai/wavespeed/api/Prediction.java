@@ -0,0 +1,222 @@
+package ai.wavespeed.api;
+
+import ai.wavespeed.WavespeedCancelledException;
+import ai.wavespeed.WavespeedException;
+import ai.wavespeed.WavespeedTimeoutException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Handle to a prediction running in the background.
+ *
+ * <p>Returned by {@link Client#runAsync(String, Map, RunOptions)} and
+ * {@link Client#attach(String, RunOptions)}. The prediction can be awaited with
+ * {@link #get()}, composed through {@link #toCompletableFuture()}, or stopped
+ * with {@link #cancel()}.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * Prediction prediction = client.runAsync("wavespeed-ai/z-image/turbo", Map.of("prompt", "A cat"));
+ * // ... the user navigated away
+ * prediction.cancel();
+ * }</pre>
+ */
+public class Prediction {
+    private final Client client;
+    private final String model;
+    private final Operation operation;
+    private final CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+
+    Prediction(Client client, String model, Operation operation) {
+        this.client = client;
+        this.model = model;
+        this.operation = operation;
+        // Cancelling the future directly is the same as cancelling the prediction.
+        future.whenComplete((result, error) -> {
+            if (error instanceof CancellationException) {
+                cancel();
+            }
+        });
+    }
+
+    /**
+     * Run the prediction body on the calling thread and complete the handle with its outcome.
+     *
+     * @param body Work producing the output map
+     */
+    void complete(Supplier<Map<String, Object>> body) {
+        try {
+            future.complete(body.get());
+        } catch (Throwable e) {
+            future.completeExceptionally(operation.isCancelled() ? operation.cancelledError() : e);
+        }
+    }
+
+    Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Get the model this prediction runs.
+     *
+     * @return Model identifier, or null for an attached task
+     */
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * Get the ID of the task on the server.
+     *
+     * @return Task ID, or null while the prediction is still being submitted (or in sync mode)
+     */
+    public String getTaskId() {
+        return operation.getTaskId();
+    }
+
+    /**
+     * Whether the prediction finished, failed or was cancelled.
+     *
+     * @return True once an outcome is available
+     */
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Whether the prediction was cancelled.
+     *
+     * @return True after {@link #cancel()}
+     */
+    public boolean isCancelled() {
+        return operation.isCancelled();
+    }
+
+    /**
+     * Cancel the prediction.
+     *
+     * <p>Local polling stops at once, the in-flight HTTP call is aborted and
+     * {@link #get()} throws {@link WavespeedCancelledException}. If the task has
+     * already been created, a best-effort cancel request is sent for it in the
+     * background so the server stops computing. A task whose submission is
+     * aborted mid-flight may still have been created; it cannot be cancelled
+     * remotely because its ID is unknown.</p>
+     *
+     * @return True if this call cancelled the prediction, false if it had already finished
+     */
+    public boolean cancel() {
+        if (future.isDone() && !future.isCancelled()) {
+            return false;
+        }
+        if (!operation.cancel()) {
+            return false;
+        }
+        future.completeExceptionally(operation.cancelledError());
+        if (operation.getTaskId() != null) {
+            client.cancelInBackground(operation);
+        }
+        return true;
+    }
+
+    /**
+     * Wait for the prediction to finish.
+     *
+     * @return Map containing "outputs" array
+     * @throws WavespeedCancelledException if the prediction was cancelled
+     * @throws WavespeedException if the prediction fails
+     */
+    public Map<String, Object> get() {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        } catch (CancellationException e) {
+            throw operation.cancelledError();
+        }
+    }
+
+    /**
+     * Wait for the prediction to finish, up to a timeout.
+     *
+     * <p>The prediction keeps running if the timeout passes; cancel it explicitly if needed.</p>
+     *
+     * @param timeout Maximum time to wait in seconds
+     * @return Map containing "outputs" array
+     * @throws WavespeedTimeoutException if the prediction is still running after the timeout
+     * @throws WavespeedCancelledException if the prediction was cancelled
+     * @throws WavespeedException if the prediction fails
+     */
+    public Map<String, Object> get(double timeout) {
+        try {
+            return future.get((long) (timeout * 1000), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (CancellationException e) {
+            throw operation.cancelledError();
+        } catch (TimeoutException e) {
+            throw new WavespeedTimeoutException(
+                    "Prediction still running after " + timeout + " seconds", getTaskId()
+            );
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WavespeedException("Interrupted while waiting for prediction", getTaskId(), e);
+        }
+    }
+
+    /**
+     * Wait for the prediction and get its outputs as fetched by the client's {@link OutputPrefetch}.
+     *
+     * <p>The downloads started when the task completed; the returned outputs
+     * may still be downloading.</p>
+     *
+     * @return Prefetched output for each output, in order (null for outputs that are not URLs,
+     *         or were not prefetched, e.g. because they exceed the memory limit)
+     * @throws WavespeedException if the prediction fails
+     */
+    public List<PrefetchedOutput> getPrefetchedOutputs() {
+        Object outputs = get().get("outputs");
+        List<PrefetchedOutput> prefetched = new ArrayList<>();
+        if (outputs instanceof List) {
+            for (Object output : (List<?>) outputs) {
+                prefetched.add(output instanceof String ? client.getPrefetchedOutput((String) output) : null);
+            }
+        }
+        return prefetched;
+    }
+
+    /**
+     * Get a future completing with the prediction outcome.
+     *
+     * <p>Cancelling the returned future cancels the prediction.</p>
+     *
+     * @return Future of the output map
+     */
+    public CompletableFuture<Map<String, Object>> toCompletableFuture() {
+        return future;
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new WavespeedException("Prediction failed", cause);
+    }
+
+    @Override
+    public String toString() {
+        return "Prediction{model=" + model + ", taskId=" + getTaskId() +
+                ", done=" + isDone() + ", cancelled=" + isCancelled() + "}";
+    }
+}
@@ -0,0 +1,141 @@
+package ai.wavespeed.api;
+
+import ai.wavespeed.WavespeedException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * An output being fetched in the background since its task completed.
+ *
+ * <p>Obtained from {@link Prediction#getPrefetchedOutputs()} or
+ * {@link Client#getPrefetchedOutput(String)}. The accessors wait for the
+ * download to finish and throw its failure, if any.</p>
+ */
+public class PrefetchedOutput {
+    private final String url;
+    private final Path path;
+    private final CompletableFuture<PrefetchedOutput> future = new CompletableFuture<>();
+    private volatile byte[] bytes;
+    private volatile long memorySize;
+
+    PrefetchedOutput(String url, Path path) {
+        this.url = url;
+        this.path = path;
+    }
+
+    /**
+     * Get the output URL.
+     *
+     * @return URL the output is fetched from
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Whether the download finished or failed.
+     *
+     * @return True once the content (or the failure) is available
+     */
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Wait for the output and get its spool file.
+     *
+     * @return File in the spool directory, or null if the output is held in memory
+     * @throws WavespeedException if the download failed
+     */
+    public Path getPath() {
+        await();
+        return path;
+    }
+
+    /**
+     * Wait for the output and get its content.
+     *
+     * <p>Content held in memory is returned without copying and must not be
+     * modified; spooled content is read from its file.</p>
+     *
+     * @return Content of the output
+     * @throws WavespeedException if the download failed or the spool file cannot be read
+     */
+    public byte[] getBytes() {
+        await();
+        if (bytes != null) {
+            return bytes;
+        }
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException e) {
+            throw new WavespeedException("Failed to read " + path, e);
+        }
+    }
+
+    /**
+     * Wait for the output and open its content.
+     *
+     * @return Stream over the content; the caller closes it
+     * @throws WavespeedException if the download failed or the spool file cannot be opened
+     */
+    public InputStream openStream() {
+        await();
+        if (bytes != null) {
+            return new ByteArrayInputStream(bytes);
+        }
+        try {
+            return Files.newInputStream(path);
+        } catch (IOException e) {
+            throw new WavespeedException("Failed to open " + path, e);
+        }
+    }
+
+    /**
+     * Get a future completing with this output once it is downloaded.
+     *
+     * @return Future of the output
+     */
+    public CompletableFuture<PrefetchedOutput> toCompletableFuture() {
+        return future;
+    }
+
+    private void await() {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new WavespeedException("Failed to prefetch " + url, e.getCause());
+        }
+    }
+
+    long getMemorySize() {
+        return memorySize;
+    }
+
+    void setMemorySize(long memorySize) {
+        this.memorySize = memorySize;
+    }
+
+    void complete(byte[] bytes) {
+        this.bytes = bytes;
+        future.complete(this);
+    }
+
+    void fail(Throwable error) {
+        future.completeExceptionally(error);
+    }
+
+    @Override
+    public String toString() {
+        return "PrefetchedOutput{url=" + url + ", path=" + path + ", done=" + isDone() + "}";
+    }
+}
@@ -0,0 +1,24 @@
+package ai.wavespeed.api;
+
+/**
+ * Priority class of a prediction, used by {@link SubmissionScheduler}.
+ *
+ * <p>Classes are served strictly in order: queued work of a lower class only
+ * starts when no higher-class work is waiting.</p>
+ */
+public enum Priority {
+    /**
+     * Latency-sensitive work, e.g. a user waiting for the result.
+     */
+    INTERACTIVE,
+
+    /**
+     * Default priority.
+     */
+    NORMAL,
+
+    /**
+     * Throughput work such as backfills, which uses whatever capacity is left.
+     */
+    BULK
+}
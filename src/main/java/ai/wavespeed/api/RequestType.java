@@ -0,0 +1,26 @@
+package ai.wavespeed.api;
+
+/**
+ * Class of API request, used to keep separate health state per kind of call.
+ */
+public enum RequestType {
+    /**
+     * Prediction submission POST ({@code /api/v3/{model}}).
+     */
+    SUBMIT,
+
+    /**
+     * Prediction result GET ({@code /api/v3/predictions/{id}/result}).
+     */
+    RESULT,
+
+    /**
+     * Upload ticket POST ({@code /api/v3/media/uploads}).
+     */
+    UPLOAD,
+
+    /**
+     * Prediction cancel POST ({@code /api/v3/predictions/{id}/cancel}).
+     */
+    CANCEL
+}
@@ -0,0 +1,390 @@
+package ai.wavespeed.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of prediction outputs for deterministic models.
+ *
+ * <p>A run whose model and input are identical to an earlier run of an
+ * allowed model returns the earlier outputs without submitting a new
+ * prediction. Only models added with {@link #allowModel(String)} are cached,
+ * so a model that is not deterministic (no fixed seed, sampling) is never
+ * served from the cache by accident.</p>
+ *
+ * <p>Runs are identified by the SHA-256 of a canonical form of the model and
+ * input: map keys sorted at every level, integral numbers written without a
+ * fraction ({@code 1} and {@code 1.0} are the same input), and local files
+ * identified by path, size and modification time.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * client.setResultCache(new ResultCache()
+ *     .allowModel("wavespeed-ai/z-image/turbo")
+ *     .setTtl(3600)
+ *     .setPersistenceFile(Paths.get(".wavespeed-results.json")));
+ * }</pre>
+ */
+public class ResultCache {
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+    private static final double DEFAULT_TTL = 3600.0;
+
+    private final Gson gson = new Gson();
+    private final Set<String> allowedModels = ConcurrentHashMap.newKeySet();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private double ttl = DEFAULT_TTL;
+    private Path persistenceFile;
+
+    /**
+     * Cached run: the outputs of a model for one input.
+     */
+    private static final class Entry {
+        String key;
+        String model;
+        List<Object> outputs;
+        @SerializedName("expires_at")
+        long expiresAt;
+    }
+
+    /**
+     * On-disk format of the persistence file.
+     */
+    private static final class Snapshot {
+        int version = 1;
+        List<Entry> entries = new ArrayList<>();
+    }
+
+    /**
+     * Allow the outputs of a model to be cached.
+     *
+     * @param model Model identifier, e.g. "wavespeed-ai/z-image/turbo"
+     * @return This cache, for chaining
+     */
+    public ResultCache allowModel(String model) {
+        if (model == null || model.isEmpty()) {
+            throw new IllegalArgumentException("model is required");
+        }
+        allowedModels.add(model);
+        return this;
+    }
+
+    /**
+     * Stop caching a model and drop its cached outputs.
+     *
+     * @param model Model identifier
+     * @return This cache, for chaining
+     */
+    public synchronized ResultCache disallowModel(String model) {
+        allowedModels.remove(model);
+        if (entries.values().removeIf(entry -> model.equals(entry.model))) {
+            save();
+        }
+        return this;
+    }
+
+    /**
+     * Get the models whose outputs are cached.
+     *
+     * @return Allowed model identifiers
+     */
+    public Set<String> getAllowedModels() {
+        return Collections.unmodifiableSet(allowedModels);
+    }
+
+    /**
+     * Set the maximum number of cached runs.
+     *
+     * @param maxEntries Maximum entries (default 1000)
+     * @return This cache, for chaining
+     */
+    public synchronized ResultCache setMaxEntries(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        evict();
+        return this;
+    }
+
+    /**
+     * Set how long outputs are reused; keep it below the lifetime of the output URLs.
+     *
+     * @param seconds Time to live in seconds (default 1 hour)
+     * @return This cache, for chaining
+     */
+    public synchronized ResultCache setTtl(double seconds) {
+        if (seconds <= 0) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        this.ttl = seconds;
+        return this;
+    }
+
+    /**
+     * Persist the cache to a local file, loading the entries it already holds.
+     *
+     * <p>The file is rewritten after every new run. An unreadable file is
+     * ignored and replaced.</p>
+     *
+     * @param file Persistence file (null = memory only)
+     * @return This cache, for chaining
+     */
+    public synchronized ResultCache setPersistenceFile(Path file) {
+        this.persistenceFile = file;
+        if (file != null && Files.exists(file)) {
+            load(file);
+        }
+        return this;
+    }
+
+    public synchronized int getMaxEntries() { return maxEntries; }
+    public synchronized double getTtl() { return ttl; }
+    public synchronized Path getPersistenceFile() { return persistenceFile; }
+
+    /**
+     * Get the number of runs answered from the cache.
+     *
+     * @return Cache hits
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of runs of allowed models that were not found in the cache.
+     *
+     * @return Cache misses
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Get the number of cached runs, expired ones included until they are evicted.
+     *
+     * @return Number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Remove all entries, including the persisted ones.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        save();
+    }
+
+    /**
+     * Whether runs of a model may be served from the cache.
+     */
+    boolean isCacheable(String model) {
+        return model != null && allowedModels.contains(model);
+    }
+
+    /**
+     * Look up the output of an earlier identical run.
+     *
+     * @param key Key from {@link #key(String, Map)}
+     * @return A fresh output map, or null if unknown or expired
+     */
+    synchronized Map<String, Object> get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt > System.currentTimeMillis() && isCacheable(entry.model)) {
+            hits.incrementAndGet();
+            Map<String, Object> output = new HashMap<>();
+            output.put("outputs", entry.outputs != null ? new ArrayList<>(entry.outputs) : null);
+            return output;
+        }
+        if (entry != null) {
+            entries.remove(key);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Remember the output of a run.
+     *
+     * @param key Key from {@link #key(String, Map)}
+     * @param model Model of the run
+     * @param output Output map of the run
+     */
+    synchronized void put(String key, String model, Map<String, Object> output) {
+        Entry entry = new Entry();
+        entry.key = key;
+        entry.model = model;
+        Object outputs = output.get("outputs");
+        entry.outputs = outputs instanceof List ? new ArrayList<>((List<?>) outputs) : null;
+        entry.expiresAt = System.currentTimeMillis() + (long) (ttl * 1000);
+        entries.put(key, entry);
+        evict();
+        save();
+    }
+
+    /**
+     * Compute the canonical key of a run.
+     *
+     * @param model Model identifier
+     * @param input Input parameters
+     * @return Hex SHA-256 of the canonical model and input
+     */
+    static String key(String model, Map<String, Object> input) {
+        StringBuilder canonical = new StringBuilder();
+        canonical.append(new Gson().toJson(model)).append(':');
+        canonicalize(input, canonical);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void canonicalize(Object value, StringBuilder out) {
+        if (value == null || value instanceof Boolean) {
+            out.append(value);
+        } else if (value instanceof Number) {
+            out.append(canonicalNumber((Number) value));
+        } else if (value instanceof CharSequence || value instanceof Character || value instanceof Enum) {
+            out.append(new Gson().toJson(value.toString()));
+        } else if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            for (Map.Entry<?, ?> item : ((Map<?, ?>) value).entrySet()) {
+                sorted.put(String.valueOf(item.getKey()), item.getValue());
+            }
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<String, Object> item : sorted.entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                out.append(new Gson().toJson(item.getKey())).append(':');
+                canonicalize(item.getValue(), out);
+            }
+            out.append('}');
+        } else if (value instanceof Iterable || value.getClass().isArray()) {
+            List<Object> items = new ArrayList<>();
+            if (value instanceof Iterable) {
+                ((Iterable<?>) value).forEach(items::add);
+            } else {
+                for (int i = 0; i < Array.getLength(value); i++) {
+                    items.add(Array.get(value, i));
+                }
+            }
+            out.append('[');
+            for (int i = 0; i < items.size(); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                canonicalize(items.get(i), out);
+            }
+            out.append(']');
+        } else if (value instanceof File || value instanceof Path) {
+            Path path = value instanceof File ? ((File) value).toPath() : (Path) value;
+            out.append("file(").append(new Gson().toJson(path.toAbsolutePath().toString()));
+            try {
+                out.append(',').append(Files.size(path)).append(',')
+                        .append(Files.getLastModifiedTime(path).toMillis());
+            } catch (IOException ignored) {
+                // A missing file fails the run anyway.
+            }
+            out.append(')');
+        } else {
+            out.append(new Gson().toJson(value));
+        }
+    }
+
+    private static String canonicalNumber(Number number) {
+        if (number instanceof Double || number instanceof Float) {
+            double d = number.doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                return String.valueOf(d);
+            }
+        }
+        BigDecimal decimal = new BigDecimal(number.toString()).stripTrailingZeros();
+        return decimal.scale() <= 0 ? decimal.toBigInteger().toString() : decimal.toPlainString();
+    }
+
+    private void evict() {
+        while (entries.size() > maxEntries) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+    }
+
+    private void load(Path file) {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Snapshot snapshot = gson.fromJson(reader, Snapshot.class);
+            if (snapshot == null || snapshot.entries == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            for (Entry entry : snapshot.entries) {
+                if (entry.key != null && entry.model != null && entry.expiresAt > now) {
+                    entries.put(entry.key, entry);
+                }
+            }
+            evict();
+        } catch (IOException | JsonParseException e) {
+            System.out.println("Ignoring unreadable result cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void save() {
+        Path file = persistenceFile;
+        if (file == null) {
+            return;
+        }
+        Snapshot snapshot = new Snapshot();
+        snapshot.entries.addAll(entries.values());
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                gson.toJson(snapshot, writer);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to save result cache " + file + ": " + e.getMessage());
+        }
+    }
+}
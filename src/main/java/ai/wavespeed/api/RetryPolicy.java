@@ -0,0 +1,31 @@
+package ai.wavespeed.api;
+
+/**
+ * Decides whether and when a failed request or task attempt is retried.
+ *
+ * <p>The client consults the policy for result-query GETs (bounded by
+ * {@code maxConnectionRetries}) and for task-level retries (bounded by
+ * {@code maxRetries}). Submission POSTs are never retried regardless of the
+ * policy. The default is {@link DecorrelatedJitterRetryPolicy}.</p>
+ */
+public interface RetryPolicy {
+
+    /**
+     * Decide whether a failed attempt is worth retrying.
+     *
+     * @param error The failure
+     * @param attempt Number of attempts made so far (1 after the first failure)
+     * @return True if another attempt should be made
+     */
+    boolean shouldRetry(Exception error, int attempt);
+
+    /**
+     * Compute the delay before the next attempt.
+     *
+     * @param attempt Number of attempts made so far (1 after the first failure)
+     * @param previousDelay Delay used before the previous retry in seconds (0 before the first retry)
+     * @param error The failure
+     * @return Delay in seconds
+     */
+    double nextDelay(int attempt, double previousDelay, Exception error);
+}
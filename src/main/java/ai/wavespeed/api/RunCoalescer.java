@@ -0,0 +1,209 @@
+package ai.wavespeed.api;
+
+import ai.wavespeed.WavespeedException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent identical runs into one prediction.
+ *
+ * <p>While a run is in flight, further runs of the same model with the same
+ * input (compared like the {@link ResultCache} does) do not submit their own
+ * prediction: they wait for the one in flight and receive its outputs, or its
+ * failure. Runs that finish later start a new prediction.</p>
+ *
+ * <p>Each caller keeps its own deadline and can be cancelled on its own; the
+ * shared prediction is cancelled only when every caller waiting for it has
+ * given up.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * RunCoalescer coalescer = new RunCoalescer();
+ * client.setRunCoalescer(coalescer);
+ * // ... under load
+ * System.out.println(coalescer.getCollapsedCount() + " runs shared a prediction");
+ * }</pre>
+ */
+public class RunCoalescer {
+    private final Map<String, Flight> flights = new HashMap<>();
+    private final AtomicLong flightCount = new AtomicLong();
+    private final AtomicLong collapsedCount = new AtomicLong();
+
+    /**
+     * One shared prediction and the callers waiting for it.
+     */
+    private static final class Flight {
+        final Operation operation;
+        final CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+        int waiters = 1;
+
+        Flight(Operation operation) {
+            this.operation = operation;
+        }
+    }
+
+    /**
+     * Get the number of predictions started on behalf of coalesced runs.
+     *
+     * @return Predictions started
+     */
+    public long getFlightCount() {
+        return flightCount.get();
+    }
+
+    /**
+     * Get the number of runs that joined a prediction already in flight
+     * instead of submitting their own.
+     *
+     * @return Runs collapsed into another
+     */
+    public long getCollapsedCount() {
+        return collapsedCount.get();
+    }
+
+    /**
+     * Get the number of predictions currently in flight.
+     *
+     * @return Predictions in flight
+     */
+    public synchronized int getInFlightCount() {
+        return flights.size();
+    }
+
+    /**
+     * Run a prediction, or join the identical one in flight.
+     *
+     * @param key Identity of the run
+     * @param op Operation of the caller: its deadline and cancellation apply to this caller only
+     * @param task Runs the prediction under the shared operation
+     * @param executor Executor running the shared prediction
+     * @param abandon Called with the shared operation, after it is cancelled, when every caller gave up
+     * @return A fresh output map
+     */
+    Map<String, Object> run(
+            String key,
+            Operation op,
+            Function<Operation, Map<String, Object>> task,
+            Executor executor,
+            Consumer<Operation> abandon
+    ) {
+        Flight flight;
+        boolean leader = false;
+        synchronized (this) {
+            flight = flights.get(key);
+            if (flight != null) {
+                flight.waiters++;
+                collapsedCount.incrementAndGet();
+            } else {
+                // The shared prediction ends when its last caller stops waiting, not at a deadline of its own.
+                flight = new Flight(new Operation(Deadline.none()).schedule(op.getPriority(), op.getTenant()));
+                flights.put(key, flight);
+                flightCount.incrementAndGet();
+                leader = true;
+            }
+        }
+        if (leader) {
+            start(key, flight, task, executor);
+        }
+        return await(key, flight, op, abandon);
+    }
+
+    private void start(
+            String key,
+            Flight flight,
+            Function<Operation, Map<String, Object>> task,
+            Executor executor
+    ) {
+        executor.execute(() -> {
+            Map<String, Object> output = null;
+            RuntimeException error = null;
+            try {
+                output = task.apply(flight.operation);
+            } catch (RuntimeException e) {
+                error = flight.operation.isCancelled() ? flight.operation.cancelledError() : e;
+            }
+            // Removed before the callers are released, so that a run they start next is not joined to it.
+            synchronized (this) {
+                flights.remove(key, flight);
+            }
+            if (error != null) {
+                flight.future.completeExceptionally(error);
+            } else {
+                flight.future.complete(output);
+            }
+        });
+    }
+
+    private Map<String, Object> await(String key, Flight flight, Operation op, Consumer<Operation> abandon) {
+        Deadline deadline = op.getDeadline();
+        CompletableFuture<Map<String, Object>> mine = new CompletableFuture<>();
+        flight.future.whenComplete((output, error) -> {
+            if (error != null) {
+                mine.completeExceptionally(error);
+            } else {
+                mine.complete(output);
+            }
+        });
+        Runnable onCancel = () -> mine.completeExceptionally(op.cancelledError());
+        op.onCancel(onCancel);
+        try {
+            Map<String, Object> output = deadline.isBounded()
+                    ? mine.get((long) Math.ceil(deadline.remaining() * 1000), TimeUnit.MILLISECONDS)
+                    : mine.get();
+            return copy(output);
+        } catch (TimeoutException e) {
+            leave(key, flight, abandon);
+            throw Client.deadlineExceeded(deadline, flight.operation.getTaskId());
+        } catch (InterruptedException e) {
+            leave(key, flight, abandon);
+            Thread.currentThread().interrupt();
+            throw new WavespeedException("Interrupted while waiting for the prediction", e);
+        } catch (ExecutionException e) {
+            if (op.isCancelled()) {
+                leave(key, flight, abandon);
+                throw op.cancelledError();
+            }
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new WavespeedException(
+                    "Prediction failed", cause);
+        } finally {
+            op.removeOnCancel(onCancel);
+        }
+    }
+
+    /**
+     * Stop waiting for a flight, cancelling it if nobody else waits.
+     */
+    private void leave(String key, Flight flight, Consumer<Operation> abandon) {
+        synchronized (this) {
+            if (--flight.waiters > 0 || flight.future.isDone()) {
+                return;
+            }
+            // Later identical runs must not join a prediction about to be cancelled.
+            flights.remove(key, flight);
+        }
+        if (flight.operation.cancel()) {
+            abandon.accept(flight.operation);
+        }
+    }
+
+    private static Map<String, Object> copy(Map<String, Object> output) {
+        Map<String, Object> copy = new HashMap<>(output);
+        Object outputs = copy.get("outputs");
+        if (outputs instanceof List) {
+            copy.put("outputs", new ArrayList<>((List<?>) outputs));
+        }
+        return copy;
+    }
+}
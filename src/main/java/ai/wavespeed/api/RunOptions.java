@@ -0,0 +1,143 @@
+package ai.wavespeed.api;
+
+/**
+ * Options for {@link Client#runAsync(String, java.util.Map, RunOptions)} and
+ * {@link Client#attach(String, RunOptions)}.
+ *
+ * <p>Unset options fall back to the client settings, like the nullable
+ * parameters of {@link Client#run(String, java.util.Map, Double, Double, Boolean, Integer)}.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * Prediction prediction = client.runAsync(
+ *     "wavespeed-ai/z-image/turbo",
+ *     Map.of("prompt", "A cat"),
+ *     new RunOptions().setTimeout(60.0).setPollInterval(0.5)
+ * );
+ * }</pre>
+ */
+public class RunOptions {
+    private Double timeout;
+    private Deadline deadline;
+    private Double pollInterval;
+    private Boolean enableSyncMode;
+    private Integer maxRetries;
+    private Priority priority;
+    private String tenant;
+
+    /**
+     * Set the maximum time for the whole operation, including retries.
+     *
+     * <p>The clock starts when the operation starts, so options can be reused.</p>
+     *
+     * @param timeout Timeout in seconds (null = no timeout)
+     * @return These options, for chaining
+     */
+    public RunOptions setTimeout(Double timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Set an absolute deadline shared with other operations; takes precedence over the timeout.
+     *
+     * @param deadline Deadline for the whole operation (null = use the timeout)
+     * @return These options, for chaining
+     */
+    public RunOptions setDeadline(Deadline deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * Set the interval between status checks.
+     *
+     * @param pollInterval Poll interval in seconds (null = 1.0)
+     * @return These options, for chaining
+     */
+    public RunOptions setPollInterval(Double pollInterval) {
+        this.pollInterval = pollInterval;
+        return this;
+    }
+
+    /**
+     * Use synchronous mode (best-effort single request).
+     *
+     * @param enableSyncMode True to enable sync mode (null = false)
+     * @return These options, for chaining
+     */
+    public RunOptions setEnableSyncMode(Boolean enableSyncMode) {
+        this.enableSyncMode = enableSyncMode;
+        return this;
+    }
+
+    /**
+     * Set the maximum number of task-level retries.
+     *
+     * @param maxRetries Task-level retries (null = use client setting)
+     * @return These options, for chaining
+     */
+    public RunOptions setMaxRetries(Integer maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * Set the priority class used by the client's {@link SubmissionScheduler}.
+     *
+     * @param priority Priority class (null = NORMAL)
+     * @return These options, for chaining
+     */
+    public RunOptions setPriority(Priority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Set the tenant (or tag) whose fair share of capacity this prediction uses.
+     *
+     * @param tenant Tenant name (null = {@link SubmissionScheduler#DEFAULT_TENANT})
+     * @return These options, for chaining
+     */
+    public RunOptions setTenant(String tenant) {
+        this.tenant = tenant;
+        return this;
+    }
+
+    public Double getTimeout() { return timeout; }
+    public Deadline getDeadline() { return deadline; }
+    public Double getPollInterval() { return pollInterval; }
+    public Boolean getEnableSyncMode() { return enableSyncMode; }
+    public Integer getMaxRetries() { return maxRetries; }
+    public Priority getPriority() { return priority; }
+    public String getTenant() { return tenant; }
+
+    /**
+     * Resolve the deadline for an operation starting now.
+     *
+     * @return The explicit deadline, one derived from the timeout, or none
+     */
+    Deadline resolveDeadline() {
+        if (deadline != null) {
+            return deadline;
+        }
+        return timeout != null ? Deadline.after(timeout) : Deadline.none();
+    }
+
+    /**
+     * Create the operation state for a run starting now.
+     *
+     * @return Operation with the resolved deadline and scheduling class
+     */
+    Operation newOperation() {
+        return new Operation(resolveDeadline()).schedule(priority, tenant);
+    }
+
+    double resolvePollInterval() {
+        return pollInterval != null ? pollInterval : 1.0;
+    }
+
+    boolean resolveSyncMode() {
+        return enableSyncMode != null && enableSyncMode;
+    }
+}
@@ -0,0 +1,346 @@
+package ai.wavespeed.api;
+
+import ai.wavespeed.WavespeedRejectedException;
+import ai.wavespeed.WavespeedTimeoutException;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scheduler deciding which queued prediction is submitted next.
+ *
+ * <p>At most {@code maxConcurrent} predictions run at once; a slot is held from
+ * submission until the task finishes, because that is what the account's
+ * concurrency quota counts. Waiting predictions are served by {@link Priority}
+ * class first, so interactive work always jumps ahead of bulk work. Within a
+ * class, tenants share the capacity by weighted fair queueing (start-time fair
+ * queueing), so one tenant's backlog cannot starve another tenant.</p>
+ *
+ * <p>The queue is bounded. When it is full, a new prediction evicts the most
+ * recently queued prediction of a lower class, or is rejected with
+ * {@link WavespeedRejectedException} if there is none.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * SubmissionScheduler scheduler = new SubmissionScheduler(8, 100)
+ *     .setTenantWeight("checkout", 3.0);
+ * client.setSubmissionScheduler(scheduler);
+ *
+ * client.runAsync(model, input, new RunOptions().setPriority(Priority.BULK).setTenant("backfill"));
+ * }</pre>
+ */
+public class SubmissionScheduler {
+    /**
+     * Tenant of predictions that do not name one.
+     */
+    public static final String DEFAULT_TENANT = "default";
+
+    private enum State { WAITING, GRANTED, REJECTED }
+
+    private static final class Entry {
+        final Priority priority;
+        final String tenant;
+        final double startTag;
+        final long sequence;
+        State state = State.WAITING;
+
+        Entry(Priority priority, String tenant, double startTag, long sequence) {
+            this.priority = priority;
+            this.tenant = tenant;
+            this.startTag = startTag;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Waiting entries of one priority class with their fair-queueing clock.
+     */
+    private static final class Lane {
+        final PriorityQueue<Entry> queue = new PriorityQueue<>(
+                Comparator.<Entry>comparingDouble(e -> e.startTag).thenComparingLong(e -> e.sequence)
+        );
+        final Map<String, Double> lastFinishTag = new HashMap<>();
+        double virtualTime;
+    }
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Map<String, Double> tenantWeights = new ConcurrentHashMap<>();
+    private final Map<Priority, Lane> lanes = new EnumMap<>(Priority.class);
+    private int active;
+    private int queued;
+    private long sequence;
+    private long rejectedCount;
+
+    /**
+     * Create a scheduler.
+     *
+     * @param maxConcurrent Maximum predictions running at once
+     * @param maxQueued Maximum predictions waiting for a slot (0 = reject when all slots are busy)
+     */
+    public SubmissionScheduler(int maxConcurrent, int maxQueued) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("maxQueued must not be negative");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        for (Priority priority : Priority.values()) {
+            lanes.put(priority, new Lane());
+        }
+    }
+
+    /**
+     * Set the share of capacity a tenant gets relative to other tenants of the same class.
+     *
+     * @param tenant Tenant name
+     * @param weight Relative weight (default 1.0)
+     * @return This scheduler, for chaining
+     */
+    public SubmissionScheduler setTenantWeight(String tenant, double weight) {
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("weight must be positive");
+        }
+        tenantWeights.put(tenant, weight);
+        return this;
+    }
+
+    /**
+     * Slot held by a running prediction; closing it lets the next one start.
+     */
+    final class Permit implements AutoCloseable {
+        private boolean released;
+
+        @Override
+        public void close() {
+            synchronized (SubmissionScheduler.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                active--;
+                dispatch();
+            }
+        }
+    }
+
+    /**
+     * Wait for a slot for an operation.
+     *
+     * @param op Operation that wants to submit; its deadline bounds the wait
+     * @param priority Priority class
+     * @param tenant Tenant name (null = {@link #DEFAULT_TENANT})
+     * @return Permit to close once the task has finished
+     * @throws WavespeedRejectedException if the queue is full or the entry is evicted
+     * @throws WavespeedTimeoutException if the deadline passes while waiting
+     * @throws ai.wavespeed.WavespeedCancelledException if the operation is cancelled while waiting
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    Permit acquire(Operation op, Priority priority, String tenant) throws InterruptedException {
+        String name = tenant != null ? tenant : DEFAULT_TENANT;
+        Entry entry;
+        synchronized (this) {
+            op.checkCancelled();
+            if (active < maxConcurrent) {
+                active++;
+                return new Permit();
+            }
+            if (queued >= maxQueued && !evictLowerThan(priority)) {
+                rejectedCount++;
+                throw new WavespeedRejectedException(
+                        "Submission queue full (" + maxQueued + " waiting); " +
+                                priority.name().toLowerCase() + " prediction rejected"
+                );
+            }
+            entry = enqueue(priority, name);
+        }
+
+        Runnable wakeUp = () -> {
+            synchronized (this) {
+                notifyAll();
+            }
+        };
+        op.onCancel(wakeUp);
+        try {
+            synchronized (this) {
+                while (entry.state == State.WAITING) {
+                    if (op.isCancelled()) {
+                        remove(entry);
+                        throw op.cancelledError();
+                    }
+                    Deadline deadline = op.getDeadline();
+                    if (deadline.isExpired()) {
+                        remove(entry);
+                        throw new WavespeedTimeoutException(
+                                "Operation timed out after " + deadline.getTimeout() +
+                                        " seconds waiting for a submission slot", null
+                        );
+                    }
+                    double remaining = deadline.remaining();
+                    wait(deadline.isBounded() ? Math.max(1L, (long) Math.ceil(remaining * 1000)) : 0L);
+                }
+                if (entry.state == State.REJECTED) {
+                    throw new WavespeedRejectedException(
+                            "Queued " + priority.name().toLowerCase() +
+                                    " prediction evicted by higher-priority work"
+                    );
+                }
+                return new Permit();
+            }
+        } catch (InterruptedException e) {
+            synchronized (this) {
+                if (entry.state == State.GRANTED) {
+                    new Permit().close();
+                } else {
+                    remove(entry);
+                }
+            }
+            throw e;
+        } finally {
+            op.removeOnCancel(wakeUp);
+        }
+    }
+
+    /**
+     * Take a slot if one is free now, without queueing.
+     *
+     * <p>Used for optional extra work, such as a hedged duplicate of a slow
+     * task, that is skipped rather than queued when the scheduler is busy.</p>
+     *
+     * @return Permit to close once the task has finished, or null if no slot is free
+     */
+    synchronized Permit tryAcquire() {
+        if (active >= maxConcurrent) {
+            return null;
+        }
+        active++;
+        return new Permit();
+    }
+
+    private Entry enqueue(Priority priority, String tenant) {
+        Lane lane = lanes.get(priority);
+        double weight = tenantWeights.getOrDefault(tenant, 1.0);
+        double start = Math.max(lane.virtualTime, lane.lastFinishTag.getOrDefault(tenant, 0.0));
+        lane.lastFinishTag.put(tenant, start + 1.0 / weight);
+        Entry entry = new Entry(priority, tenant, start, sequence++);
+        lane.queue.add(entry);
+        queued++;
+        return entry;
+    }
+
+    private void remove(Entry entry) {
+        if (entry.state == State.WAITING && lanes.get(entry.priority).queue.remove(entry)) {
+            queued--;
+            resetIfIdle(lanes.get(entry.priority));
+        }
+    }
+
+    /**
+     * Evict the most recently queued entry of the lowest class below the given priority.
+     *
+     * @return True if an entry was evicted
+     */
+    private boolean evictLowerThan(Priority priority) {
+        Priority[] classes = Priority.values();
+        for (int i = classes.length - 1; i > priority.ordinal(); i--) {
+            Lane lane = lanes.get(classes[i]);
+            Entry newest = null;
+            for (Entry e : lane.queue) {
+                if (newest == null || e.sequence > newest.sequence) {
+                    newest = e;
+                }
+            }
+            if (newest != null) {
+                lane.queue.remove(newest);
+                queued--;
+                newest.state = State.REJECTED;
+                rejectedCount++;
+                resetIfIdle(lane);
+                notifyAll();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hand free slots to waiting entries, highest class first.
+     */
+    private void dispatch() {
+        boolean granted = false;
+        for (Priority priority : Priority.values()) {
+            Lane lane = lanes.get(priority);
+            while (active < maxConcurrent && !lane.queue.isEmpty()) {
+                Entry next = lane.queue.poll();
+                lane.virtualTime = next.startTag;
+                next.state = State.GRANTED;
+                queued--;
+                active++;
+                granted = true;
+            }
+            resetIfIdle(lane);
+        }
+        if (granted) {
+            notifyAll();
+        }
+    }
+
+    private static void resetIfIdle(Lane lane) {
+        // Fair-queueing tags only matter while tenants compete.
+        if (lane.queue.isEmpty()) {
+            lane.lastFinishTag.clear();
+            lane.virtualTime = 0.0;
+        }
+    }
+
+    /**
+     * Get the number of running predictions.
+     *
+     * @return Predictions currently holding a slot
+     */
+    public synchronized int getActiveCount() {
+        return active;
+    }
+
+    /**
+     * Get the number of predictions waiting for a slot.
+     *
+     * @return Queued predictions across all classes
+     */
+    public synchronized int getQueuedCount() {
+        return queued;
+    }
+
+    /**
+     * Get the number of predictions of one class waiting for a slot.
+     *
+     * @param priority Priority class
+     * @return Queued predictions of that class
+     */
+    public synchronized int getQueuedCount(Priority priority) {
+        return lanes.get(priority).queue.size();
+    }
+
+    /**
+     * Get the number of predictions rejected or evicted by admission control.
+     *
+     * @return Rejected predictions since the scheduler was created
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+}
@@ -0,0 +1,90 @@
+package ai.wavespeed.api;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A status change of a task, as seen by the client.
+ *
+ * <p>Published by {@link Client#getTaskEvents()} and
+ * {@link Client#getTaskEvents(String)} when a submission creates a task and
+ * whenever a poll or webhook reports a status different from the last one.</p>
+ */
+public class TaskEvent {
+    private final String taskId;
+    private final String model;
+    private final String status;
+    private final String previousStatus;
+    private final List<Object> outputs;
+    private final String error;
+    private final Instant timestamp;
+
+    TaskEvent(String taskId, String model, String status, String previousStatus, List<Object> outputs, String error) {
+        this.taskId = taskId;
+        this.model = model;
+        this.status = status;
+        this.previousStatus = previousStatus;
+        this.outputs = outputs;
+        this.error = error;
+        this.timestamp = Instant.now();
+    }
+
+    public String getTaskId() { return taskId; }
+
+    /**
+     * Get the model of the task.
+     *
+     * @return Model identifier, or null if the task was not submitted by this client
+     */
+    public String getModel() { return model; }
+
+    /**
+     * Get the new status.
+     *
+     * @return Status, e.g. "created", "processing", "completed" or "failed"
+     */
+    public String getStatus() { return status; }
+
+    /**
+     * Get the status before this change.
+     *
+     * @return Previous status, or null for the first event of the task
+     */
+    public String getPreviousStatus() { return previousStatus; }
+
+    /**
+     * Get the outputs of a completed task.
+     *
+     * @return Outputs, or null before completion
+     */
+    public List<Object> getOutputs() { return outputs; }
+
+    /**
+     * Get the error of a failed task.
+     *
+     * @return Error message, or null
+     */
+    public String getError() { return error; }
+
+    /**
+     * Get when the client saw the change.
+     *
+     * @return Time of the event
+     */
+    public Instant getTimestamp() { return timestamp; }
+
+    /**
+     * Whether the task reached a final status; no further events follow for it.
+     *
+     * @return True for completed, failed, cancelled and timeout
+     */
+    public boolean isTerminal() {
+        return Client.isTerminalStatus(status);
+    }
+
+    @Override
+    public String toString() {
+        return "TaskEvent{taskId=" + taskId + ", status=" + previousStatus + " -> " + status +
+                (error != null ? ", error=" + error : "") + "}";
+    }
+}
@@ -0,0 +1,237 @@
+package ai.wavespeed.api;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Fans task status changes out to subscribers.
+ *
+ * <p>The hub remembers the last status of recent tasks, so a change is
+ * published once however many polls report it, and a subscriber to one task
+ * first receives the task's current status (it usually subscribes after the
+ * task was created).</p>
+ *
+ * <p>Pollers never wait for subscribers: each subscription buffers up to
+ * {@link #BUFFER_CAPACITY} events and delivers them on the client executor
+ * as its subscriber requests them. When a slow subscriber's buffer is full,
+ * its oldest non-final event is dropped; final events are always delivered.</p>
+ */
+final class TaskEventHub {
+    static final int BUFFER_CAPACITY = 256;
+    private static final int MAX_TRACKED_TASKS = 1000;
+
+    private final Executor executor;
+    private final Map<String, TaskEvent> latest = new LinkedHashMap<String, TaskEvent>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TaskEvent> eldest) {
+            return size() > MAX_TRACKED_TASKS;
+        }
+    };
+    private final List<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    TaskEventHub(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Publish the status of a task if it changed.
+     *
+     * @param taskId Task ID
+     * @param model Model of the task (null = as previously seen)
+     * @param data Prediction data from a submission, poll or webhook
+     */
+    @SuppressWarnings("unchecked")
+    void publish(String taskId, String model, Map<String, Object> data) {
+        if (taskId == null) {
+            return;
+        }
+        Object statusValue = data != null ? data.get("status") : null;
+        String status = statusValue instanceof String ? (String) statusValue : "created";
+        TaskEvent event;
+        synchronized (latest) {
+            TaskEvent previous = latest.get(taskId);
+            if (previous != null && status.equals(previous.getStatus())) {
+                return;
+            }
+            Object outputs = "completed".equals(status) ? data.get("outputs") : null;
+            Object error = data != null ? data.get("error") : null;
+            event = new TaskEvent(
+                    taskId,
+                    model != null ? model : previous != null ? previous.getModel() : null,
+                    status,
+                    previous != null ? previous.getStatus() : null,
+                    outputs instanceof List ? (List<Object>) outputs : null,
+                    error instanceof String && !((String) error).isEmpty() ? (String) error : null
+            );
+            latest.put(taskId, event);
+        }
+        for (EventSubscription subscription : subscriptions) {
+            if (subscription.taskId == null || subscription.taskId.equals(taskId)) {
+                subscription.offer(event);
+            }
+        }
+    }
+
+    /**
+     * Get a publisher of the events of every task; it never completes.
+     *
+     * @return Publisher
+     */
+    Flow.Publisher<TaskEvent> publisher() {
+        return subscriber -> subscribe(subscriber, null);
+    }
+
+    /**
+     * Get a publisher of the events of one task, completing after its final status.
+     *
+     * @param taskId Task ID
+     * @return Publisher
+     */
+    Flow.Publisher<TaskEvent> publisher(String taskId) {
+        return subscriber -> subscribe(subscriber, taskId);
+    }
+
+    private void subscribe(Flow.Subscriber<? super TaskEvent> subscriber, String taskId) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        EventSubscription subscription = new EventSubscription(subscriber, taskId);
+        subscriber.onSubscribe(subscription);
+        // Under the lock, so that the replayed status cannot overtake a newer one.
+        synchronized (latest) {
+            subscriptions.add(subscription);
+            TaskEvent current = taskId != null ? latest.get(taskId) : null;
+            if (current != null) {
+                subscription.offer(current);
+            }
+        }
+    }
+
+    /**
+     * Buffer and demand of one subscriber. Signals are delivered by at most
+     * one drain task at a time, so they never overlap.
+     */
+    private final class EventSubscription implements Flow.Subscription {
+        final Flow.Subscriber<? super TaskEvent> subscriber;
+        final String taskId;
+        private final ArrayDeque<TaskEvent> buffer = new ArrayDeque<>();
+        private long demand;
+        private boolean done;
+        private boolean completing;
+        private Throwable error;
+        private boolean draining;
+        private TaskEvent lastOffered;
+
+        EventSubscription(Flow.Subscriber<? super TaskEvent> subscriber, String taskId) {
+            this.subscriber = subscriber;
+            this.taskId = taskId;
+        }
+
+        void offer(TaskEvent event) {
+            synchronized (this) {
+                // The replayed status may also arrive from publish().
+                if (done || completing || event == lastOffered) {
+                    return;
+                }
+                lastOffered = event;
+                if (buffer.size() >= BUFFER_CAPACITY) {
+                    for (Iterator<TaskEvent> it = buffer.iterator(); it.hasNext(); ) {
+                        if (!it.next().isTerminal()) {
+                            it.remove();
+                            break;
+                        }
+                    }
+                }
+                buffer.add(event);
+                if (taskId != null && event.isTerminal()) {
+                    completing = true;
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                if (n <= 0) {
+                    error = new IllegalArgumentException("request must be positive (Reactive Streams rule 3.9): " + n);
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                done = true;
+                buffer.clear();
+            }
+            subscriptions.remove(this);
+        }
+
+        private void schedule() {
+            synchronized (this) {
+                if (draining || done) {
+                    return;
+                }
+                draining = true;
+            }
+            executor.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                TaskEvent next = null;
+                Throwable failure = null;
+                boolean complete = false;
+                synchronized (this) {
+                    if (done) {
+                        draining = false;
+                        return;
+                    }
+                    if (error != null) {
+                        failure = error;
+                        done = true;
+                    } else if (demand > 0 && !buffer.isEmpty()) {
+                        next = buffer.poll();
+                        if (demand != Long.MAX_VALUE) {
+                            demand--;
+                        }
+                    } else if (buffer.isEmpty() && completing) {
+                        complete = true;
+                        done = true;
+                    } else {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    if (next != null) {
+                        subscriber.onNext(next);
+                        continue;
+                    }
+                    subscriptions.remove(this);
+                    if (failure != null) {
+                        subscriber.onError(failure);
+                    } else if (complete) {
+                        subscriber.onComplete();
+                    }
+                } catch (RuntimeException e) {
+                    // A subscriber that throws is considered cancelled (rule 2.13).
+                    System.out.println("Task event subscriber failed, cancelling it: " + e);
+                    cancel();
+                }
+            }
+        }
+    }
+}
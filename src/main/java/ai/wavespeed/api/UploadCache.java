@@ -0,0 +1,336 @@
+package ai.wavespeed.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed cache of uploaded files.
+ *
+ * <p>Files are identified by the SHA-256 of their content, so the same image
+ * uploaded from different paths (or by different processes sharing a
+ * persistence file) is uploaded once. When a file's path, size and
+ * modification time match a file hashed before, the stored hash is reused
+ * without reading the file again.</p>
+ *
+ * <p>Download URLs are kept for a limited time ({@link #setTtl(double)}) and
+ * the least recently used entries are evicted beyond {@link #setMaxEntries(int)}.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * client.setUploadCache(new UploadCache()
+ *     .setTtl(6 * 3600)
+ *     .setPersistenceFile(Paths.get(".wavespeed-uploads.json")));
+ * }</pre>
+ */
+public class UploadCache {
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+    private static final double DEFAULT_TTL = 6 * 3600.0;
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private final Gson gson = new Gson();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, FileHash> hashesByFile = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private double ttl = DEFAULT_TTL;
+    private Path persistenceFile;
+
+    /**
+     * Cached upload: the download URL of some content and when it expires.
+     */
+    private static final class Entry {
+        @SerializedName("sha256")
+        String hash;
+        @SerializedName("download_url")
+        String url;
+        @SerializedName("expires_at")
+        long expiresAt;
+    }
+
+    /**
+     * Hash of a file as it was on disk.
+     */
+    private static final class FileHash {
+        String path;
+        long size;
+        @SerializedName("modified_at")
+        long modifiedAt;
+        @SerializedName("sha256")
+        String hash;
+
+        String fingerprint() {
+            return path + "|" + size + "|" + modifiedAt;
+        }
+    }
+
+    /**
+     * On-disk format of the persistence file.
+     */
+    private static final class Snapshot {
+        int version = 1;
+        List<Entry> entries = new ArrayList<>();
+        List<FileHash> files = new ArrayList<>();
+    }
+
+    /**
+     * Set the maximum number of cached uploads.
+     *
+     * @param maxEntries Maximum entries (default 10000)
+     * @return This cache, for chaining
+     */
+    public synchronized UploadCache setMaxEntries(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        evict();
+        return this;
+    }
+
+    /**
+     * Set how long a download URL is reused after the upload.
+     *
+     * @param seconds Time to live in seconds (default 6 hours)
+     * @return This cache, for chaining
+     */
+    public synchronized UploadCache setTtl(double seconds) {
+        if (seconds <= 0) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        this.ttl = seconds;
+        return this;
+    }
+
+    /**
+     * Persist the cache to a local file, loading the entries it already holds.
+     *
+     * <p>The file is rewritten after every new upload. An unreadable file is
+     * ignored and replaced.</p>
+     *
+     * @param file Persistence file (null = memory only)
+     * @return This cache, for chaining
+     */
+    public synchronized UploadCache setPersistenceFile(Path file) {
+        this.persistenceFile = file;
+        if (file != null && Files.exists(file)) {
+            load(file);
+        }
+        return this;
+    }
+
+    public synchronized Path getPersistenceFile() {
+        return persistenceFile;
+    }
+
+    /**
+     * Get the number of uploads skipped because the content was cached.
+     *
+     * @return Cache hits
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of uploads that were not found in the cache.
+     *
+     * @return Cache misses
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Get the number of cached uploads, expired ones included until they are evicted.
+     *
+     * @return Number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Remove all entries, including the persisted ones.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        hashesByFile.clear();
+        save();
+    }
+
+    /**
+     * Get the content hash of a file, reusing the stored hash while the file is unchanged.
+     *
+     * @param file File to hash
+     * @return Hex SHA-256 of the content
+     * @throws IOException if the file cannot be read
+     */
+    String hash(Path file) throws IOException {
+        FileHash current = new FileHash();
+        current.path = file.toAbsolutePath().toString();
+        current.size = Files.size(file);
+        current.modifiedAt = Files.getLastModifiedTime(file).toMillis();
+        synchronized (this) {
+            FileHash known = hashesByFile.get(current.fingerprint());
+            if (known != null) {
+                return known.hash;
+            }
+        }
+        current.hash = sha256(file);
+        synchronized (this) {
+            hashesByFile.put(current.fingerprint(), current);
+            evict();
+        }
+        return current.hash;
+    }
+
+    /**
+     * Look up the download URL of previously uploaded content.
+     *
+     * @param hash Content hash from {@link #hash(Path)}
+     * @return Download URL, or null if unknown or expired
+     */
+    synchronized String get(String hash) {
+        Entry entry = entries.get(hash);
+        if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+            hits.incrementAndGet();
+            return entry.url;
+        }
+        if (entry != null) {
+            entries.remove(hash);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Remember the download URL of uploaded content.
+     *
+     * @param hash Content hash from {@link #hash(Path)}
+     * @param url Download URL returned by the upload
+     */
+    synchronized void put(String hash, String url) {
+        Entry entry = new Entry();
+        entry.hash = hash;
+        entry.url = url;
+        entry.expiresAt = System.currentTimeMillis() + (long) (ttl * 1000);
+        entries.put(hash, entry);
+        evict();
+        save();
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest = sha256Digest();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return hex(digest);
+    }
+
+    /**
+     * Hash content held in memory.
+     *
+     * @param data Content; its remaining bytes are consumed
+     * @return Hex SHA-256 of the content
+     */
+    static String sha256(ByteBuffer data) {
+        MessageDigest digest = sha256Digest();
+        digest.update(data);
+        return hex(digest);
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String hex(MessageDigest digest) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private void evict() {
+        while (entries.size() > maxEntries) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+        while (hashesByFile.size() > maxEntries) {
+            hashesByFile.remove(hashesByFile.keySet().iterator().next());
+        }
+    }
+
+    private void load(Path file) {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Snapshot snapshot = gson.fromJson(reader, Snapshot.class);
+            if (snapshot == null || snapshot.entries == null || snapshot.files == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            for (Entry entry : snapshot.entries) {
+                if (entry.hash != null && entry.url != null && entry.expiresAt > now) {
+                    entries.put(entry.hash, entry);
+                }
+            }
+            for (FileHash known : snapshot.files) {
+                if (known.path != null && known.hash != null) {
+                    hashesByFile.put(known.fingerprint(), known);
+                }
+            }
+            evict();
+        } catch (IOException | JsonParseException e) {
+            System.out.println("Ignoring unreadable upload cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void save() {
+        Path file = persistenceFile;
+        if (file == null) {
+            return;
+        }
+        Snapshot snapshot = new Snapshot();
+        snapshot.entries.addAll(entries.values());
+        snapshot.files.addAll(hashesByFile.values());
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                gson.toJson(snapshot, writer);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to persist upload cache " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ai.wavespeed.api;
+
+import ai.wavespeed.Config;
+
+/**
+ * Options for an upload.
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * String url = client.upload("/path/to/video.mp4", new UploadOptions()
+ *     .setBandwidthLimit(5_000_000)
+ *     .setProgressListener((sent, total, rate) ->
+ *         System.out.printf("%d/%d bytes, %.0f B/s%n", sent, total, rate)));
+ * }</pre>
+ */
+public class UploadOptions {
+    private Double timeout;
+    private Deadline deadline;
+    private long bandwidthLimit;
+    private UploadProgressListener progressListener;
+
+    /**
+     * Set the total time for creating the upload and transferring the content.
+     *
+     * @param timeout Timeout in seconds (null = Config.api.timeout)
+     * @return These options, for chaining
+     */
+    public UploadOptions setTimeout(Double timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Set an absolute deadline shared with other operations; takes precedence over the timeout.
+     *
+     * @param deadline Deadline for the upload (null = use the timeout)
+     * @return These options, for chaining
+     */
+    public UploadOptions setDeadline(Deadline deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * Cap the transfer rate of this upload. The client-wide cap set with
+     * {@link Client#setUploadBandwidthLimit(long)} applies as well.
+     *
+     * @param bytesPerSecond Maximum rate in bytes per second (0 = unlimited)
+     * @return These options, for chaining
+     */
+    public UploadOptions setBandwidthLimit(long bytesPerSecond) {
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException("bytesPerSecond must not be negative");
+        }
+        this.bandwidthLimit = bytesPerSecond;
+        return this;
+    }
+
+    /**
+     * Set a callback receiving transfer progress.
+     *
+     * @param listener Progress listener (null = none)
+     * @return These options, for chaining
+     */
+    public UploadOptions setProgressListener(UploadProgressListener listener) {
+        this.progressListener = listener;
+        return this;
+    }
+
+    public Double getTimeout() { return timeout; }
+    public Deadline getDeadline() { return deadline; }
+    public long getBandwidthLimit() { return bandwidthLimit; }
+    public UploadProgressListener getProgressListener() { return progressListener; }
+
+    /**
+     * Resolve the deadline for an upload starting now.
+     *
+     * @return The explicit deadline, or one derived from the timeout
+     */
+    Deadline resolveDeadline() {
+        if (deadline != null) {
+            return deadline;
+        }
+        return Deadline.after(timeout != null ? timeout : Config.api.timeout);
+    }
+}
@@ -0,0 +1,22 @@
+package ai.wavespeed.api;
+
+/**
+ * Receives progress of an upload's file transfer.
+ *
+ * <p>Called from the thread writing the request body, after each block of a
+ * few kilobytes; implementations should return quickly. For chunked uploads
+ * the counts cover all parts, and bytes of a part that is retried are not
+ * counted twice.</p>
+ */
+@FunctionalInterface
+public interface UploadProgressListener {
+
+    /**
+     * Report transfer progress.
+     *
+     * @param bytesSent Bytes transferred so far
+     * @param totalBytes Size of the content
+     * @param bytesPerSecond Average throughput since the transfer started
+     */
+    void onProgress(long bytesSent, long totalBytes, double bytesPerSecond);
+}
@@ -0,0 +1,294 @@
+package ai.wavespeed.api;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Content of an upload: a file, bytes in memory, or a stream of known length.
+ *
+ * <p>Every source streams its content straight into the request body:
+ * files through {@link java.nio.channels.FileChannel#transferTo}, buffers
+ * through read-only views, streams through a one-shot body. Nothing is copied
+ * into an intermediate full-size buffer.</p>
+ */
+abstract class UploadSource {
+    private final String filename;
+    private final long size;
+
+    UploadSource(String filename, long size) {
+        this.filename = filename;
+        this.size = size;
+    }
+
+    static UploadSource of(Path file) {
+        return new FileSource(file);
+    }
+
+    static UploadSource of(ByteBuffer data, String filename) {
+        return new BufferSource(data, filename);
+    }
+
+    static UploadSource of(InputStream in, long length, String filename) {
+        return new StreamSource(in, length, filename);
+    }
+
+    String getFilename() {
+        return filename;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * Check that the content can be read before any request is sent.
+     *
+     * @throws IllegalArgumentException if the content is missing
+     */
+    void checkReadable() {
+    }
+
+    String probeContentType() {
+        return URLConnection.guessContentTypeFromName(filename);
+    }
+
+    /**
+     * Open the content for reading, e.g. to decode an image before it is sent.
+     *
+     * @return Stream over the whole content, or null if it can only be read once, by the upload
+     * @throws IOException if the content cannot be read
+     */
+    InputStream openStream() throws IOException {
+        return null;
+    }
+
+    /**
+     * Get a body sending the whole content.
+     *
+     * @param type Content type
+     * @return Request body
+     */
+    abstract RequestBody body(MediaType type);
+
+    /**
+     * Get a body sending one byte range, for multipart uploads.
+     *
+     * @param offset First byte
+     * @param length Number of bytes
+     * @param type Content type
+     * @return Request body, or null if the source cannot be split
+     */
+    RequestBody range(long offset, long length, MediaType type) {
+        return null;
+    }
+
+    /**
+     * Get the SHA-256 of the content for the upload cache.
+     *
+     * @param cache Upload cache
+     * @return Hex hash, or null if the content cannot be hashed without consuming it
+     * @throws IOException if the content cannot be read
+     */
+    abstract String contentHash(UploadCache cache) throws IOException;
+
+    /**
+     * Get the key under which an interrupted multipart upload of this content is resumed.
+     *
+     * @return Key, or null if the content is not identifiable across calls
+     */
+    String resumeKey() {
+        return null;
+    }
+
+    /**
+     * File on disk, streamed with FileChannel.transferTo.
+     */
+    private static final class FileSource extends UploadSource {
+        private final Path file;
+
+        FileSource(Path file) {
+            super(file.getFileName() != null ? file.getFileName().toString() : file.toString(), sizeOf(file));
+            this.file = file;
+        }
+
+        private static long sizeOf(Path file) {
+            try {
+                return Files.size(file);
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+
+        @Override
+        void checkReadable() {
+            if (!Files.exists(file)) {
+                throw new IllegalArgumentException("File not found: " + file);
+            }
+        }
+
+        @Override
+        String probeContentType() {
+            try {
+                String type = Files.probeContentType(file);
+                return type != null ? type : super.probeContentType();
+            } catch (IOException ignored) {
+                return super.probeContentType();
+            }
+        }
+
+        @Override
+        InputStream openStream() throws IOException {
+            return Files.newInputStream(file);
+        }
+
+        @Override
+        RequestBody body(MediaType type) {
+            return new FileRangeBody(file, 0, getSize(), type);
+        }
+
+        @Override
+        RequestBody range(long offset, long length, MediaType type) {
+            return new FileRangeBody(file, offset, length, type);
+        }
+
+        @Override
+        String contentHash(UploadCache cache) throws IOException {
+            return cache.hash(file);
+        }
+
+        @Override
+        String resumeKey() {
+            try {
+                return file.toAbsolutePath() + "|" + getSize() + "|" + Files.getLastModifiedTime(file).toMillis();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Bytes in memory, sent from read-only views of the caller's buffer.
+     */
+    private static final class BufferSource extends UploadSource {
+        private final ByteBuffer data;
+
+        BufferSource(ByteBuffer data, String filename) {
+            super(filename, data.remaining());
+            this.data = data.asReadOnlyBuffer();
+        }
+
+        @Override
+        InputStream openStream() {
+            ByteBuffer view = data.duplicate();
+            return new InputStream() {
+                @Override
+                public int read() {
+                    return view.hasRemaining() ? view.get() & 0xFF : -1;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (!view.hasRemaining()) {
+                        return len == 0 ? 0 : -1;
+                    }
+                    int n = Math.min(len, view.remaining());
+                    view.get(b, off, n);
+                    return n;
+                }
+
+                @Override
+                public int available() {
+                    return view.remaining();
+                }
+            };
+        }
+
+        @Override
+        RequestBody body(MediaType type) {
+            return range(0, getSize(), type);
+        }
+
+        @Override
+        RequestBody range(long offset, long length, MediaType type) {
+            return new RequestBody() {
+                @Override
+                public MediaType contentType() {
+                    return type;
+                }
+
+                @Override
+                public long contentLength() {
+                    return length;
+                }
+
+                @Override
+                public void writeTo(BufferedSink sink) throws IOException {
+                    ByteBuffer view = data.duplicate();
+                    view.position(view.position() + (int) offset);
+                    view.limit(view.position() + (int) length);
+                    while (view.hasRemaining()) {
+                        sink.write(view);
+                    }
+                }
+            };
+        }
+
+        @Override
+        String contentHash(UploadCache cache) {
+            return UploadCache.sha256(data.duplicate());
+        }
+    }
+
+    /**
+     * Stream of known length, readable once: neither split, retried nor cached.
+     */
+    private static final class StreamSource extends UploadSource {
+        private final InputStream in;
+
+        StreamSource(InputStream in, long length, String filename) {
+            super(filename, length);
+            this.in = in;
+        }
+
+        @Override
+        RequestBody body(MediaType type) {
+            return new RequestBody() {
+                @Override
+                public MediaType contentType() {
+                    return type;
+                }
+
+                @Override
+                public long contentLength() {
+                    return getSize();
+                }
+
+                @Override
+                public boolean isOneShot() {
+                    return true;
+                }
+
+                @Override
+                public void writeTo(BufferedSink sink) throws IOException {
+                    Source source = Okio.source(in);
+                    sink.write(source, getSize());
+                }
+            };
+        }
+
+        @Override
+        String contentHash(UploadCache cache) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ai.wavespeed.api;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throttling and progress reporting for the content transfer of one upload.
+ *
+ * <p>Request bodies are wrapped so that their bytes pass through a sink that
+ * writes at most {@value #BLOCK_SIZE} bytes at a time, takes tokens for each
+ * block from every bandwidth limiter (the client-wide one and the upload's
+ * own), and reports the running total to the progress listener. The parts of
+ * a chunked upload share one transfer, so limits and progress cover the whole
+ * upload; a body written again on retry first takes back what it counted
+ * before.</p>
+ */
+final class UploadTransfer {
+    /**
+     * Largest block written between two throttling and progress steps.
+     */
+    static final int BLOCK_SIZE = 16 * 1024;
+
+    private final List<BandwidthLimiter> limiters = new ArrayList<>();
+    private final UploadProgressListener listener;
+    private final Operation op;
+    private volatile long totalBytes;
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong startNanos = new AtomicLong();
+    private final long blockSize;
+
+    UploadTransfer(BandwidthLimiter clientLimiter, UploadOptions options, Operation op) {
+        if (clientLimiter != null) {
+            limiters.add(clientLimiter);
+        }
+        if (options != null && options.getBandwidthLimit() > 0) {
+            limiters.add(new BandwidthLimiter(options.getBandwidthLimit()));
+        }
+        this.listener = options != null ? options.getProgressListener() : null;
+        this.op = op;
+        // Slow limits get smaller blocks, so that writes stay smooth and progress stays fresh.
+        long block = BLOCK_SIZE;
+        for (BandwidthLimiter limiter : limiters) {
+            block = Math.min(block, Math.max(1, limiter.getBytesPerSecond() / 10));
+        }
+        this.blockSize = block;
+    }
+
+    /**
+     * Set the size of the content reported with the progress.
+     *
+     * @param totalBytes Bytes to transfer
+     */
+    void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * Wrap a request body sending (part of) the upload's content.
+     *
+     * @param body Body to wrap
+     * @return The body itself if neither throttling nor progress is needed, else a wrapping body
+     */
+    RequestBody wrap(RequestBody body) {
+        if (limiters.isEmpty() && listener == null) {
+            return body;
+        }
+        return new RequestBody() {
+            private final AtomicLong counted = new AtomicLong();
+
+            @Override
+            public MediaType contentType() {
+                return body.contentType();
+            }
+
+            @Override
+            public long contentLength() throws IOException {
+                return body.contentLength();
+            }
+
+            @Override
+            public boolean isOneShot() {
+                return body.isOneShot();
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                bytesSent.addAndGet(-counted.getAndSet(0));
+                startNanos.compareAndSet(0, System.nanoTime());
+                BufferedSink throttled = Okio.buffer(new ForwardingSink(sink) {
+                    @Override
+                    public void write(Buffer source, long byteCount) throws IOException {
+                        while (byteCount > 0) {
+                            long block = Math.min(byteCount, blockSize);
+                            for (BandwidthLimiter limiter : limiters) {
+                                limiter.acquire(block, op);
+                            }
+                            super.write(source, block);
+                            byteCount -= block;
+                            counted.addAndGet(block);
+                            sent(block);
+                        }
+                    }
+                });
+                body.writeTo(throttled);
+                throttled.emit();
+            }
+        };
+    }
+
+    private void sent(long bytes) {
+        long now = System.nanoTime();
+        long sent = bytesSent.addAndGet(bytes);
+        if (listener != null) {
+            double seconds = (now - startNanos.get()) / 1e9;
+            listener.onProgress(sent, totalBytes, seconds > 0 ? sent / seconds : 0.0);
+        }
+    }
+}
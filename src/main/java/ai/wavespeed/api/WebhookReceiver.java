@@ -0,0 +1,277 @@
+package ai.wavespeed.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded HTTP listener receiving prediction completion callbacks.
+ *
+ * <p>When a receiver is installed with {@link Client#setWebhookReceiver}, every
+ * submission passes the receiver URL as {@code webhook} and waiting predictions
+ * complete as soon as the callback arrives. Result polls are kept only as a slow
+ * safety net (every {@link #getFallbackPollInterval()} seconds) in case a
+ * callback is lost.</p>
+ *
+ * <p>The listener is built on the JDK's {@code com.sun.net.httpserver} and starts
+ * when the receiver is created. Its path contains a random token so that
+ * callbacks cannot easily be forged by third parties. The URL must be reachable
+ * by the WaveSpeed API; pass the public URL if the listener sits behind a proxy
+ * or NAT.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * WebhookReceiver receiver = new WebhookReceiver(
+ *     new InetSocketAddress(8080), "https://hooks.example.com");
+ * client.setWebhookReceiver(receiver);
+ * }</pre>
+ */
+public class WebhookReceiver implements Closeable {
+    /**
+     * Number of recent callbacks kept for waiters that register after the callback arrived.
+     */
+    private static final int RECENT_CALLBACKS = 1024;
+
+    private static final double DEFAULT_FALLBACK_POLL_INTERVAL = 30.0;
+
+    private final HttpServer server;
+    private final String path;
+    private final String url;
+    private final Gson gson = new Gson();
+    private final Map<String, List<CompletableFuture<Map<String, Object>>>> waiters = new HashMap<>();
+    private final Map<String, Map<String, Object>> recent = new LinkedHashMap<String, Map<String, Object>>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<String, Object>> eldest) {
+            return size() > RECENT_CALLBACKS;
+        }
+    };
+    private final AtomicLong callbackCount = new AtomicLong();
+    private volatile double fallbackPollInterval = DEFAULT_FALLBACK_POLL_INTERVAL;
+
+    /**
+     * Start a receiver on all interfaces, advertising a localhost URL.
+     *
+     * @param port Port to listen on (0 = any free port)
+     * @throws IOException if the port cannot be bound
+     */
+    public WebhookReceiver(int port) throws IOException {
+        this(new InetSocketAddress(port), null);
+    }
+
+    /**
+     * Start a receiver.
+     *
+     * @param address Address to listen on
+     * @param publicBaseUrl Base URL under which the API reaches this listener
+     *        (null = http://localhost:&lt;port&gt;)
+     * @throws IOException if the address cannot be bound
+     */
+    public WebhookReceiver(InetSocketAddress address, String publicBaseUrl) throws IOException {
+        byte[] token = new byte[16];
+        new SecureRandom().nextBytes(token);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : token) {
+            hex.append(String.format("%02x", b));
+        }
+        this.path = "/wavespeed/webhook/" + hex;
+
+        this.server = HttpServer.create(address, 0);
+        this.server.createContext(path, this::handle);
+        this.server.start();
+
+        String base = publicBaseUrl != null
+                ? publicBaseUrl.replaceAll("/$", "")
+                : "http://localhost:" + server.getAddress().getPort();
+        this.url = base + path;
+    }
+
+    /**
+     * Set how often waiting predictions still poll in case a callback is lost.
+     *
+     * @param seconds Poll interval in seconds (default 30)
+     * @return This receiver, for chaining
+     */
+    public WebhookReceiver setFallbackPollInterval(double seconds) {
+        if (!(seconds > 0)) {
+            throw new IllegalArgumentException("seconds must be positive");
+        }
+        this.fallbackPollInterval = seconds;
+        return this;
+    }
+
+    public double getFallbackPollInterval() {
+        return fallbackPollInterval;
+    }
+
+    /**
+     * Get the URL passed to the API as webhook.
+     *
+     * @return Callback URL
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Get the port the listener is bound to.
+     *
+     * @return Local port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Get the number of completion callbacks received.
+     *
+     * @return Callbacks accepted since the receiver started
+     */
+    public long getCallbackCount() {
+        return callbackCount.get();
+    }
+
+    /**
+     * Stop the listener. Waiting predictions fall back to polling.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                respond(exchange, 405);
+                return;
+            }
+            if (!path.equals(exchange.getRequestURI().getPath())) {
+                respond(exchange, 404);
+                return;
+            }
+            Map<String, Object> data;
+            try {
+                data = parse(readBody(exchange.getRequestBody()));
+            } catch (JsonParseException | ClassCastException e) {
+                respond(exchange, 400);
+                return;
+            }
+            if (data == null || !(data.get("id") instanceof String)) {
+                respond(exchange, 400);
+                return;
+            }
+            if (Client.isTerminalStatus((String) data.get("status"))) {
+                callbackCount.incrementAndGet();
+                deliver((String) data.get("id"), data);
+            }
+            respond(exchange, 200);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Parse a callback body: the prediction object, optionally wrapped in "data".
+     */
+    private Map<String, Object> parse(String body) {
+        Map<String, Object> payload = gson.fromJson(body, new TypeToken<Map<String, Object>>() {}.getType());
+        if (payload != null && payload.get("data") instanceof Map) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> data = (Map<String, Object>) payload.get("data");
+            return data;
+        }
+        return payload;
+    }
+
+    private void deliver(String taskId, Map<String, Object> data) {
+        List<CompletableFuture<Map<String, Object>>> pending;
+        synchronized (this) {
+            recent.put(taskId, data);
+            pending = waiters.remove(taskId);
+        }
+        if (pending != null) {
+            for (CompletableFuture<Map<String, Object>> waiter : pending) {
+                waiter.complete(data);
+            }
+        }
+    }
+
+    /**
+     * Wait for the completion callback of a task.
+     *
+     * @param taskId Task to wait for
+     * @param op Operation waiting; its cancellation ends the wait
+     * @param seconds Maximum time to wait in seconds
+     * @return The prediction data of a finished task, or null if no callback arrived in time
+     * @throws InterruptedException if the thread is interrupted
+     * @throws ai.wavespeed.WavespeedCancelledException if the operation is cancelled
+     */
+    Map<String, Object> await(String taskId, Operation op, double seconds) throws InterruptedException {
+        CompletableFuture<Map<String, Object>> waiter = new CompletableFuture<>();
+        synchronized (this) {
+            Map<String, Object> data = recent.get(taskId);
+            if (data != null) {
+                return data;
+            }
+            waiters.computeIfAbsent(taskId, key -> new CopyOnWriteArrayList<>()).add(waiter);
+        }
+
+        Runnable wakeUp = () -> waiter.complete(null);
+        op.onCancel(wakeUp);
+        Map<String, Object> data;
+        try {
+            data = waiter.get((long) (seconds * 1_000_000_000L), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            data = null;
+        } finally {
+            op.removeOnCancel(wakeUp);
+            synchronized (this) {
+                List<CompletableFuture<Map<String, Object>>> pending = waiters.get(taskId);
+                if (pending != null) {
+                    pending.remove(waiter);
+                    if (pending.isEmpty()) {
+                        waiters.remove(taskId);
+                    }
+                }
+            }
+        }
+        op.checkCancelled();
+        return data;
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+        OutputStream body = exchange.getResponseBody();
+        body.close();
+    }
+}
@@ -0,0 +1,127 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.ApiKey;
+import ai.wavespeed.api.ApiKeyPool;
+import ai.wavespeed.api.Client;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for spreading predictions across a pool of API keys.
+ */
+class ApiKeyPoolTest {
+    private static final String MODEL = "wavespeed-ai/z-image/turbo";
+
+    /**
+     * Stand-in API that remembers which key created each task and only serves
+     * results to that key. Keys listed in {@code throttled} get HTTP 429 on submit.
+     */
+    private static class KeyedApi extends Dispatcher {
+        final Map<String, String> owners = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> submissions = new ConcurrentHashMap<>();
+        final AtomicInteger ids = new AtomicInteger();
+        volatile String throttled = "";
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            String auth = request.getHeader("Authorization");
+            String path = request.getPath();
+            if (path.endsWith("/result")) {
+                String id = path.split("/")[4];
+                if (!auth.equals(owners.get(id))) {
+                    return new MockResponse().setResponseCode(403).setBody("task " + id + " belongs to another account");
+                }
+                return new MockResponse().setResponseCode(200)
+                        .setBody("{\"data\": {\"id\": \"" + id + "\", \"status\": \"completed\", \"outputs\": [\"ok\"]}}");
+            }
+            if (auth.equals("Bearer " + throttled)) {
+                return new MockResponse().setResponseCode(429).setHeader("Retry-After", "30").setBody("rate limited");
+            }
+            submissions.computeIfAbsent(auth, k -> new AtomicInteger()).incrementAndGet();
+            String id = "task-" + ids.incrementAndGet();
+            owners.put(id, auth);
+            return new MockResponse().setResponseCode(200).setBody("{\"data\": {\"id\": \"" + id + "\"}}");
+        }
+    }
+
+    @Test
+    void testTasksSpreadAndPollsReuseSubmittingKey() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            KeyedApi api = new KeyedApi();
+            server.setDispatcher(api);
+            server.start();
+
+            ApiKeyPool pool = new ApiKeyPool()
+                    .addKey("key-of-account-one")
+                    .addKey("key-of-account-two");
+            Client client = new Client(null, server.url("/").toString(), null, 0, 0, 0.01)
+                    .setApiKeyPool(pool);
+
+            for (int i = 0; i < 20; i++) {
+                assertEquals(List.of("ok"),
+                        client.run(MODEL, Map.of("prompt", "test"), 10.0, 0.01, null, null).get("outputs"));
+            }
+
+            // A poll with the wrong key would have been rejected with 403.
+            assertEquals(2, api.submissions.size(), "tasks were not spread: " + api.submissions);
+            for (ApiKey key : pool.getKeys()) {
+                assertEquals(0, key.getInFlight());
+                assertTrue(key.getRequestCount() > 0);
+            }
+        }
+    }
+
+    @Test
+    void testThrottledSubmissionMovesToAnotherKey() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            KeyedApi api = new KeyedApi();
+            api.throttled = "key-of-account-one";
+            server.setDispatcher(api);
+            server.start();
+
+            ApiKeyPool pool = new ApiKeyPool()
+                    .addKey("key-of-account-one")
+                    .addKey("key-of-account-two");
+            Client client = new Client(null, server.url("/").toString(), null, 0, 0, 0.01)
+                    .setApiKeyPool(pool);
+
+            for (int i = 0; i < 10; i++) {
+                client.run(MODEL, Map.of("prompt", "test"), 10.0, 0.01, null, null);
+            }
+
+            // The first key is throttled at most once, then cools down for the Retry-After.
+            ApiKey first = pool.getKeys().get(0);
+            assertTrue(first.getThrottledCount() <= 1);
+            assertEquals(10, api.submissions.get("Bearer key-of-account-two").get());
+            if (first.getThrottledCount() == 1) {
+                assertTrue(first.isCoolingDown());
+                assertTrue(first.getCooldownRemaining() > 20);
+            }
+        }
+    }
+
+    @Test
+    void testMaskedKeyAndRateBudget() {
+        ApiKeyPool pool = new ApiKeyPool()
+                .addKey("abcd-secret-wxyz", 5.0)
+                .addKey("short");
+
+        assertEquals("abcd...wxyz", pool.getKeys().get(0).getMaskedKey());
+        assertEquals("****", pool.getKeys().get(1).getMaskedKey());
+        assertFalse(pool.getKeys().get(0).toString().contains("secret"));
+        assertEquals(5.0, pool.getKeys().get(0).getRequestsPerSecond());
+        assertThrows(IllegalArgumentException.class, () -> pool.addKey(""));
+        assertThrows(IllegalArgumentException.class,
+                () -> new Client("test-key").setApiKeyPool(new ApiKeyPool()));
+    }
+}
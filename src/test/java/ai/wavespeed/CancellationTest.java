@@ -0,0 +1,122 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.CircuitBreaker;
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.Prediction;
+import ai.wavespeed.api.RunOptions;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for cancelling predictions started with runAsync() or attach().
+ */
+class CancellationTest {
+    private static final String PROCESSING = "{\"data\": {\"id\": \"req-1\", \"status\": \"processing\"}}";
+
+    /**
+     * Stand-in for the API keeping every task processing.
+     */
+    private static class ProcessingApi extends FakeApi {
+        @Override
+        String status(String id) {
+            return "processing";
+        }
+    }
+
+    private static void awaitTaskId(Prediction prediction) throws InterruptedException {
+        for (int i = 0; i < 500 && prediction.getTaskId() == null; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals("req-1", prediction.getTaskId());
+    }
+
+    @Test
+    void testCancelStopsPollingAndCancelsTask() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            ProcessingApi api = new ProcessingApi();
+            server.setDispatcher(api);
+            server.start();
+
+            Client client = FakeApi.client(server);
+            Prediction prediction = client.runAsync("wavespeed-ai/z-image/turbo", Map.of("prompt", "test"),
+                    new RunOptions().setPollInterval(30.0));
+            awaitTaskId(prediction);
+            // Let the first poll finish so the run is sleeping until the next one.
+            Thread.sleep(200);
+
+            long start = System.currentTimeMillis();
+            assertTrue(prediction.cancel());
+            WavespeedCancelledException error = assertThrows(WavespeedCancelledException.class, prediction::get);
+            assertTrue(System.currentTimeMillis() - start < 2000, "cancel did not wake up the poll sleep");
+
+            assertEquals("req-1", error.getTaskId());
+            assertTrue(prediction.isCancelled());
+            assertTrue(prediction.isDone());
+            assertEquals("req-1", api.cancelled.poll(5, TimeUnit.SECONDS));
+            assertFalse(prediction.cancel());
+        }
+    }
+
+    @Test
+    void testCancelAbortsInFlightPoll() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            ProcessingApi api = new ProcessingApi();
+            api.resultDelayMs = 10_000;
+            server.setDispatcher(api);
+            server.start();
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 3, 0.01);
+            Prediction prediction = client.runAsync("wavespeed-ai/z-image/turbo", Map.of("prompt", "test"));
+            awaitTaskId(prediction);
+            Thread.sleep(200);
+
+            long start = System.currentTimeMillis();
+            prediction.toCompletableFuture().cancel(true);
+            assertThrows(WavespeedCancelledException.class, prediction::get);
+            assertTrue(System.currentTimeMillis() - start < 2000, "in-flight poll was not aborted");
+            assertEquals("req-1", api.cancelled.poll(5, TimeUnit.SECONDS));
+
+            // The aborted poll was neither retried nor counted against the endpoint.
+            CircuitBreaker breaker = client.getCircuitBreakers().get("result " + server.url("/").toString()
+                    .replaceAll("/$", ""));
+            assertEquals(0, breaker.getConsecutiveFailures());
+        }
+    }
+
+    @Test
+    void testAttachCompletesExistingTask() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setResponseCode(200).setBody(PROCESSING));
+            server.enqueue(new MockResponse().setResponseCode(200).setBody(
+                    "{\"data\": {\"id\": \"req-1\", \"status\": \"completed\", \"outputs\": [\"u\"]}}"));
+
+            Client client = FakeApi.client(server);
+            Prediction prediction = client.attach("req-1", new RunOptions().setPollInterval(0.01));
+
+            assertEquals(List.of("u"), prediction.get(10.0).get("outputs"));
+            assertEquals("/api/v3/predictions/req-1/result", server.takeRequest().getPath());
+        }
+    }
+
+    @Test
+    void testCancelReportsUnsupportedEndpoint() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setResponseCode(404).setBody("not found"));
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"code\": 200}"));
+
+            Client client = FakeApi.client(server);
+            assertFalse(client.cancel("req-1"));
+            assertTrue(client.cancel("req-2"));
+            assertEquals("POST", server.takeRequest().getMethod());
+        }
+    }
+}
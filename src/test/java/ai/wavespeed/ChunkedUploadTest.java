@@ -0,0 +1,252 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import com.google.gson.Gson;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for chunked, parallel, resumable uploads.
+ */
+class ChunkedUploadTest {
+    private static final int PART_SIZE = 1024;
+
+    /**
+     * Stand-in for the upload API and storage speaking the multipart protocol:
+     * the ticket lists one URL per part, parts are stored as they arrive, and
+     * completion assembles them in ETag order.
+     */
+    private static class MultipartStorage extends Dispatcher {
+        final String baseUrl;
+        final boolean multipart;
+        final AtomicInteger tickets = new AtomicInteger();
+        final AtomicInteger partRequests = new AtomicInteger();
+        final AtomicInteger concurrentParts = new AtomicInteger();
+        final AtomicInteger maxConcurrentParts = new AtomicInteger();
+        final Map<Integer, byte[]> parts = new ConcurrentHashMap<>();
+        final Map<Integer, AtomicInteger> failuresLeft = new ConcurrentHashMap<>();
+        volatile long partDelayMs;
+        volatile byte[] assembled;
+        volatile byte[] singlePut;
+
+        MultipartStorage(String baseUrl, boolean multipart) {
+            this.baseUrl = baseUrl;
+            this.multipart = multipart;
+        }
+
+        void failPart(int part, int times) {
+            failuresLeft.put(part, new AtomicInteger(times));
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            String path = request.getPath();
+            if (path.equals("/api/v3/media/uploads")) {
+                return ticket(request);
+            }
+            if (path.startsWith("/parts/")) {
+                partRequests.incrementAndGet();
+                int part = Integer.parseInt(path.substring(path.lastIndexOf('/') + 1));
+                AtomicInteger failures = failuresLeft.get(part);
+                if (failures != null && failures.getAndDecrement() > 0) {
+                    return new MockResponse().setResponseCode(503).setHeader("Retry-After", "0.01");
+                }
+                maxConcurrentParts.accumulateAndGet(concurrentParts.incrementAndGet(), Math::max);
+                Thread.sleep(partDelayMs);
+                concurrentParts.decrementAndGet();
+                parts.put(part, request.getBody().readByteArray());
+                return new MockResponse().setResponseCode(200).setHeader("ETag", "\"etag-" + part + "\"");
+            }
+            if (path.equals("/complete")) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> body = new Gson().fromJson(request.getBody().readUtf8(), Map.class);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                for (Object item : (List<?>) body.get("parts")) {
+                    Map<?, ?> part = (Map<?, ?>) item;
+                    int number = ((Number) part.get("part_number")).intValue();
+                    assertEquals("\"etag-" + number + "\"", part.get("etag"));
+                    out.write(parts.get(number), 0, parts.get(number).length);
+                }
+                assembled = out.toByteArray();
+                return new MockResponse().setResponseCode(200).setBody("{\"code\":200}");
+            }
+            singlePut = request.getBody().readByteArray();
+            return new MockResponse().setResponseCode(200);
+        }
+
+        private MockResponse ticket(RecordedRequest request) {
+            tickets.incrementAndGet();
+            Map<?, ?> body = new Gson().fromJson(request.getBody().readUtf8(), Map.class);
+            StringBuilder upload = new StringBuilder("{\"method\":\"PUT\",\"url\":\"" + baseUrl + "single\"");
+            Map<?, ?> requested = (Map<?, ?>) body.get("multipart");
+            if (multipart && requested != null) {
+                long size = ((Number) body.get("size")).longValue();
+                long partSize = ((Number) requested.get("part_size")).longValue();
+                List<String> urls = new ArrayList<>();
+                for (int n = 1; n <= (size + partSize - 1) / partSize; n++) {
+                    urls.add("{\"part_number\":" + n + ",\"url\":\"" + baseUrl + "parts/up-1/" + n + "\"}");
+                }
+                upload.append(",\"multipart\":{\"upload_id\":\"up-1\",\"part_size\":").append(partSize)
+                        .append(",\"complete_url\":\"").append(baseUrl).append("complete\",\"parts\":[")
+                        .append(String.join(",", urls)).append("]}");
+            }
+            upload.append("}");
+            return new MockResponse().setResponseCode(200).setBody(
+                    "{\"code\":200,\"data\":{\"download_url\":\"https://cdn.example.com/video.mp4\",\"upload\":" + upload + "}}");
+        }
+    }
+
+    private static byte[] writeVideo(Path file, int size) throws Exception {
+        byte[] content = new byte[size];
+        new Random(7).nextBytes(content);
+        Files.write(file, content);
+        return content;
+    }
+
+    @Test
+    void testPartsAreUploadedInParallelAndAssembled(@TempDir Path tempDir) throws Exception {
+        Path video = tempDir.resolve("video.mp4");
+        byte[] content = writeVideo(video, PART_SIZE * 7 + 100);
+
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            MultipartStorage storage = new MultipartStorage(server.url("/").toString(), true);
+            storage.partDelayMs = 100;
+            server.setDispatcher(storage);
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setChunkedUpload(PART_SIZE, 4);
+            assertEquals("https://cdn.example.com/video.mp4", client.upload(video.toString()));
+
+            assertEquals(8, storage.parts.size());
+            assertEquals(4, storage.maxConcurrentParts.get());
+            assertArrayEquals(content, storage.assembled);
+            assertNull(storage.singlePut);
+        }
+    }
+
+    @Test
+    void testBusyExecutorDoesNotStallParts(@TempDir Path tempDir) throws Exception {
+        Path video = tempDir.resolve("video.mp4");
+        byte[] content = writeVideo(video, PART_SIZE * 7 + 100);
+
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            MultipartStorage storage = new MultipartStorage(server.url("/").toString(), true);
+            storage.partDelayMs = 50;
+            server.setDispatcher(storage);
+            // The only executor thread is taken, as by a prediction waiting for this upload.
+            ExecutorService executor = Executors.newFixedThreadPool(1);
+            CountDownLatch release = new CountDownLatch(1);
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                    // Shutting down.
+                }
+            });
+            try {
+                Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                        .setChunkedUpload(PART_SIZE, 4)
+                        .setExecutor(executor);
+                assertEquals("https://cdn.example.com/video.mp4", CompletableFuture.supplyAsync(
+                        () -> client.upload(video.toString())).get(10, TimeUnit.SECONDS));
+
+                assertEquals(4, storage.maxConcurrentParts.get());
+                assertArrayEquals(content, storage.assembled);
+            } finally {
+                release.countDown();
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    void testFailedPartIsRetried(@TempDir Path tempDir) throws Exception {
+        Path video = tempDir.resolve("video.mp4");
+        byte[] content = writeVideo(video, PART_SIZE * 3);
+
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            MultipartStorage storage = new MultipartStorage(server.url("/").toString(), true);
+            storage.failPart(2, 2);
+            server.setDispatcher(storage);
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 3, 0.01)
+                    .setChunkedUpload(PART_SIZE, 2);
+            client.upload(video.toString());
+
+            // Only part 2 was sent again; the other parts went through once.
+            assertEquals(5, storage.partRequests.get());
+            assertArrayEquals(content, storage.assembled);
+        }
+    }
+
+    @Test
+    void testInterruptedUploadResumesFromCommittedParts(@TempDir Path tempDir) throws Exception {
+        Path video = tempDir.resolve("video.mp4");
+        byte[] content = writeVideo(video, PART_SIZE * 4);
+
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            MultipartStorage storage = new MultipartStorage(server.url("/").toString(), true);
+            storage.failPart(4, 1);
+            server.setDispatcher(storage);
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setChunkedUpload(PART_SIZE, 1);
+            WavespeedHttpException error = assertThrows(WavespeedHttpException.class,
+                    () -> client.upload(video.toString()));
+            assertEquals(503, error.getStatusCode());
+            assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(new TreeSet<>(storage.parts.keySet())));
+            assertNull(storage.assembled);
+
+            client.upload(video.toString());
+            assertEquals(1, storage.tickets.get());
+            assertEquals(5, storage.partRequests.get());
+            assertArrayEquals(content, storage.assembled);
+        }
+    }
+
+    @Test
+    void testServerWithoutMultipartGetsSinglePut(@TempDir Path tempDir) throws Exception {
+        Path video = tempDir.resolve("video.mp4");
+        byte[] content = writeVideo(video, PART_SIZE * 3);
+
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            MultipartStorage storage = new MultipartStorage(server.url("/").toString(), false);
+            server.setDispatcher(storage);
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setChunkedUpload(PART_SIZE, 4);
+            client.upload(video.toString());
+
+            assertEquals(0, storage.partRequests.get());
+            assertArrayEquals(content, storage.singlePut);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.CircuitBreaker;
+import ai.wavespeed.api.Client;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the per-endpoint circuit breaker.
+ */
+class CircuitBreakerTest {
+
+    @Test
+    void testOpensAfterThresholdAndProbesAfterOpenDuration() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("result test", 2, 0.1);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.getRejectedCount());
+
+        Thread.sleep(150);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        // Only one probe at a time while half-open.
+        assertFalse(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    void testFailedProbeReopens() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("submit test", 1, 0.05);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        Thread.sleep(80);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.getRemainingOpenTime() > 0);
+    }
+
+    @Test
+    void testClientFailsFastWhileOpen() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setResponseCode(503).setBody("unavailable"));
+            server.enqueue(new MockResponse().setResponseCode(503).setBody("unavailable"));
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setCircuitBreaker(2, 60.0);
+
+            for (int i = 0; i < 2; i++) {
+                assertThrows(WavespeedSubmissionException.class, () -> client.run(
+                        "wavespeed-ai/z-image/turbo", Map.of("prompt", "test"), null, null, true, null));
+            }
+
+            WavespeedCircuitOpenException error = assertThrows(
+                    WavespeedCircuitOpenException.class,
+                    () -> client.run("wavespeed-ai/z-image/turbo", Map.of("prompt", "test"),
+                            null, null, true, null)
+            );
+            assertTrue(error.getRetryAfter() > 0);
+            assertEquals(2, server.getRequestCount());
+
+            CircuitBreaker breaker = client.getCircuitBreakers()
+                    .get("submit " + server.url("/").toString().replaceAll("/$", ""));
+            assertNotNull(breaker);
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        }
+    }
+
+    @Test
+    void testClientErrorsDoNotOpenBreaker() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            for (int i = 0; i < 3; i++) {
+                server.enqueue(new MockResponse().setResponseCode(400).setBody("bad input"));
+            }
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setCircuitBreaker(2, 60.0);
+
+            for (int i = 0; i < 3; i++) {
+                assertThrows(WavespeedSubmissionException.class, () -> client.run(
+                        "wavespeed-ai/z-image/turbo", Map.of("prompt", "test"), null, null, true, null));
+            }
+            assertEquals(3, server.getRequestCount());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.Deadline;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for end-to-end deadline propagation.
+ */
+class DeadlineTest {
+
+    @Test
+    void testClampAndExpiry() throws Exception {
+        Deadline deadline = Deadline.after(0.2);
+        assertTrue(deadline.isBounded());
+        assertTrue(deadline.clamp(10.0) <= 0.2);
+        assertEquals(0.05, deadline.clamp(0.05));
+        Thread.sleep(250);
+        assertTrue(deadline.isExpired());
+        assertEquals(0.0, deadline.remaining());
+
+        assertFalse(Deadline.none().isExpired());
+        assertEquals(Double.POSITIVE_INFINITY, Deadline.none().remaining());
+    }
+
+    @Test
+    void testEarliest() {
+        Deadline soon = Deadline.after(1.0);
+        Deadline later = Deadline.after(100.0);
+        assertSame(soon, soon.earliest(later));
+        assertSame(soon, later.earliest(soon));
+        assertSame(soon, Deadline.none().earliest(soon));
+        assertSame(soon, soon.earliest(Deadline.none()));
+    }
+
+    @Test
+    void testTimeoutBoundsStalledPollsAcrossRetries() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"data\": {\"id\": \"req-slow\"}}"));
+            for (int i = 0; i < 6; i++) {
+                server.enqueue(new MockResponse().setResponseCode(200)
+                        .setBody("{\"data\": {\"id\": \"req-slow\", \"status\": \"completed\", \"outputs\": []}}")
+                        .setHeadersDelay(5, TimeUnit.SECONDS));
+            }
+
+            // Five connection retries: without a shared deadline each stalled
+            // poll would get the full timeout again.
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 5, 0.01);
+
+            long start = System.currentTimeMillis();
+            WavespeedTimeoutException error = assertThrows(WavespeedTimeoutException.class, () ->
+                    client.run("wavespeed-ai/z-image/turbo", Map.of("prompt", "test"), 1.0, 0.01, null, null));
+            long elapsedMs = System.currentTimeMillis() - start;
+
+            assertTrue(elapsedMs < 2500, "deadline not enforced; took " + elapsedMs + "ms");
+            assertEquals("req-slow", error.getTaskId());
+            assertTrue(error.getMessage().contains("req-slow"));
+        }
+    }
+
+    @Test
+    void testSharedDeadlineAlreadyExpired() {
+        Client client = new Client("test-key", "http://127.0.0.1:1", null, 0, 0, 0.01);
+        Deadline deadline = Deadline.after(0.0);
+
+        WavespeedTimeoutException error = assertThrows(WavespeedTimeoutException.class, () ->
+                client.run("wavespeed-ai/z-image/turbo", Map.of("prompt", "test"), deadline));
+        assertNull(error.getTaskId());
+    }
+}
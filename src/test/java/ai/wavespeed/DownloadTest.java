@@ -0,0 +1,276 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.DownloadOptions;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for streaming output downloads with parallel range requests.
+ */
+class DownloadTest {
+    private static final int RANGE_SIZE = 16 * 1024;
+
+    /**
+     * Stand-in CDN serving files with range support, unless disabled.
+     */
+    private static class Cdn extends Dispatcher {
+        final Map<String, byte[]> files = new ConcurrentHashMap<>();
+        final List<String> ranges = new CopyOnWriteArrayList<>();
+        final Map<String, AtomicInteger> disconnects = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> unavailable = new ConcurrentHashMap<>();
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        volatile boolean rangesSupported = true;
+        volatile boolean sizeUnknown;
+        volatile long delayMs;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            byte[] content = files.get(request.getPath());
+            if (content == null) {
+                return new MockResponse().setResponseCode(404);
+            }
+            String range = request.getHeader("Range");
+            ranges.add(range);
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            Thread.sleep(delayMs);
+            concurrent.decrementAndGet();
+            AtomicInteger busy = unavailable.get(String.valueOf(range));
+            if (busy != null && busy.getAndDecrement() > 0) {
+                return new MockResponse().setResponseCode(503);
+            }
+            AtomicInteger failures = disconnects.get(String.valueOf(range));
+            SocketPolicy policy = failures != null && failures.getAndDecrement() > 0
+                    ? SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY : SocketPolicy.KEEP_OPEN;
+
+            if (!rangesSupported || range == null) {
+                return new MockResponse().setResponseCode(200).setBody(new Buffer().write(content))
+                        .setHeader("Content-MD5", md5(content)).setSocketPolicy(policy);
+            }
+            if (content.length == 0) {
+                return new MockResponse().setResponseCode(416).setHeader("Content-Range", "bytes */0");
+            }
+            String[] bounds = range.substring("bytes=".length()).split("-", -1);
+            int start = Integer.parseInt(bounds[0]);
+            int end = bounds[1].isEmpty() ? content.length - 1 : Math.min(Integer.parseInt(bounds[1]), content.length - 1);
+            return new MockResponse().setResponseCode(206)
+                    .setBody(new Buffer().write(Arrays.copyOfRange(content, start, end + 1)))
+                    .setHeader("Content-Range",
+                            "bytes " + start + "-" + end + "/" + (sizeUnknown ? "*" : content.length))
+                    .setHeader("ETag", "\"v1\"")
+                    .setSocketPolicy(policy);
+        }
+    }
+
+    private static String md5(byte[] content) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(content));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(5).nextBytes(content);
+        return content;
+    }
+
+    private static Client client(MockWebServer server) {
+        return new Client("test-key", server.url("/").toString(), null, 0, 3, 0.01)
+                .setParallelDownload(RANGE_SIZE, 3);
+    }
+
+    private static long partFiles(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.toString().endsWith(".part")).count();
+        }
+    }
+
+    @Test
+    void testLargeOutputIsDownloadedInParallelRanges(@TempDir Path tempDir) throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            Cdn cdn = new Cdn();
+            cdn.delayMs = 50;
+            byte[] video = content(RANGE_SIZE * 6 + 500);
+            cdn.files.put("/out/video.mp4", video);
+            server.setDispatcher(cdn);
+
+            Path target = tempDir.resolve("nested/video.mp4");
+            assertEquals(target, client(server).download(server.url("/out/video.mp4").toString(), target));
+
+            assertArrayEquals(video, Files.readAllBytes(target));
+            assertEquals(7, cdn.ranges.size());
+            assertEquals("bytes=0-16383", cdn.ranges.get(0));
+            assertEquals(3, cdn.maxConcurrent.get());
+            assertEquals(0, partFiles(target.getParent()));
+        }
+    }
+
+    @Test
+    void testInterruptedRangeResumesFromLastByte(@TempDir Path tempDir) throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            Cdn cdn = new Cdn();
+            byte[] video = content(RANGE_SIZE * 3);
+            cdn.files.put("/video.mp4", video);
+            cdn.disconnects.put("bytes=16384-32767", new AtomicInteger(1));
+            server.setDispatcher(cdn);
+
+            Path target = tempDir.resolve("video.mp4");
+            client(server).download(server.url("/video.mp4").toString(), target);
+
+            assertArrayEquals(video, Files.readAllBytes(target));
+            // Half of the range arrived before the connection dropped.
+            assertTrue(cdn.ranges.contains("bytes=24576-32767"));
+        }
+    }
+
+    @Test
+    void testRetriedFirstRangeStillLearnsTheSize(@TempDir Path tempDir) throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            Cdn cdn = new Cdn();
+            byte[] video = content(RANGE_SIZE * 4 + 10);
+            cdn.files.put("/out/video.mp4", video);
+            cdn.unavailable.put("bytes=0-16383", new AtomicInteger(1));
+            server.setDispatcher(cdn);
+
+            Path target = tempDir.resolve("video.mp4");
+            client(server).download(server.url("/out/video.mp4").toString(), target);
+
+            // The 206 answering the retry tells the total size, so the file is not cut off after one range.
+            assertEquals(video.length, Files.size(target));
+            assertArrayEquals(video, Files.readAllBytes(target));
+        }
+    }
+
+    @Test
+    void testUnknownTotalSizeFallsBackToWholeResponse(@TempDir Path tempDir) throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            Cdn cdn = new Cdn();
+            cdn.sizeUnknown = true;
+            byte[] video = content(RANGE_SIZE * 3 + 100);
+            cdn.files.put("/out/video.mp4", video);
+            server.setDispatcher(cdn);
+
+            Path target = tempDir.resolve("video.mp4");
+            client(server).download(server.url("/out/video.mp4").toString(), target);
+
+            // "bytes 0-16383/*" gives no total, so the rest is not cut off after the first range.
+            assertArrayEquals(video, Files.readAllBytes(target));
+            assertEquals(Arrays.asList("bytes=0-16383", null), cdn.ranges);
+        }
+    }
+
+    @Test
+    void testServerWithoutRangesAndChecksums(@TempDir Path tempDir) throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            Cdn cdn = new Cdn();
+            cdn.rangesSupported = false;
+            byte[] image = content(RANGE_SIZE * 2);
+            cdn.files.put("/image.png", image);
+            server.setDispatcher(cdn);
+            Client client = client(server);
+            String url = server.url("/image.png").toString();
+
+            Path target = tempDir.resolve("image.png");
+            client.download(url, target);
+            assertArrayEquals(image, Files.readAllBytes(target));
+            assertEquals(1, cdn.ranges.size());
+
+            Path other = tempDir.resolve("other.png");
+            WavespeedException error = assertThrows(WavespeedException.class,
+                    () -> client.download(url, other, new DownloadOptions().setSha256("00ff")));
+            assertTrue(error.getMessage().contains("Checksum mismatch"));
+            assertFalse(Files.exists(other));
+            assertEquals(0, partFiles(tempDir));
+        }
+    }
+
+    @Test
+    void testDownloadAllNamesFilesAfterUrls(@TempDir Path tempDir) throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            Cdn cdn = new Cdn();
+            cdn.files.put("/a/image.png", content(100));
+            cdn.files.put("/b/image.png", content(RANGE_SIZE + 1));
+            cdn.files.put("/c/video.mp4", content(0));
+            server.setDispatcher(cdn);
+
+            List<Path> paths = client(server).downloadAll(Arrays.asList(
+                    server.url("/a/image.png").toString(),
+                    server.url("/b/image.png").toString(),
+                    "A caption, not a URL",
+                    server.url("/c/video.mp4").toString()), tempDir.resolve("outputs"));
+
+            assertEquals(tempDir.resolve("outputs/image.png"), paths.get(0));
+            assertEquals(tempDir.resolve("outputs/1-image.png"), paths.get(1));
+            assertNull(paths.get(2));
+            assertArrayEquals(cdn.files.get("/b/image.png"), Files.readAllBytes(paths.get(1)));
+            assertEquals(0, Files.size(paths.get(3)));
+        }
+    }
+
+    @Test
+    void testBusyExecutorDoesNotStallRangesOrFiles(@TempDir Path tempDir) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            Cdn cdn = new Cdn();
+            cdn.files.put("/a/video.mp4", content(RANGE_SIZE * 4 + 10));
+            cdn.files.put("/b/video.mp4", content(RANGE_SIZE * 2 + 20));
+            server.setDispatcher(cdn);
+            Client client = client(server).setExecutor(executor);
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            // Ranges and files beyond the first go to helper threads, never to the occupied executor.
+            List<Path> paths = CompletableFuture.supplyAsync(() -> client.downloadAll(Arrays.asList(
+                    server.url("/a/video.mp4").toString(),
+                    server.url("/b/video.mp4").toString()), tempDir)).get(10, TimeUnit.SECONDS);
+
+            assertArrayEquals(cdn.files.get("/a/video.mp4"), Files.readAllBytes(paths.get(0)));
+            assertArrayEquals(cdn.files.get("/b/video.mp4"), Files.readAllBytes(paths.get(1)));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
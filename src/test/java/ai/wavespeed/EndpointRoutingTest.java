@@ -0,0 +1,150 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.Endpoint;
+import ai.wavespeed.api.LoadBalancing;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for routing predictions across several API endpoints.
+ */
+class EndpointRoutingTest {
+    private static final String MODEL = "wavespeed-ai/z-image/turbo";
+
+    /**
+     * Stand-in for one regional endpoint: task IDs carry the endpoint name, and
+     * results are only known to the endpoint that created the task.
+     */
+    private static class RegionalApi extends Dispatcher {
+        final String name;
+        final AtomicInteger submissions = new AtomicInteger();
+        volatile long pollDelayMs;
+        volatile int submitStatus = 200;
+
+        RegionalApi(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            String path = request.getPath();
+            if (path.endsWith("/result")) {
+                String id = path.split("/")[4];
+                if (!id.startsWith(name + "-")) {
+                    return new MockResponse().setResponseCode(404).setBody("unknown task " + id);
+                }
+                return new MockResponse().setResponseCode(200)
+                        .setBody("{\"data\": {\"id\": \"" + id + "\", \"status\": \"completed\", \"outputs\": [\"" + name + "\"]}}")
+                        .setHeadersDelay(pollDelayMs, TimeUnit.MILLISECONDS);
+            }
+            if (submitStatus != 200) {
+                return new MockResponse().setResponseCode(submitStatus).setBody("unavailable");
+            }
+            int n = submissions.incrementAndGet();
+            return new MockResponse().setResponseCode(200).setBody("{\"data\": {\"id\": \"" + name + "-" + n + "\"}}");
+        }
+    }
+
+    private static String url(MockWebServer server) {
+        return server.url("/").toString();
+    }
+
+    @Test
+    void testPollsStickToCreatingEndpoint() throws Exception {
+        try (MockWebServer a = new MockWebServer(); MockWebServer b = new MockWebServer()) {
+            RegionalApi apiA = new RegionalApi("a");
+            RegionalApi apiB = new RegionalApi("b");
+            a.setDispatcher(apiA);
+            b.setDispatcher(apiB);
+            a.start();
+            b.start();
+
+            Client client = new Client("test-key", url(a), null, 0, 0, 0.01)
+                    .setEndpoints(Arrays.asList(url(a), url(b)), LoadBalancing.LEAST_OUTSTANDING);
+
+            for (int i = 0; i < 20; i++) {
+                client.run(MODEL, Map.of("prompt", "test"), 10.0, 0.01, null, null);
+            }
+
+            // Every poll hit the endpoint that knew the task; otherwise a 404 would have failed the run.
+            assertEquals(20, apiA.submissions.get() + apiB.submissions.get());
+            assertTrue(apiA.submissions.get() > 0 && apiB.submissions.get() > 0,
+                    "tasks were not spread: " + apiA.submissions + "/" + apiB.submissions);
+            for (Endpoint endpoint : client.getEndpoints()) {
+                assertEquals(0, endpoint.getOutstanding());
+            }
+        }
+    }
+
+    @Test
+    void testEwmaPrefersFasterEndpoint() throws Exception {
+        try (MockWebServer fast = new MockWebServer(); MockWebServer slow = new MockWebServer()) {
+            RegionalApi fastApi = new RegionalApi("fast");
+            RegionalApi slowApi = new RegionalApi("slow");
+            slowApi.pollDelayMs = 300;
+            fast.setDispatcher(fastApi);
+            slow.setDispatcher(slowApi);
+            fast.start();
+            slow.start();
+
+            Client client = new Client("test-key", url(fast), null, 0, 0, 0.01)
+                    .setEndpoints(Arrays.asList(url(fast), url(slow)), LoadBalancing.EWMA_LATENCY);
+
+            for (int i = 0; i < 10; i++) {
+                client.run(MODEL, Map.of("prompt", "test"), 10.0, 0.01, null, null);
+            }
+
+            // The slow endpoint is tried once, then its measured latency keeps traffic away.
+            assertEquals(1, slowApi.submissions.get());
+            assertEquals(9, fastApi.submissions.get());
+            List<Endpoint> endpoints = client.getEndpoints();
+            assertTrue(endpoints.get(1).getEwmaLatency() > endpoints.get(0).getEwmaLatency());
+        }
+    }
+
+    @Test
+    void testUnhealthyEndpointIsEjected() throws Exception {
+        try (MockWebServer dead = new MockWebServer(); MockWebServer good = new MockWebServer()) {
+            RegionalApi deadApi = new RegionalApi("dead");
+            deadApi.submitStatus = 503;
+            RegionalApi goodApi = new RegionalApi("good");
+            dead.setDispatcher(deadApi);
+            good.setDispatcher(goodApi);
+            dead.start();
+            good.start();
+
+            Client client = new Client("test-key", url(dead), null, 0, 0, 0.01)
+                    .setCircuitBreaker(1, 60.0)
+                    .setEndpoints(Arrays.asList(url(dead), url(good)), LoadBalancing.LEAST_OUTSTANDING);
+
+            // Run until the selector happens to pick the dead endpoint once.
+            for (int i = 0; i < 50 && dead.getRequestCount() == 0; i++) {
+                try {
+                    client.run(MODEL, Map.of("prompt", "test"), 10.0, 0.01, null, null);
+                } catch (WavespeedSubmissionException e) {
+                    assertEquals(503, e.getStatusCode());
+                }
+            }
+            assertEquals(1, dead.getRequestCount());
+
+            for (int i = 0; i < 10; i++) {
+                assertEquals(List.of("good"),
+                        client.run(MODEL, Map.of("prompt", "test"), 10.0, 0.01, null, null).get("outputs"));
+            }
+            assertEquals(1, dead.getRequestCount());
+            assertEquals(1, client.getEndpoints().get(0).getFailureCount());
+        }
+    }
+}
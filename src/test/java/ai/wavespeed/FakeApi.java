@@ -0,0 +1,105 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import com.google.gson.Gson;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in for the prediction API, shared by the tests that run predictions.
+ *
+ * <p>A submission creates the task {@code req-1}, {@code req-2}, ... and every
+ * poll reports it completed with the output
+ * {@code https://cdn.example.com/<id>.png}. Tests change that by overriding
+ * {@link #taskId}, {@link #status}, {@link #outputs} and {@link #error}.
+ * Submissions and cancel requests are recorded; cancelling always succeeds.</p>
+ */
+class FakeApi extends Dispatcher {
+    private static final String API_PREFIX = "/api/v3/";
+    private static final Gson GSON = new Gson();
+
+    private final AtomicInteger ids = new AtomicInteger();
+    /** IDs of the submitted tasks, in submission order. */
+    final List<String> submitted = new CopyOnWriteArrayList<>();
+    /** IDs of the tasks a cancel request was sent for. */
+    final BlockingQueue<String> cancelled = new LinkedBlockingQueue<>();
+    volatile long resultDelayMs;
+
+    /**
+     * Create a client for the server, without retries and with a short retry interval.
+     */
+    static Client client(MockWebServer server) {
+        return new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01);
+    }
+
+    /**
+     * Get the ID of a task being submitted.
+     *
+     * @param model Model ID from the request path
+     * @param input Request body
+     */
+    String taskId(String model, Map<String, Object> input) {
+        return "req-" + ids.incrementAndGet();
+    }
+
+    /**
+     * Get the status a poll reports for a task.
+     */
+    String status(String id) {
+        return "completed";
+    }
+
+    /**
+     * Get the outputs a poll reports for a task.
+     */
+    List<String> outputs(String id) {
+        return List.of("https://cdn.example.com/" + id + ".png");
+    }
+
+    /**
+     * Get the error a poll reports for a task (null = none).
+     */
+    String error(String id) {
+        return null;
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        String path = request.getPath();
+        if (path.endsWith("/cancel")) {
+            cancelled.add(path.split("/")[4]);
+            return new MockResponse().setResponseCode(200).setBody("{\"code\": 200}");
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        if (path.endsWith("/result")) {
+            String id = path.split("/")[4];
+            data.put("id", id);
+            data.put("status", status(id));
+            data.put("error", error(id));
+            data.put("outputs", outputs(id));
+            return response(data).setHeadersDelay(resultDelayMs, TimeUnit.MILLISECONDS);
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> input = GSON.fromJson(request.getBody().readUtf8(), Map.class);
+        String id = taskId(path.substring(API_PREFIX.length()), input);
+        submitted.add(id);
+        data.put("id", id);
+        data.put("status", "created");
+        return response(data);
+    }
+
+    private static MockResponse response(Map<String, Object> data) {
+        return new MockResponse().setResponseCode(200).setBody(GSON.toJson(Map.of("data", data)));
+    }
+}
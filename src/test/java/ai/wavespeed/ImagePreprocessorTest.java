@@ -0,0 +1,183 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.ImagePreprocessor;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for downscaling and re-encoding images before upload.
+ */
+class ImagePreprocessorTest {
+
+    /**
+     * Stand-in upload API recording the tickets and the transferred bodies.
+     */
+    private static class UploadApi extends Dispatcher {
+        final String baseUrl;
+        final List<String> tickets = new CopyOnWriteArrayList<>();
+        final List<byte[]> bodies = new CopyOnWriteArrayList<>();
+
+        UploadApi(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            if (request.getPath().equals("/api/v3/media/uploads")) {
+                tickets.add(request.getBody().readUtf8());
+                return new MockResponse().setResponseCode(200)
+                        .setBody("{\"code\":200,\"data\":{\"download_url\":\"https://cdn.example.com/" + tickets.size()
+                                + "\",\"upload\":{\"method\":\"PUT\",\"url\":\"" + baseUrl + "storage\"}}}");
+            }
+            bodies.add(request.getBody().readByteArray());
+            return new MockResponse().setResponseCode(200);
+        }
+    }
+
+    private static byte[] image(int width, int height, String format) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        for (int x = 0; x < width; x += 10) {
+            g.setColor(new Color((x * 7) % 256, (x * 3) % 256, 128));
+            g.fillRect(x, 0, 10, height);
+        }
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, width / 4, height / 4);
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] noise(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(3);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Insert an EXIF segment with the given orientation after the SOI marker of a JPEG.
+     */
+    private static byte[] withOrientation(byte[] jpeg, int orientation) {
+        byte[] tiff = {
+                'M', 'M', 0, 42, 0, 0, 0, 8,          // big-endian header, IFD at offset 8
+                0, 1,                                  // one entry
+                0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, (byte) orientation, 0, 0,
+                0, 0, 0, 0                             // no next IFD
+        };
+        int length = 2 + 6 + tiff.length;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        out.write(0xFF);
+        out.write(0xE1);
+        out.write(length >> 8);
+        out.write(length & 0xFF);
+        out.write('E');
+        out.write('x');
+        out.write('i');
+        out.write('f');
+        out.write(0);
+        out.write(0);
+        out.write(tiff, 0, tiff.length);
+        out.write(jpeg, 2, jpeg.length - 2);
+        return out.toByteArray();
+    }
+
+    private static Client client(MockWebServer server) {
+        return new Client("test-key", server.url("/").toString(), null, null, null, null);
+    }
+
+    @Test
+    void testLargeImageIsDownscaledAndReencoded() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            server.setDispatcher(api);
+            ImagePreprocessor images = new ImagePreprocessor().setMaxDimension(600).setQuality(0.8f);
+            Client client = client(server).setImagePreprocessor(images);
+
+            byte[] png = image(3000, 2000, "png");
+            client.upload(png, "photo.png");
+
+            BufferedImage sent = ImageIO.read(new ByteArrayInputStream(api.bodies.get(0)));
+            assertEquals(600, sent.getWidth());
+            assertEquals(400, sent.getHeight());
+            assertTrue(api.tickets.get(0).contains("\"filename\":\"photo.jpg\""));
+            assertTrue(api.tickets.get(0).contains("\"content_type\":\"image/jpeg\""));
+            // The dark corner is still in place after subsampled decoding and scaling.
+            assertTrue(new Color(sent.getRGB(20, 20)).getRed() < 40);
+
+            assertEquals(1, images.getImageCount());
+            assertEquals(png.length, images.getOriginalBytes());
+            assertEquals(api.bodies.get(0).length, images.getSentBytes());
+            assertTrue(images.getProcessingTime() > 0);
+            assertTrue(images.toString().startsWith("1 images"));
+        }
+    }
+
+    @Test
+    void testOtherContentIsSentUnchanged() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            server.setDispatcher(api);
+            ImagePreprocessor images = new ImagePreprocessor().setFormat("png");
+            Client client = client(server).setImagePreprocessor(images);
+
+            byte[] text = "not an image".getBytes();
+            client.upload(text, "notes.png");
+            // A tiny JPEG would only grow as a PNG, so the original is kept.
+            byte[] jpeg = noise(64, 64);
+            client.upload(jpeg, "thumb.jpg");
+
+            assertArrayEquals(text, api.bodies.get(0));
+            assertArrayEquals(jpeg, api.bodies.get(1));
+            assertTrue(api.tickets.get(1).contains("\"filename\":\"thumb.jpg\""));
+            assertEquals(1, images.getImageCount());
+            assertEquals(images.getOriginalBytes(), images.getSentBytes());
+        }
+    }
+
+    @Test
+    void testExifOrientationIsApplied() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            server.setDispatcher(api);
+            Client client = client(server).setImagePreprocessor(new ImagePreprocessor().setMaxDimension(400));
+
+            // Stored landscape, displayed rotated by 90 degrees clockwise.
+            client.upload(withOrientation(image(800, 400, "jpeg"), 6), "camera.jpg");
+
+            BufferedImage sent = ImageIO.read(new ByteArrayInputStream(api.bodies.get(0)));
+            assertEquals(200, sent.getWidth());
+            assertEquals(400, sent.getHeight());
+            // The stored top-left corner is now at the top right.
+            assertTrue(new Color(sent.getRGB(190, 10)).getRed() < 40);
+            assertTrue(new Color(sent.getRGB(10, 10)).getGreen() > 40 || new Color(sent.getRGB(10, 10)).getBlue() > 40);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for automatic upload of local files referenced by prediction inputs.
+ */
+class InputFileUploadTest {
+    private static final String MODEL = "wavespeed-ai/flux-kontext-pro/multi";
+
+    /**
+     * Stand-in API serving upload tickets, slow file transfers, submissions and results.
+     */
+    private static class UploadApi extends Dispatcher {
+        final String baseUrl;
+        final AtomicInteger tickets = new AtomicInteger();
+        final AtomicInteger transfers = new AtomicInteger();
+        final AtomicInteger maxConcurrentTransfers = new AtomicInteger();
+        final AtomicInteger concurrentTransfers = new AtomicInteger();
+        volatile String submittedBody;
+
+        UploadApi(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            String path = request.getPath();
+            if (path.equals("/api/v3/media/uploads")) {
+                int n = tickets.incrementAndGet();
+                return new MockResponse().setResponseCode(200)
+                        .setBody("{\"code\":200,\"data\":{\"download_url\":\"https://cdn.example.com/" + n + "\","
+                                + "\"upload\":{\"method\":\"PUT\",\"url\":\"" + baseUrl + "storage/" + n + "\"}}}");
+            }
+            if (path.startsWith("/storage/")) {
+                maxConcurrentTransfers.accumulateAndGet(concurrentTransfers.incrementAndGet(), Math::max);
+                Thread.sleep(200);
+                concurrentTransfers.decrementAndGet();
+                transfers.incrementAndGet();
+                return new MockResponse().setResponseCode(200);
+            }
+            if (path.endsWith("/result")) {
+                return new MockResponse().setResponseCode(200)
+                        .setBody("{\"data\": {\"id\": \"task-1\", \"status\": \"completed\", \"outputs\": [\"ok\"]}}");
+            }
+            submittedBody = request.getBody().readUtf8();
+            return new MockResponse().setResponseCode(200).setBody("{\"data\": {\"id\": \"task-1\"}}");
+        }
+    }
+
+    private static Path write(Path dir, String name) throws Exception {
+        Path file = dir.resolve(name);
+        Files.write(file, ("data of " + name).getBytes());
+        return file;
+    }
+
+    @Test
+    void testLocalFilesAreUploadedInParallelAndSubstituted(@TempDir Path tempDir) throws Exception {
+        Path a = write(tempDir, "a.png");
+        Path b = write(tempDir, "b.png");
+        Path c = write(tempDir, "c.png");
+
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            server.setDispatcher(api);
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setInputFileUploads(3);
+            Map<String, Object> input = new HashMap<>();
+            input.put("prompt", "Merge");
+            input.put("images", Arrays.asList(a.toFile(), b, c.toUri().toString(), a));
+            input.put("mask", "https://example.com/mask.png");
+
+            client.run(MODEL, input, 10.0, 0.01, null, null);
+
+            // a.png appears twice but is uploaded once; the transfers overlapped.
+            assertEquals(3, api.tickets.get());
+            assertEquals(3, api.maxConcurrentTransfers.get());
+            for (int n = 1; n <= 3; n++) {
+                assertTrue(api.submittedBody.contains("https://cdn.example.com/" + n), api.submittedBody);
+            }
+            assertTrue(api.submittedBody.contains("\"mask\":\"https://example.com/mask.png\""));
+            assertFalse(api.submittedBody.contains("file:"));
+            // The caller's input still holds the local references.
+            assertEquals(a.toFile(), ((List<?>) input.get("images")).get(0));
+        }
+    }
+
+    @Test
+    void testUploadsAreMemoisedAcrossRuns(@TempDir Path tempDir) throws Exception {
+        Path a = write(tempDir, "a.png");
+
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            server.setDispatcher(api);
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setInputFileUploads(2);
+            for (int i = 0; i < 3; i++) {
+                client.run(MODEL, Map.of("image", a), 10.0, 0.01, null, null);
+            }
+            assertEquals(1, api.tickets.get());
+
+            // A modified file is uploaded again.
+            Files.write(a, "new data, new size".getBytes());
+            client.run(MODEL, Map.of("image", a), 10.0, 0.01, null, null);
+            assertEquals(2, api.tickets.get());
+            assertTrue(api.submittedBody.contains("https://cdn.example.com/2"));
+        }
+    }
+
+    @Test
+    void testSharedUploadOutlivesTheRunThatStartedIt(@TempDir Path tempDir) throws Exception {
+        Path a = write(tempDir, "a.png");
+
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            server.setDispatcher(api);
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setInputFileUploads(2);
+            CompletableFuture<Map<String, Object>> impatient = CompletableFuture.supplyAsync(
+                    () -> client.run(MODEL, Map.of("image", a), 0.05, 0.01, null, null));
+            CompletableFuture<Map<String, Object>> patient = new CompletableFuture<>();
+            Thread.sleep(20);
+            new Thread(() -> {
+                try {
+                    patient.complete(client.run(MODEL, Map.of("image", a), 10.0, 0.01, null, null));
+                } catch (Throwable e) {
+                    patient.completeExceptionally(e);
+                }
+            }).start();
+            ExecutionException timedOut = assertThrows(ExecutionException.class, impatient::get);
+            assertTrue(timedOut.getCause() instanceof WavespeedException, timedOut.getCause().toString());
+
+            // The first run gave up, but the upload it started was not cancelled under the second.
+            assertNotNull(patient.get(10, TimeUnit.SECONDS).get("outputs"));
+            assertEquals(1, api.tickets.get());
+            assertEquals(1, api.transfers.get());
+            assertTrue(api.submittedBody.contains("https://cdn.example.com/1"));
+        }
+    }
+
+    @Test
+    void testMissingFileFailsBeforeSubmission(@TempDir Path tempDir) throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            server.setDispatcher(api);
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setInputFileUploads(2);
+            File missing = tempDir.resolve("missing.png").toFile();
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> client.run(MODEL, Map.of("image", missing), 10.0, 0.01, null, null));
+            assertNull(api.submittedBody);
+
+            Client.RunNoThrowResult result = client.runNoThrow(MODEL, Map.of("image", missing));
+            assertNull(result.getOutputs());
+            assertTrue(result.getDetail().getError().contains("File not found"));
+        }
+    }
+}
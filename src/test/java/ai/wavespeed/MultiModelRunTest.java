@@ -0,0 +1,121 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.ModelRunResult;
+import ai.wavespeed.api.MultiModelResult;
+import ai.wavespeed.api.RunOptions;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for racing and fanning out one input across several models.
+ */
+class MultiModelRunTest {
+    private static final RunOptions FAST_POLL = new RunOptions().setPollInterval(0.01);
+
+    /**
+     * Stand-in API whose behaviour depends on the model: "test/fast" completes
+     * at once, "test/delayed" after 200 ms, "test/stuck" never, and
+     * "test/broken" fails. The task ID is the model name.
+     */
+    private static class ModelApi extends FakeApi {
+        final Map<String, Long> submittedAt = new ConcurrentHashMap<>();
+
+        @Override
+        String taskId(String model, Map<String, Object> input) {
+            String id = model.substring(model.lastIndexOf('/') + 1);
+            submittedAt.put(id, System.currentTimeMillis());
+            return id;
+        }
+
+        @Override
+        String status(String id) {
+            switch (id) {
+                case "fast":
+                    return "completed";
+                case "delayed":
+                    return System.currentTimeMillis() - submittedAt.get(id) >= 200 ? "completed" : "processing";
+                case "broken":
+                    return "failed";
+                default:
+                    return "processing";
+            }
+        }
+
+        @Override
+        String error(String id) {
+            return id + " model crashed";
+        }
+    }
+
+    @Test
+    void testRunFirstReturnsFastestAndCancelsOthers() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            ModelApi api = new ModelApi();
+            server.setDispatcher(api);
+
+            MultiModelResult result = FakeApi.client(server).runFirst(
+                    List.of("test/stuck", "test/delayed"), Map.of("prompt", "Cat"), FAST_POLL);
+
+            ModelRunResult winner = result.getWinner();
+            assertEquals("test/delayed", winner.getModel());
+            assertEquals("delayed", winner.getTaskId());
+            assertEquals(List.of("https://cdn.example.com/delayed.png"), winner.getOutputs());
+            assertTrue(winner.getElapsed() >= 0.2);
+
+            ModelRunResult loser = result.getResult("test/stuck");
+            assertTrue(loser.isCancelled());
+            assertNull(loser.getOutputs());
+            assertEquals(List.of(loser, winner), result.getResults());
+            assertEquals("stuck", api.cancelled.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testRunFirstSkipsFailuresAndThrowsWhenAllFail() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.setDispatcher(new ModelApi());
+            Client client = FakeApi.client(server);
+
+            MultiModelResult result = client.runFirst(
+                    List.of("test/broken", "test/delayed"), Map.of("prompt", "Cat"), FAST_POLL);
+            assertEquals("test/delayed", result.getWinner().getModel());
+            assertFalse(result.getResult("test/broken").isSuccess());
+
+            WavespeedException error = assertThrows(WavespeedException.class,
+                    () -> client.runFirst(List.of("test/broken"), Map.of("prompt", "Cat"), FAST_POLL));
+            assertTrue(error.getMessage().startsWith("All 1 models failed; test/broken: "));
+            assertNotNull(error.getCause());
+        }
+    }
+
+    @Test
+    void testRunAllCollectsEveryOutcome() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            ModelApi api = new ModelApi();
+            server.setDispatcher(api);
+
+            MultiModelResult result = FakeApi.client(server).runAll(
+                    List.of("test/delayed", "test/broken", "test/fast"), Map.of("prompt", "Cat"), FAST_POLL);
+
+            assertEquals("test/fast", result.getWinner().getModel());
+            assertEquals(List.of("https://cdn.example.com/delayed.png"), result.getResult("test/delayed").getOutputs());
+            assertEquals(List.of("https://cdn.example.com/fast.png"), result.getResult("test/fast").getOutputs());
+            ModelRunResult broken = result.getResult("test/broken");
+            assertTrue(broken.getError().getMessage().contains("broken model crashed"));
+            assertFalse(broken.isCancelled());
+            assertTrue(result.getResult("test/delayed").getElapsed() > result.getResult("test/fast").getElapsed());
+            assertTrue(api.cancelled.isEmpty());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.OutputCache;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the local cache of downloaded outputs.
+ */
+class OutputCacheTest {
+
+    /**
+     * Stand-in CDN recording the paths it serves.
+     */
+    private static class Cdn extends Dispatcher {
+        final Map<String, byte[]> files = new ConcurrentHashMap<>();
+        final List<String> requests = new CopyOnWriteArrayList<>();
+        volatile long delayMs;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            requests.add(request.getPath());
+            Thread.sleep(delayMs);
+            return new MockResponse().setResponseCode(200).setBody(new Buffer().write(files.get(request.getPath())));
+        }
+    }
+
+    private static byte[] content(int size, int seed) {
+        byte[] content = new byte[size];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+
+    private static long objectCount(Path cacheDir) throws Exception {
+        try (Stream<Path> files = Files.list(cacheDir.resolve("objects"))) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testRepeatedDownloadIsServedFromCache(@TempDir Path tempDir) throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            Cdn cdn = new Cdn();
+            byte[] image = content(3000, 1);
+            cdn.files.put("/a/image.png", image);
+            cdn.files.put("/b/copy.png", image);
+            server.setDispatcher(cdn);
+            OutputCache cache = new OutputCache(tempDir.resolve("cache"));
+            Client client = new Client("test-key", server.url("/").toString(), null, null, null, null)
+                    .setOutputCache(cache);
+
+            String url = server.url("/a/image.png").toString();
+            client.download(url, tempDir.resolve("first.png"));
+            client.download(url, tempDir.resolve("second.png"));
+            assertArrayEquals(image, Files.readAllBytes(tempDir.resolve("second.png")));
+            assertEquals(1, cdn.requests.size());
+            assertEquals(1, cache.getHitCount());
+
+            // The same content under another URL is stored once.
+            client.download(server.url("/b/copy.png").toString(), tempDir.resolve("third.png"));
+            assertEquals(2, cache.size());
+            assertEquals(3000, cache.getSize());
+            assertEquals(1, objectCount(tempDir.resolve("cache")));
+        }
+    }
+
+    @Test
+    void testStoringTheSameContentAgainKeepsIt(@TempDir Path tempDir) throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            Cdn cdn = new Cdn();
+            cdn.delayMs = 200;
+            byte[] image = content(3000, 1);
+            cdn.files.put("/a/image.png", image);
+            server.setDispatcher(cdn);
+            OutputCache cache = new OutputCache(tempDir.resolve("cache"));
+            Client client = new Client("test-key", server.url("/").toString(), null, null, null, null)
+                    .setOutputCache(cache);
+
+            // Both downloads miss and store the same content under the same URL.
+            String url = server.url("/a/image.png").toString();
+            CompletableFuture<Path> first = CompletableFuture.supplyAsync(
+                    () -> client.download(url, tempDir.resolve("first.png")));
+            client.download(url, tempDir.resolve("second.png"));
+            first.get(10, TimeUnit.SECONDS);
+            assertEquals(2, cdn.requests.size());
+
+            client.download(url, tempDir.resolve("third.png"));
+            assertArrayEquals(image, Files.readAllBytes(tempDir.resolve("third.png")));
+            assertEquals(2, cdn.requests.size());
+            assertEquals(3000, cache.getSize());
+            assertEquals(1, objectCount(tempDir.resolve("cache")));
+        }
+    }
+
+    @Test
+    void testLeastRecentlyUsedOutputsAreEvicted(@TempDir Path tempDir) throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            Cdn cdn = new Cdn();
+            for (String name : new String[] {"a", "b", "c"}) {
+                cdn.files.put("/" + name, content(1000, name.charAt(0)));
+            }
+            server.setDispatcher(cdn);
+            OutputCache cache = new OutputCache(tempDir.resolve("cache")).setMaxSize(2500);
+            Client client = new Client("test-key", server.url("/").toString(), null, null, null, null)
+                    .setOutputCache(cache);
+
+            client.download(server.url("/a").toString(), tempDir.resolve("a"));
+            client.download(server.url("/b").toString(), tempDir.resolve("b"));
+            client.download(server.url("/a").toString(), tempDir.resolve("a"));
+            client.download(server.url("/c").toString(), tempDir.resolve("c"));
+
+            assertEquals(2000, cache.getSize());
+            assertEquals(2, objectCount(tempDir.resolve("cache")));
+            client.download(server.url("/a").toString(), tempDir.resolve("a"));
+            client.download(server.url("/b").toString(), tempDir.resolve("b"));
+            assertEquals(List.of("/a", "/b", "/c", "/b"), cdn.requests);
+        }
+    }
+
+    @Test
+    void testIndexIsReloadedAndMissingObjectsAreRefetched(@TempDir Path tempDir) throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            Cdn cdn = new Cdn();
+            cdn.files.put("/video.mp4", content(2000, 2));
+            cdn.files.put("/image.png", content(500, 3));
+            server.setDispatcher(cdn);
+            Path dir = tempDir.resolve("cache");
+            Client client = new Client("test-key", server.url("/").toString(), null, null, null, null)
+                    .setOutputCache(new OutputCache(dir));
+            client.download(server.url("/video.mp4").toString(), tempDir.resolve("video.mp4"));
+            client.download(server.url("/image.png").toString(), tempDir.resolve("image.png"));
+
+            // A new process finds both outputs.
+            OutputCache reopened = new OutputCache(dir);
+            assertEquals(2, reopened.size());
+            assertEquals(2500, reopened.getSize());
+            client.setOutputCache(reopened);
+            client.download(server.url("/video.mp4").toString(), tempDir.resolve("again.mp4"));
+            assertEquals(2, cdn.requests.size());
+
+            // An object deleted behind the cache's back is downloaded again.
+            try (Stream<Path> objects = Files.list(dir.resolve("objects"))) {
+                for (Path object : (Iterable<Path>) objects::iterator) {
+                    Files.delete(object);
+                }
+            }
+            client.download(server.url("/image.png").toString(), tempDir.resolve("again.png"));
+            assertEquals(3, cdn.requests.size());
+            assertArrayEquals(cdn.files.get("/image.png"), Files.readAllBytes(tempDir.resolve("again.png")));
+
+            Files.write(dir.resolve("index.json"), "{not json".getBytes());
+            assertEquals(0, new OutputCache(dir).size());
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.OutputPrefetch;
+import ai.wavespeed.api.Prediction;
+import ai.wavespeed.api.PrefetchedOutput;
+import ai.wavespeed.api.RunOptions;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for prefetching outputs when a task completes.
+ */
+class OutputPrefetchTest {
+
+    /**
+     * Stand-in for the API and its CDN: the task completes on the first poll
+     * with two outputs, which the CDN serves after a delay.
+     */
+    private static class CdnApi extends FakeApi {
+        final String baseUrl;
+        final Map<String, byte[]> files = new ConcurrentHashMap<>();
+        volatile long cdnDelayMs;
+
+        CdnApi(String baseUrl) {
+            this.baseUrl = baseUrl;
+            files.put("/cdn/image.png", content(1000));
+            files.put("/cdn/video.mp4", content(5000));
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            String path = request.getPath();
+            if (path.startsWith("/cdn/")) {
+                return new MockResponse().setResponseCode(200).setBody(new Buffer().write(files.get(path)))
+                        .setHeadersDelay(cdnDelayMs, TimeUnit.MILLISECONDS);
+            }
+            return super.dispatch(request);
+        }
+
+        @Override
+        List<String> outputs(String id) {
+            return List.of(baseUrl + "cdn/image.png", baseUrl + "cdn/video.mp4");
+        }
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    @Test
+    void testOutputsAreSpooledWhileCallerContinues(@TempDir Path tempDir) throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            CdnApi api = new CdnApi(server.url("/").toString());
+            api.cdnDelayMs = 300;
+            server.setDispatcher(api);
+            Client client = FakeApi.client(server).setOutputPrefetch(new OutputPrefetch().setSpoolDirectory(tempDir));
+
+            Prediction prediction = client.runAsync("wavespeed-ai/z-image/turbo", Map.of("prompt", "test"),
+                    new RunOptions().setPollInterval(0.01));
+            prediction.get();
+            // The outputs are on their way before anyone asked for them.
+            List<PrefetchedOutput> outputs = prediction.getPrefetchedOutputs();
+            assertFalse(outputs.get(1).isDone());
+
+            assertEquals(tempDir.resolve("req-1/image.png"), outputs.get(0).getPath());
+            assertArrayEquals(api.files.get("/cdn/image.png"), Files.readAllBytes(outputs.get(0).getPath()));
+            assertArrayEquals(api.files.get("/cdn/video.mp4"), outputs.get(1).getBytes());
+            assertSame(outputs.get(1), client.getPrefetchedOutput(server.url("/cdn/video.mp4").toString()));
+        }
+    }
+
+    @Test
+    void testMemoryPrefetchStaysWithinLimit() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            CdnApi api = new CdnApi(server.url("/").toString());
+            server.setDispatcher(api);
+            OutputPrefetch prefetch = new OutputPrefetch().setMemoryLimit(4000);
+            Client client = FakeApi.client(server).setOutputPrefetch(prefetch);
+
+            Map<String, Object> result = client.run("wavespeed-ai/z-image/turbo", Map.of("prompt", "test"));
+            List<?> urls = (List<?>) result.get("outputs");
+
+            PrefetchedOutput image = client.getPrefetchedOutput((String) urls.get(0));
+            assertArrayEquals(api.files.get("/cdn/image.png"), image.getBytes());
+            assertNull(image.getPath());
+
+            // The video alone exceeds the limit: it is dropped, to be downloaded on demand.
+            PrefetchedOutput video = client.getPrefetchedOutput((String) urls.get(1));
+            if (video != null) {
+                assertThrows(WavespeedException.class, video::getBytes);
+            }
+            assertNull(client.getPrefetchedOutput((String) urls.get(1)));
+            assertEquals(1000, prefetch.getMemoryUsed());
+        }
+    }
+
+    @Test
+    void testBusyExecutorDoesNotStallPrefetch(@TempDir Path tempDir) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            CdnApi api = new CdnApi(server.url("/").toString());
+            server.setDispatcher(api);
+            Client client = FakeApi.client(server).setExecutor(executor)
+                    .setOutputPrefetch(new OutputPrefetch().setSpoolDirectory(tempDir));
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            Map<String, Object> result = client.run("wavespeed-ai/z-image/turbo", Map.of("prompt", "test"));
+            PrefetchedOutput video = client.getPrefetchedOutput((String) ((List<?>) result.get("outputs")).get(1));
+
+            // The prefetch does not queue behind the occupied executor.
+            byte[] bytes = CompletableFuture.supplyAsync(video::getBytes).get(10, TimeUnit.SECONDS);
+            assertArrayEquals(api.files.get("/cdn/video.mp4"), bytes);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.Pipeline;
+import ai.wavespeed.api.PipelineItem;
+import ai.wavespeed.api.RunOptions;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for chaining model runs with a pipeline.
+ */
+class PipelineTest {
+
+    /**
+     * Stand-in API: a task of model "test/x" completes after the model's delay
+     * with the output {@code <src>>x}, where src is the "src" input (or the
+     * concatenated "a" and "b" inputs). Inputs containing "bad" fail on
+     * "test/upscale". Records when tasks are submitted and finish.
+     */
+    private static class StepApi extends FakeApi {
+        final Map<String, Long> delays = new ConcurrentHashMap<>();
+        final Map<String, String[]> tasks = new ConcurrentHashMap<>();
+        final Map<String, Long> submittedAt = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+        final Map<String, Integer> maxRunning = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> finished = new ConcurrentHashMap<>();
+        final AtomicInteger runningTotal = new AtomicInteger();
+        volatile int maxRunningTotal;
+        final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public synchronized MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            return super.dispatch(request);
+        }
+
+        @Override
+        String taskId(String model, Map<String, Object> input) {
+            String step = model.substring(model.lastIndexOf('/') + 1);
+            String src = input.containsKey("src") ? (String) input.get("src") : input.get("a") + "+" + input.get("b");
+            String id = super.taskId(model, input);
+            tasks.put(id, new String[] {step, src});
+            submittedAt.put(id, System.currentTimeMillis());
+            int now = running.computeIfAbsent(step, s -> new AtomicInteger()).incrementAndGet();
+            maxRunning.merge(step, now, Math::max);
+            maxRunningTotal = Math.max(maxRunningTotal, runningTotal.incrementAndGet());
+            events.add(step + ":" + src);
+            return id;
+        }
+
+        @Override
+        String status(String id) {
+            String[] task = tasks.get(id);
+            String step = task[0];
+            if (System.currentTimeMillis() - submittedAt.get(id) < delays.getOrDefault(step, 0L)) {
+                return "processing";
+            }
+            if (submittedAt.remove(id + "-done") == null) {
+                submittedAt.put(id + "-done", 0L);
+                running.get(step).decrementAndGet();
+                runningTotal.decrementAndGet();
+                finished.computeIfAbsent(step, s -> new AtomicInteger()).incrementAndGet();
+            }
+            return step.equals("upscale") && task[1].contains("bad") ? "failed" : "completed";
+        }
+
+        @Override
+        List<String> outputs(String id) {
+            String[] task = tasks.get(id);
+            return List.of(task[1] + ">" + task[0]);
+        }
+
+        @Override
+        String error(String id) {
+            return "upscaler crashed";
+        }
+    }
+
+    private static Pipeline pipeline(Client client) {
+        return new Pipeline(client)
+                .setRunOptions(new RunOptions().setPollInterval(0.01))
+                .step("image", "test/image", item -> Map.of("src", item.getInput().get("prompt")))
+                .step("upscale", "test/upscale", item -> Map.of("src", item.getOutput("image")), "image")
+                .step("caption", "test/caption", item -> Map.of("src", item.getOutput("image")), "image")
+                .step("video", "test/video",
+                        item -> Map.of("a", item.getOutput("upscale"), "b", item.getOutput("caption")),
+                        "upscale", "caption");
+    }
+
+    @Test
+    void testOutputsFeedDependentSteps() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            StepApi api = new StepApi();
+            api.delays.put("upscale", 200L);
+            api.delays.put("caption", 200L);
+            server.setDispatcher(api);
+
+            PipelineItem item = pipeline(FakeApi.client(server)).run(Map.of("prompt", "cat"));
+
+            assertEquals("cat>image>upscale+cat>image>caption>video", item.getOutput("video"));
+            assertEquals(List.of("cat>image"), item.getOutputs("image"));
+            // The two branches after "image" ran side by side.
+            assertEquals(2, api.maxRunningTotal);
+            assertEquals(4, api.submitted.size());
+        }
+    }
+
+    @Test
+    void testItemWaitsForEveryRootStep() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            StepApi api = new StepApi();
+            api.delays.put("slow", 300L);
+            server.setDispatcher(api);
+            // The first prediction runs on the calling thread, so the first root step has
+            // finished before the second one is scheduled.
+            AtomicBoolean first = new AtomicBoolean();
+            ExecutorService executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>()) {
+                @Override
+                public void execute(Runnable command) {
+                    if (first.compareAndSet(false, true)) {
+                        command.run();
+                    } else {
+                        super.execute(command);
+                    }
+                }
+            };
+            try {
+                PipelineItem item = new Pipeline(FakeApi.client(server).setExecutor(executor))
+                        .setRunOptions(new RunOptions().setPollInterval(0.01))
+                        .step("fast", "test/fast", it -> Map.of("src", it.getInput().get("prompt")))
+                        .step("slow", "test/slow", it -> Map.of("src", it.getInput().get("prompt")))
+                        .run(Map.of("prompt", "cat"));
+
+                assertEquals("cat>fast", item.getOutput("fast"));
+                assertEquals("cat>slow", item.getOutput("slow"));
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    void testItemsStreamThroughStagesWithBackpressure() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            StepApi api = new StepApi();
+            api.delays.put("upscale", 50L);
+            server.setDispatcher(api);
+
+            Pipeline pipeline = new Pipeline(FakeApi.client(server))
+                    .setRunOptions(new RunOptions().setPollInterval(0.01))
+                    .setStepConcurrency(1)
+                    .setMaxItemsInFlight(2)
+                    .step("image", "test/image", item -> Map.of("src", item.getInput().get("prompt")))
+                    .step("upscale", "test/upscale", item -> Map.of("src", item.getOutput("image")), "image");
+
+            List<Map<String, Object>> inputs = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                inputs.add(Map.of("prompt", "p" + i));
+            }
+            List<PipelineItem> items = pipeline.runBatch(inputs);
+
+            for (int i = 0; i < 6; i++) {
+                assertEquals(i, items.get(i).getIndex());
+                assertEquals("p" + i + ">image>upscale", items.get(i).getOutput("upscale"));
+            }
+            assertEquals(1, (int) api.maxRunning.get("image"));
+            assertEquals(1, (int) api.maxRunning.get("upscale"));
+            // Item 0 reached the second stage before the last item entered the first one,
+            // and the first stage never ran more than two items ahead of the second.
+            assertTrue(api.events.indexOf("upscale:p0>image") < api.events.indexOf("image:p5"));
+            int images = 0;
+            int upscales = 0;
+            for (String event : api.events) {
+                if (event.startsWith("image:")) {
+                    images++;
+                    assertTrue(images - upscales <= 2, api.events.toString());
+                } else {
+                    upscales++;
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFailedStepStopsOnlyItsItem() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            StepApi api = new StepApi();
+            server.setDispatcher(api);
+
+            List<PipelineItem> items = pipeline(FakeApi.client(server))
+                    .runBatch(List.of(Map.of("prompt", "bad"), Map.of("prompt", "dog")));
+
+            PipelineItem failed = items.get(0);
+            assertFalse(failed.isSuccess());
+            assertEquals("upscale", failed.getFailedStep());
+            assertTrue(failed.getError().getMessage().contains("upscaler crashed"));
+            assertNull(failed.getOutputs("video"));
+            assertFalse(api.events.contains("video:bad>image>upscale+bad>image>caption"));
+
+            assertTrue(items.get(1).isSuccess());
+            assertEquals("dog>image>upscale+dog>image>caption>video", items.get(1).getOutput("video"));
+
+            WavespeedException error = assertThrows(WavespeedException.class,
+                    () -> pipeline(FakeApi.client(server)).run(Map.of("prompt", "bad")));
+            assertTrue(error.getMessage().contains("upscaler crashed"));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for hedged result polls.
+ */
+class PollHedgingTest {
+    private static final String PROCESSING = "{\"data\": {\"id\": \"req-1\", \"status\": \"processing\"}}";
+    private static final String COMPLETED = "{\"data\": {\"id\": \"req-1\", \"status\": \"completed\", " +
+            "\"outputs\": [\"https://example.com/out.png\"]}}";
+
+    @Test
+    void testSlowPollIsHedged() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"data\": {\"id\": \"req-1\"}}"));
+            // Fast polls build up the latency window.
+            for (int i = 0; i < 10; i++) {
+                server.enqueue(new MockResponse().setResponseCode(200).setBody(PROCESSING));
+            }
+            // The next poll stalls; its hedge gets the fast completed response.
+            server.enqueue(new MockResponse().setResponseCode(200).setBody(COMPLETED)
+                    .setHeadersDelay(5, TimeUnit.SECONDS));
+            server.enqueue(new MockResponse().setResponseCode(200).setBody(COMPLETED));
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setPollHedging(90, 0.5);
+
+            long start = System.currentTimeMillis();
+            Map<String, Object> output = client.run("wavespeed-ai/z-image/turbo", Map.of("prompt", "test"),
+                    30.0, 0.01, null, null);
+            long elapsedMs = System.currentTimeMillis() - start;
+
+            assertEquals(List.of("https://example.com/out.png"), output.get("outputs"));
+            assertEquals(1, client.getHedgedPollCount());
+            assertTrue(elapsedMs < 4000, "hedge did not cut the stalled poll; took " + elapsedMs + "ms");
+            assertEquals(13, server.getRequestCount());
+        }
+    }
+
+    @Test
+    void testHedgingDisabledByDefault() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"data\": {\"id\": \"req-1\"}}"));
+            for (int i = 0; i < 10; i++) {
+                server.enqueue(new MockResponse().setResponseCode(200).setBody(PROCESSING));
+            }
+            server.enqueue(new MockResponse().setResponseCode(200).setBody(COMPLETED)
+                    .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01);
+            client.run("wavespeed-ai/z-image/turbo", Map.of("prompt", "test"), 30.0, 0.01, null, null);
+
+            assertEquals(0, client.getHedgedPollCount());
+            assertEquals(12, server.getRequestCount());
+        }
+    }
+
+    @Test
+    void testBudgetLimitsHedges() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"data\": {\"id\": \"req-1\"}}"));
+            for (int i = 0; i < 10; i++) {
+                server.enqueue(new MockResponse().setResponseCode(200).setBody(PROCESSING));
+            }
+            server.enqueue(new MockResponse().setResponseCode(200).setBody(COMPLETED)
+                    .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+            // A budget of 1% has not accumulated a single token after 11 polls.
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setPollHedging(50, 0.01);
+            client.run("wavespeed-ai/z-image/turbo", Map.of("prompt", "test"), 30.0, 0.01, null, null);
+
+            assertEquals(0, client.getHedgedPollCount());
+            assertEquals(12, server.getRequestCount());
+        }
+    }
+}
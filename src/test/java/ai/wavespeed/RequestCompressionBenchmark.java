@@ -0,0 +1,113 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Benchmark of bytes on the wire and submit latency with and without gzip
+ * request compression, for typical prediction payloads.
+ *
+ * <p>Not part of the test suite. Run with:</p>
+ * <pre>{@code
+ * mvn test-compile exec:java -Dexec.mainClass=ai.wavespeed.RequestCompressionBenchmark -Dexec.classpathScope=test
+ * }</pre>
+ *
+ * <p>The server is local, so latency shows the CPU cost of compression; on a
+ * real network the saved bytes usually dominate for large inline images.</p>
+ */
+public class RequestCompressionBenchmark {
+    private static final String MODEL = "wavespeed-ai/z-image/turbo";
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 50;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Map<String, Object>> payloads = new LinkedHashMap<>();
+        payloads.put("prompt only (200 B)", input(null, 1));
+        payloads.put("prompt list (50 KB)", input(null, 250));
+        payloads.put("base64 PNG (100 KB)", input(png(75_000), 1));
+        payloads.put("base64 PNG (1 MB)", input(png(750_000), 1));
+        payloads.put("base64 PNG (5 MB)", input(png(3_750_000), 1));
+
+        System.out.printf("%-22s %12s %12s %8s %12s %12s%n",
+                "payload", "plain bytes", "gzip bytes", "ratio", "plain ms", "gzip ms");
+        for (Map.Entry<String, Map<String, Object>> payload : payloads.entrySet()) {
+            Result plain = measure(payload.getValue(), 0);
+            Result gzip = measure(payload.getValue(), 1024);
+            System.out.printf("%-22s %12d %12d %7.1f%% %12.2f %12.2f%n",
+                    payload.getKey(), plain.bytes, gzip.bytes, 100.0 * gzip.bytes / plain.bytes,
+                    plain.millis, gzip.millis);
+        }
+    }
+
+    private static final class Result {
+        final long bytes;
+        final double millis;
+
+        Result(long bytes, double millis) {
+            this.bytes = bytes;
+            this.millis = millis;
+        }
+    }
+
+    /**
+     * Submit the payload repeatedly in sync mode (one request per run) and
+     * report the body size seen by the server and the mean run latency.
+     */
+    private static Result measure(Map<String, Object> input, int threshold) throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            Client client = new Client("bench-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setRequestCompression(threshold);
+            long bytes = 0;
+            long nanos = 0;
+            for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+                server.enqueue(new MockResponse().setResponseCode(200)
+                        .setBody("{\"data\": {\"id\": \"task\", \"status\": \"completed\", \"outputs\": [\"ok\"]}}"));
+                long start = System.nanoTime();
+                client.run(MODEL, input, 60.0, 0.01, true, null);
+                long elapsed = System.nanoTime() - start;
+                RecordedRequest request = server.takeRequest();
+                if (i >= WARMUP) {
+                    nanos += elapsed;
+                    bytes = request.getBodySize();
+                }
+            }
+            return new Result(bytes, nanos / 1e6 / ITERATIONS);
+        }
+    }
+
+    private static Map<String, Object> input(String image, int prompts) {
+        Map<String, Object> input = new HashMap<>();
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < prompts; i++) {
+            list.add("A photorealistic cat number " + i + " sitting on a windowsill at golden hour, 35mm, " +
+                    "shallow depth of field, soft light, highly detailed fur, cozy interior, film grain");
+        }
+        input.put("prompt", prompts == 1 ? list.get(0) : list);
+        if (image != null) {
+            input.put("image", "data:image/png;base64," + image);
+        }
+        return input;
+    }
+
+    /**
+     * Base64 of random bytes. Like real PNG/JPEG data these do not compress, so
+     * only the base64 overhead can be saved.
+     */
+    private static String png(int rawBytes) {
+        Random random = new Random(42);
+        byte[] data = new byte[rawBytes];
+        random.nextBytes(data);
+        return Base64.getEncoder().encodeToString(data);
+    }
+}
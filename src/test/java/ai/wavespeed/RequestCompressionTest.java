@@ -0,0 +1,74 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.GzipSource;
+import okio.Okio;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for gzip compression of prediction request bodies.
+ */
+class RequestCompressionTest {
+    private static final String MODEL = "wavespeed-ai/z-image/turbo";
+
+    private static Map<String, Object> inputWithImage(int size) {
+        StringBuilder image = new StringBuilder("data:image/png;base64,");
+        for (int i = 0; i < size; i++) {
+            image.append((char) ('A' + i % 26));
+        }
+        Map<String, Object> input = new HashMap<>();
+        input.put("prompt", "Cat");
+        input.put("image", image.toString());
+        return input;
+    }
+
+    private static void enqueueCompleted(MockWebServer server) {
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"data\": {\"id\": \"task-1\"}}"));
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setBody("{\"data\": {\"id\": \"task-1\", \"status\": \"completed\", \"outputs\": [\"ok\"]}}"));
+    }
+
+    @Test
+    void testLargeBodyIsCompressed() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            enqueueCompleted(server);
+            server.start();
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setRequestCompression(1024);
+            Map<String, Object> input = inputWithImage(100_000);
+            client.run(MODEL, input, 10.0, 0.01, null, null);
+
+            RecordedRequest submit = server.takeRequest();
+            assertEquals("gzip", submit.getHeader("Content-Encoding"));
+            assertTrue(submit.getBodySize() < 10_000, "body not compressed: " + submit.getBodySize());
+            String json = Okio.buffer(new GzipSource(submit.getBody())).readUtf8();
+            assertTrue(json.contains("\"prompt\":\"Cat\""));
+            assertTrue(json.contains((String) input.get("image")));
+        }
+    }
+
+    @Test
+    void testSmallBodyIsSentPlain() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            enqueueCompleted(server);
+            server.start();
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setRequestCompression(1024);
+            client.run(MODEL, inputWithImage(10), 10.0, 0.01, null, null);
+
+            RecordedRequest submit = server.takeRequest();
+            assertNull(submit.getHeader("Content-Encoding"));
+            assertTrue(submit.getBody().readUtf8().contains("\"prompt\":\"Cat\""));
+        }
+    }
+}
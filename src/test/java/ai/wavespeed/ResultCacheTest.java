@@ -0,0 +1,122 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.ResultCache;
+import ai.wavespeed.api.RunOptions;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for serving runs of deterministic models from the result cache.
+ */
+class ResultCacheTest {
+
+    private static final String MODEL = "wavespeed-ai/z-image/turbo";
+
+    private static Client client(MockWebServer server, ResultCache cache) {
+        return FakeApi.client(server).setResultCache(cache);
+    }
+
+    private static Map<String, Object> run(Client client, String model, Map<String, Object> input) {
+        return client.run(model, input, new RunOptions().setPollInterval(0.01));
+    }
+
+    @Test
+    void testIdenticalRunIsServedFromCache() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            FakeApi api = new FakeApi();
+            server.setDispatcher(api);
+            ResultCache cache = new ResultCache().allowModel(MODEL);
+            Client client = client(server, cache);
+
+            Map<String, Object> first = new LinkedHashMap<>();
+            first.put("prompt", "A lighthouse");
+            first.put("seed", 42);
+            first.put("size", Map.of("width", 1024, "height", 768));
+            Map<String, Object> second = new LinkedHashMap<>();
+            second.put("size", Map.of("height", 768.0, "width", 1024L));
+            second.put("seed", 42.0);
+            second.put("prompt", "A lighthouse");
+
+            Map<String, Object> output = run(client, MODEL, first);
+            // Key order and 42 versus 42.0 do not change the key.
+            assertEquals(output.get("outputs"), run(client, MODEL, second).get("outputs"));
+            assertEquals(1, api.submitted.size());
+            assertEquals(1, cache.getHitCount());
+            assertEquals(1, cache.getMissCount());
+
+            first.put("seed", 43);
+            assertEquals(List.of("https://cdn.example.com/req-2.png"), run(client, MODEL, first).get("outputs"));
+            assertEquals(2, api.submitted.size());
+        }
+    }
+
+    @Test
+    void testModelsNotAllowedAreNeverCached() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            FakeApi api = new FakeApi();
+            server.setDispatcher(api);
+            ResultCache cache = new ResultCache().allowModel(MODEL);
+            Client client = client(server, cache);
+
+            Map<String, Object> input = Map.of("prompt", "A lighthouse");
+            run(client, "wavespeed-ai/flux-dev", input);
+            run(client, "wavespeed-ai/flux-dev", input);
+            assertEquals(2, api.submitted.size());
+            assertEquals(0, cache.size());
+
+            run(client, MODEL, input);
+            cache.disallowModel(MODEL);
+            run(client, MODEL, input);
+            assertEquals(4, api.submitted.size());
+        }
+    }
+
+    @Test
+    void testEntriesExpireAfterTtl() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            FakeApi api = new FakeApi();
+            server.setDispatcher(api);
+            Client client = client(server, new ResultCache().allowModel(MODEL).setTtl(0.2));
+
+            Map<String, Object> input = Map.of("prompt", "A lighthouse", "seed", 1);
+            run(client, MODEL, input);
+            run(client, MODEL, input);
+            assertEquals(1, api.submitted.size());
+
+            Thread.sleep(300);
+            run(client, MODEL, input);
+            assertEquals(2, api.submitted.size());
+        }
+    }
+
+    @Test
+    void testPersistedEntriesSurviveRestart(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("results.json");
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            FakeApi api = new FakeApi();
+            server.setDispatcher(api);
+            Map<String, Object> input = Map.of("prompt", "A lighthouse", "seed", 1);
+
+            run(client(server, new ResultCache().allowModel(MODEL).setPersistenceFile(file)), MODEL, input);
+
+            ResultCache reloaded = new ResultCache().allowModel(MODEL).setPersistenceFile(file);
+            assertEquals(1, reloaded.size());
+            Map<String, Object> output = run(client(server, reloaded), MODEL, input);
+            assertEquals(List.of("https://cdn.example.com/req-1.png"), output.get("outputs"));
+            assertEquals(1, api.submitted.size());
+        }
+    }
+}
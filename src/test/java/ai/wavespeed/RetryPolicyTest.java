@@ -0,0 +1,129 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.DecorrelatedJitterRetryPolicy;
+import ai.wavespeed.api.RetryPolicy;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the retry policy and the typed error taxonomy.
+ */
+class RetryPolicyTest {
+
+    @Test
+    void testDecorrelatedJitterStaysWithinBounds() {
+        DecorrelatedJitterRetryPolicy policy = new DecorrelatedJitterRetryPolicy(0.5, 8.0);
+        IOException error = new IOException("reset");
+
+        double previous = 0.0;
+        for (int attempt = 1; attempt <= 50; attempt++) {
+            double delay = policy.nextDelay(attempt, previous, error);
+            assertTrue(delay >= 0.5, "delay below base: " + delay);
+            assertTrue(delay <= 8.0, "delay above cap: " + delay);
+            assertTrue(delay <= Math.max(0.5, previous * 3), "delay grew more than 3x: " + delay);
+            previous = delay;
+        }
+    }
+
+    @Test
+    void testRetryAfterIsALowerBound() {
+        DecorrelatedJitterRetryPolicy policy = new DecorrelatedJitterRetryPolicy(0.1, 1.0);
+        WavespeedHttpException rateLimited = new WavespeedHttpException("HTTP 429", 429, 5.0, "", "task-1");
+        assertEquals(5.0, policy.nextDelay(1, 0.0, rateLimited));
+    }
+
+    @Test
+    void testTaxonomy() {
+        DecorrelatedJitterRetryPolicy policy = new DecorrelatedJitterRetryPolicy(0.1, 1.0);
+        assertTrue(policy.shouldRetry(new IOException("reset"), 1));
+        assertTrue(policy.shouldRetry(new WavespeedHttpException("HTTP 502", 502, null, "", null), 1));
+        assertTrue(policy.shouldRetry(new WavespeedHttpException("HTTP 429", 429, null, "", null), 1));
+        assertFalse(policy.shouldRetry(new WavespeedHttpException("HTTP 404", 404, null, "", null), 1));
+        assertFalse(policy.shouldRetry(new WavespeedSubmissionException("HTTP 503", 503, null), 1));
+        assertFalse(policy.shouldRetry(new WavespeedCircuitOpenException("open", 1.0), 1));
+        assertFalse(policy.shouldRetry(new WavespeedTaskException("failed", "t", "failed", "boom"), 1));
+    }
+
+    @Test
+    void testResultPollRetriesServerErrorWithCustomPolicy() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"data\": {\"id\": \"req-1\"}}"));
+            server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "2"));
+            server.enqueue(new MockResponse().setResponseCode(200).setBody(
+                    "{\"data\": {\"id\": \"req-1\", \"status\": \"completed\", \"outputs\": [\"u\"]}}"));
+
+            List<Exception> seen = new ArrayList<>();
+            RetryPolicy recording = new RetryPolicy() {
+                @Override
+                public boolean shouldRetry(Exception error, int attempt) {
+                    seen.add(error);
+                    return true;
+                }
+
+                @Override
+                public double nextDelay(int attempt, double previousDelay, Exception error) {
+                    return 0.0;
+                }
+            };
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 2, 0.01)
+                    .setRetryPolicy(recording);
+            Map<String, Object> output = client.run("wavespeed-ai/z-image/turbo", Map.of("prompt", "test"),
+                    30.0, 0.01, null, null);
+
+            assertEquals(List.of("u"), output.get("outputs"));
+            assertEquals(1, seen.size());
+            WavespeedHttpException error = assertInstanceOf(WavespeedHttpException.class, seen.get(0));
+            assertEquals(503, error.getStatusCode());
+            assertEquals(Double.valueOf(2.0), error.getRetryAfter());
+            assertEquals("req-1", error.getTaskId());
+        }
+    }
+
+    @Test
+    void testTaskFailureIsTyped() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"data\": {\"id\": \"req-9\"}}"));
+            server.enqueue(new MockResponse().setResponseCode(200).setBody(
+                    "{\"data\": {\"id\": \"req-9\", \"status\": \"failed\", \"error\": \"NSFW\"}}"));
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 3, 0, 0.01);
+            WavespeedTaskException error = assertThrows(WavespeedTaskException.class, () ->
+                    client.run("wavespeed-ai/z-image/turbo", Map.of("prompt", "test"), 30.0, 0.01, null, null));
+
+            assertEquals("req-9", error.getTaskId());
+            assertEquals("failed", error.getStatus());
+            assertEquals("NSFW", error.getError());
+            // Task failures are not retryable: no resubmission happened.
+            assertEquals(2, server.getRequestCount());
+        }
+    }
+
+    @Test
+    void testRunNoThrowReportsTaskIdFromTypedError() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"data\": {\"id\": \"req-7\"}}"));
+            server.enqueue(new MockResponse().setResponseCode(404).setBody("not found"));
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01);
+            Client.RunNoThrowResult result = client.runNoThrow("wavespeed-ai/z-image/turbo",
+                    Map.of("prompt", "test"), 30.0, 0.01, null, null);
+
+            assertNull(result.getOutputs());
+            assertEquals("req-7", result.getDetail().getTaskId());
+            assertTrue(result.getDetail().getError().contains("HTTP 404"));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.Prediction;
+import ai.wavespeed.api.RunCoalescer;
+import ai.wavespeed.api.RunOptions;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for sharing one prediction between concurrent identical runs.
+ */
+class RunCoalescerTest {
+    private static final String MODEL = "wavespeed-ai/z-image/turbo";
+    private static final RunOptions FAST_POLL = new RunOptions().setPollInterval(0.01);
+
+    /**
+     * Stand-in API keeping tasks processing until released, then completing
+     * or failing them.
+     */
+    private static class HeldApi extends FakeApi {
+        volatile String finalStatus;
+
+        @Override
+        String status(String id) {
+            return finalStatus != null ? finalStatus : "processing";
+        }
+
+        @Override
+        String error(String id) {
+            return "out of memory";
+        }
+    }
+
+    private static Client client(MockWebServer server, RunCoalescer coalescer) {
+        return FakeApi.client(server).setRunCoalescer(coalescer);
+    }
+
+    private static void awaitSubmission(FakeApi api) throws InterruptedException {
+        for (int i = 0; i < 500 && api.submitted.size() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, api.submitted.size());
+    }
+
+    @Test
+    void testConcurrentIdenticalRunsShareOnePrediction() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            HeldApi api = new HeldApi();
+            server.setDispatcher(api);
+            RunCoalescer coalescer = new RunCoalescer();
+            Client client = client(server, coalescer);
+
+            ExecutorService callers = Executors.newFixedThreadPool(8);
+            try {
+                List<CompletableFuture<Map<String, Object>>> runs = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    runs.add(CompletableFuture.supplyAsync(
+                            () -> client.run(MODEL, Map.of("prompt", "A lighthouse"), FAST_POLL), callers));
+                }
+                awaitSubmission(api);
+                for (int i = 0; i < 500 && coalescer.getCollapsedCount() < 7; i++) {
+                    Thread.sleep(10);
+                }
+                api.finalStatus = "completed";
+
+                for (CompletableFuture<Map<String, Object>> run : runs) {
+                    assertEquals(List.of("https://cdn.example.com/req-1.png"), run.get(5, TimeUnit.SECONDS).get("outputs"));
+                }
+                assertEquals(1, api.submitted.size());
+                assertEquals(1, coalescer.getFlightCount());
+                assertEquals(7, coalescer.getCollapsedCount());
+                assertEquals(0, coalescer.getInFlightCount());
+            } finally {
+                callers.shutdownNow();
+            }
+
+            // Once the shared prediction finished, the next run submits again.
+            client.run(MODEL, Map.of("prompt", "A lighthouse"), FAST_POLL);
+            assertEquals(2, api.submitted.size());
+        }
+    }
+
+    @Test
+    void testSharedPredictionDoesNotNeedAnExecutorThread() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            HeldApi api = new HeldApi();
+            api.finalStatus = "completed";
+            server.setDispatcher(api);
+            ExecutorService single = Executors.newFixedThreadPool(1);
+            try {
+                Client client = client(server, new RunCoalescer()).setExecutor(single);
+
+                // The only executor thread runs the caller; the shared prediction must run elsewhere.
+                Prediction prediction = client.runAsync(MODEL, Map.of("prompt", "A lighthouse"), FAST_POLL);
+                assertEquals(List.of("https://cdn.example.com/req-1.png"), prediction.get(5).get("outputs"));
+            } finally {
+                single.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    void testFailureReachesEveryCaller() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            HeldApi api = new HeldApi();
+            server.setDispatcher(api);
+            Client client = client(server, new RunCoalescer());
+
+            Prediction first = client.runAsync(MODEL, Map.of("prompt", "A lighthouse"), FAST_POLL);
+            awaitSubmission(api);
+            Prediction second = client.runAsync(MODEL, Map.of("prompt", "A lighthouse"), FAST_POLL);
+            api.finalStatus = "failed";
+
+            WavespeedException firstError = assertThrows(WavespeedException.class, () -> first.get(5));
+            WavespeedException secondError = assertThrows(WavespeedException.class, () -> second.get(5));
+            assertTrue(firstError.getMessage().contains("out of memory"));
+            assertEquals(firstError.getMessage(), secondError.getMessage());
+            assertEquals(1, api.submitted.size());
+        }
+    }
+
+    @Test
+    void testSharedTaskIsCancelledOnlyWhenEveryCallerCancels() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            HeldApi api = new HeldApi();
+            server.setDispatcher(api);
+            RunCoalescer coalescer = new RunCoalescer();
+            Client client = client(server, coalescer);
+
+            Prediction first = client.runAsync(MODEL, Map.of("prompt", "A lighthouse"), FAST_POLL);
+            awaitSubmission(api);
+            Prediction second = client.runAsync(MODEL, Map.of("prompt", "A lighthouse"), FAST_POLL);
+            for (int i = 0; i < 500 && coalescer.getCollapsedCount() < 1; i++) {
+                Thread.sleep(10);
+            }
+
+            assertTrue(first.cancel());
+            assertThrows(WavespeedCancelledException.class, first::get);
+            assertNull(api.cancelled.poll(200, TimeUnit.MILLISECONDS));
+            assertFalse(second.isDone());
+
+            assertTrue(second.cancel());
+            assertEquals("req-1", api.cancelled.poll(5, TimeUnit.SECONDS));
+            assertEquals(0, coalescer.getInFlightCount());
+        }
+    }
+}
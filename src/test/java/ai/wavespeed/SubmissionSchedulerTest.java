@@ -0,0 +1,153 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.Prediction;
+import ai.wavespeed.api.Priority;
+import ai.wavespeed.api.RunOptions;
+import ai.wavespeed.api.SubmissionScheduler;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for priority classes, fair queueing and admission control of submissions.
+ */
+class SubmissionSchedulerTest {
+    private static final String MODEL = "wavespeed-ai/z-image/turbo";
+
+    /**
+     * Stand-in for the API: the task ID is the prompt, and the "blocker" task
+     * keeps processing until released.
+     */
+    private static class PromptApi extends FakeApi {
+        volatile boolean blockerDone;
+
+        @Override
+        String taskId(String model, Map<String, Object> input) {
+            return (String) input.get("prompt");
+        }
+
+        @Override
+        String status(String id) {
+            return "blocker".equals(id) && !blockerDone ? "processing" : "completed";
+        }
+
+        @Override
+        List<String> outputs(String id) {
+            return List.of();
+        }
+    }
+
+    private static Prediction start(Client client, String id, RunOptions options) {
+        return client.runAsync(MODEL, Map.of("prompt", id), options.setPollInterval(0.01));
+    }
+
+    private static void awaitQueued(SubmissionScheduler scheduler, int queued) throws InterruptedException {
+        for (int i = 0; i < 500 && scheduler.getQueuedCount() != queued; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(queued, scheduler.getQueuedCount());
+    }
+
+    private static void awaitSubmitted(FakeApi api, int count) throws InterruptedException {
+        for (int i = 0; i < 500 && api.submitted.size() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, api.submitted.size());
+    }
+
+    @Test
+    void testInteractiveJumpsAheadOfBulk() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            PromptApi api = new PromptApi();
+            server.setDispatcher(api);
+            server.start();
+
+            SubmissionScheduler scheduler = new SubmissionScheduler(1, 10);
+            Client client = FakeApi.client(server).setSubmissionScheduler(scheduler);
+
+            List<Prediction> predictions = new ArrayList<>();
+            predictions.add(start(client, "blocker", new RunOptions()));
+            awaitSubmitted(api, 1);
+            predictions.add(start(client, "bulk-1", new RunOptions().setPriority(Priority.BULK)));
+            awaitQueued(scheduler, 1);
+            predictions.add(start(client, "bulk-2", new RunOptions().setPriority(Priority.BULK)));
+            awaitQueued(scheduler, 2);
+            predictions.add(start(client, "interactive", new RunOptions().setPriority(Priority.INTERACTIVE)));
+            awaitQueued(scheduler, 3);
+            assertEquals(1, scheduler.getActiveCount());
+            assertEquals(2, scheduler.getQueuedCount(Priority.BULK));
+
+            api.blockerDone = true;
+            for (Prediction prediction : predictions) {
+                prediction.get(10.0);
+            }
+
+            assertEquals(List.of("blocker", "interactive", "bulk-1", "bulk-2"), api.submitted);
+            assertEquals(0, scheduler.getActiveCount());
+        }
+    }
+
+    @Test
+    void testTenantsShareCapacityFairly() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            PromptApi api = new PromptApi();
+            server.setDispatcher(api);
+            server.start();
+
+            SubmissionScheduler scheduler = new SubmissionScheduler(1, 10);
+            Client client = FakeApi.client(server).setSubmissionScheduler(scheduler);
+
+            List<Prediction> predictions = new ArrayList<>();
+            predictions.add(start(client, "blocker", new RunOptions()));
+            awaitSubmitted(api, 1);
+            // Tenant a queues its whole backlog before tenant b shows up.
+            String[] ids = {"a1", "a2", "a3", "a4", "b1", "b2"};
+            for (int i = 0; i < ids.length; i++) {
+                predictions.add(start(client, ids[i], new RunOptions().setTenant(ids[i].substring(0, 1))));
+                awaitQueued(scheduler, i + 1);
+            }
+
+            api.blockerDone = true;
+            for (Prediction prediction : predictions) {
+                prediction.get(10.0);
+            }
+
+            assertEquals(List.of("blocker", "a1", "b1", "a2", "b2", "a3", "a4"), api.submitted);
+        }
+    }
+
+    @Test
+    void testFullQueueEvictsLowerPriorityThenRejects() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            PromptApi api = new PromptApi();
+            server.setDispatcher(api);
+            server.start();
+
+            SubmissionScheduler scheduler = new SubmissionScheduler(1, 1);
+            Client client = FakeApi.client(server).setSubmissionScheduler(scheduler);
+
+            Prediction blocker = start(client, "blocker", new RunOptions());
+            awaitSubmitted(api, 1);
+            Prediction bulk = start(client, "bulk", new RunOptions().setPriority(Priority.BULK));
+            awaitQueued(scheduler, 1);
+            Prediction interactive = start(client, "interactive", new RunOptions().setPriority(Priority.INTERACTIVE));
+
+            assertThrows(WavespeedRejectedException.class, () -> bulk.get(10.0));
+            awaitQueued(scheduler, 1);
+            Prediction normal = start(client, "normal", new RunOptions());
+            assertThrows(WavespeedRejectedException.class, () -> normal.get(10.0));
+            assertEquals(2, scheduler.getRejectedCount());
+
+            api.blockerDone = true;
+            blocker.get(10.0);
+            interactive.get(10.0);
+            assertEquals(List.of("blocker", "interactive"), api.submitted);
+        }
+    }
+}
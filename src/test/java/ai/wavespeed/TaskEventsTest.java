@@ -0,0 +1,147 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.Flow;
+import ai.wavespeed.api.RunOptions;
+import ai.wavespeed.api.TaskEvent;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for publishing task status changes to subscribers.
+ */
+class TaskEventsTest {
+    private static final RunOptions FAST_POLL = new RunOptions().setPollInterval(0.01);
+
+    /**
+     * Stand-in API: a task is created, reported as processing by the first
+     * three polls, then completed.
+     */
+    private static class ProcessingApi extends FakeApi {
+        final AtomicInteger polls = new AtomicInteger();
+
+        @Override
+        String status(String id) {
+            return polls.incrementAndGet() <= 3 ? "processing" : "completed";
+        }
+    }
+
+    /**
+     * Subscriber recording every signal, requesting a fixed number of events up front.
+     */
+    private static class Recorder implements Flow.Subscriber<TaskEvent> {
+        final long initialRequest;
+        final BlockingQueue<TaskEvent> events = new LinkedBlockingQueue<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+
+        Recorder(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(TaskEvent item) {
+            events.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        List<String> statuses(int count) throws InterruptedException {
+            List<String> statuses = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                TaskEvent event = events.poll(5, TimeUnit.SECONDS);
+                assertNotNull(event, "missing event " + i + " after " + statuses);
+                statuses.add(event.getStatus());
+            }
+            return statuses;
+        }
+    }
+
+    @Test
+    void testEachStatusChangeIsPublishedOnce() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.setDispatcher(new ProcessingApi());
+            Client client = FakeApi.client(server);
+            Recorder all = new Recorder(Long.MAX_VALUE);
+            client.getTaskEvents().subscribe(all);
+
+            client.run("wavespeed-ai/z-image/turbo", Map.of("prompt", "Cat"), FAST_POLL);
+
+            assertEquals(List.of("created", "processing", "completed"), all.statuses(3));
+            assertNull(all.events.poll(100, TimeUnit.MILLISECONDS));
+
+            // A late subscriber to the task gets its current status, then completion.
+            Recorder task = new Recorder(Long.MAX_VALUE);
+            client.getTaskEvents("req-1").subscribe(task);
+            TaskEvent event = task.events.poll(5, TimeUnit.SECONDS);
+            assertEquals("completed", event.getStatus());
+            assertEquals("processing", event.getPreviousStatus());
+            assertEquals("wavespeed-ai/z-image/turbo", event.getModel());
+            assertEquals(List.of("https://cdn.example.com/req-1.png"), event.getOutputs());
+            assertTrue(event.isTerminal());
+            assertTrue(task.completed.await(5, TimeUnit.SECONDS));
+            assertNull(task.error);
+        }
+    }
+
+    @Test
+    void testEventsAreDeliveredOnDemand() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.setDispatcher(new ProcessingApi());
+            Client client = FakeApi.client(server);
+            Recorder slow = new Recorder(1);
+            client.getTaskEvents().subscribe(slow);
+
+            client.run("wavespeed-ai/z-image/turbo", Map.of("prompt", "Cat"), FAST_POLL);
+
+            assertEquals(List.of("created"), slow.statuses(1));
+            assertNull(slow.events.poll(200, TimeUnit.MILLISECONDS));
+            slow.subscription.request(2);
+            assertEquals(List.of("processing", "completed"), slow.statuses(2));
+
+            slow.subscription.cancel();
+            client.run("wavespeed-ai/z-image/turbo", Map.of("prompt", "Dog"), FAST_POLL);
+            assertNull(slow.events.poll(200, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    void testNonPositiveRequestSignalsError() throws Exception {
+        Client client = new Client("test-key", "http://localhost:1", null, 0, 0, 0.01);
+        Recorder invalid = new Recorder(0);
+        client.getTaskEvents().subscribe(invalid);
+
+        assertTrue(invalid.completed.await(5, TimeUnit.SECONDS));
+        assertTrue(invalid.error instanceof IllegalArgumentException);
+        assertThrows(NullPointerException.class, () -> client.getTaskEvents().subscribe(null));
+    }
+}
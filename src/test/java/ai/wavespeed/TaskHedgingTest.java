@@ -0,0 +1,137 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.Prediction;
+import ai.wavespeed.api.RunOptions;
+import ai.wavespeed.api.SubmissionScheduler;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for racing duplicate predictions against slow tasks.
+ */
+class TaskHedgingTest {
+    private static final String MODEL = "wavespeed-ai/z-image/turbo";
+    private static final RunOptions FAST_POLL = new RunOptions().setPollInterval(0.01);
+
+    /**
+     * Stand-in API completing tasks on the first poll, except those marked
+     * slow, which keep processing.
+     */
+    private static class SlowApi extends FakeApi {
+        final Set<String> slow = ConcurrentHashMap.newKeySet();
+
+        @Override
+        String status(String id) {
+            return slow.contains(id) ? "processing" : "completed";
+        }
+    }
+
+    private static void warmUp(Client client) {
+        for (int i = 0; i < 20; i++) {
+            client.run(MODEL, Map.of("prompt", "warm-up"), FAST_POLL);
+        }
+    }
+
+    @Test
+    void testSlowTaskIsRacedByDuplicate() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            SlowApi api = new SlowApi();
+            server.setDispatcher(api);
+            Client client = FakeApi.client(server).setTaskHedging(90, 0.5);
+            warmUp(client);
+            assertEquals(0, client.getHedgedTaskCount());
+
+            api.slow.add("req-21");
+            Prediction prediction = client.runAsync(MODEL, Map.of("prompt", "A lighthouse"),
+                    new RunOptions().setPollInterval(0.01).setTimeout(10.0));
+
+            assertEquals(List.of("https://cdn.example.com/req-22.png"), prediction.get(5).get("outputs"));
+            assertEquals("req-22", prediction.getTaskId());
+            assertEquals(1, client.getHedgedTaskCount());
+            assertEquals("req-21", api.cancelled.poll(5, TimeUnit.SECONDS));
+            assertEquals(22, api.submitted.size());
+        }
+    }
+
+    @Test
+    void testExhaustedBudgetWaitsForOriginalTask() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            SlowApi api = new SlowApi();
+            server.setDispatcher(api);
+            Client client = FakeApi.client(server).setTaskHedging(90, 0.01);
+            warmUp(client);
+
+            api.slow.add("req-21");
+            Prediction prediction = client.runAsync(MODEL, Map.of("prompt", "A lighthouse"), FAST_POLL);
+            Thread.sleep(300);
+            assertFalse(prediction.isDone());
+            api.slow.clear();
+
+            assertEquals(List.of("https://cdn.example.com/req-21.png"), prediction.get(5).get("outputs"));
+            assertEquals(0, client.getHedgedTaskCount());
+            assertEquals(21, api.submitted.size());
+            assertTrue(api.cancelled.isEmpty());
+        }
+    }
+
+    @Test
+    void testDuplicateNeedsFreeSchedulerSlot() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            SlowApi api = new SlowApi();
+            server.setDispatcher(api);
+            SubmissionScheduler scheduler = new SubmissionScheduler(1, 10);
+            Client client = FakeApi.client(server).setTaskHedging(90, 0.5).setSubmissionScheduler(scheduler);
+            warmUp(client);
+
+            // The slow task holds the only slot, so no duplicate is submitted.
+            api.slow.add("req-21");
+            Prediction prediction = client.runAsync(MODEL, Map.of("prompt", "A lighthouse"), FAST_POLL);
+            Thread.sleep(300);
+            assertFalse(prediction.isDone());
+            api.slow.clear();
+
+            assertEquals(List.of("https://cdn.example.com/req-21.png"), prediction.get(5).get("outputs"));
+            assertEquals(0, client.getHedgedTaskCount());
+            assertEquals(21, api.submitted.size());
+            assertEquals(0, scheduler.getActiveCount());
+        }
+    }
+
+    @Test
+    void testCancellingHedgedRunCancelsBothTasks() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            SlowApi api = new SlowApi();
+            server.setDispatcher(api);
+            Client client = FakeApi.client(server).setTaskHedging(90, 0.5);
+            warmUp(client);
+
+            api.slow.add("req-21");
+            api.slow.add("req-22");
+            Prediction prediction = client.runAsync(MODEL, Map.of("prompt", "A lighthouse"), FAST_POLL);
+            for (int i = 0; i < 500 && api.submitted.size() < 22; i++) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(50);
+
+            assertTrue(prediction.cancel());
+            assertThrows(WavespeedCancelledException.class, prediction::get);
+            Set<String> cancelled = ConcurrentHashMap.newKeySet();
+            cancelled.add(api.cancelled.poll(5, TimeUnit.SECONDS));
+            cancelled.add(api.cancelled.poll(5, TimeUnit.SECONDS));
+            assertEquals(Set.of("req-21", "req-22"), cancelled);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.UploadCache;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the content-addressed upload cache.
+ */
+class UploadCacheTest {
+
+    /**
+     * Stand-in upload API handing out numbered download URLs.
+     */
+    private static class UploadApi extends Dispatcher {
+        final String baseUrl;
+        final AtomicInteger tickets = new AtomicInteger();
+
+        UploadApi(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            if (request.getPath().equals("/api/v3/media/uploads")) {
+                int n = tickets.incrementAndGet();
+                return new MockResponse().setResponseCode(200)
+                        .setBody("{\"code\":200,\"data\":{\"download_url\":\"https://cdn.example.com/" + n + "\","
+                                + "\"upload\":{\"method\":\"PUT\",\"url\":\"" + baseUrl + "storage/" + n + "\"}}}");
+            }
+            return new MockResponse().setResponseCode(200);
+        }
+    }
+
+    private static Path write(Path dir, String name, String content) throws Exception {
+        Path file = dir.resolve(name);
+        Files.write(file, content.getBytes());
+        return file;
+    }
+
+    @Test
+    void testSameContentIsUploadedOnce(@TempDir Path tempDir) throws Exception {
+        Path a = write(tempDir, "a.png", "reference image");
+        Path copy = write(tempDir, "copy-of-a.png", "reference image");
+        Path other = write(tempDir, "b.png", "another image");
+
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            server.setDispatcher(api);
+            UploadCache cache = new UploadCache();
+            Client client = new Client("test-key", server.url("/").toString(), null, null, null, null)
+                    .setUploadCache(cache);
+
+            String url = client.upload(a.toString());
+            assertEquals(url, client.upload(a.toString()));
+            assertEquals(url, client.upload(copy.toString()));
+            assertNotEquals(url, client.upload(other.toString()));
+
+            assertEquals(2, api.tickets.get());
+            assertEquals(4, server.getRequestCount());  // two tickets, two PUTs
+            assertEquals(2, cache.getHitCount());
+            assertEquals(2, cache.getMissCount());
+        }
+    }
+
+    @Test
+    void testPersistedEntriesAreReused(@TempDir Path tempDir) throws Exception {
+        Path a = write(tempDir, "a.png", "reference image");
+        Path store = tempDir.resolve("uploads.json");
+
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            server.setDispatcher(api);
+            String baseUrl = server.url("/").toString();
+
+            Client first = new Client("test-key", baseUrl, null, null, null, null)
+                    .setUploadCache(new UploadCache().setPersistenceFile(store));
+            String url = first.upload(a.toString());
+            assertTrue(Files.readAllLines(store).toString().contains(url));
+
+            // A new process loading the same file skips the upload.
+            UploadCache reloaded = new UploadCache().setPersistenceFile(store);
+            assertEquals(1, reloaded.size());
+            Client second = new Client("test-key", baseUrl, null, null, null, null).setUploadCache(reloaded);
+            assertEquals(url, second.upload(a.toString()));
+            assertEquals(1, api.tickets.get());
+        }
+    }
+
+    @Test
+    void testExpiredAndEvictedEntriesAreUploadedAgain(@TempDir Path tempDir) throws Exception {
+        Path a = write(tempDir, "a.png", "first image");
+        Path b = write(tempDir, "b.png", "second image");
+
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            server.setDispatcher(api);
+            UploadCache cache = new UploadCache().setTtl(0.2).setMaxEntries(1);
+            Client client = new Client("test-key", server.url("/").toString(), null, null, null, null)
+                    .setUploadCache(cache);
+
+            client.upload(a.toString());
+            client.upload(b.toString());          // evicts a
+            assertEquals(1, cache.size());
+            client.upload(a.toString());
+            assertEquals(3, api.tickets.get());
+
+            Thread.sleep(300);                    // a expires
+            client.upload(a.toString());
+            assertEquals(4, api.tickets.get());
+        }
+    }
+
+    @Test
+    void testCorruptPersistenceFileIsIgnored(@TempDir Path tempDir) throws Exception {
+        Path store = write(tempDir, "uploads.json", "{not json");
+        UploadCache cache = new UploadCache().setPersistenceFile(store);
+        assertEquals(0, cache.size());
+    }
+}
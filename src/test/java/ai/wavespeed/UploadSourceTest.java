@@ -0,0 +1,130 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.UploadCache;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for uploading content from memory, streams and paths.
+ */
+class UploadSourceTest {
+
+    /**
+     * Stand-in upload API recording the tickets and the transferred bodies.
+     */
+    private static class UploadApi extends Dispatcher {
+        final String baseUrl;
+        final List<String> tickets = new CopyOnWriteArrayList<>();
+        final List<byte[]> bodies = new CopyOnWriteArrayList<>();
+
+        UploadApi(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            if (request.getPath().equals("/api/v3/media/uploads")) {
+                tickets.add(request.getBody().readUtf8());
+                return new MockResponse().setResponseCode(200)
+                        .setBody("{\"code\":200,\"data\":{\"download_url\":\"https://cdn.example.com/" + tickets.size()
+                                + "\",\"upload\":{\"method\":\"PUT\",\"url\":\"" + baseUrl + "storage\"}}}");
+            }
+            bodies.add(request.getBody().readByteArray());
+            return new MockResponse().setResponseCode(200);
+        }
+    }
+
+    private static Client client(MockWebServer server) {
+        return new Client("test-key", server.url("/").toString(), null, null, null, null);
+    }
+
+    @Test
+    void testUploadBytes() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            server.setDispatcher(api);
+
+            byte[] png = "rendered png".getBytes();
+            assertEquals("https://cdn.example.com/1", client(server).upload(png, "render.png"));
+
+            assertTrue(api.tickets.get(0).contains("\"filename\":\"render.png\""));
+            assertTrue(api.tickets.get(0).contains("\"size\":12"));
+            assertTrue(api.tickets.get(0).contains("\"content_type\":\"image/png\""));
+            assertArrayEquals(png, api.bodies.get(0));
+        }
+    }
+
+    @Test
+    void testUploadByteBufferSendsRemainingBytesOnly() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            server.setDispatcher(api);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(32);
+            buffer.put("header|image-bytes|trailer".getBytes());
+            buffer.position(7).limit(18);
+
+            client(server).upload(buffer, "image.jpg");
+
+            assertEquals("image-bytes", new String(api.bodies.get(0)));
+            assertEquals(7, buffer.position());
+            assertEquals(18, buffer.limit());
+        }
+    }
+
+    @Test
+    void testUploadStreamReadsExactlyLength() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            server.setDispatcher(api);
+
+            ByteArrayInputStream in = new ByteArrayInputStream("frame-one|frame-two".getBytes());
+            client(server).upload(in, 9, "frame.png");
+
+            assertEquals("frame-one", new String(api.bodies.get(0)));
+            assertEquals('|', in.read());
+
+            WavespeedException error = assertThrows(WavespeedException.class,
+                    () -> client(server).upload(new ByteArrayInputStream(new byte[3]), 10, "short.png"));
+            assertNotNull(error.getCause());
+        }
+    }
+
+    @Test
+    void testUploadPathAndCacheMemoryContent(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("mask.png");
+        Files.write(file, "mask".getBytes());
+
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            server.setDispatcher(api);
+            Client client = client(server).setUploadCache(new UploadCache());
+
+            String url = client.upload(file);
+            assertArrayEquals("mask".getBytes(), api.bodies.get(0));
+
+            // The same content from memory is recognised by its hash.
+            assertEquals(url, client.upload("mask".getBytes(), "copy.png"));
+            assertEquals(url, client.upload(ByteBuffer.wrap("mask".getBytes()), "copy.png"));
+            assertEquals(1, api.tickets.size());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package ai.wavespeed;
 
 import ai.wavespeed.api.Client;
+import ai.wavespeed.api.UploadOptions;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
@@ -10,6 +11,7 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -53,6 +55,16 @@ class UploadTest {
         assertThrows(IllegalArgumentException.class, () -> client.upload("/nonexistent/path/to/file.png"));
     }
 
+    @Test
+    void testUploadNullTimeoutOrOptionsSelectDefaults() {
+        Client client = new Client("test-key");
+        Path missing = Paths.get("/nonexistent/path/to/file.png");
+        assertThrows(IllegalArgumentException.class, () -> client.upload(missing.toString(), (Double) null));
+        assertThrows(IllegalArgumentException.class, () -> client.upload(missing.toString(), (UploadOptions) null));
+        assertThrows(IllegalArgumentException.class, () -> client.upload(missing, (Double) null));
+        assertThrows(IllegalArgumentException.class, () -> client.upload(missing, (UploadOptions) null));
+    }
+
     @Test
     void testUploadRequiresApiKey(@TempDir Path tempDir) throws IOException {
         Path testFile = tempDir.resolve("test.png");
@@ -0,0 +1,168 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.UploadOptions;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for upload bandwidth limits and progress callbacks.
+ */
+class UploadThrottlingTest {
+
+    /**
+     * Stand-in upload API and storage. With a part size set, tickets offer a
+     * multipart upload and the first PUT of part 1 fails once.
+     */
+    private static class UploadApi extends Dispatcher {
+        final String baseUrl;
+        final List<byte[]> bodies = new CopyOnWriteArrayList<>();
+        final AtomicInteger partOneFailures = new AtomicInteger(1);
+        volatile long partSize;
+
+        UploadApi(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            String path = request.getPath();
+            if (path.equals("/api/v3/media/uploads")) {
+                String upload = "{\"method\":\"PUT\",\"url\":\"" + baseUrl + "storage\"";
+                if (partSize > 0) {
+                    upload += ",\"multipart\":{\"upload_id\":\"up-1\",\"part_size\":" + partSize
+                            + ",\"complete_url\":\"" + baseUrl + "complete\",\"parts\":["
+                            + "{\"part_number\":1,\"url\":\"" + baseUrl + "parts/1\"},"
+                            + "{\"part_number\":2,\"url\":\"" + baseUrl + "parts/2\"}]}";
+                }
+                upload += "}";
+                return new MockResponse().setResponseCode(200).setBody(
+                        "{\"code\":200,\"data\":{\"download_url\":\"https://cdn.example.com/f\",\"upload\":" + upload + "}}");
+            }
+            if (path.equals("/parts/1") && partOneFailures.getAndDecrement() > 0) {
+                return new MockResponse().setResponseCode(503).setHeader("Retry-After", "0.01");
+            }
+            if (path.equals("/complete")) {
+                return new MockResponse().setResponseCode(200).setBody("{\"code\":200}");
+            }
+            bodies.add(request.getBody().readByteArray());
+            return new MockResponse().setResponseCode(200).setHeader("ETag", "\"etag\"");
+        }
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(11).nextBytes(content);
+        return content;
+    }
+
+    @Test
+    void testPerUploadLimitThrottlesTransferAndReportsProgress() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            server.setDispatcher(api);
+            Client client = new Client("test-key", server.url("/").toString(), null, null, null, null);
+
+            byte[] data = content(200_000);
+            List<long[]> progress = new CopyOnWriteArrayList<>();
+            List<Double> rates = new CopyOnWriteArrayList<>();
+            long start = System.nanoTime();
+            client.upload(data, "clip.mp4", new UploadOptions()
+                    .setBandwidthLimit(400_000)
+                    .setProgressListener((sent, total, rate) -> {
+                        progress.add(new long[] {sent, total});
+                        rates.add(rate);
+                    }));
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            assertArrayEquals(data, api.bodies.get(0));
+            // 200 KB at 400 KB/s, less the initial burst of a tenth of a second.
+            assertTrue(elapsedMs >= 350, "upload took only " + elapsedMs + " ms");
+
+            long previous = 0;
+            for (long[] update : progress) {
+                assertTrue(update[0] > previous);
+                assertEquals(200_000, update[1]);
+                previous = update[0];
+            }
+            assertEquals(200_000, previous);
+            double finalRate = rates.get(rates.size() - 1);
+            assertTrue(finalRate > 200_000 && finalRate < 600_000, "throughput " + finalRate);
+        }
+    }
+
+    @Test
+    void testClientLimitIsSharedByConcurrentUploads() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            server.setDispatcher(api);
+            Client client = new Client("test-key", server.url("/").toString(), null, null, null, null)
+                    .setUploadBandwidthLimit(400_000);
+
+            long start = System.nanoTime();
+            List<CompletableFuture<String>> uploads = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                byte[] data = content(100_000);
+                uploads.add(CompletableFuture.supplyAsync(() -> client.upload(data, "frame.png")));
+            }
+            for (CompletableFuture<String> upload : uploads) {
+                upload.join();
+            }
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(2, api.bodies.size());
+            assertTrue(elapsedMs >= 350, "uploads took only " + elapsedMs + " ms");
+        }
+    }
+
+    @Test
+    void testProgressOfChunkedUploadDoesNotCountRetriedPartTwice() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            UploadApi api = new UploadApi(server.url("/").toString());
+            api.partSize = 40_000;
+            server.setDispatcher(api);
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 3, 0.01)
+                    .setChunkedUpload(40_000, 1);
+
+            List<Long> sent = new CopyOnWriteArrayList<>();
+            client.upload(content(70_000), "clip.mp4", new UploadOptions()
+                    .setProgressListener((bytes, total, rate) -> sent.add(bytes)));
+
+            assertEquals(2, api.bodies.size());
+            assertEquals(70_000L, (long) sent.get(sent.size() - 1));
+            for (long bytes : sent) {
+                assertTrue(bytes <= 70_000);
+            }
+        }
+    }
+
+    @Test
+    void testThrottledUploadStopsAtDeadline() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.start();
+            server.setDispatcher(new UploadApi(server.url("/").toString()));
+            Client client = new Client("test-key", server.url("/").toString(), null, null, null, null);
+
+            long start = System.nanoTime();
+            assertThrows(WavespeedException.class, () -> client.upload(content(100_000), "clip.mp4",
+                    new UploadOptions().setBandwidthLimit(10_000).setTimeout(0.5)));
+            // The transfer would need ten seconds at this rate.
+            assertTrue((System.nanoTime() - start) / 1_000_000 < 2000);
+        }
+    }
+}
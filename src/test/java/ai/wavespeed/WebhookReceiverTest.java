@@ -0,0 +1,128 @@
+package ai.wavespeed;
+
+import ai.wavespeed.api.Client;
+import ai.wavespeed.api.Prediction;
+import ai.wavespeed.api.RunOptions;
+import ai.wavespeed.api.WebhookReceiver;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for completion callbacks through the embedded webhook receiver.
+ */
+class WebhookReceiverTest {
+    private static final String MODEL = "wavespeed-ai/z-image/turbo";
+
+    /**
+     * Stand-in for the WaveSpeed API posting a completion callback.
+     */
+    private static int postCallback(String url, String body) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(body, MediaType.parse("application/json")))
+                .build();
+        try (Response response = new OkHttpClient().newCall(request).execute()) {
+            return response.code();
+        }
+    }
+
+    private static void awaitTaskId(Prediction prediction) throws InterruptedException {
+        for (int i = 0; i < 500 && prediction.getTaskId() == null; i++) {
+            Thread.sleep(10);
+        }
+        assertNotNull(prediction.getTaskId());
+    }
+
+    @Test
+    void testCallbackCompletesWithoutPolling() throws Exception {
+        try (MockWebServer server = new MockWebServer(); WebhookReceiver receiver = new WebhookReceiver(0)) {
+            server.start();
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"data\": {\"id\": \"req-1\"}}"));
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setWebhookReceiver(receiver);
+            Prediction prediction = client.runAsync(MODEL, Map.of("prompt", "test"),
+                    new RunOptions().setPollInterval(0.01));
+            awaitTaskId(prediction);
+
+            RecordedRequest submit = server.takeRequest();
+            assertEquals(receiver.getUrl(),
+                    HttpUrl.get(server.url("/").toString() + submit.getPath().substring(1)).queryParameter("webhook"));
+
+            assertEquals(200, postCallback(receiver.getUrl(),
+                    "{\"id\": \"req-1\", \"status\": \"completed\", \"outputs\": [\"https://example.com/out.png\"]}"));
+
+            assertEquals(List.of("https://example.com/out.png"), prediction.get(10.0).get("outputs"));
+            assertEquals(1, receiver.getCallbackCount());
+            // Only the submission reached the API: no result polls.
+            assertEquals(1, server.getRequestCount());
+        }
+    }
+
+    @Test
+    void testEarlyCallbackAndTaskFailure() throws Exception {
+        try (MockWebServer server = new MockWebServer(); WebhookReceiver receiver = new WebhookReceiver(0)) {
+            server.start();
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"data\": {\"id\": \"req-2\"}}"));
+
+            // The callback arrives before anyone waits for the task.
+            assertEquals(200, postCallback(receiver.getUrl(),
+                    "{\"data\": {\"id\": \"req-2\", \"status\": \"failed\", \"error\": \"NSFW\"}}"));
+
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setWebhookReceiver(receiver);
+            WavespeedTaskException error = assertThrows(WavespeedTaskException.class, () ->
+                    client.run(MODEL, Map.of("prompt", "test"), 10.0, 0.01, null, null));
+            assertEquals("NSFW", error.getError());
+            assertEquals(1, server.getRequestCount());
+        }
+    }
+
+    @Test
+    void testFallsBackToSlowPolling() throws Exception {
+        try (MockWebServer server = new MockWebServer(); WebhookReceiver receiver = new WebhookReceiver(0)) {
+            server.start();
+            server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"data\": {\"id\": \"req-3\"}}"));
+            server.enqueue(new MockResponse().setResponseCode(200).setBody(
+                    "{\"data\": {\"id\": \"req-3\", \"status\": \"processing\"}}"));
+            server.enqueue(new MockResponse().setResponseCode(200).setBody(
+                    "{\"data\": {\"id\": \"req-3\", \"status\": \"completed\", \"outputs\": [\"u\"]}}"));
+
+            receiver.setFallbackPollInterval(0.2);
+            Client client = new Client("test-key", server.url("/").toString(), null, 0, 0, 0.01)
+                    .setWebhookReceiver(receiver);
+
+            long start = System.currentTimeMillis();
+            Map<String, Object> output = client.run(MODEL, Map.of("prompt", "test"), 10.0, 0.01, null, null);
+
+            assertEquals(List.of("u"), output.get("outputs"));
+            assertEquals(3, server.getRequestCount());
+            // Polls were spaced by the fallback interval, not the 10ms poll interval.
+            assertTrue(System.currentTimeMillis() - start >= 400);
+        }
+    }
+
+    @Test
+    void testRejectsMalformedCallbacks() throws Exception {
+        try (WebhookReceiver receiver = new WebhookReceiver(0)) {
+            assertEquals(400, postCallback(receiver.getUrl(), "not json"));
+            assertEquals(400, postCallback(receiver.getUrl(), "{\"status\": \"completed\"}"));
+            assertEquals(404, postCallback(receiver.getUrl().replaceAll("/[0-9a-f]+$", "/guess"), "{}"));
+            assertEquals(0, receiver.getCallbackCount());
+        }
+    }
+}